@@ -85,6 +85,10 @@ Echo.FreeClient = Core.extend(Echo.Client, {
             // execution.
             this.processUpdates();
             this._renderPending = false;
+            if (Echo.Client.profilingTimer) {
+                Core.Debug.consoleWrite(Echo.Client.profilingTimer + " /pc:" + Echo.Render._loadedPeerCount);
+                Echo.Client.profilingTimer = null;
+            }
         }
     },
     
@@ -21,6 +21,34 @@
  */
 Echo.Render = {
 
+    /**
+     * Flag indicating whether batched rendering is enabled.
+     * When enabled, elements passed to <code>renderDetached()</code> during the update phase are removed from the document
+     * while their content is rendered and re-attached in a single pass at the end of the update phase, and
+     * <code>renderDisplay()</code> notifications requested during the update phase (i.e., by <code>notifyResize()</code> or
+     * <code>notifyMove()</code>) are coalesced into the traversal performed by the display phase.
+     * Only the root component's peer (<code>Echo.Render.RootSync</code>) invokes <code>renderDetached()</code>, when the
+     * entire content of the application is rendered; components added by incremental updates are still rendered into 
+     * attached elements.
+     * Disabled by default.
+     * @type Boolean
+     */
+    batchedRendering: false,
+    
+    /**
+     * Array of elements detached by <code>renderDetached()</code>, alternating with the placeholder nodes that
+     * replaced them in the document.  Non-null only during the update phase of a batched rendering.
+     * @type Array
+     */
+    _detachedElements: null,
+    
+    /**
+     * Array of components on which <code>notifyResize()</code> or <code>notifyMove()</code> was invoked during the update
+     * phase of a batched rendering.  Non-null only during the update phase of a batched rendering.
+     * @type Array
+     */
+    _deferredDisplay: null,
+
     /**
      * Count of loaded/unloaded peers.  Used for testing purposes to ensure peers are not being leaked.
      * @type Number
@@ -121,6 +149,21 @@ Echo.Render = {
         }
     },
     
+    /**
+     * Re-attaches all elements detached by <code>renderDetached()</code> during the update phase, replacing their
+     * placeholders.  Elements are re-attached in reverse order of detachment.
+     */
+    _attachDetachedElements: function() {
+        var detachedElements = Echo.Render._detachedElements;
+        Echo.Render._detachedElements = null;
+        for (var i = detachedElements.length - 2; i >= 0; i -= 2) {
+            var placeholder = detachedElements[i + 1];
+            if (placeholder.parentNode) {
+                placeholder.parentNode.replaceChild(detachedElements[i], placeholder);
+            }
+        }
+    },
+    
     /**
      * Returns the depth of a specific component in the hierarchy.
      * The root component is at depth 0, its immediate children are
@@ -182,7 +225,11 @@ Echo.Render = {
      * @param {Echo.Component} parent the component whose size changed
      */
     notifyResize: function(parent) {
-        Echo.Render._doRenderDisplay(parent, false);
+        if (Echo.Render._deferredDisplay) {
+            Echo.Render._deferredDisplay.push(parent);
+        } else {
+            Echo.Render._doRenderDisplay(parent, false);
+        }
     },
     
     /**
@@ -201,7 +248,11 @@ Echo.Render = {
      * @param {Echo.Component} parent the component whose size changed
      */
     notifyMove: function(parent) {
-        Echo.Render._doRenderDisplay(parent, false);
+        if (Echo.Render._deferredDisplay) {
+            Echo.Render._deferredDisplay.push(parent);
+        } else {
+            Echo.Render._doRenderDisplay(parent, false);
+        }
     },
 
     /**
@@ -280,41 +331,64 @@ Echo.Render = {
         }
         
         // Update Phase: Invoke renderUpdate on all updates.
-        for (i = 0; i < updates.length; ++i) {
-            if (updates[i] == null) {
-                // The update has been removed, skip it.
-                continue;
-            }
-            
-            // Obtain component synchronization peer.
-            peer = updates[i].parent.peer;
-            
-            // Perform update by invoking peer's renderUpdate() method.
-            var fullRender = peer.renderUpdate(updates[i]);
-            updates[i].parent.fireEvent({type: "updated", source: updates[i].parent, data: updates[i]});
-
-            // If the update required re-rendering descendants of the updated component,
-            // null-out any pending updates to descendant components.
-            if (fullRender) {
-                for (j = i + 1; j < updates.length; ++j) {
-                    if (updates[j] != null && updates[i].parent.isAncestorOf(updates[j].parent)) {
-                        updates[j].parent.fireEvent({type: "updated", source: updates[j].parent, data: updates[j]});
-                        updates[j] = null;
-                    }
+        var deferredDisplay = null;
+        if (Echo.Render.batchedRendering) {
+            Echo.Render._detachedElements = [];
+            Echo.Render._deferredDisplay = deferredDisplay = [];
+        }
+        try {
+            Echo.Render._processUpdatePhase(updates);
+        } finally {
+            Echo.Render._deferredDisplay = null;
+            if (Echo.Render._detachedElements) {
+                // Profiling: Mark completion of update phase.
+                if (Echo.Client.profilingTimer) {
+                    Echo.Client.profilingTimer.mark("up");
                 }
+                Echo.Render._attachDetachedElements();
             }
-
-            // Invoke _setPeerDisposedState() to ensure that peer is marked as non-disposed.
-            // (A full-re-render may have invoked renderComponentDispose()).
-            Echo.Render._setPeerDisposedState(updates[i].parent, false);
         }
         
-        // Profiling: Mark completion of update phase.
+        // Profiling: Mark completion of update phase (or attachment of detached elements, if batched).
         if (Echo.Client.profilingTimer) {
-            Echo.Client.profilingTimer.mark("up");
+            Echo.Client.profilingTimer.mark(deferredDisplay ? "att" : "up");
         }
         
         // Display Phase: Invoke renderDisplay on all updates.
+        Echo.Render._processDisplayPhase(updates, deferredDisplay);
+    
+        // Profiling: Mark completion of display phase.
+        if (Echo.Client.profilingTimer) {
+            Echo.Client.profilingTimer.mark("disp");
+        }
+    
+        // Unload peers for truly removed components, destroy mapping.
+        for (var peerId in Echo.Render._disposedComponents) {
+            var component = Echo.Render._disposedComponents[peerId];
+            Echo.Render._unloadPeer(component);
+        }
+
+        // Clear disposed component list.
+        Echo.Render._disposedComponents = null;
+        
+        // Inform UpdateManager that all updates have been completed.
+        updateManager.purge();
+        
+        // Perform focus update.
+        Echo.Render.updateFocus(client);
+    },
+    
+    /**
+     * Performs the display phase of <code>processUpdates()</code>, invoking <code>renderDisplay()</code> on the
+     * updated hierarchies.
+     * 
+     * @param {Array} updates the updates being rendered (removed updates are null)
+     * @param {Array} deferredDisplay components on which <code>notifyResize()</code> or <code>notifyMove()</code> was
+     *        invoked during a batched update phase, or null
+     */
+    _processDisplayPhase: function(updates, deferredDisplay) {
+        var i, j, component;
+        
         // The "displayed" array holds component who have already had renderDisplay() invoked on themselves (and their descendants).
         // This is done to avoid invoking renderDisplay() multiple times on a single component during a single rendering.
         var displayed = [];
@@ -348,26 +422,71 @@ Echo.Render = {
                 Echo.Render._doRenderDisplay(updates[i].parent, true);
             }
         }
-    
-        // Profiling: Mark completion of display phase.
-        if (Echo.Client.profilingTimer) {
-            Echo.Client.profilingTimer.mark("disp");
+        
+        if (!deferredDisplay) {
+            return;
         }
-    
-        // Unload peers for truly removed components, destroy mapping.
-        for (var peerId in Echo.Render._disposedComponents) {
-            var component = Echo.Render._disposedComponents[peerId];
-            Echo.Render._unloadPeer(component);
+        
+        // Process notifications deferred from the update phase, skipping those whose hierarchies have been displayed
+        // above, and those of components which have since been disposed.
+        for (i = 0; i < deferredDisplay.length; ++i) {
+            component = deferredDisplay[i];
+            if (!component.peer || component.peer.disposed) {
+                continue;
+            }
+            var covered = false;
+            for (j = 0; j < displayed.length; ++j) {
+                if (displayed[j].isAncestorOf(component)) {
+                    covered = true;
+                    break;
+                }
+            }
+            if (covered) {
+                continue;
+            }
+            // The descendants of the component have now had renderDisplay() invoked, which is sufficient for further
+            // deferred notifications on the component or its descendants.
+            displayed.push(component);
+            Echo.Render._doRenderDisplay(component, false);
         }
+    },
+    
+    /**
+     * Performs the update phase of <code>processUpdates()</code>, invoking <code>renderUpdate()</code> on the peers of
+     * updated components.
+     * 
+     * @param {Array} updates the updates being rendered (removed updates are null)
+     */
+    _processUpdatePhase: function(updates) {
+        var i, j, peer;
+        for (i = 0; i < updates.length; ++i) {
+            if (updates[i] == null) {
+                // The update has been removed, skip it.
+                continue;
+            }
+            
+            // Obtain component synchronization peer.
+            peer = updates[i].parent.peer;
+            
+            // Perform update by invoking peer's renderUpdate() method.
+            var fullRender = peer.renderUpdate(updates[i]);
+            updates[i].parent.fireEvent({type: "updated", source: updates[i].parent, data: updates[i]});
 
-        // Clear disposed component list.
-        Echo.Render._disposedComponents = null;
-        
-        // Inform UpdateManager that all updates have been completed.
-        updateManager.purge();
-        
-        // Perform focus update.
-        Echo.Render.updateFocus(client);
+            // If the update required re-rendering descendants of the updated component,
+            // null-out any pending updates to descendant components.
+            if (fullRender) {
+                for (j = i + 1; j < updates.length; ++j) {
+                    if (updates[j] != null && updates[i].parent.isAncestorOf(updates[j].parent)) {
+                        updates[j].parent.fireEvent({type: "updated", source: updates[j].parent, data: updates[j]});
+                        updates[j] = null;
+                    }
+                }
+            }
+
+            // Invoke _setPeerDisposedState() to ensure that peer is marked as non-disposed.
+            // (A full-re-render may have invoked renderComponentDispose()).
+            Echo.Render._setPeerDisposedState(updates[i].parent, false);
+        }
     },
     
     /**
@@ -407,6 +526,29 @@ Echo.Render = {
         component.peer.renderAdd(update, parentElement);
     },
     
+    /**
+     * Requests that an element be removed from the document while content is rendered into it, such that the 
+     * browser need not lay out the content as it is added.  The element will be replaced by a placeholder and 
+     * re-attached, along with any other detached elements, in a single pass at the end of the update phase.
+     * This method should only be invoked by peers which are about to render new content into an element which
+     * is currently part of the document.  It has no effect if batched rendering is disabled, if it is invoked outside 
+     * of the update phase, or if the element is not currently part of the document.
+     * <p>
+     * Peers must not measure the rendered state of a detached element; such work should be performed by 
+     * <code>renderDisplay()</code> implementations.
+     * 
+     * @param {Element} element the element to detach
+     */
+    renderDetached: function(element) {
+        if (!Echo.Render._detachedElements || element == document.body || !element.parentNode ||
+                !Core.Web.DOM.isAncestorOf(document.body, element)) {
+            return;
+        }
+        var placeholder = document.createTextNode("");
+        element.parentNode.replaceChild(placeholder, element);
+        Echo.Render._detachedElements.push(element, placeholder);
+    },
+    
     /**
      * Manually invokes renderDisplay on a component (and its descendants) that was added to the
      * hierarchy outside of processUpdates().  This method is only used in special cases,
@@ -826,6 +968,7 @@ Echo.Render.RootSync = Core.extend(Echo.Render.ComponentSync, {
     _renderContent: function(update) {
         Echo.Render.renderComponentDispose(update, update.parent);
         Core.Web.DOM.removeAllChildren(this.client.domainElement);
+        Echo.Render.renderDetached(this.client.domainElement);
         for (var i = 0; i < update.parent.children.length; ++i) {
             Echo.Render.renderComponentAdd(update, update.parent.children[i], this.client.domainElement);
         }
@@ -287,6 +287,281 @@ Echo.Serial = {
     }
 };
 
+/**
+ * Decoder for the compact JSON server message wire format, which is rendered by the server-side 
+ * <code>CompactDomWriter</code>.
+ * <p>
+ * Rather than building an XML DOM, the message is decoded into lightweight read-only node objects which 
+ * provide the subset of the DOM API used by server message processors: <code>nodeType</code>, 
+ * <code>nodeName</code>, <code>firstChild</code>, <code>lastChild</code>, <code>nextSibling</code>, 
+ * <code>parentNode</code>, <code>ownerDocument</code> and <code>getAttribute()</code> for elements, 
+ * <code>data</code> and <code>nodeValue</code> for text nodes, and <code>documentElement</code> for the document.
+ * Attribute values are not copied: they are resolved from the decoded name and value tables when requested.
+ * <p>
+ * The format requires native JSON support (<code>window.JSON</code>); clients without it must not advertise
+ * the format.
+ * @namespace
+ */
+Echo.Serial.CompactDom = {
+
+    /**
+     * Format identifier.
+     * @type String
+     */
+    FORMAT: "echo-dom-1",
+    
+    /**
+     * Determines whether the compact wire format can be decoded by the client.
+     * 
+     * @return true if the format is supported
+     * @type Boolean
+     */
+    isSupported: function() {
+        return !!(window.JSON && window.JSON.parse);
+    },
+    
+    /**
+     * Decodes a compact JSON representation of an XML DOM.
+     * 
+     * @param {String} text the compact JSON representation
+     * @return the decoded document
+     * @type Echo.Serial.CompactDom.Document
+     */
+    parse: function(text) {
+        if (!this.isSupported()) {
+            throw new Error("Compact wire format requires native JSON support.");
+        }
+        var data = window.JSON.parse(text);
+        if (!data || data.f != this.FORMAT) {
+            throw new Error("Unsupported wire format: " + (data ? data.f : null));
+        }
+        var document = new Echo.Serial.CompactDom.Document(data.n, data.v);
+        document.documentElement = this._loadElement(document, null, data.d);
+        return document;
+    },
+    
+    /**
+     * Creates a node for an encoded element and (recursively) its children.
+     * 
+     * @param {Echo.Serial.CompactDom.Document} document the owning document
+     * @param {Echo.Serial.CompactDom.Element} parentNode the parent node, or null for the document element
+     * @param {Array} encoded the encoded element
+     * @return the created node
+     * @type Echo.Serial.CompactDom.Element
+     */
+    _loadElement: function(document, parentNode, encoded) {
+        var element = new Echo.Serial.CompactDom.Element(document, parentNode, encoded),
+            values = document._values,
+            previousNode = null,
+            node,
+            value;
+        for (var i = 2; i < encoded.length; ++i) {
+            value = encoded[i];
+            if (typeof(value) == "object") {
+                node = this._loadElement(document, element, value);
+            } else {
+                node = new Echo.Serial.CompactDom.Text(document, element, typeof(value) == "number" ? values[value] : value);
+            }
+            if (previousNode) {
+                previousNode.nextSibling = node;
+            } else {
+                element.firstChild = node;
+            }
+            previousNode = node;
+        }
+        element.lastChild = previousNode;
+        return element;
+    }
+};
+
+/**
+ * A document decoded from the compact wire format.
+ */
+Echo.Serial.CompactDom.Document = Core.extend({
+
+    /**
+     * DOM node type.
+     * @type Number
+     */
+    nodeType: 9,
+    
+    /**
+     * The root element.
+     * @type Echo.Serial.CompactDom.Element
+     */
+    documentElement: null,
+    
+    /**
+     * The name table.
+     * @type Array
+     */
+    _names: null,
+    
+    /**
+     * The value table.
+     * @type Array
+     */
+    _values: null,
+    
+    /**
+     * Creates a new document.
+     * 
+     * @param {Array} names the name table
+     * @param {Array} values the value table
+     */
+    $construct: function(names, values) {
+        this._names = names;
+        this._values = values || [];
+    }
+});
+
+/**
+ * An element decoded from the compact wire format.
+ */
+Echo.Serial.CompactDom.Element = Core.extend({
+
+    /**
+     * DOM node type.
+     * @type Number
+     */
+    nodeType: 1,
+    
+    /**
+     * The element name.
+     * @type String
+     */
+    nodeName: null,
+    
+    /**
+     * The owning document.
+     * @type Echo.Serial.CompactDom.Document
+     */
+    ownerDocument: null,
+    
+    /**
+     * The parent element, or null for the document element.
+     * @type Echo.Serial.CompactDom.Element
+     */
+    parentNode: null,
+    
+    /**
+     * The first child node.
+     */
+    firstChild: null,
+    
+    /**
+     * The last child node.
+     */
+    lastChild: null,
+    
+    /**
+     * The next sibling node.
+     */
+    nextSibling: null,
+    
+    /**
+     * The encoded attributes: alternating name table indices and values (literal strings, or value table indices).
+     * @type Array
+     */
+    _attributes: null,
+    
+    /**
+     * Creates a new element.
+     * 
+     * @param {Echo.Serial.CompactDom.Document} document the owning document
+     * @param {Echo.Serial.CompactDom.Element} parentNode the parent element
+     * @param {Array} encoded the encoded element
+     */
+    $construct: function(document, parentNode, encoded) {
+        this.ownerDocument = document;
+        this.parentNode = parentNode;
+        this.nodeName = document._names[encoded[0]];
+        this._attributes = encoded[1];
+    },
+    
+    /**
+     * Returns the value of an attribute.
+     * 
+     * @param {String} name the attribute name
+     * @return the attribute value, or null if the attribute is not set
+     * @type String
+     */
+    getAttribute: function(name) {
+        var attributes = this._attributes;
+        if (!attributes) {
+            return null;
+        }
+        var names = this.ownerDocument._names;
+        for (var i = 0; i < attributes.length; i += 2) {
+            if (names[attributes[i]] == name) {
+                var value = attributes[i + 1];
+                return typeof(value) == "number" ? this.ownerDocument._values[value] : value;
+            }
+        }
+        return null;
+    }
+});
+
+/**
+ * A text node decoded from the compact wire format.
+ */
+Echo.Serial.CompactDom.Text = Core.extend({
+
+    /**
+     * DOM node type.
+     * @type Number
+     */
+    nodeType: 3,
+    
+    /**
+     * DOM node name.
+     * @type String
+     */
+    nodeName: "#text",
+    
+    /**
+     * The text.
+     * @type String
+     */
+    data: null,
+    
+    /**
+     * The text.
+     * @type String
+     */
+    nodeValue: null,
+    
+    /**
+     * The owning document.
+     * @type Echo.Serial.CompactDom.Document
+     */
+    ownerDocument: null,
+    
+    /**
+     * The parent element.
+     * @type Echo.Serial.CompactDom.Element
+     */
+    parentNode: null,
+    
+    /**
+     * The next sibling node.
+     */
+    nextSibling: null,
+    
+    /**
+     * Creates a new text node.
+     * 
+     * @param {Echo.Serial.CompactDom.Document} document the owning document
+     * @param {Echo.Serial.CompactDom.Element} parentNode the parent element
+     * @param {String} data the text
+     */
+    $construct: function(document, parentNode, data) {
+        this.ownerDocument = document;
+        this.parentNode = parentNode;
+        this.data = this.nodeValue = data;
+    }
+});
+
 /**
  * Abstract base class for property translators.
  */
@@ -24,6 +24,7 @@ TestApp = Core.extend(Echo.Application, {
         Echo.Application.call(this);
         var testScreen = new TestApp.TestScreen();
         testScreen.addTest("Column");
+        testScreen.addTest("Rendering");
         testScreen.addTest("SplitPane");
         testScreen.addTest("TextComponent");
         testScreen.addTest("WindowPane");
@@ -255,6 +256,55 @@ TestApp.Tests.Column = Core.extend(TestApp.TestPane, {
     }
 });
 
+TestApp.Tests.Rendering = Core.extend(TestApp.TestPane, {
+
+    $construct: function() {
+        TestApp.TestPane.call(this);
+
+        this.childCount = 0;
+
+        this.column = new Echo.Column();
+        this.content.add(this.column);
+
+        this.addTestButton("Batched Rendering On", Core.method(this, this._batchedOn));
+        this.addTestButton("Batched Rendering Off", Core.method(this, this._batchedOff));
+        this.addTestButton("Add 500 children", Core.method(this, this._add500));
+        this.addTestButton("Remove all children", Core.method(this, this._removeAll));
+        this.addTestButton("Re-render application", Core.method(this, this._rerender));
+    },
+
+    _batchedOn: function() {
+        Echo.Render.batchedRendering = true;
+        Core.Debug.consoleWrite("Batched rendering enabled.");
+    },
+
+    _batchedOff: function() {
+        Echo.Render.batchedRendering = false;
+        Core.Debug.consoleWrite("Batched rendering disabled.");
+    },
+
+    _add500: function() {
+        Echo.Client.profilingTimer = new Echo.Client.Timer();
+        for (var i = 0; i < 500; ++i) {
+            this.column.add(new Echo.Label({ text: "[" + ++this.childCount + "] added at end", 
+                    background: TestApp.randomColor() }));
+        }
+    },
+
+    _removeAll: function() {
+        this.column.removeAll();
+    },
+
+    _rerender: function() {
+        // Remove and re-add the test screen, causing the root to fully re-render the application.
+        Echo.Client.profilingTimer = new Echo.Client.Timer();
+        var rootComponent = this.application.rootComponent;
+        var testScreen = rootComponent.children[0];
+        rootComponent.remove(testScreen);
+        rootComponent.add(testScreen);
+    }
+});
+
 TestApp.Tests.SplitPane = Core.extend(TestApp.TestPane, {
 
     $construct: function() {
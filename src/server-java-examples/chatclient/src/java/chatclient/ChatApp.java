@@ -53,6 +53,7 @@ public class ChatApp extends ApplicationInstance {
     }
     
     private ChatSession chatSession;
+    private MessageHub messageHub;
     private TaskQueueHandle incomingMessageQueue;
     
     // Auto-logout times set very short for demonstration purposes.
@@ -117,7 +118,12 @@ public class ChatApp extends ApplicationInstance {
             updatePollingInterval(true);
             lastPostTime = System.currentTimeMillis();
             
-            getDefaultWindow().setContent(new ChatScreen());
+            ChatScreen chatScreen = new ChatScreen();
+            getDefaultWindow().setContent(chatScreen);
+            chatScreen.updateMessageList();
+            
+            messageHub = MessageHub.forServerUri(chatSession.getChatServerUri());
+            messageHub.subscribe(this, incomingMessageQueue);
             return true;
         }
     }
@@ -128,6 +134,7 @@ public class ChatApp extends ApplicationInstance {
      */
     public void disconnect() {
         try {
+            unsubscribe();
             chatSession.dispose();
             chatSession = null;
             if (incomingMessageQueue != null) {
@@ -141,6 +148,14 @@ public class ChatApp extends ApplicationInstance {
         }
     }
     
+    /**
+     * @see nextapp.echo.app.ApplicationInstance#dispose()
+     */
+    public void dispose() {
+        unsubscribe();
+        super.dispose();
+    }
+    
     /**
      * Retrieves new messages from the <code>ChatSession</code>.  
      * Once the new messages are deleted they are removed from the queue of 
@@ -164,26 +179,13 @@ public class ChatApp extends ApplicationInstance {
     
     /**
      * The <code>hasQueuedTasks()</code> method has been overridden such that we
-     * can perform checks at every polling interval.  Alternatively tasks could
-     * be added using threads running in the background, but for compliance 
-     * with earlier versions of the J2EE specification which do not allow 
-     * multi-threading, such work is accomplished in this method. 
+     * can perform checks at every polling interval.  New messages are retrieved
+     * by the <code>MessageHub</code>'s background thread (shared by all users),
+     * which enqueues tasks to deliver them. 
      * 
      * @see nextapp.echo.app.ApplicationInstance#hasQueuedTasks()
      */
     public boolean hasQueuedTasks() {
-        // Poll server and determine if any new messages have been posted.
-        if (pollServer()) {
-            // Add new messages to ChatScreen.
-            final ChatScreen chatScreen = (ChatScreen) getDefaultWindow().getContent();
-            enqueueTask(incomingMessageQueue, new Runnable(){
-                public void run() {
-                    chatScreen.updateMessageList();
-                    updatePollingInterval(true);
-                }
-            });
-        }
-        
         // Determine if the polling interval should be updated, and if 
         // necessary, queue a task to update it.
         if (pollingInterval != calculatePollingInterval()) {
@@ -245,35 +247,45 @@ public class ChatApp extends ApplicationInstance {
     }
     
     /**
-     * Polls the <code>Server</code> to determine if any new messages are
-     * present.
+     * Posts a message to the chat server for the logged-in user.
      * 
-     * @return true if any new messages are present
+     * @param content the content of the message to post
      */
-    private boolean pollServer() {
-        if (chatSession == null) {
-            return false;
-        }
+    public void postMessage(String content) {
         try {
-            chatSession.pollServer();
-            return chatSession.hasNewMessages();
+            chatSession.postMessage(content);
+            updatePollingInterval(true);
+            lastPostTime = System.currentTimeMillis();
         } catch (IOException ex) {
             throw new RuntimeException(ex);
         }
     }
     
     /**
-     * Posts a message to the chat server for the logged-in user.
+     * Receives new messages retrieved from the chat server by the <code>MessageHub</code>, and adds them to the
+     * <code>ChatScreen</code>.  Invoked by a task enqueued by the <code>MessageHub</code>.
      * 
-     * @param content the content of the message to post
+     * @param messages the retrieved messages
      */
-    public void postMessage(String content) {
-        try {
-            chatSession.postMessage(content);
+    void receiveMessages(ChatSession.Message[] messages) {
+        if (chatSession == null) {
+            // Disconnected.
+            return;
+        }
+        chatSession.receiveMessages(messages);
+        if (chatSession.hasNewMessages()) {
+            ((ChatScreen) getDefaultWindow().getContent()).updateMessageList();
             updatePollingInterval(true);
-            lastPostTime = System.currentTimeMillis();
-        } catch (IOException ex) {
-            throw new RuntimeException(ex);
+        }
+    }
+    
+    /**
+     * Unsubscribes from the <code>MessageHub</code>, if subscribed.
+     */
+    private void unsubscribe() {
+        if (messageHub != null) {
+            messageHub.unsubscribe(this);
+            messageHub = null;
         }
     }
     
@@ -34,10 +34,6 @@ import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-
 import nextapp.echo.webcontainer.ContainerContext;
 import nextapp.echo.webcontainer.ClientProperties;
 import nextapp.echo.webcontainer.Connection;
@@ -60,6 +56,7 @@ public class ChatSession {
      */
     public static class Message {
         
+        private long id;
         private String content;
         private Date date;
         private String userName;
@@ -67,13 +64,15 @@ public class ChatSession {
         /**
          * Creates a new <code>Message</code>.
          * 
+         * @param id the id assigned to the message by the chat server
          * @param userName the name of the user posting the message
          *        (null for system announcements)
          * @param date the time the message was posted
          * @param content the content of the message
          */
-        private Message(String userName, Date date, String content) {
+        private Message(long id, String userName, Date date, String content) {
             super();
+            this.id = id;
             this.userName = userName;
             this.date = date;
             this.content = content;
@@ -96,6 +95,15 @@ public class ChatSession {
         public Date getDate() {
             return date;
         }
+        
+        /**
+         * Returns the id assigned to the message by the chat server.
+         * 
+         * @return the id
+         */
+        public long getId() {
+            return id;
+        }
 
         /**
          * Returns the name of the user who posted the message
@@ -122,9 +130,36 @@ public class ChatSession {
     }
 
     /**
-     * The id of the last retrieved chat message.
+     * Parses the messages contained in a response message of the chat server's web service.
+     * 
+     * @param responseDocument the response DOM from the web service
+     * @return the messages
+     */
+    static Message[] parseMessages(Document responseDocument) {
+        NodeList messageElements = responseDocument.getDocumentElement().getElementsByTagName("message");
+        Message[] messages = new Message[messageElements.getLength()];
+        for (int i = 0; i < messages.length; ++i) {
+            Element messageElement = (Element) messageElements.item(i);
+            long id = Long.parseLong(messageElement.getAttribute("id"));
+            String userName = messageElement.hasAttribute("user-name") ? messageElement.getAttribute("user-name") : null;
+            NodeList childNodes = messageElement.getChildNodes();
+            String content = null;
+            for (int j = 0; j < childNodes.getLength(); ++j) {
+                if (childNodes.item(j) instanceof Text) {
+                    content = childNodes.item(j).getNodeValue();
+                    break;
+                }
+            }
+            long timeMs = Long.parseLong(messageElement.getAttribute("time"));
+            messages[i] = new Message(id, userName, new Date(timeMs), content);
+        }
+        return messages;
+    }
+
+    /**
+     * The id of the last retrieved chat message, or -1 if no messages have been retrieved.
      */
-    private String lastRetrievedId;
+    private long lastRetrievedId = -1;
     
     /**
      * The authentication token associated with the user name.  This token is
@@ -177,6 +212,9 @@ public class ChatSession {
         if ("true".equals(userAuthElement.getAttribute("failed"))) {
         } else {
             authToken = userAuthElement.getAttribute("auth-token");
+            
+            // Store recently posted messages, to provide context on the chat.
+            receiveMessages(parseMessages(responseDocument));
         }
     }
 
@@ -202,29 +240,22 @@ public class ChatSession {
      */
     private Document createRequestDocument() 
     throws IOException {
-        try {
-            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-            factory.setNamespaceAware(true);
-            DocumentBuilder builder = factory.newDocumentBuilder();
-            Document document = builder.newDocument();
-            Element rootElement = document.createElement("chat-server-request");
-            
-            ChatApp chatApp = ChatApp.getApp();
-            if (chatApp != null) {
-                ContainerContext containerContext = (ContainerContext) chatApp.getContextProperty(
-                        ContainerContext.CONTEXT_PROPERTY_NAME);
-                String remoteHost = containerContext.getClientProperties().getString(ClientProperties.REMOTE_HOST);
-                rootElement.setAttribute("remote-host", remoteHost);
-            }
-            
-            if (lastRetrievedId != null) {
-                rootElement.setAttribute("last-retrieved-id", lastRetrievedId);
-            }
-            document.appendChild(rootElement);
-            return document;
-        } catch (ParserConfigurationException ex) {
-            throw new IOException("Cannot create document: " + ex);
+        Document document = XmlHttpConnection.newDocument();
+        Element rootElement = document.createElement("chat-server-request");
+        
+        ChatApp chatApp = ChatApp.getApp();
+        if (chatApp != null) {
+            ContainerContext containerContext = (ContainerContext) chatApp.getContextProperty(
+                    ContainerContext.CONTEXT_PROPERTY_NAME);
+            String remoteHost = containerContext.getClientProperties().getString(ClientProperties.REMOTE_HOST);
+            rootElement.setAttribute("remote-host", remoteHost);
+        }
+        
+        if (lastRetrievedId != -1) {
+            rootElement.setAttribute("last-retrieved-id", Long.toString(lastRetrievedId));
         }
+        document.appendChild(rootElement);
+        return document;
     }
     
     /**
@@ -242,6 +273,15 @@ public class ChatSession {
         XmlHttpConnection.send(chatServerUri, requestDocument);
     }
     
+    /**
+     * Returns the URI of the chat server's web service.
+     * 
+     * @return the URI
+     */
+    String getChatServerUri() {
+        return chatServerUri;
+    }
+    
     /**
      * Retrieves new messages that have been posted to the server but which 
      * were not previously retrieved.
@@ -272,18 +312,6 @@ public class ChatSession {
         return userName;
     }
     
-    /**
-     * Contacts the chat server's web service and loads new messages.
-     * 
-     * @throws IOException
-     */
-    public void pollServer() 
-    throws IOException {
-        Document requestDocument = createRequestDocument();
-        Document responseDocument = XmlHttpConnection.send(chatServerUri, requestDocument);
-        updateLocalMessages(responseDocument);
-    }
-    
     /**
      * Posts a message to the chat server.
      * Local messages will also be updated.
@@ -301,33 +329,22 @@ public class ChatSession {
         requestDocument.getDocumentElement().appendChild(postMessageElement);
         
         Document responseDocument = XmlHttpConnection.send(chatServerUri, requestDocument);
-        updateLocalMessages(responseDocument);
+        receiveMessages(parseMessages(responseDocument));
     }
     
     /**
-     * Retrieves messages from the chat's server's web service's response 
-     * message and stores them in the chat session.
+     * Stores retrieved messages in the chat session.  Messages which were previously 
+     * retrieved are ignored, such that the same messages may be received both in response
+     * to posting and from the <code>MessageHub</code>.
      * 
-     * @param responseDocument the response DOM from the web service
+     * @param messages the retrieved messages, in the order in which they were posted
      */
-    private void updateLocalMessages(Document responseDocument) {
-        NodeList newMessageElements = responseDocument.getDocumentElement().getElementsByTagName("message");
-        int length = newMessageElements.getLength();
-        for (int i = 0; i < length; ++i) {
-            Element messageElement = (Element) newMessageElements.item(i);
-            lastRetrievedId = messageElement.getAttribute("id");
-            String userName = messageElement.hasAttribute("user-name") ? messageElement.getAttribute("user-name") : null;
-            NodeList childNodes = messageElement.getChildNodes();
-            String content = null;
-            for (int j = 0; j < childNodes.getLength(); ++j) {
-                if (childNodes.item(j) instanceof Text) {
-                    content = childNodes.item(j).getNodeValue();
-                    break;
-                }
+    void receiveMessages(Message[] messages) {
+        for (int i = 0; i < messages.length; ++i) {
+            if (messages[i].getId() > lastRetrievedId) {
+                lastRetrievedId = messages[i].getId();
+                newMessages.add(messages[i]);
             }
-            long timeMs = Long.parseLong(messageElement.getAttribute("time"));
-            Message message = new Message(userName, new Date(timeMs), content);
-            newMessages.add(message);
         }
     }
 }
@@ -0,0 +1,274 @@
+/* 
+ * This file is part of the Echo Web Application Framework (hereinafter "Echo").
+ * Copyright (C) 2002-2009 NextApp, Inc.
+ *
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ */
+
+package chatclient;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import nextapp.echo.app.TaskQueueHandle;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+/**
+ * A process-wide subscription hub which retrieves new messages from a chat server on behalf of all local 
+ * <code>ChatApp</code>s.  A single background thread long-polls the chat server and enqueues tasks to deliver
+ * new messages to each subscribed <code>ChatApp</code>, such that the load on the chat server is independent of 
+ * the number of local users.
+ */
+public class MessageHub {
+    
+    /**
+     * The maximum time for which the chat server is requested to hold a poll request until a message is posted 
+     * (20sec * 1000ms/sec).
+     */
+    private static final int WAIT_TIMEOUT = 20 * 1000;
+    
+    /**
+     * The time to wait before polling again after a failed poll (5sec * 1000ms/sec).
+     */
+    private static final int RETRY_INTERVAL = 5 * 1000;
+    
+    /**
+     * The number of recently retrieved messages retained for delivery to new subscribers.
+     */
+    private static final int RECENT_MESSAGES = 50;
+    
+    /**
+     * Mapping between chat server URIs and <code>MessageHub</code>s.
+     */
+    private static final Map hubs = new HashMap();
+    
+    /**
+     * Returns the <code>MessageHub</code> for a chat server, creating it if necessary.
+     * 
+     * @param chatServerUri the URI of the chat server's web service
+     * @return the <code>MessageHub</code>
+     */
+    public static MessageHub forServerUri(String chatServerUri) {
+        synchronized (hubs) {
+            MessageHub hub = (MessageHub) hubs.get(chatServerUri);
+            if (hub == null) {
+                hub = new MessageHub(chatServerUri);
+                hubs.put(chatServerUri, hub);
+            }
+            return hub;
+        }
+    }
+    
+    /**
+     * A subscribed <code>ChatApp</code>.
+     */
+    private static class Subscription {
+        
+        private ChatApp app;
+        private TaskQueueHandle taskQueue;
+        
+        /**
+         * Creates a new <code>Subscription</code>.
+         * 
+         * @param app the subscribed <code>ChatApp</code>
+         * @param taskQueue the task queue to which delivery tasks should be added
+         */
+        private Subscription(ChatApp app, TaskQueueHandle taskQueue) {
+            super();
+            this.app = app;
+            this.taskQueue = taskQueue;
+        }
+        
+        /**
+         * Enqueues a task to deliver messages to the subscribed <code>ChatApp</code>.
+         * 
+         * @param messages the messages to deliver
+         */
+        private void deliver(final ChatSession.Message[] messages) {
+            app.enqueueTask(taskQueue, new Runnable() {
+                public void run() {
+                    app.receiveMessages(messages);
+                }
+            });
+        }
+    }
+    
+    /**
+     * The URI of the chat server's web service.
+     */
+    private String chatServerUri;
+    
+    /**
+     * Active <code>Subscription</code>s, replaced (never modified) when <code>ChatApp</code>s subscribe or 
+     * unsubscribe, such that they may be iterated without synchronization.
+     */
+    private List subscriptions = new ArrayList();
+    
+    /**
+     * Recently retrieved messages, delivered to new subscribers such that they do not miss messages
+     * posted while they were subscribing.
+     */
+    private LinkedList recentMessages = new LinkedList();
+    
+    /**
+     * The id of the last retrieved chat message, or -1 if no messages have been retrieved.
+     */
+    private long lastRetrievedId = -1;
+    
+    /**
+     * The polling thread, or null if no thread is polling.
+     */
+    private Thread pollThread;
+    
+    /**
+     * Creates a new <code>MessageHub</code>.
+     * 
+     * @param chatServerUri the URI of the chat server's web service
+     */
+    private MessageHub(String chatServerUri) {
+        super();
+        this.chatServerUri = chatServerUri;
+    }
+    
+    /**
+     * Polls the chat server and stores retrieved messages.
+     * 
+     * @return the retrieved messages
+     */
+    private ChatSession.Message[] poll() 
+    throws IOException {
+        Document requestDocument = XmlHttpConnection.newDocument();
+        Element rootElement = requestDocument.createElement("chat-server-request");
+        if (lastRetrievedId != -1) {
+            rootElement.setAttribute("last-retrieved-id", Long.toString(lastRetrievedId));
+            rootElement.setAttribute("wait-timeout", Integer.toString(WAIT_TIMEOUT));
+        }
+        requestDocument.appendChild(rootElement);
+        
+        Document responseDocument = XmlHttpConnection.send(chatServerUri, requestDocument);
+        ChatSession.Message[] messages = ChatSession.parseMessages(responseDocument);
+        
+        synchronized (this) {
+            for (int i = 0; i < messages.length; ++i) {
+                lastRetrievedId = messages[i].getId();
+                recentMessages.add(messages[i]);
+                if (recentMessages.size() > RECENT_MESSAGES) {
+                    recentMessages.removeFirst();
+                }
+            }
+        }
+        return messages;
+    }
+    
+    /**
+     * Polling thread main loop.  Exits when no <code>ChatApp</code>s are subscribed.
+     */
+    private void run() {
+        while (true) {
+            synchronized (this) {
+                if (subscriptions.isEmpty()) {
+                    pollThread = null;
+                    return;
+                }
+            }
+            
+            ChatSession.Message[] messages;
+            try {
+                messages = poll();
+            } catch (IOException ex) {
+                try {
+                    Thread.sleep(RETRY_INTERVAL);
+                } catch (InterruptedException ex2) {
+                    // Poll again immediately.
+                }
+                continue;
+            }
+            
+            if (messages.length > 0) {
+                List currentSubscriptions;
+                synchronized (this) {
+                    currentSubscriptions = subscriptions;
+                }
+                Iterator it = currentSubscriptions.iterator();
+                while (it.hasNext()) {
+                    ((Subscription) it.next()).deliver(messages);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Subscribes a <code>ChatApp</code> to new messages, starting the polling thread if necessary.
+     * Recently retrieved messages are delivered immediately (the <code>ChatSession</code> ignores those
+     * it has already retrieved).
+     * 
+     * @param app the <code>ChatApp</code>
+     * @param taskQueue the task queue to which delivery tasks should be added
+     */
+    public synchronized void subscribe(ChatApp app, TaskQueueHandle taskQueue) {
+        Subscription subscription = new Subscription(app, taskQueue);
+        List newSubscriptions = new ArrayList(subscriptions);
+        newSubscriptions.add(subscription);
+        subscriptions = newSubscriptions;
+        
+        if (!recentMessages.isEmpty()) {
+            subscription.deliver((ChatSession.Message[]) recentMessages.toArray(
+                    new ChatSession.Message[recentMessages.size()]));
+        }
+        
+        if (pollThread == null) {
+            pollThread = new Thread(new Runnable() {
+                public void run() {
+                    MessageHub.this.run();
+                }
+            }, "ChatClient.MessageHub");
+            pollThread.setDaemon(true);
+            pollThread.start();
+        }
+    }
+    
+    /**
+     * Unsubscribes a <code>ChatApp</code>.
+     * 
+     * @param app the <code>ChatApp</code>
+     */
+    public synchronized void unsubscribe(ChatApp app) {
+        List newSubscriptions = new ArrayList(subscriptions);
+        Iterator it = newSubscriptions.iterator();
+        while (it.hasNext()) {
+            if (((Subscription) it.next()).app == app) {
+                it.remove();
+            }
+        }
+        subscriptions = newSubscriptions;
+    }
+}
@@ -32,8 +32,8 @@ package chatclient;
 import nextapp.echo.app.ImageReference;
 import nextapp.echo.app.ResourceImageReference;
 import nextapp.echo.app.StyleSheet;
+import nextapp.echo.app.serial.CompiledStyleSheet;
 import nextapp.echo.app.serial.SerialException;
-import nextapp.echo.app.serial.StyleSheetLoader;
 
 /**
  * Look-and-feel information.
@@ -49,7 +49,7 @@ public class Styles {
     public static final StyleSheet DEFAULT_STYLE_SHEET;
     static {
         try {
-            DEFAULT_STYLE_SHEET = StyleSheetLoader.load(STYLE_PATH + "Default.stylesheet.xml", 
+            DEFAULT_STYLE_SHEET = CompiledStyleSheet.forResource(STYLE_PATH + "Default.stylesheet.xml", 
                     Thread.currentThread().getContextClassLoader());
         } catch (SerialException ex) {
             throw new RuntimeException(ex);
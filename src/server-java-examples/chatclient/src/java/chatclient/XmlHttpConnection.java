@@ -29,6 +29,8 @@
 
 package chatclient;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -39,6 +41,7 @@ import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerConfigurationException;
 import javax.xml.transform.TransformerException;
 import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.dom.DOMSource;
@@ -53,9 +56,84 @@ import org.xml.sax.SAXException;
  * Utility class to POST XML messages (represented as DOM <code>Document</code>
  * objects) to web services and retrieve XML response messages (again 
  * represented as DOM <code>Document</code> objects).
+ * <p>
+ * Parsers and transformers are reused by each thread (they are not thread-safe, 
+ * and are expensive to create).  Response streams are fully read and closed,
+ * such that the underlying HTTP connections are kept alive and reused.
  */
 public class XmlHttpConnection {
     
+    /**
+     * <code>EntityResolver</code> which rejects all external entities.
+     */
+    private static final EntityResolver entityResolver = new EntityResolver() {
+        
+        /**
+         * @see org.xml.sax.EntityResolver#resolveEntity(java.lang.String, java.lang.String)
+         */
+        public InputSource resolveEntity(String publicId, String systemId)
+        throws SAXException, IOException {
+            throw new SAXException("External entities not supported.");
+        }
+    };
+    
+    /**
+     * The <code>DocumentBuilder</code> of the current thread.
+     */
+    private static final ThreadLocal documentBuilder = new ThreadLocal();
+    
+    /**
+     * The <code>Transformer</code> of the current thread.
+     */
+    private static final ThreadLocal transformer = new ThreadLocal();
+    
+    /**
+     * Returns the <code>DocumentBuilder</code> of the current thread, creating it if necessary.
+     * 
+     * @return the <code>DocumentBuilder</code>
+     */
+    private static DocumentBuilder getDocumentBuilder() 
+    throws ParserConfigurationException {
+        DocumentBuilder builder = (DocumentBuilder) documentBuilder.get();
+        if (builder == null) {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setNamespaceAware(true);
+            builder = factory.newDocumentBuilder();
+            builder.setEntityResolver(entityResolver);
+            documentBuilder.set(builder);
+        }
+        return builder;
+    }
+    
+    /**
+     * Returns the <code>Transformer</code> of the current thread, creating it if necessary.
+     * 
+     * @return the <code>Transformer</code>
+     */
+    private static Transformer getTransformer() 
+    throws TransformerConfigurationException {
+        Transformer t = (Transformer) transformer.get();
+        if (t == null) {
+            t = TransformerFactory.newInstance().newTransformer();
+            transformer.set(t);
+        }
+        return t;
+    }
+    
+    /**
+     * Creates a new, empty DOM document.
+     * 
+     * @return the document
+     */
+    public static Document newDocument() 
+    throws IOException {
+        try {
+            return getDocumentBuilder().newDocument();
+        } catch (ParserConfigurationException ex) {
+            throw new IOException("Cannot create document: " + ex);
+        }
+    }
+    
     /**
      * POSTs an XML message to a web service.
      * 
@@ -65,6 +143,7 @@ public class XmlHttpConnection {
      */
     public static Document send(String url, Document requestDocument) 
     throws IOException {
+        InputStream in = null;
         try {
             URL u = new URL(url);
             HttpURLConnection conn = (HttpURLConnection) u.openConnection();
@@ -73,37 +152,31 @@ public class XmlHttpConnection {
 
             // Attach Document
             OutputStream out = conn.getOutputStream();
-            TransformerFactory tFactory = TransformerFactory.newInstance();
-            Transformer transformer = tFactory.newTransformer();
             DOMSource source = new DOMSource(requestDocument);
             StreamResult result = new StreamResult(out);
-            transformer.transform(source, result);
+            getTransformer().transform(source, result);
             out.close();
             
             conn.connect();
             
-            InputStream in = conn.getInputStream();
-            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-            factory.setNamespaceAware(true);
-            DocumentBuilder builder = factory.newDocumentBuilder();
-            builder.setEntityResolver(new EntityResolver() {
+            // Read the response fully before parsing it, such that the connection may be reused.
+            in = conn.getInputStream();
+            ByteArrayOutputStream responseOut = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int bytesRead;
+            while ((bytesRead = in.read(buffer)) != -1) {
+                responseOut.write(buffer, 0, bytesRead);
+            }
             
-                /**
-                 * @see org.xml.sax.EntityResolver#resolveEntity(java.lang.String, java.lang.String)
-                 */
-                public InputSource resolveEntity(String publicId, String systemId)
-                throws SAXException, IOException {
-                    throw new SAXException("External entities not supported.");
-                }
-            });
-            return builder.parse(in);
+            return getDocumentBuilder().parse(new ByteArrayInputStream(responseOut.toByteArray()));
         } catch (ParserConfigurationException ex) {
             throw new IOException("Unable to parse response: " + ex.toString());
         } catch (SAXException ex) {
             throw new IOException("Unable to parse response: " + ex.toString());
         } catch (TransformerException ex) {
             throw new IOException("Unable to write document to OutputStream: " + ex.toString());
+        } finally {
+            if (in != null) { try { in.close(); } catch (IOException ex) { } }
         }
     }
-
 }
@@ -58,6 +58,11 @@ import org.xml.sax.SAXException;
  */
 public class ChatServerServlet extends HttpServlet {
     
+    /**
+     * The maximum time for which a request may wait for new messages to be posted (30sec * 1000ms/sec).
+     */
+    private static final long MAX_WAIT_TIMEOUT = 30 * 1000;
+    
     private static final Server server = new Server();
     
     /**
@@ -135,6 +140,8 @@ public class ChatServerServlet extends HttpServlet {
     /**
      * Retrieves new messages posted with id values higher than the
      * request document's specified 'last-retrieved-id' value.
+     * If the request document specifies a 'wait-timeout' value (in milliseconds) and no such messages
+     * are available, the request is held (long-polled) until a message is posted or the timeout elapses.
      * 
      * @param requestDocument the request DOM document
      * @param responseDocument the response DOM document
@@ -146,6 +153,11 @@ public class ChatServerServlet extends HttpServlet {
             messages = server.getRecentMessages();
         } else {
             long lastRetrievedId = Long.parseLong(lastRetrievedIdString);
+            String waitTimeoutString = requestDocument.getDocumentElement().getAttribute("wait-timeout");
+            if (waitTimeoutString != null && waitTimeoutString.trim().length() > 0) {
+                long waitTimeout = Math.min(Long.parseLong(waitTimeoutString), MAX_WAIT_TIMEOUT);
+                server.waitForMessages(lastRetrievedId, waitTimeout);
+            }
             messages = server.getMessages(lastRetrievedId);
         }
         for (int i = 0; i < messages.length; ++i) {
@@ -31,16 +31,46 @@ package chatserver;
 
 /**
  * A store for posted <code>Message</code>s.
+ * Messages are stored in a ring buffer.  Posting is synchronized, while retrieval is lock-free: readers locate
+ * messages by binary search over the (monotonically increasing) message ids, and retry in the rare event that the 
+ * messages they have read are overwritten by concurrent posts.
  */
 public class MessageStore {
 
     private static final int MAX_MESSAGES = 1000;
+    
+    /**
+     * The number of slots in the ring buffer.  One slot more than the number of retained messages is required, 
+     * such that the slot being overwritten by a post in progress is never one which readers may read.
+     */
+    private static final int CAPACITY = MAX_MESSAGES + 1;
     private static final int RECENT_MESSAGES = 15;
     
-    private long[] messageIds = new long[MAX_MESSAGES];
-    private Message[] messages = new Message[MAX_MESSAGES];
-    private int firstMessageIndex = 0;
-    private int messageCount = 0;
+    /**
+     * The maximum number of threads which may wait for new messages at one time.
+     * Further requests to wait return immediately, such that the servlet container's threads are not exhausted.
+     */
+    private static final int MAX_WAITING = 500;
+    
+    private long[] messageIds = new long[CAPACITY];
+    private Message[] messages = new Message[CAPACITY];
+    
+    /**
+     * The total number of messages posted.  The message with (zero-based) sequence number <code>n</code> is stored at
+     * index <code>n % CAPACITY</code>.  Written only after the message has been stored, such that readers which 
+     * read it will see the stored message.
+     */
+    private volatile long postCount = 0;
+    
+    /**
+     * The id of the most recently posted message, or -1 if no messages have been posted.
+     */
+    private volatile long lastMessageId = -1;
+    
+    /**
+     * The number of threads waiting for new messages.
+     */
+    private int waitingCount = 0;
     
     /**
      * Creates a new <code>MessageStore</code>.
@@ -50,13 +80,13 @@ public class MessageStore {
     }
     
     /**
-     * Returns the message at the specified index.
+     * Returns the message with the specified sequence number.
      * 
-     * @param index the index
+     * @param sequence the sequence number
      * @return the message
      */
-    private Message getMessage(int index) {
-        return messages[(firstMessageIndex + index) % MAX_MESSAGES];
+    private Message getMessage(long sequence) {
+        return messages[(int) (sequence % CAPACITY)];
     }
     
     /**
@@ -66,19 +96,41 @@ public class MessageStore {
      * @return an array containing messages posted after the message identified
      */
     public Message[] getMessages(long lastRetrievedId) {
-        int startIndex = 0;
-        while (startIndex < messageCount) {
-            Message message = getMessage(startIndex);
-            if (message.getId() > lastRetrievedId) {
-                break;
+        while (true) {
+            long endSequence = postCount;
+            long low = endSequence > MAX_MESSAGES ? endSequence - MAX_MESSAGES : 0;
+            long high = endSequence;
+            long lowestRead = high;
+            
+            // Find the first message with an id greater than lastRetrievedId.
+            while (low < high) {
+                long middle = (low + high) >>> 1;
+                lowestRead = Math.min(lowestRead, middle);
+                if (messageIds[(int) (middle % CAPACITY)] > lastRetrievedId) {
+                    high = middle;
+                } else {
+                    low = middle + 1;
+                }
+            }
+            
+            Message[] matchingMessages = new Message[(int) (endSequence - low)];
+            for (int i = 0; i < matchingMessages.length; ++i) {
+                matchingMessages[i] = getMessage(low + i);
+            }
+            
+            if (isRetained(Math.min(lowestRead, low))) {
+                return matchingMessages;
             }
-            ++startIndex;
-        }
-        Message[] matchingMessages = new Message[messageCount - startIndex];
-        for (int i = startIndex; i < messageCount; ++i) {
-            matchingMessages[i - startIndex] = getMessage(i);
         }
-        return matchingMessages;
+    }
+    
+    /**
+     * Returns the id of the most recently posted message.
+     * 
+     * @return the id, or -1 if no messages have been posted
+     */
+    public long getLastMessageId() {
+        return lastMessageId;
     }
     
     /**
@@ -89,30 +141,86 @@ public class MessageStore {
      * @return the recently posted messages
      */
     public Message[] getRecentMessages() {
-        Message[] matchingMessages = new Message[messageCount < RECENT_MESSAGES ? messageCount : RECENT_MESSAGES];
-        for (int i = 0; i < matchingMessages.length; ++i) {
-            matchingMessages[i] = getMessage(messageCount - matchingMessages.length + i); 
+        while (true) {
+            long endSequence = postCount;
+            int count = endSequence < RECENT_MESSAGES ? (int) endSequence : RECENT_MESSAGES;
+            Message[] matchingMessages = new Message[count];
+            long startSequence = endSequence - matchingMessages.length;
+            for (int i = 0; i < matchingMessages.length; ++i) {
+                matchingMessages[i] = getMessage(startSequence + i); 
+            }
+            if (isRetained(startSequence)) {
+                return matchingMessages;
+            }
         }
-        return matchingMessages;
+    }
+    
+    /**
+     * Determines whether the message with the specified sequence number (and all subsequent messages) are still
+     * stored, i.e., have not been overwritten by subsequently posted messages.  The slot of sequence number 
+     * <code>postCount - CAPACITY</code> is the one being overwritten by the next (possibly concurrent) post, 
+     * and is thus not considered retained.
+     * 
+     * @param sequence the sequence number
+     * @return true if the message is still stored
+     */
+    private boolean isRetained(long sequence) {
+        return postCount - CAPACITY < sequence;
     }
     
     /**
      * Posts a message.
      * 
      * @param userName the name of the user
-     * @param messageContent the message content to post
+     * @param messageContent the content of the message to post
      */
     public synchronized void post(String userName, String messageContent) {
-        int messageIndex = (firstMessageIndex + messageCount) % MAX_MESSAGES;
+        int messageIndex = (int) (postCount % CAPACITY);
         
         Message message = new Message(userName, messageContent);
         messages[messageIndex] = message;
         messageIds[messageIndex] = message.getId();
-
-        if (messageCount < MAX_MESSAGES) {
-            ++messageCount;
-        } else {
-            firstMessageIndex = (firstMessageIndex + 1) % MAX_MESSAGES;
+        
+        // Publish message.
+        ++postCount;
+        lastMessageId = message.getId();
+        
+        if (waitingCount > 0) {
+            notifyAll();
+        }
+    }
+    
+    /**
+     * Waits until a message with an id greater than the specified id has been posted, or until the specified 
+     * timeout has elapsed.  Returns immediately if such a message has already been posted, or if the maximum 
+     * number of threads are already waiting.
+     * 
+     * @param lastRetrievedId the id of the last message retrieved
+     * @param timeout the maximum time to wait, in milliseconds
+     * @return true if a message with an id greater than <code>lastRetrievedId</code> is available
+     */
+    public boolean waitForMessages(long lastRetrievedId, long timeout) {
+        if (lastMessageId > lastRetrievedId || timeout <= 0) {
+            return lastMessageId > lastRetrievedId;
+        }
+        synchronized (this) {
+            if (waitingCount >= MAX_WAITING) {
+                return lastMessageId > lastRetrievedId;
+            }
+            ++waitingCount;
+            try {
+                long endTime = System.currentTimeMillis() + timeout;
+                long remaining = timeout;
+                while (lastMessageId <= lastRetrievedId && remaining > 0) {
+                    wait(remaining);
+                    remaining = endTime - System.currentTimeMillis();
+                }
+            } catch (InterruptedException ex) {
+                // Return without waiting further.
+            } finally {
+                --waitingCount;
+            }
+            return lastMessageId > lastRetrievedId;
         }
     }
 }
@@ -86,6 +86,18 @@ public class Server {
         return messageStore.getRecentMessages();
     }
     
+    /**
+     * Waits until a message with an id greater than the specified id has been posted, or until the specified 
+     * timeout has elapsed.
+     * 
+     * @param lastRetrievedId the id of the last message retrieved
+     * @param timeout the maximum time to wait, in milliseconds
+     * @return true if messages posted after the message identified are available
+     */
+    public boolean waitForMessages(long lastRetrievedId, long timeout) {
+        return messageStore.waitForMessages(lastRetrievedId, timeout);
+    }
+    
     /**
      * Removes a user from the chat room.
      * 
@@ -0,0 +1,229 @@
+/* 
+ * This file is part of the Echo Web Application Framework (hereinafter "Echo").
+ * Copyright (C) 2002-2009 NextApp, Inc.
+ *
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ */
+
+package chatserver.test;
+
+import chatserver.Message;
+import chatserver.MessageStore;
+import junit.framework.TestCase;
+
+/**
+ * Unit and load tests for the <code>MessageStore</code>.
+ */
+public class MessageStoreTest extends TestCase {
+    
+    /**
+     * Number of simulated clients.
+     */
+    private static final int CLIENT_COUNT = 10000;
+    
+    /**
+     * Number of threads polling on behalf of the simulated clients.
+     */
+    private static final int READER_COUNT = 8;
+    
+    /**
+     * Number of messages posted during the load test.
+     */
+    private static final int POST_COUNT = 5000;
+    
+    /**
+     * Maximum number of messages by which the slowest reader may fall behind, below the capacity of the store,
+     * such that no messages are lost.
+     */
+    private static final int MAX_LAG = 500;
+    
+    /**
+     * Number of messages posted while the oldest retained messages are read concurrently.
+     */
+    private static final int OLDEST_SLOT_POST_COUNT = 200000;
+    
+    /**
+     * A thread which polls for new messages on behalf of a range of simulated clients, verifying that each client
+     * receives every message, in order.
+     */
+    private class Reader extends Thread {
+        
+        private MessageStore store;
+        private long[] lastRetrievedIds;
+        private volatile long minimumRetrievedId;
+        private String failure;
+        
+        private Reader(MessageStore store, int clientCount, long firstId) {
+            super();
+            this.store = store;
+            lastRetrievedIds = new long[clientCount];
+            for (int i = 0; i < clientCount; ++i) {
+                lastRetrievedIds[i] = firstId - 1;
+            }
+            minimumRetrievedId = firstId - 1;
+        }
+        
+        public void run() {
+            while (minimumRetrievedId < finalId && failure == null) {
+                long minimum = Long.MAX_VALUE;
+                for (int i = 0; i < lastRetrievedIds.length; ++i) {
+                    Message[] messages = store.getMessages(lastRetrievedIds[i]);
+                    for (int j = 0; j < messages.length; ++j) {
+                        if (messages[j].getId() != lastRetrievedIds[i] + 1) {
+                            failure = "Client " + i + " expected message " + (lastRetrievedIds[i] + 1) + ", received " 
+                                    + messages[j].getId();
+                            return;
+                        }
+                        lastRetrievedIds[i] = messages[j].getId();
+                    }
+                    minimum = Math.min(minimum, lastRetrievedIds[i]);
+                }
+                minimumRetrievedId = minimum;
+                
+                // Wait for messages not yet retrieved by all clients.
+                store.waitForMessages(minimum, 100);
+            }
+        }
+    }
+    
+    private volatile long finalId = Long.MAX_VALUE;
+    
+    public void testGetMessages() {
+        MessageStore store = new MessageStore();
+        assertEquals(0, store.getMessages(-1).length);
+        assertEquals(-1, store.getLastMessageId());
+        
+        for (int i = 0; i < 1500; ++i) {
+            store.post("Bob.Smith", Integer.toString(i));
+        }
+        long lastId = store.getLastMessageId();
+        
+        Message[] messages = store.getMessages(-1);
+        assertEquals(1000, messages.length);
+        assertEquals("500", messages[0].getContent());
+        assertEquals("1499", messages[999].getContent());
+        
+        messages = store.getMessages(lastId - 10);
+        assertEquals(10, messages.length);
+        assertEquals("1490", messages[0].getContent());
+        
+        assertEquals(0, store.getMessages(lastId).length);
+        
+        messages = store.getRecentMessages();
+        assertEquals(15, messages.length);
+        assertEquals("1485", messages[0].getContent());
+        assertEquals("1499", messages[14].getContent());
+    }
+    
+    public void testWaitForMessages() 
+    throws InterruptedException {
+        final MessageStore store = new MessageStore();
+        store.post("Bob.Smith", "0");
+        long lastId = store.getLastMessageId();
+        
+        assertTrue(store.waitForMessages(lastId - 1, 1000));
+        assertFalse(store.waitForMessages(lastId, 10));
+        
+        Thread poster = new Thread() {
+            public void run() {
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException ex) { }
+                store.post("Bob.Smith", "1");
+            }
+        };
+        long startTime = System.currentTimeMillis();
+        poster.start();
+        assertTrue(store.waitForMessages(lastId, 10000));
+        assertTrue(System.currentTimeMillis() - startTime < 10000);
+        assertEquals("1", store.getMessages(lastId)[0].getContent());
+        poster.join();
+    }
+    
+    /**
+     * Repeatedly reads all retained messages, starting from the oldest slot of the store, while messages are 
+     * concurrently posted, verifying that a slot being overwritten is never returned.
+     */
+    public void testGetOldestMessagesConcurrently() 
+    throws InterruptedException {
+        final MessageStore store = new MessageStore();
+        for (int i = 0; i < 1000; ++i) {
+            store.post("Bob.Smith", Integer.toString(i));
+        }
+        
+        Thread poster = new Thread() {
+            public void run() {
+                for (int i = 0; i < OLDEST_SLOT_POST_COUNT; ++i) {
+                    store.post("Bob.Smith", Integer.toString(i));
+                }
+            }
+        };
+        poster.start();
+        
+        while (poster.isAlive()) {
+            Message[] messages = store.getMessages(-1);
+            assertEquals(1000, messages.length);
+            for (int i = 1; i < messages.length; ++i) {
+                assertEquals(messages[i - 1].getId() + 1, messages[i].getId());
+            }
+        }
+        poster.join();
+    }
+    
+    /**
+     * Drives <code>CLIENT_COUNT</code> simulated clients polling concurrently with a poster.
+     */
+    public void testLoad() 
+    throws InterruptedException {
+        MessageStore store = new MessageStore();
+        store.post("Bob.Smith", "start");
+        long firstId = store.getLastMessageId() + 1;
+        
+        Reader[] readers = new Reader[READER_COUNT];
+        for (int i = 0; i < readers.length; ++i) {
+            readers[i] = new Reader(store, CLIENT_COUNT / READER_COUNT, firstId);
+            readers[i].start();
+        }
+        
+        for (int i = 0; i < POST_COUNT; ++i) {
+            store.post("Bob.Smith", Integer.toString(i));
+            
+            // Throttle posting such that no reader falls behind by more than the capacity of the store.
+            long lastId = store.getLastMessageId();
+            for (int j = 0; j < readers.length; ++j) {
+                while (lastId - readers[j].minimumRetrievedId > MAX_LAG && readers[j].isAlive()) {
+                    Thread.sleep(1);
+                }
+            }
+        }
+        finalId = store.getLastMessageId();
+        
+        for (int i = 0; i < readers.length; ++i) {
+            readers[i].join();
+            assertNull(readers[i].failure, readers[i].failure);
+            assertEquals(finalId, readers[i].minimumRetrievedId);
+        }
+    }
+}
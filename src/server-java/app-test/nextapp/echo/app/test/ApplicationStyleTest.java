@@ -32,6 +32,8 @@ package nextapp.echo.app.test;
 import nextapp.echo.app.ApplicationInstance;
 import nextapp.echo.app.Button;
 import nextapp.echo.app.Color;
+import nextapp.echo.app.Column;
+import nextapp.echo.app.Component;
 import nextapp.echo.app.Label;
 import nextapp.echo.app.MutableStyle;
 import nextapp.echo.app.MutableStyleSheet;
@@ -83,4 +85,52 @@ public class ApplicationStyleTest extends TestCase  {
 
         ApplicationInstance.setActive(null);
     }
+    
+    /**
+     * Tests that resolved styles are searched for by superclass, and are updated when the style sheet is re-set.
+     */
+    public void testResolvedStyles() {
+        ColumnApp app = new ColumnApp();
+        ApplicationInstance.setActive(app);
+        app.doInit();
+        
+        MutableStyleSheet styleSheet = new MutableStyleSheet();
+        MutableStyle componentStyle = new MutableStyle();
+        componentStyle.set(Label.PROPERTY_FOREGROUND, Color.BLUE);
+        styleSheet.addStyle(Component.class, null, componentStyle);
+        app.setStyleSheet(styleSheet);
+        
+        assertEquals(Color.BLUE, app.getLabel().getRenderProperty(Label.PROPERTY_FOREGROUND));
+        assertEquals(Color.BLUE, app.getColumn().getRenderProperty(Label.PROPERTY_FOREGROUND));
+        assertEquals(Color.GREEN, app.getLabel().getRenderProperty(Label.PROPERTY_BACKGROUND, Color.GREEN));
+        
+        MutableStyle labelStyle = new MutableStyle();
+        labelStyle.set(Label.PROPERTY_FOREGROUND, Color.RED);
+        styleSheet.addStyle(Label.class, null, labelStyle);
+        app.setStyleSheet(styleSheet);
+        
+        assertEquals(Color.RED, app.getLabel().getRenderProperty(Label.PROPERTY_FOREGROUND));
+        assertEquals(Color.BLUE, app.getColumn().getRenderProperty(Label.PROPERTY_FOREGROUND));
+        
+        // Resolved styles are discarded when styles are added to the current style sheet.
+        MutableStyle columnStyle = new MutableStyle();
+        columnStyle.set(Label.PROPERTY_FOREGROUND, Color.GREEN);
+        styleSheet.addStyle(Column.class, null, columnStyle);
+        
+        assertEquals(Color.RED, app.getLabel().getRenderProperty(Label.PROPERTY_FOREGROUND));
+        assertEquals(Color.GREEN, app.getColumn().getRenderProperty(Label.PROPERTY_FOREGROUND));
+        
+        // Resolved styles reflect in-place modifications of the styles they were created from.
+        labelStyle.set(Label.PROPERTY_FOREGROUND, Color.YELLOW);
+        labelStyle.set(Label.PROPERTY_BACKGROUND, Color.BLACK);
+        
+        assertEquals(Color.YELLOW, app.getLabel().getRenderProperty(Label.PROPERTY_FOREGROUND));
+        assertEquals(Color.BLACK, app.getLabel().getRenderProperty(Label.PROPERTY_BACKGROUND));
+        
+        labelStyle.removeProperty(Label.PROPERTY_BACKGROUND);
+        
+        assertNull(app.getLabel().getRenderProperty(Label.PROPERTY_BACKGROUND));
+        
+        ApplicationInstance.setActive(null);
+    }
 }
@@ -34,6 +34,7 @@ package nextapp.echo.app.test;
 import nextapp.echo.app.ApplicationInstance;
 import nextapp.echo.app.Color;
 import nextapp.echo.app.Component;
+import nextapp.echo.app.ContainerAccess;
 import nextapp.echo.app.Extent;
 import nextapp.echo.app.Font;
 import nextapp.echo.app.layout.GridLayoutData;
@@ -656,6 +657,62 @@ public class ComponentTest extends TestCase {
         ApplicationInstance.setActive(null);
     }
     
+    /**
+     * Test that the subtree version stamp changes on the component and its ancestors when a property changes, 
+     * a child is added, or input is processed, but not on unrelated components.
+     */
+    public void testSubtreeVersion() {
+        NullComponent parent = new NullComponent();
+        NullComponent child = new NullComponent();
+        NullComponent sibling = new NullComponent();
+        parent.add(child);
+        parent.add(sibling);
+        
+        int parentVersion = parent.getSubtreeVersion();
+        int childVersion = child.getSubtreeVersion();
+        int siblingVersion = sibling.getSubtreeVersion();
+        child.setBackground(Color.GREEN);
+        assertTrue(parentVersion != parent.getSubtreeVersion());
+        assertTrue(childVersion != child.getSubtreeVersion());
+        assertEquals(siblingVersion, sibling.getSubtreeVersion());
+        
+        parentVersion = parent.getSubtreeVersion();
+        child.add(new NullComponent());
+        assertTrue(parentVersion != parent.getSubtreeVersion());
+        
+        parentVersion = parent.getSubtreeVersion();
+        siblingVersion = sibling.getSubtreeVersion();
+        sibling.processInput("input", null);
+        assertTrue(parentVersion != parent.getSubtreeVersion());
+        assertTrue(siblingVersion != sibling.getSubtreeVersion());
+        
+        parentVersion = parent.getSubtreeVersion();
+        childVersion = child.getSubtreeVersion();
+        parent.setLayoutData(new GridLayoutData());
+        assertTrue(parentVersion != parent.getSubtreeVersion());
+        assertEquals(childVersion, child.getSubtreeVersion());
+    }
+    
+    /**
+     * Test that the subtree version stamps of registered components are only maintained while enabled by the
+     * application container.
+     */
+    public void testSubtreeVersionRegistered() {
+        ColumnApp app = new ColumnApp();
+        ApplicationInstance.setActive(app);
+        app.doInit();
+        
+        int columnVersion = app.getColumn().getSubtreeVersion();
+        app.getLabel().setBackground(Color.GREEN);
+        assertEquals(columnVersion, app.getColumn().getSubtreeVersion());
+        
+        ContainerAccess.setSubtreeVersioningEnabled(app, true);
+        app.getLabel().setBackground(Color.BLUE);
+        assertTrue(columnVersion != app.getColumn().getSubtreeVersion());
+        
+        ApplicationInstance.setActive(null);
+    }
+    
     /**
      * Test <code>visible</code> property.
      */
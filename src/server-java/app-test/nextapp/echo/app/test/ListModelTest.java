@@ -112,6 +112,72 @@ public class ListModelTest extends TestCase {
         assertEquals(ListDataEvent.INTERVAL_ADDED, testListener.addEvent.getType());
     }
     
+    public void testAddAll() {
+        DefaultListModel listModel = new DefaultListModel(new Object[]{"alpha"});
+        TestListDataListener testListener = new TestListDataListener();
+        listModel.addListDataListener(testListener);
+        listModel.addAll(new Object[]{"bravo", "charlie", "delta"});
+        assertEquals(4, listModel.size());
+        assertEquals("delta", listModel.get(3));
+        assertEquals(1, testListener.addEvent.getIndex0());
+        assertEquals(3, testListener.addEvent.getIndex1());
+    }
+    
+    public void testBatchAdd() {
+        DefaultListModel listModel = new DefaultListModel(new Object[]{"alpha"});
+        TestListDataListener testListener = new TestListDataListener();
+        listModel.addListDataListener(testListener);
+        listModel.beginUpdate();
+        listModel.add("bravo");
+        listModel.beginUpdate();
+        listModel.add("charlie");
+        listModel.endUpdate();
+        listModel.add(1, "delta");
+        assertNull(testListener.addEvent);
+        listModel.endUpdate();
+        assertNull(testListener.changeEvent);
+        assertEquals(ListDataEvent.INTERVAL_ADDED, testListener.addEvent.getType());
+        assertEquals(1, testListener.addEvent.getIndex0());
+        assertEquals(3, testListener.addEvent.getIndex1());
+    }
+    
+    public void testBatchMixed() {
+        DefaultListModel listModel = new DefaultListModel(new Object[]{"alpha", "bravo", "charlie"});
+        TestListDataListener testListener = new TestListDataListener();
+        listModel.addListDataListener(testListener);
+        listModel.beginUpdate();
+        listModel.remove(0);
+        listModel.add("delta");
+        listModel.endUpdate();
+        assertNull(testListener.addEvent);
+        assertNull(testListener.removeEvent);
+        assertEquals(ListDataEvent.CONTENTS_CHANGED, testListener.changeEvent.getType());
+        assertEquals(0, testListener.changeEvent.getIndex0());
+        assertEquals(2, testListener.changeEvent.getIndex1());
+    }
+    
+    public void testBatchRemove() {
+        DefaultListModel listModel = new DefaultListModel(new Object[]{"alpha", "bravo", "charlie", "delta"});
+        TestListDataListener testListener = new TestListDataListener();
+        listModel.addListDataListener(testListener);
+        listModel.beginUpdate();
+        listModel.remove(2);
+        listModel.remove(2);
+        listModel.remove(1);
+        listModel.endUpdate();
+        assertEquals(1, listModel.size());
+        assertEquals(ListDataEvent.INTERVAL_REMOVED, testListener.removeEvent.getType());
+        assertEquals(1, testListener.removeEvent.getIndex0());
+        assertEquals(3, testListener.removeEvent.getIndex1());
+        
+        try {
+            listModel.endUpdate();
+            fail("Expected IllegalStateException.");
+        } catch (IllegalStateException ex) {
+            // Expected.
+        }
+    }
+    
     public void testBasic() {
         DefaultListModel listModel = new DefaultListModel(new Object[]{"alpha", "bravo", "charlie"});
         assertEquals(3, listModel.size());
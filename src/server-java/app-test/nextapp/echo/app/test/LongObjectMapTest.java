@@ -0,0 +1,113 @@
+/* 
+ * This file is part of the Echo Web Application Framework (hereinafter "Echo").
+ * Copyright (C) 2002-2009 NextApp, Inc.
+ *
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ */
+
+package nextapp.echo.app.test;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+
+import nextapp.echo.app.util.LongObjectMap;
+import junit.framework.TestCase;
+
+/**
+ * Unit test(s) for the <code>nextapp.echo.app.util.LongObjectMap</code> 
+ * utility object.
+ */
+public class LongObjectMapTest extends TestCase {
+    
+    /**
+     * Test basic put, get, and remove operations.
+     */
+    public void testPutGetRemove() {
+        LongObjectMap map = new LongObjectMap();
+        assertNull(map.put(5, "five"));
+        assertNull(map.put(-3, "minus three"));
+        assertEquals(2, map.size());
+        assertEquals("five", map.get(5));
+        assertEquals("minus three", map.get(-3));
+        assertNull(map.get(6));
+        assertTrue(map.containsKey(5));
+        assertFalse(map.containsKey(6));
+        
+        assertEquals("five", map.put(5, "FIVE"));
+        assertEquals(2, map.size());
+        assertEquals("FIVE", map.get(5));
+        
+        assertEquals("FIVE", map.remove(5));
+        assertNull(map.remove(5));
+        assertEquals(1, map.size());
+        assertNull(map.get(5));
+        
+        map.clear();
+        assertEquals(0, map.size());
+        assertNull(map.get(-3));
+    }
+    
+    /**
+     * Test that null values are rejected.
+     */
+    public void testNullValue() {
+        LongObjectMap map = new LongObjectMap();
+        try {
+            map.put(1, null);
+            fail("IllegalArgumentException not thrown.");
+        } catch (IllegalArgumentException ex) {
+            // Expected.
+        }
+    }
+    
+    /**
+     * Test random operations against a <code>HashMap</code>, exercising resizing and removal from probe sequences.
+     */
+    public void testRandomOperations() {
+        Random random = new Random(1);
+        LongObjectMap map = new LongObjectMap();
+        Map referenceMap = new HashMap();
+        for (int i = 0; i < 20000; ++i) {
+            long key = random.nextInt(2000);
+            if (random.nextInt(3) == 0) {
+                assertEquals(referenceMap.remove(new Long(key)), map.remove(key));
+            } else {
+                Integer value = new Integer(i);
+                assertEquals(referenceMap.put(new Long(key), value), map.put(key, value));
+            }
+        }
+        assertEquals(referenceMap.size(), map.size());
+        Iterator it = referenceMap.keySet().iterator();
+        while (it.hasNext()) {
+            Long key = (Long) it.next();
+            assertEquals(referenceMap.get(key), map.get(key.longValue()));
+        }
+        for (long key = 0; key < 2000; ++key) {
+            assertEquals(referenceMap.containsKey(new Long(key)), map.containsKey(key));
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/* 
+ * This file is part of the Echo Web Application Framework (hereinafter "Echo").
+ * Copyright (C) 2002-2009 NextApp, Inc.
+ *
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ */
+
+package nextapp.echo.app.test;
+
+import nextapp.echo.app.Color;
+import nextapp.echo.app.Grid;
+import nextapp.echo.app.Label;
+import nextapp.echo.app.layout.GridLayoutData;
+import nextapp.echo.app.reflect.ComponentIntrospector;
+import nextapp.echo.app.reflect.IntrospectorFactory;
+import nextapp.echo.app.reflect.ObjectIntrospector;
+import nextapp.echo.app.reflect.PropertyAccessor;
+import junit.framework.TestCase;
+
+/**
+ * Unit test(s) for <code>nextapp.echo.app.reflect.ObjectIntrospector</code> and
+ * <code>nextapp.echo.app.reflect.PropertyAccessor</code>.
+ */
+public class ObjectIntrospectorTest extends TestCase {
+    
+    public void testCaching() 
+    throws Exception {
+        ClassLoader classLoader = getClass().getClassLoader();
+        ObjectIntrospector oi1 = IntrospectorFactory.get(Label.class.getName(), classLoader);
+        ObjectIntrospector oi2 = IntrospectorFactory.get(Label.class.getName(), classLoader);
+        assertSame(oi1, oi2);
+        assertTrue(oi1 instanceof ComponentIntrospector);
+        assertSame(oi1.getPropertyAccessor("text"), oi2.getPropertyAccessor("text"));
+        
+        ObjectIntrospector oi3 = IntrospectorFactory.get(GridLayoutData.class.getName(), classLoader);
+        assertFalse(oi3 instanceof ComponentIntrospector);
+        assertSame(oi1, IntrospectorFactory.get(Label.class.getName(), classLoader));
+    }
+    
+    public void testIndexedAccessor() 
+    throws Exception {
+        ObjectIntrospector oi = IntrospectorFactory.get(Grid.class.getName(), getClass().getClassLoader());
+        assertTrue(oi.isIndexedProperty("columnWidth"));
+        PropertyAccessor accessor = oi.getPropertyAccessor("columnWidth");
+        assertTrue(accessor.isIndexed());
+        
+        Grid grid = new Grid();
+        accessor.set(grid, 2, TestConstants.EXTENT_100_PX);
+        assertEquals(TestConstants.EXTENT_100_PX, grid.getColumnWidth(2));
+        assertEquals(TestConstants.EXTENT_100_PX, accessor.get(grid, 2));
+        
+        oi.setProperty(grid, "columnWidth", 3, TestConstants.EXTENT_200_PX);
+        assertEquals(TestConstants.EXTENT_200_PX, grid.getColumnWidth(3));
+    }
+    
+    public void testSimpleAccessor() 
+    throws Exception {
+        ObjectIntrospector oi = IntrospectorFactory.get(Label.class.getName(), getClass().getClassLoader());
+        assertNull(oi.getPropertyAccessor("noSuchProperty"));
+        PropertyAccessor accessor = oi.getPropertyAccessor("foreground");
+        assertEquals("foreground", accessor.getName());
+        assertFalse(accessor.isIndexed());
+        assertEquals(Color.class, accessor.getPropertyClass());
+        assertEquals(Color.class, oi.getPropertyClass("foreground"));
+        assertEquals(accessor.getWriteMethod(), oi.getWriteMethod("foreground"));
+        
+        Label label = new Label();
+        accessor.set(label, Color.RED);
+        assertEquals(Color.RED, label.getForeground());
+        assertEquals(Color.RED, accessor.get(label));
+        
+        try {
+            accessor.get(label, 0);
+            fail("Indexed retrieval of non-indexed property.");
+        } catch (IllegalStateException ex) {
+            // Expected.
+        }
+    }
+}
@@ -0,0 +1,77 @@
+/* 
+ * This file is part of the Echo Web Application Framework (hereinafter "Echo").
+ * Copyright (C) 2002-2009 NextApp, Inc.
+ *
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ */
+
+package nextapp.echo.app.test;
+
+import nextapp.echo.app.util.RenderIdCodec;
+import junit.framework.TestCase;
+
+/**
+ * Unit test(s) for the <code>nextapp.echo.app.util.RenderIdCodec</code> 
+ * utility object.
+ */
+public class RenderIdCodecTest extends TestCase {
+    
+    /**
+     * Test decoding of invalid and custom render ids.
+     */
+    public void testDecodeInvalid() {
+        assertEquals(-1, RenderIdCodec.decode("", 0));
+        assertEquals(-1, RenderIdCodec.decode("C.", 2));
+        assertEquals(-1, RenderIdCodec.decode("myButton", 0));
+        assertEquals(-1, RenderIdCodec.decode("C.myButton", 2));
+        assertEquals(-1, RenderIdCodec.decode("00", 0));
+        assertEquals(-1, RenderIdCodec.decode("1_", 0));
+        assertEquals(-1, RenderIdCodec.decode("1zzzzzzzzzzz", 0));
+    }
+    
+    /**
+     * Test encoding of specific values.
+     */
+    public void testEncode() {
+        assertEquals("0", RenderIdCodec.encode(0));
+        assertEquals("9", RenderIdCodec.encode(9));
+        assertEquals("01", RenderIdCodec.encode(10));
+        assertEquals("510", RenderIdCodec.encode(625));
+        assertEquals("C.510", "C." + RenderIdCodec.encode(625));
+        assertEquals(625, RenderIdCodec.decode("C.510", 2));
+    }
+    
+    /**
+     * Test that encoding and decoding are inverse operations.
+     */
+    public void testRoundTrip() {
+        for (long value = 0; value < 100000; ++value) {
+            String id = RenderIdCodec.encode(value);
+            assertTrue(Character.isDigit(id.charAt(0)));
+            assertEquals(value, RenderIdCodec.decode(id, 0));
+        }
+        assertEquals(Long.MAX_VALUE, RenderIdCodec.decode(RenderIdCodec.encode(Long.MAX_VALUE), 0));
+    }
+}
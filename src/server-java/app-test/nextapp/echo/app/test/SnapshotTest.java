@@ -0,0 +1,205 @@
+/* 
+ * This file is part of the Echo Web Application Framework (hereinafter "Echo").
+ * Copyright (C) 2002-2009 NextApp, Inc.
+ *
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ */
+
+package nextapp.echo.app.test;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+
+import nextapp.echo.app.ApplicationInstance;
+import nextapp.echo.app.AwtImageReference;
+import nextapp.echo.app.Color;
+import nextapp.echo.app.Column;
+import nextapp.echo.app.Extent;
+import nextapp.echo.app.Insets;
+import nextapp.echo.app.Label;
+import nextapp.echo.app.MutableStyle;
+import nextapp.echo.app.util.Snapshot;
+import junit.framework.TestCase;
+
+/**
+ * Unit test(s) for <code>nextapp.echo.app.util.Snapshot</code>.
+ */
+public class SnapshotTest extends TestCase {
+    
+    /**
+     * Serializable holder with a back-reference to a context object.
+     */
+    private static class Holder 
+    implements Serializable {
+        
+        private Object context;
+        private Object value;
+    }
+
+    /**
+     * Serializes an object using default Java serialization.
+     */
+    private static byte[] serialize(Object value) 
+    throws IOException {
+        ByteArrayOutputStream byteOut = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(byteOut);
+        out.writeObject(value);
+        out.close();
+        return byteOut.toByteArray();
+    }
+    
+    /**
+     * Creates a column containing many labels with equal-but-not-identical styles.
+     */
+    private static Column createColumn(int labelCount) {
+        Column column = new Column();
+        for (int i = 0; i < labelCount; ++i) {
+            Label label = new Label("Label " + (i % 10));
+            label.setForeground(new Color(0x1f2f3f));
+            label.setBackground(new Color(0xefefef));
+            MutableStyle style = new MutableStyle();
+            style.set(new String("insets"), new Insets(new Extent(5), new Extent(10)));
+            label.setStyle(style);
+            column.add(label);
+        }
+        return column;
+    }
+    
+    public void testAwtImageReference() 
+    throws Exception {
+        BufferedImage image = new BufferedImage(40, 30, BufferedImage.TYPE_INT_ARGB);
+        for (int x = 0; x < 40; ++x) {
+            image.setRGB(x, x % 30, 0xff336699);
+        }
+        AwtImageReference imageReference = new AwtImageReference(image);
+        
+        byte[] data = Snapshot.write(imageReference, null);
+        AwtImageReference restored = (AwtImageReference) Snapshot.read(data, null);
+        
+        assertEquals(imageReference.getRenderId(), restored.getRenderId());
+        assertEquals(new Extent(40), restored.getWidth());
+        assertEquals(new Extent(30), restored.getHeight());
+        BufferedImage restoredImage = (BufferedImage) restored.getImage();
+        assertEquals(0xff336699, restoredImage.getRGB(5, 5));
+        assertEquals(0, restoredImage.getRGB(5, 6));
+        
+        // Raw pixel data would require at least 4800 bytes.
+        assertTrue(data.length < 40 * 30 * 4);
+    }
+    
+    public void testComponentHierarchy() 
+    throws Exception {
+        ColumnApp app = new ColumnApp();
+        ApplicationInstance.setActive(app);
+        app.doInit();
+        app.getColumn().add(createColumn(20));
+        ApplicationInstance.setActive(null);
+
+        ColumnApp restored = (ColumnApp) Snapshot.read(Snapshot.write(app, null), null);
+        assertNotSame(app, restored);
+        assertEquals(2, restored.getColumn().getComponentCount());
+        assertSame(restored, restored.getLabel().getApplicationInstance());
+        assertEquals("Label", restored.getLabel().getText());
+        assertEquals(app.getLabel().getRenderId(), restored.getLabel().getRenderId());
+        
+        Column restoredColumn = (Column) restored.getColumn().getComponent(1);
+        assertEquals(20, restoredColumn.getComponentCount());
+        Label label = (Label) restoredColumn.getComponent(7);
+        assertEquals("Label 7", label.getText());
+        assertEquals(new Color(0x1f2f3f), label.getForeground());
+        assertEquals(new Insets(new Extent(5), new Extent(10)), label.getStyle().get("insets"));
+    }
+    
+    public void testContext() 
+    throws Exception {
+        Object context = new Object();
+        Holder holder = new Holder();
+        holder.context = context;
+        holder.value = "value";
+        
+        Object otherContext = new Object();
+        Holder restored = (Holder) Snapshot.read(Snapshot.write(holder, context), otherContext);
+        assertSame(otherContext, restored.context);
+        assertEquals("value", restored.value);
+    }
+    
+    public void testDeduplication() 
+    throws Exception {
+        Column column = createColumn(500);
+        byte[] data = Snapshot.write(column, null);
+        
+        Column restored = (Column) Snapshot.read(data, null);
+        Label label1 = (Label) restored.getComponent(1);
+        Label label2 = (Label) restored.getComponent(2);
+        assertSame(label1.getForeground(), label2.getForeground());
+        assertSame(label1.getStyle().get("insets"), label2.getStyle().get("insets"));
+        assertSame("insets", label1.getStyle().getPropertyNames().next());
+        
+        assertTrue(data.length < serialize(column).length / 4);
+    }
+    
+    public void testInvalidHeader() 
+    throws Exception {
+        byte[] data = Snapshot.write("value", null);
+        data[4] = (byte) (Snapshot.VERSION + 1);
+        try {
+            Snapshot.read(data, null);
+            fail("Unsupported version read.");
+        } catch (IOException ex) {
+            // Expected.
+        }
+        
+        data[0] = 0;
+        try {
+            Snapshot.read(data, null);
+            fail("Invalid header read.");
+        } catch (IOException ex) {
+            // Expected.
+        }
+    }
+    
+    public void testMutableStyle() 
+    throws Exception {
+        MutableStyle style = new MutableStyle();
+        style.set("alpha", "bravo");
+        style.set("charlie", new Extent(5));
+        style.setIndex("delta", 2, "echo");
+        style.set("foxtrot", "golf");
+        style.removeProperty("alpha");
+        
+        MutableStyle restored = (MutableStyle) Snapshot.read(Snapshot.write(style, null), null);
+        assertEquals(3, restored.size());
+        assertNull(restored.get("alpha"));
+        assertEquals(new Extent(5), restored.get("charlie"));
+        assertEquals("echo", restored.getIndex("delta", 2));
+        assertEquals("golf", restored.get("foxtrot"));
+        restored.set("hotel", "india");
+        assertEquals(4, restored.size());
+        assertEquals("india", restored.get("hotel"));
+    }
+}
@@ -0,0 +1,160 @@
+/* 
+ * This file is part of the Echo Web Application Framework (hereinafter "Echo").
+ * Copyright (C) 2002-2009 NextApp, Inc.
+ *
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ */
+
+package nextapp.echo.app.test;
+
+import nextapp.echo.app.event.TableModelEvent;
+import nextapp.echo.app.event.TableModelListener;
+import nextapp.echo.app.table.DefaultTableModel;
+import junit.framework.TestCase;
+
+/**
+ * Unit test(s) for the <code>nextapp.echo.app.table.TableModel</code> and 
+ * derivatives. 
+ */
+public class TableModelTest extends TestCase {
+    
+    private class TestTableModelListener 
+    implements TableModelListener {
+        
+        private int eventCount;
+        private TableModelEvent lastEvent;
+        
+        /**
+         * @see nextapp.echo.app.event.TableModelListener#tableChanged(nextapp.echo.app.event.TableModelEvent)
+         */
+        public void tableChanged(TableModelEvent e) {
+            ++eventCount;
+            lastEvent = e;
+        }
+    }
+    
+    private DefaultTableModel createModel(int rowCount) {
+        DefaultTableModel model = new DefaultTableModel();
+        model.setColumnCount(2);
+        for (int i = 0; i < rowCount; ++i) {
+            model.addRow(new Object[] { "a" + i, "b" + i });
+        }
+        return model;
+    }
+    
+    public void testAddRows() {
+        DefaultTableModel model = createModel(1);
+        TestTableModelListener listener = new TestTableModelListener();
+        model.addTableModelListener(listener);
+        model.addRows(new Object[][] { { "a1", "b1" }, { "a2" }, { "a3", "b3", "c3" } });
+        assertEquals(4, model.getRowCount());
+        assertEquals("b3", model.getValueAt(1, 3));
+        assertEquals(1, listener.eventCount);
+        assertEquals(TableModelEvent.INSERT, listener.lastEvent.getType());
+        assertEquals(1, listener.lastEvent.getFirstRow());
+        assertEquals(3, listener.lastEvent.getLastRow());
+    }
+    
+    public void testBatchDelete() {
+        DefaultTableModel model = createModel(5);
+        TestTableModelListener listener = new TestTableModelListener();
+        model.addTableModelListener(listener);
+        model.beginUpdate();
+        model.deleteRow(2);
+        model.deleteRow(2);
+        model.deleteRow(1);
+        model.endUpdate();
+        assertEquals(2, model.getRowCount());
+        assertEquals(1, listener.eventCount);
+        assertEquals(TableModelEvent.DELETE, listener.lastEvent.getType());
+        assertEquals(1, listener.lastEvent.getFirstRow());
+        assertEquals(3, listener.lastEvent.getLastRow());
+    }
+    
+    public void testBatchInsertAndUpdate() {
+        DefaultTableModel model = createModel(2);
+        TestTableModelListener listener = new TestTableModelListener();
+        model.addTableModelListener(listener);
+        model.beginUpdate();
+        for (int i = 0; i < 1000; ++i) {
+            model.addRow(new Object[] { "x", "y" });
+            model.setValueAt("z", 1, model.getRowCount() - 1);
+        }
+        assertEquals(0, listener.eventCount);
+        model.endUpdate();
+        assertEquals(1, listener.eventCount);
+        assertEquals(TableModelEvent.INSERT, listener.lastEvent.getType());
+        assertEquals(2, listener.lastEvent.getFirstRow());
+        assertEquals(1001, listener.lastEvent.getLastRow());
+    }
+    
+    public void testBatchMixed() {
+        DefaultTableModel model = createModel(5);
+        TestTableModelListener listener = new TestTableModelListener();
+        model.addTableModelListener(listener);
+        model.beginUpdate();
+        model.deleteRow(0);
+        model.addRow(new Object[] { "x", "y" });
+        model.endUpdate();
+        assertEquals(1, listener.eventCount);
+        assertEquals(TableModelEvent.UPDATE, listener.lastEvent.getType());
+        assertEquals(0, listener.lastEvent.getFirstRow());
+        assertEquals(Integer.MAX_VALUE, listener.lastEvent.getLastRow());
+        
+        model.beginUpdate();
+        model.setValueAt("x", 0, 0);
+        model.setColumnName(0, "X");
+        model.setValueAt("x", 0, 1);
+        model.endUpdate();
+        assertEquals(2, listener.eventCount);
+        assertEquals(TableModelEvent.STRUCTURE_CHANGED, listener.lastEvent.getType());
+    }
+    
+    public void testBatchUpdate() {
+        DefaultTableModel model = createModel(5);
+        TestTableModelListener listener = new TestTableModelListener();
+        model.addTableModelListener(listener);
+        model.beginUpdate();
+        model.setValueAt("x", 1, 3);
+        model.setValueAt("x", 1, 2);
+        model.setValueAt("x", 1, 4);
+        model.endUpdate();
+        assertEquals(1, listener.eventCount);
+        assertEquals(TableModelEvent.UPDATE, listener.lastEvent.getType());
+        assertEquals(1, listener.lastEvent.getColumn());
+        assertEquals(2, listener.lastEvent.getFirstRow());
+        assertEquals(4, listener.lastEvent.getLastRow());
+    }
+    
+    public void testEndUpdateWithoutBegin() {
+        DefaultTableModel model = createModel(0);
+        try {
+            model.endUpdate();
+            fail("Expected IllegalStateException.");
+        } catch (IllegalStateException ex) {
+            // Expected.
+        }
+    }
+}
@@ -33,6 +33,7 @@ import nextapp.echo.app.CheckBox;
 import nextapp.echo.app.Component;
 import nextapp.echo.app.Label;
 import nextapp.echo.app.Table;
+import nextapp.echo.app.table.DefaultTableCellRenderer;
 import nextapp.echo.app.table.DefaultTableColumnModel;
 import nextapp.echo.app.table.DefaultTableModel;
 import nextapp.echo.app.table.TableCellRenderer;
@@ -60,6 +61,51 @@ public class TableTest extends TestCase {
         return model;
     }
     
+    public void testCellRecycling() {
+        DefaultTableModel model = createEmployeeTableModel();
+        Table table = new Table(model);
+        table.validate();
+        assertEquals(18, table.getComponentCount());
+        Component[] components = table.getComponents();
+        
+        // Unchanged cells are retained.
+        model.setValueAt("Robert Johnson", 0, 0);
+        table.validate();
+        assertEquals(18, table.getComponentCount());
+        for (int i = 0; i < components.length; ++i) {
+            assertSame(components[i], table.getComponent(i));
+        }
+        assertEquals("Robert Johnson", ((Label) table.getComponent(3)).getText());
+        
+        // Cells of deleted rows are pooled, and reused when rows are added.
+        model.deleteRow(4);
+        model.deleteRow(3);
+        table.validate();
+        assertEquals(12, table.getComponentCount());
+        assertNull(components[15].getParent());
+        model.insertRow(3, new Object[]{"Cathy Rogers", new Integer(21), Boolean.FALSE});
+        table.validate();
+        assertEquals(15, table.getComponentCount());
+        for (int i = 12; i < 15; ++i) {
+            Component cell = table.getComponent(i);
+            boolean recycled = false;
+            for (int j = 12; j < components.length; ++j) {
+                recycled |= cell == components[j];
+            }
+            assertTrue(recycled);
+        }
+        assertEquals("Cathy Rogers", ((Label) table.getComponent(12)).getText());
+        
+        // Renderers do not recycle labels unless recycling is enabled.
+        table.setDefaultRenderer(Object.class, new DefaultTableCellRenderer());
+        table.validate();
+        components = table.getComponents();
+        model.setValueAt("Robert Smith", 0, 0);
+        table.validate();
+        assertNotSame(components[3], table.getComponent(3));
+        assertEquals("Robert Smith", ((Label) table.getComponent(3)).getText());
+    }
+    
     public void testDefaultColumnNames() {
         DefaultTableModel model = new DefaultTableModel();
         model.setColumnCount(3);
@@ -0,0 +1,134 @@
+/* 
+ * This file is part of the Echo Web Application Framework (hereinafter "Echo").
+ * Copyright (C) 2002-2009 NextApp, Inc.
+ *
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ */
+
+package nextapp.echo.app.test.xml;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+
+import junit.framework.TestCase;
+
+import nextapp.echo.app.Color;
+import nextapp.echo.app.Component;
+import nextapp.echo.app.DerivedMutableStyle;
+import nextapp.echo.app.Grid;
+import nextapp.echo.app.Label;
+import nextapp.echo.app.MutableStyle;
+import nextapp.echo.app.MutableStyleSheet;
+import nextapp.echo.app.Style;
+import nextapp.echo.app.StyleSheet;
+import nextapp.echo.app.serial.CompiledStyleSheet;
+
+/**
+ * Unit test(s) for <code>nextapp.echo.app.serial.CompiledStyleSheet</code>.
+ */
+public class CompiledStyleSheetTest extends TestCase {
+    
+    private static final String RESOURCE_NAME = "nextapp/echo/app/test/xml/CompiledStyleSheetTest.stylesheet.xml";
+    
+    /**
+     * <code>ClassLoader</code> which provides a precompiled style sheet resource.
+     */
+    private static class PrecompiledClassLoader extends ClassLoader {
+        
+        private byte[] precompiled;
+        
+        PrecompiledClassLoader(byte[] precompiled) {
+            super(CompiledStyleSheetTest.class.getClassLoader());
+            this.precompiled = precompiled;
+        }
+        
+        public InputStream getResourceAsStream(String name) {
+            if ((RESOURCE_NAME + CompiledStyleSheet.PRECOMPILED_SUFFIX).equals(name)) {
+                return new ByteArrayInputStream(precompiled);
+            } else if (RESOURCE_NAME.equals(name)) {
+                fail("XML style sheet loaded in presence of precompiled style sheet.");
+            }
+            return super.getResourceAsStream(name);
+        }
+    }
+    
+    private void assertStyleSheet(StyleSheet styleSheet) {
+        Style defaultStyle = styleSheet.getStyle(null, Label.class, true);
+        assertEquals(Color.BLACK, defaultStyle.get(Label.PROPERTY_FOREGROUND));
+        assertFalse(defaultStyle.isPropertySet(Label.PROPERTY_BACKGROUND));
+        
+        Style derivedStyle = styleSheet.getStyle("Derived", Label.class, true);
+        assertEquals(Color.RED, derivedStyle.get(Label.PROPERTY_FOREGROUND));
+        assertEquals(Color.BLUE, derivedStyle.get(Label.PROPERTY_BACKGROUND));
+        assertTrue(derivedStyle.isPropertySet(Label.PROPERTY_FOREGROUND));
+
+        assertNull(styleSheet.getStyle("Derived", Component.class, true));
+        assertNull(styleSheet.getStyle("Nonexistent", Label.class, true));
+    }
+    
+    public void testCompile() {
+        MutableStyleSheet source = new MutableStyleSheet();
+        MutableStyle baseStyle = new MutableStyle();
+        baseStyle.setIndex(Grid.PROPERTY_COLUMN_WIDTH, 0, "a");
+        baseStyle.setIndex(Grid.PROPERTY_COLUMN_WIDTH, 1, "b");
+        baseStyle.set(Grid.PROPERTY_SIZE, new Integer(3));
+        DerivedMutableStyle derivedStyle = new DerivedMutableStyle(baseStyle);
+        derivedStyle.setIndex(Grid.PROPERTY_COLUMN_WIDTH, 1, "c");
+        source.addStyle(Grid.class, "Derived", derivedStyle);
+        
+        StyleSheet compiled = CompiledStyleSheet.compile(source);
+        derivedStyle.set(Grid.PROPERTY_SIZE, new Integer(4));
+        
+        Style style = compiled.getStyle("Derived", Grid.class, false);
+        assertEquals(new Integer(3), style.get(Grid.PROPERTY_SIZE));
+        assertEquals("a", style.getIndex(Grid.PROPERTY_COLUMN_WIDTH, 0));
+        assertEquals("c", style.getIndex(Grid.PROPERTY_COLUMN_WIDTH, 1));
+        assertTrue(style.isIndexedPropertySet(Grid.PROPERTY_COLUMN_WIDTH, 1));
+        assertFalse(style.isIndexedPropertySet(Grid.PROPERTY_COLUMN_WIDTH, 2));
+    }
+    
+    public void testForResource() 
+    throws Exception {
+        ClassLoader classLoader = CompiledStyleSheetTest.class.getClassLoader();
+        CompiledStyleSheet styleSheet = CompiledStyleSheet.forResource(RESOURCE_NAME, classLoader);
+        assertStyleSheet(styleSheet);
+        assertSame(styleSheet, CompiledStyleSheet.forResource(RESOURCE_NAME, classLoader));
+        assertNull(CompiledStyleSheet.forResource("nextapp/echo/app/test/xml/Nonexistent.stylesheet.xml", classLoader));
+        
+        CompiledStyleSheet.dispose(classLoader);
+        CompiledStyleSheet reloadedStyleSheet = CompiledStyleSheet.forResource(RESOURCE_NAME, classLoader);
+        assertNotSame(styleSheet, reloadedStyleSheet);
+        assertStyleSheet(reloadedStyleSheet);
+    }
+    
+    public void testPrecompiled() 
+    throws Exception {
+        ClassLoader classLoader = CompiledStyleSheetTest.class.getClassLoader();
+        byte[] precompiled = CompiledStyleSheet.forResource(RESOURCE_NAME, classLoader).toBinary();
+        CompiledStyleSheet styleSheet = CompiledStyleSheet.forResource(RESOURCE_NAME, 
+                new PrecompiledClassLoader(precompiled));
+        assertStyleSheet(styleSheet);
+    }
+}
@@ -148,6 +148,13 @@ implements Serializable {
         return this.horizontal == that.horizontal && this.vertical == that.vertical;
     }
     
+    /**
+     * @see java.lang.Object#hashCode()
+     */
+    public int hashCode() {
+        return horizontal * 31 + vertical;
+    }
+    
     /**
      * Returns the horizontal setting of this <code>Alignment</code>.
      * 
@@ -44,6 +44,8 @@ import java.util.Set;
 
 import nextapp.echo.app.update.ServerUpdateManager;
 import nextapp.echo.app.update.UpdateManager;
+import nextapp.echo.app.util.LongObjectMap;
+import nextapp.echo.app.util.RenderIdCodec;
 import nextapp.echo.app.util.Uid;
 
 /**
@@ -70,6 +72,9 @@ implements Serializable {
      */ 
     private static final ThreadLocal activeInstance = new ThreadLocal();
     
+    /** Marker stored in the resolved style cache for component class / style name pairs having no style. */
+    private static final Object NO_STYLE = new Object();
+    
     /**
      * Determines the current modal component by searching the entire hierarchy for modal components.
      * This operation is only performed when multiple visibly rendered components are registered as modal.
@@ -156,8 +161,15 @@ implements Serializable {
     private Map context;
     
     /**
-     * Mapping from the render ids of all registered components to the 
+     * Mapping from the numeric values of the generated render ids of registered components to the 
      * <code>Component</code> instances themselves.
+     * @see RenderIdCodec
+     */
+    private LongObjectMap renderIndexToComponentMap;
+    
+    /**
+     * Mapping from the custom render ids of registered components (those set via 
+     * <code>Component.setRenderId()</code>) to the <code>Component</code> instances themselves.
      */
     private Map renderIdToComponentMap;
     
@@ -189,6 +201,26 @@ implements Serializable {
      * The <code>StyleSheet</code> used by the application.
      */
     private StyleSheet styleSheet;
+    
+    /**
+     * Cache of <code>ResolvedStyle</code>s, mapping component <code>Class</code>es to <code>Map</code>s which in turn
+     * map style names to <code>ResolvedStyle</code>s (or <code>NO_STYLE</code>).
+     * Lazily created, cleared when the <code>StyleSheet</code> is set or (if it is a 
+     * <code>MutableStyleSheet</code>) modified.
+     */
+    private transient Map resolvedStyleMap;
+    
+    /**
+     * The modification count of the <code>MutableStyleSheet</code> at the time <code>resolvedStyleMap</code>
+     * was created.
+     */
+    private transient int resolvedStyleSheetModificationCount;
+    
+    /**
+     * Flag indicating whether the subtree versions of registered components are maintained (see 
+     * <code>Component.getSubtreeVersion()</code>).
+     */
+    private transient boolean subtreeVersioningEnabled;
 
     /**
      * Collection of modal components, the last index representing the current
@@ -214,6 +246,7 @@ implements Serializable {
         
         propertyChangeSupport = new PropertyChangeSupport(this);
         updateManager = new UpdateManager(this);
+        renderIndexToComponentMap = new LongObjectMap();
         renderIdToComponentMap = new HashMap();
         taskQueueMap = new HashMap();
     }
@@ -366,7 +399,7 @@ implements Serializable {
      * @see #generateSystemId()
      */
     public String generateId() {
-        return Long.toString(nextId++);
+        return RenderIdCodec.encode(nextId++);
     }
     
     /**
@@ -393,7 +426,27 @@ implements Serializable {
      *         render id is registered)
      */
     public Component getComponentByRenderId(String renderId) {
-        return (Component) renderIdToComponentMap.get(renderId);
+        long renderIndex = renderId == null ? -1 : RenderIdCodec.decode(renderId, 0);
+        if (renderIndex == -1) {
+            return (Component) renderIdToComponentMap.get(renderId);
+        } else {
+            return (Component) renderIndexToComponentMap.get(renderIndex);
+        }
+    }
+
+    /**
+     * Retrieves the component currently registered with the application 
+     * with the specified generated render id, in its numeric form.
+     * This method allows containers which have decoded a render id (using <code>RenderIdCodec</code>)
+     * to retrieve the component without creating a <code>String</code>.
+     * 
+     * @param renderIndex the numeric value of the generated render id of the component
+     * @return the component (or null if no component with the specified
+     *         render id is registered)
+     * @see RenderIdCodec#decode(String, int)
+     */
+    public Component getComponentByRenderIndex(long renderIndex) {
+        return (Component) renderIndexToComponentMap.get(renderIndex);
     }
 
     /**
@@ -484,6 +537,41 @@ implements Serializable {
         }
     }
     
+    /**
+     * Retrieves a flattened, cached snapshot of the style for the specified class of component / style name.
+     * The snapshot reflects the state of the <code>StyleSheet</code> at the time it was first requested; 
+     * all snapshots are discarded when <code>setStyleSheet()</code> is invoked, or when styles are added to a
+     * <code>MutableStyleSheet</code>.
+     * 
+     * @param componentClass the component <code>Class</code>
+     * @param styleName the component's specified style name
+     * @return the resolved application-wide style, or null if none exists
+     * @see #getStyle(Class, String)
+     */
+    Style getResolvedStyle(Class componentClass, String styleName) {
+        if (styleSheet == null) {
+            return null;
+        }
+        int modificationCount = styleSheet instanceof MutableStyleSheet 
+                ? ((MutableStyleSheet) styleSheet).getModificationCount() : 0;
+        if (resolvedStyleMap == null || modificationCount != resolvedStyleSheetModificationCount) {
+            resolvedStyleMap = new HashMap();
+            resolvedStyleSheetModificationCount = modificationCount;
+        }
+        Map classStyleMap = (Map) resolvedStyleMap.get(componentClass);
+        if (classStyleMap == null) {
+            classStyleMap = new HashMap();
+            resolvedStyleMap.put(componentClass, classStyleMap);
+        }
+        Object style = classStyleMap.get(styleName);
+        if (style == null) {
+            Style sourceStyle = styleSheet.getStyle(styleName, componentClass, true);
+            style = sourceStyle == null ? NO_STYLE : new ResolvedStyle(sourceStyle);
+            classStyleMap.put(styleName, style);
+        }
+        return style == NO_STYLE ? null : (Style) style;
+    }
+    
     /**
      * Returns the application-wide <code>StyleSheet</code>, if present.
      * 
@@ -554,6 +642,16 @@ implements Serializable {
         return modalComponents != null && modalComponents.contains(component);
     }
     
+    /**
+     * Determines whether the subtree versions of registered components are maintained.
+     * 
+     * @return true if subtree versions are maintained
+     * @see #setSubtreeVersioningEnabled(boolean)
+     */
+    boolean isSubtreeVersioningEnabled() {
+        return subtreeVersioningEnabled;
+    }
+    
     /**
      * Invoked to initialize the application, returning the default window.
      * The returned window must be visible.
@@ -672,13 +770,24 @@ implements Serializable {
      */
     void registerComponent(Component component) {
         String renderId = component.getRenderId();
-        if (renderId == null || renderIdToComponentMap.containsKey(renderId)) {
-            // Note that the render id is reassigned if it currently exists renderIdToComponentMap.  This could be the case
+        long renderIndex = renderId == null ? -1 : RenderIdCodec.decode(renderId, 0);
+        if (renderId == null || (renderIndex == -1 ? renderIdToComponentMap.containsKey(renderId)
+                : renderIndexToComponentMap.containsKey(renderIndex))) {
+            // Note that the render id is reassigned if it is currently registered.  This could be the case
             // in the event a Component was being used in a pool.
-            renderId = generateId();
+            // Generated ids retained by components from previous registrations are skipped.
+            while (renderIndexToComponentMap.containsKey(nextId)) {
+                ++nextId;
+            }
+            renderIndex = nextId++;
+            renderId = RenderIdCodec.encode(renderIndex);
             component.assignRenderId(renderId);            
         }
-        renderIdToComponentMap.put(renderId, component);
+        if (renderIndex == -1) {
+            renderIdToComponentMap.put(renderId, component);
+        } else {
+            renderIndexToComponentMap.put(renderIndex, component);
+        }
         if (component instanceof ModalSupport && ((ModalSupport) component).isModal()) {
             setModal(component, true);
         }
@@ -819,15 +928,34 @@ implements Serializable {
      * client state to be updated.  Generally style sheets should
      * only be reconfigured at application initialization and/or when
      * the user changes the visual theme of a theme-capable application.
+     * <p>
+     * Styles are resolved from the style sheet (and cached) as they are needed.
+     * Cached styles are discarded when styles are added to a <code>MutableStyleSheet</code>; however, if the 
+     * contents of the current style sheet are modified, this method should still be invoked again
+     * (with the same style sheet) for the changes to be reflected on the client.
      * 
      * @param newValue the new style sheet
      */
     public void setStyleSheet(StyleSheet newValue) {
         StyleSheet oldValue = styleSheet;
         this.styleSheet = newValue;
+        resolvedStyleMap = null;
         firePropertyChange(STYLE_SHEET_CHANGED_PROPERTY, oldValue, newValue);
     }
 
+    /**
+     * Sets whether the subtree versions of registered components are maintained.
+     * Maintaining them requires walking the ancestors of a component whenever it changes, and is thus disabled by
+     * default; application containers which use them enable it before first reading them.
+     * Changes made while disabled are not reflected in the versions of registered components.
+     * 
+     * @param newValue true if subtree versions should be maintained
+     * @see Component#getSubtreeVersion()
+     */
+    void setSubtreeVersioningEnabled(boolean newValue) {
+        subtreeVersioningEnabled = newValue;
+    }
+
     /**
      * Unregisters a component from the <code>ApplicationInstance</code>.
      * <p>
@@ -839,7 +967,12 @@ implements Serializable {
     void unregisterComponent(Component component) {
         final String renderId = component.getRenderId();
         component.assignLastRenderId(renderId);
-        renderIdToComponentMap.remove(renderId);
+        long renderIndex = renderId == null ? -1 : RenderIdCodec.decode(renderId, 0);
+        if (renderIndex == -1) {
+            renderIdToComponentMap.remove(renderId);
+        } else {
+            renderIndexToComponentMap.remove(renderIndex);
+        }
         if (component instanceof ModalSupport && ((ModalSupport) component).isModal()) {
             setModal(component, false);
         }
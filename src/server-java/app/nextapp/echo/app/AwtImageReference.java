@@ -29,16 +29,17 @@
 
 package nextapp.echo.app;
 
+import java.awt.Graphics2D;
 import java.awt.Image;
-import java.awt.Toolkit;
-import java.awt.image.ColorModel;
-import java.awt.image.ImageObserver;
-import java.awt.image.MemoryImageSource;
-import java.awt.image.PixelGrabber;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 
+import javax.imageio.ImageIO;
+
 /**
  * An ImageReference describing an image which may be rendered from a <code>java.awt.Image</code>. Note that the JVM running the
  * Echo Application Container will require access to a graphics context for the Java AWT to function.
@@ -55,8 +56,11 @@ import java.io.ObjectOutputStream;
 public class AwtImageReference 
 implements ImageReference {
 
-    /** Serial Version UID. */
-    private static final long serialVersionUID = 20070101L;
+    /** 
+     * Serial Version UID.
+     * Changed from 20070101L when serialized form switched from raw pixel data to PNG-encoded image data.
+     */
+    private static final long serialVersionUID = 20090101L;
 
     private transient Image image;
     private String id;
@@ -155,44 +159,53 @@ implements ImageReference {
     throws IOException, ClassNotFoundException {
         in.defaultReadObject();
         
-        int width = in.readInt();
-        int height = in.readInt();
-        int[] pixels = (int[]) in.readObject();
-        
-        if (pixels != null) {
-            Toolkit toolkit = Toolkit.getDefaultToolkit();
-            ColorModel colorModel = ColorModel.getRGBdefault();
-            image = toolkit.createImage(new MemoryImageSource(width, height, colorModel, pixels, 0, width));
+        byte[] pngData = (byte[]) in.readObject();
+        if (pngData != null) {
+            image = ImageIO.read(new ByteArrayInputStream(pngData));
+            if (image == null) {
+                throw new IOException("Unable to deserialize java.awt.Image: invalid PNG data.");
+            }
         }
     }
 
     /**
      * @see java.io.Serializable
+     * 
+     * Writes the image as PNG-encoded data, rather than as raw pixels.
      */
     private void writeObject(ObjectOutputStream out) 
     throws IOException {
         out.defaultWriteObject();
         
-        int width = image.getWidth(null);
-        int height = image.getHeight(null);
-        
-        out.writeInt(width);
-        out.writeInt(height);
-        
         if (image == null) {
             out.writeObject(null);
+            return;
+        }
+        
+        BufferedImage bufferedImage;
+        if (image instanceof BufferedImage) {
+            bufferedImage = (BufferedImage) image;
         } else {
-            int[] pixels = new int[width * height];
+            int width = image.getWidth(null);
+            int height = image.getHeight(null);
+            if (width <= 0 || height <= 0) {
+                throw new IOException("Unable to serialize java.awt.Image: image not loaded.");
+            }
+            bufferedImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g = bufferedImage.createGraphics();
             try {
-                PixelGrabber pg = new PixelGrabber(image, 0, 0, width, height, pixels, 0, width);
-                pg.grabPixels();
-                if ((pg.getStatus() & ImageObserver.ABORT) != 0) {
-                    throw new IOException("Unable to serialize java.awt.image: PixelGrabber aborted.");
+                if (!g.drawImage(image, 0, 0, null)) {
+                    throw new IOException("Unable to serialize java.awt.Image: image not fully loaded.");
                 }
-            } catch (InterruptedException ex) {
-                throw new IOException("Unable to serialize java.awt.Image: PixelGrabber interrupted.");
+            } finally {
+                g.dispose();
             }
-            out.writeObject(pixels);
         }
+        
+        ByteArrayOutputStream pngOut = new ByteArrayOutputStream();
+        if (!ImageIO.write(bufferedImage, "png", pngOut)) {
+            throw new IOException("Unable to serialize java.awt.Image: no PNG encoder available.");
+        }
+        out.writeObject(pngOut.toByteArray());
     }
 }
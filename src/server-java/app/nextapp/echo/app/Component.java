@@ -238,6 +238,12 @@ implements RenderIdSupport, Serializable {
      */
     private List children;
     
+    /**
+     * The render id of this component as presented to a remote client, cached by the application container such
+     * that it need not be recreated on every render.  Reset whenever the render id changes.
+     */
+    private transient String clientRenderId;
+    
     /**
      * Boolean flags for this component, including enabled state and visibility. 
      * Multiple booleans are wrapped in a single integer for memory use reduction.
@@ -301,6 +307,13 @@ implements RenderIdSupport, Serializable {
     /** Name of style to use from application style sheet */
     private String styleName;
     
+    /**
+     * Version stamp of the hierarchy rooted at this component, incremented whenever a property of the component
+     * or of any of its descendants changes (including changes to children and layout data), or when input is
+     * received from the client.
+     */
+    private transient int subtreeVersion;
+    
     /** Render id of previous focus traversal component. */
     private String focusPreviousId;
 
@@ -473,6 +486,8 @@ implements RenderIdSupport, Serializable {
      */
     void assignRenderId(String renderId) {
         this.renderId = renderId;
+        this.clientRenderId = null;
+        incrementSubtreeVersion();
     }
     
     void assignLastRenderId(String renderId) {
@@ -560,6 +575,8 @@ implements RenderIdSupport, Serializable {
      * @param newValue the present value of the property
      */
     protected void firePropertyChange(String propertyName, Object oldValue, Object newValue) {
+        incrementSubtreeVersion();
+        
         // Report to PropertyChangeListeners.
         if (propertyChangeSupport != null) {
             propertyChangeSupport.firePropertyChange(propertyName, oldValue, newValue);
@@ -615,6 +632,18 @@ implements RenderIdSupport, Serializable {
         return (Color) localStyle.get(PROPERTY_BACKGROUND);
     }
     
+    /**
+     * Returns the client-side render id cached by the application container.
+     * 
+     * @return the cached client-side render id, or null if none has been cached since the render id was last 
+     *         assigned
+     * @see #setClientRenderId(String)
+     * @see ContainerAccess#getClientRenderId(Component)
+     */
+    String getClientRenderId() {
+        return clientRenderId;
+    }
+    
     /**
      * Returns the <code>n</code>th immediate child component.
      *
@@ -913,7 +942,7 @@ implements RenderIdSupport, Serializable {
             return sharedStyle.getIndex(propertyName, propertyIndex);
         } else {
             if (applicationInstance != null) {
-                Style applicationStyle = applicationInstance.getStyle(getClass(), styleName);
+                Style applicationStyle = applicationInstance.getResolvedStyle(getClass(), styleName);
                 if (applicationStyle != null && applicationStyle.isIndexedPropertySet(propertyName, propertyIndex)) {
                     // Return style value specified in application.
                     return applicationStyle.getIndex(propertyName, propertyIndex);
@@ -1004,7 +1033,7 @@ implements RenderIdSupport, Serializable {
             }
         }
         if (applicationInstance != null) {
-            Style applicationStyle = applicationInstance.getStyle(getClass(), styleName);
+            Style applicationStyle = applicationInstance.getResolvedStyle(getClass(), styleName);
             if (applicationStyle != null) {
                 // Return style value specified in application.
                 propertyValue = applicationStyle.get(propertyName);
@@ -1045,6 +1074,22 @@ implements RenderIdSupport, Serializable {
         return styleName;
     }
     
+    /**
+     * Returns the version stamp of the hierarchy rooted at this component.
+     * The value changes whenever a property of the component or of any of its descendants changes, 
+     * including changes to children and layout data, and whenever client input is processed by the component
+     * or any of its descendants.  Application containers may use the value to determine whether a previously
+     * rendered representation of the hierarchy remains valid.
+     * <p>
+     * The versions of components registered to an <code>ApplicationInstance</code> are only maintained while the
+     * application container has enabled them (see <code>ContainerAccess.setSubtreeVersioningEnabled()</code>).
+     * 
+     * @return the version stamp
+     */
+    public final int getSubtreeVersion() {
+        return subtreeVersion;
+    }
+    
     /**
      * Returns the <code>n</code>th immediate <strong>visible</strong> 
      * child <code>Component</code>.
@@ -1132,6 +1177,24 @@ implements RenderIdSupport, Serializable {
         return listenerList != null;
     }
     
+    /**
+     * Increments the version stamp of this component and of its ancestors.
+     * Versions of unregistered components are always maintained, such that changes made to a hierarchy while it
+     * is detached are reflected when it is re-added.
+     * 
+     * @see #getSubtreeVersion()
+     */
+    private void incrementSubtreeVersion() {
+        if (applicationInstance != null && !applicationInstance.isSubtreeVersioningEnabled()) {
+            return;
+        }
+        Component component = this;
+        while (component != null) {
+            ++component.subtreeVersion;
+            component = component.parent;
+        }
+    }
+    
     /**
      * Determines the index of the given <code>Component</code> within the 
      * children of this <code>Component</code>.  If the given 
@@ -1293,6 +1356,9 @@ implements RenderIdSupport, Serializable {
      */
     public void processInput(String inputName, Object inputValue) 
     { 
+      // Client-side state of the component may have changed without a property change being fired.
+      incrementSubtreeVersion();
+      
       if( LOST_FOCUS.equals(inputName) )
         fireLostFocusEvent();
       else
@@ -1300,6 +1366,18 @@ implements RenderIdSupport, Serializable {
         fireGotFocusEvent();
     }
     
+    /**
+     * Prepares the component for reuse after it has been retrieved from a <code>ComponentPool</code>.
+     * Pooled components retain their properties, such that a reused component whose content is unchanged
+     * generates no updates; the party retrieving the component is responsible for setting all properties on
+     * which it relies.  Derived components should override this method to reset state which would otherwise
+     * be carried over incorrectly (e.g., registered event listeners), while ensuring to call the superclass'
+     * implementation.  The default implementation does nothing.
+     * 
+     * @see ComponentPool
+     */
+    protected void recycle() { }
+    
     /**
      * Sets the <code>ApplicationInstance</code> to which this component is
      * registered.
@@ -1474,6 +1552,17 @@ implements RenderIdSupport, Serializable {
         set(PROPERTY_BACKGROUND, newValue);
     }
     
+    /**
+     * Caches the client-side render id of the component, which should be derived from the current render id.  
+     * The cached value is discarded when the render id changes.
+     * 
+     * @param clientRenderId the client-side render id
+     * @see ContainerAccess#setClientRenderId(Component, String)
+     */
+    void setClientRenderId(String clientRenderId) {
+        this.clientRenderId = clientRenderId;
+    }
+    
     /**
      * Sets the child components for this container, removing
      * any existing children.
@@ -0,0 +1,178 @@
+/* 
+ * This file is part of the Echo Web Application Framework (hereinafter "Echo").
+ * Copyright (C) 2002-2009 NextApp, Inc.
+ *
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ */
+
+package nextapp.echo.app;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A pool of detached <code>Component</code>s available for reuse, e.g., by renderers which would otherwise create 
+ * new components each time they are invoked (see <code>Table.acquireCellComponent()</code>).
+ * <p>
+ * Pooled components are segregated by class and by owner (e.g., the renderer which created them).
+ * Pooled components retain their properties (and, when re-registered, their render ids), such that a reused 
+ * component whose content is unchanged generates no updates.  The party acquiring a component is thus
+ * responsible for setting all properties on which it relies, which is why components are only provided to the 
+ * owner which released them.  Components are reset using <code>Component.recycle()</code> when acquired.
+ */
+public class ComponentPool 
+implements Serializable {
+    
+    /** Serial Version UID. */
+    private static final long serialVersionUID = 20070101L;
+    
+    /**
+     * Pool key, identifying an owner and component class.
+     */
+    private static class Key 
+    implements Serializable {
+        
+        /** Serial Version UID. */
+        private static final long serialVersionUID = 20070101L;
+        
+        /** The owner. */
+        private Object owner;
+        
+        /** The component class. */
+        private Class componentClass;
+        
+        /**
+         * Creates a new <code>Key</code>.
+         * 
+         * @param owner the owner
+         * @param componentClass the component class
+         */
+        private Key(Object owner, Class componentClass) {
+            super();
+            this.owner = owner;
+            this.componentClass = componentClass;
+        }
+        
+        /**
+         * @see java.lang.Object#equals(java.lang.Object)
+         */
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key that = (Key) o;
+            return owner.equals(that.owner) && componentClass == that.componentClass;
+        }
+        
+        /**
+         * @see java.lang.Object#hashCode()
+         */
+        public int hashCode() {
+            return owner.hashCode() ^ componentClass.hashCode();
+        }
+    }
+    
+    /** The maximum number of components pooled for each owner and class. */
+    private int maximumSize;
+    
+    /** Mapping between <code>Key</code>s and <code>List</code>s of pooled components. */
+    private Map pools = new HashMap();
+    
+    /**
+     * Creates a new <code>ComponentPool</code>.
+     * 
+     * @param maximumSize the maximum number of components to pool for each owner and class
+     */
+    public ComponentPool(int maximumSize) {
+        super();
+        this.maximumSize = maximumSize;
+    }
+    
+    /**
+     * Retrieves a pooled component.
+     * 
+     * @param owner the owner which released the component
+     * @param componentClass the class of the component (subclasses are not considered)
+     * @return the component, or null if no component is pooled for the owner and class
+     */
+    public Component acquire(Object owner, Class componentClass) {
+        List pool = (List) pools.get(new Key(owner, componentClass));
+        if (pool == null || pool.isEmpty()) {
+            return null;
+        }
+        Component component = (Component) pool.remove(pool.size() - 1);
+        component.recycle();
+        return component;
+    }
+    
+    /**
+     * Discards all pooled components.
+     */
+    public void clear() {
+        pools.clear();
+    }
+    
+    /**
+     * Returns a component to the pool.
+     * The component is discarded if the pool is full.
+     * 
+     * @param owner the owner of the component, which may later retrieve it
+     * @param component the component, which must not have a parent
+     * @throws IllegalArgumentException if the component has a parent
+     */
+    public void release(Object owner, Component component) {
+        if (component.getParent() != null) {
+            throw new IllegalArgumentException("Cannot pool component with a parent.");
+        }
+        Key key = new Key(owner, component.getClass());
+        List pool = (List) pools.get(key);
+        if (pool == null) {
+            pool = new ArrayList();
+            pools.put(key, pool);
+        }
+        if (pool.size() < maximumSize) {
+            pool.add(component);
+        }
+    }
+    
+    /**
+     * Discards the pooled components of all owners not contained in the specified set.
+     * 
+     * @param owners the owners whose pooled components should be retained
+     */
+    public void retainOwners(Set owners) {
+        Iterator it = pools.keySet().iterator();
+        while (it.hasNext()) {
+            if (!owners.contains(((Key) it.next()).owner)) {
+                it.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/* 
+ * This file is part of the Echo Web Application Framework (hereinafter "Echo").
+ * Copyright (C) 2002-2009 NextApp, Inc.
+ *
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ */
+
+package nextapp.echo.app;
+
+/**
+ * Provides application containers with access to state which they cache on framework objects.
+ * This class is intended for use by application containers only, and is not part of the public API of the 
+ * framework.
+ */
+public final class ContainerAccess {
+    
+    /**
+     * Returns the client-side render id of a component cached by the application container.
+     * 
+     * @param component the component
+     * @return the cached client-side render id, or null if none has been cached since the render id of the 
+     *         component was last assigned
+     */
+    public static String getClientRenderId(Component component) {
+        return component.getClientRenderId();
+    }
+    
+    /**
+     * Caches the client-side render id of a component, which must be derived from its current render id.  
+     * The cached value is discarded when the render id of the component changes.
+     * 
+     * @param component the component
+     * @param clientRenderId the client-side render id
+     */
+    public static void setClientRenderId(Component component, String clientRenderId) {
+        component.setClientRenderId(clientRenderId);
+    }
+    
+    /**
+     * Sets whether the subtree versions of the components registered to an application are maintained.
+     * Application containers which use subtree versions must enable them before first reading them.
+     * 
+     * @param applicationInstance the application
+     * @param newValue true if subtree versions should be maintained
+     * @see Component#getSubtreeVersion()
+     */
+    public static void setSubtreeVersioningEnabled(ApplicationInstance applicationInstance, boolean newValue) {
+        applicationInstance.setSubtreeVersioningEnabled(newValue);
+    }
+    
+    /** Non-instantiable class. */
+    private ContainerAccess() { }
+}
@@ -61,6 +61,18 @@ public class DerivedMutableStyle extends MutableStyle {
         this.parentStyle = parentStyle;
     }
     
+    /**
+     * Returns the sum of the modification counts of this style and its parent style, if the parent style is a
+     * <code>MutableStyle</code>.
+     * 
+     * @see nextapp.echo.app.MutableStyle#getModificationCount()
+     */
+    int getModificationCount() {
+        return parentStyle instanceof MutableStyle 
+                ? super.getModificationCount() + ((MutableStyle) parentStyle).getModificationCount()
+                : super.getModificationCount();
+    }
+    
     /**
      * Returns the parent style.
      * 
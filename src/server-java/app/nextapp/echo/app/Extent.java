@@ -254,6 +254,13 @@ implements Comparable, Serializable {
             return false;
         }
     }
+    
+    /**
+     * @see java.lang.Object#hashCode()
+     */
+    public int hashCode() {
+        return value * 31 + units;
+    }
 
     /**
      * Returns the value of the <code>Extent</code>.
@@ -101,6 +101,13 @@ implements Serializable {
             }
             return this.alternate.equals(that.alternate);
         }
+        
+        /**
+         * @see java.lang.Object#hashCode()
+         */
+        public int hashCode() {
+            return alternate == null ? name.hashCode() : name.hashCode() * 31 + alternate.hashCode();
+        }
             
         /**
          * Returns the alternate typeface.
@@ -239,6 +246,16 @@ implements Serializable {
         return true;
     }
     
+    /**
+     * @see java.lang.Object#hashCode()
+     */
+    public int hashCode() {
+        int hashCode = typeface == null ? 0 : typeface.hashCode();
+        hashCode = hashCode * 31 + style;
+        hashCode = hashCode * 31 + (size == null ? 0 : size.hashCode());
+        return hashCode;
+    }
+    
     /**
      * Returns the size of the font.
      * 
@@ -151,6 +151,17 @@ implements Serializable {
         return true;
     }
     
+    /**
+     * @see java.lang.Object#hashCode()
+     */
+    public int hashCode() {
+        int hashCode = left == null ? 0 : left.hashCode();
+        hashCode = hashCode * 31 + (top == null ? 0 : top.hashCode());
+        hashCode = hashCode * 31 + (right == null ? 0 : right.hashCode());
+        hashCode = hashCode * 31 + (bottom == null ? 0 : bottom.hashCode());
+        return hashCode;
+    }
+    
     /**
      * Returns the size of the bottom margin.
      * <code>Insets</code> only supports <code>Extent</code>s with
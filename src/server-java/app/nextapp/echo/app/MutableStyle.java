@@ -29,6 +29,9 @@
 
 package nextapp.echo.app;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.Iterator;
 import java.util.SortedMap;
@@ -47,7 +50,7 @@ public class MutableStyle
 implements Style {
     
     /** Serial Version UID. */
-    private static final long serialVersionUID = 20070101L;
+    private static final long serialVersionUID = 20090101L;
 
     private static final int GROW_RATE = 5 * 2;  // Must be a multiple of 2.
     
@@ -156,8 +159,11 @@ implements Style {
         }
     }
     
-    private Object[] data = EMPTY;
-    int length = 0; // Number of items * 2;
+    private transient Object[] data = EMPTY;
+    transient int length = 0; // Number of items * 2;
+    
+    /** The number of times a non-indexed property has been set or removed. */
+    private transient int modificationCount = 0;
 
     /**
      * Default constructor.
@@ -265,6 +271,39 @@ implements Style {
         return false;
     }
     
+    /**
+     * @see java.io.Serializable
+     * 
+     * Reads property name/value pairs, interning property names.
+     */
+    private void readObject(ObjectInputStream in)
+    throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        int size = in.readInt();
+        if (size == 0) {
+            data = EMPTY;
+            length = 0;
+            return;
+        }
+        data = new Object[size * 2];
+        for (int i = 0; i < data.length; i += 2) {
+            data[i] = ((String) in.readObject()).intern();
+            data[i + 1] = in.readObject();
+        }
+        length = data.length;
+    }
+    
+    /**
+     * Returns the number of times a non-indexed property has been set or removed, used to detect in-place
+     * modifications of styles whose content has been cached (e.g., by <code>ResolvedStyle</code>).
+     * Modifications of indexed property values are not counted, as such values are not cached.
+     * 
+     * @return the modification count
+     */
+    int getModificationCount() {
+        return modificationCount;
+    }
+    
     /**
      * Removes a value of an indexed property from the <code>Style</code>.
      * 
@@ -285,6 +324,7 @@ implements Style {
      * @param propertyName the name of the property to remove
      */
     public void removeProperty(String propertyName) {
+        ++modificationCount;
         int propertyNameHashCode = propertyName.hashCode();
         for (int i = 0; i < length; i += 2) {
             if (propertyNameHashCode == data[i].hashCode() && propertyName.equals(data[i])) {
@@ -332,6 +372,7 @@ implements Style {
             return;
         }
         
+        ++modificationCount;
         if (data == EMPTY) {
             data = new Object[GROW_RATE];
         }
@@ -433,4 +474,18 @@ implements Style {
         out.append("}");
         return out.toString();
     }
+    
+    /**
+     * @see java.io.Serializable
+     * 
+     * Writes only set property name/value pairs (omitting unused capacity).
+     */
+    private void writeObject(ObjectOutputStream out)
+    throws IOException {
+        out.defaultWriteObject();
+        out.writeInt(length / 2);
+        for (int i = 0; i < length; ++i) {
+            out.writeObject(data[i]);
+        }
+    }
 }
@@ -45,6 +45,11 @@ implements StyleSheet {
 
     private Map namedStyleMap = new HashMap();
     private Map defaultStyleMap = new HashMap();
+    
+    /**
+     * The number of modifications made to the style sheet, used to invalidate styles cached from it.
+     */
+    private int modificationCount;
 
     /**
      * Adds a <code>Style</code> to the <code>StyleSheet</code>.
@@ -55,6 +60,7 @@ implements StyleSheet {
      * @param style the <code>Style</code> to be added
      */
     public void addStyle(Class componentClass, String styleName, Style style) {
+        ++modificationCount;
         if (styleName == null) {
             defaultStyleMap.put(componentClass, style);
         } else {
@@ -75,6 +81,7 @@ implements StyleSheet {
      * @param styleSheet the <code>StyleSheet</code> to add
      */
     public void addStyleSheet(MutableStyleSheet styleSheet) {
+        ++modificationCount;
         namedStyleMap.putAll(styleSheet.namedStyleMap);
         defaultStyleMap.putAll(styleSheet.defaultStyleMap);
     }
@@ -91,6 +98,16 @@ implements StyleSheet {
         }
     }
 
+    /**
+     * Returns the number of modifications made to the style sheet, i.e., the number of styles and style sheets
+     * which have been added to it.  Modifications made to the contained <code>Style</code>s are not counted.
+     * 
+     * @return the modification count
+     */
+    int getModificationCount() {
+        return modificationCount;
+    }
+    
     /**
      * @see nextapp.echo.app.StyleSheet#getStyle(java.lang.String, java.lang.Class, boolean)
      */
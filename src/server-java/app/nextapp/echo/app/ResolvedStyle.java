@@ -0,0 +1,169 @@
+/* 
+ * This file is part of the Echo Web Application Framework (hereinafter "Echo").
+ * Copyright (C) 2002-2009 NextApp, Inc.
+ *
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ */
+
+package nextapp.echo.app;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * A flattened, read-only snapshot of the application <code>StyleSheet</code> style which applies to a specific
+ * component class and style name.
+ * Non-indexed property values are stored in a hash table, such that retrieving them does not require a linear
+ * search of the source <code>Style</code>.  Indexed property queries are delegated to the source <code>Style</code>.
+ * <p>
+ * If the source <code>Style</code> is a <code>MutableStyle</code>, the table is rebuilt when the source is modified
+ * in place, such that such modifications are reflected.  In-place modifications of other <code>Style</code>
+ * implementations are not detected.
+ * <p>
+ * Instances are created and cached by <code>ApplicationInstance</code>.
+ */
+final class ResolvedStyle 
+implements Style {
+    
+    /** Serial Version UID. */
+    private static final long serialVersionUID = 20070101L;
+
+    /** The source style. */
+    private Style style;
+    
+    /** The source style, if it is a <code>MutableStyle</code>, otherwise null. */
+    private MutableStyle mutableStyle;
+    
+    /** The modification count of <code>mutableStyle</code> at the time <code>propertyMap</code> was built. */
+    private int modificationCount;
+    
+    /** Mapping from property names to property values. */
+    private Map propertyMap;
+    
+    /**
+     * Creates a new <code>ResolvedStyle</code>.
+     * 
+     * @param style the source <code>Style</code>
+     */
+    ResolvedStyle(Style style) {
+        super();
+        this.style = style;
+        if (style instanceof MutableStyle) {
+            mutableStyle = (MutableStyle) style;
+        }
+        loadProperties();
+    }
+    
+    /**
+     * Returns the mapping from property names to property values, rebuilding it if the source style has been
+     * modified since it was last built.
+     * 
+     * @return the property map
+     */
+    private Map getPropertyMap() {
+        if (mutableStyle != null && mutableStyle.getModificationCount() != modificationCount) {
+            loadProperties();
+        }
+        return propertyMap;
+    }
+    
+    /**
+     * Builds the mapping from property names to property values from the source style.
+     */
+    private void loadProperties() {
+        if (mutableStyle != null) {
+            modificationCount = mutableStyle.getModificationCount();
+        }
+        propertyMap = new HashMap();
+        Iterator it = style.getPropertyNames();
+        while (it.hasNext()) {
+            String propertyName = (String) it.next();
+            Object propertyValue = style.get(propertyName);
+            if (propertyValue != null) {
+                propertyMap.put(propertyName, propertyValue);
+            }
+        }
+    }
+
+    /**
+     * @see nextapp.echo.app.Style#get(java.lang.String)
+     */
+    public Object get(String propertyName) {
+        return getPropertyMap().get(propertyName);
+    }
+
+    /**
+     * @see nextapp.echo.app.Style#getIndex(java.lang.String, int)
+     */
+    public Object getIndex(String propertyName, int index) {
+        return style.getIndex(propertyName, index);
+    }
+
+    /**
+     * @see nextapp.echo.app.Style#getIndexedProperty(java.lang.String, int)
+     * @deprecated Use {@link #getIndex(String, int)} instead.
+     */
+    public Object getIndexedProperty(String propertyName, int index) {
+        return getIndex(propertyName, index);
+    }
+
+    /**
+     * @see nextapp.echo.app.Style#getProperty(java.lang.String)
+     * @deprecated Use {@link #get(String)} instead.
+     */
+    public Object getProperty(String propertyName) {
+        return get(propertyName);
+    }
+
+    /**
+     * @see nextapp.echo.app.Style#getPropertyIndices(java.lang.String)
+     */
+    public Iterator getPropertyIndices(String propertyName) {
+        return style.getPropertyIndices(propertyName);
+    }
+
+    /**
+     * @see nextapp.echo.app.Style#getPropertyNames()
+     */
+    public Iterator getPropertyNames() {
+        return Collections.unmodifiableSet(getPropertyMap().keySet()).iterator();
+    }
+
+    /**
+     * @see nextapp.echo.app.Style#isIndexedPropertySet(java.lang.String, int)
+     */
+    public boolean isIndexedPropertySet(String propertyName, int index) {
+        return style.isIndexedPropertySet(propertyName, index);
+    }
+
+    /**
+     * @see nextapp.echo.app.Style#isPropertySet(java.lang.String)
+     */
+    public boolean isPropertySet(String propertyName) {
+        return getPropertyMap().containsKey(propertyName);
+    }
+}
@@ -33,8 +33,11 @@ import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.util.EventListener;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.Set;
 
 import nextapp.echo.app.event.ActionEvent;
 import nextapp.echo.app.event.ActionListener;
@@ -68,9 +71,9 @@ public class Table extends Component {
     private static final long serialVersionUID = 20070101L;
 
     /**
-     * The default renderer for table cells. 
+     * The default renderer for table cells, which recycles its <code>Label</code>s. 
      */
-    public static final TableCellRenderer DEFAULT_TABLE_CELL_RENDERER = new DefaultTableCellRenderer();
+    public static final TableCellRenderer DEFAULT_TABLE_CELL_RENDERER = new DefaultTableCellRenderer(true);
 
     public static final String PROPERTY_ACTION_COMMAND = "actionCommand";
     public static final String PROPERTY_BORDER = "border";
@@ -102,6 +105,11 @@ public class Table extends Component {
     
     public static final int HEADER_ROW = -1;
     
+    /**
+     * The maximum number of detached cell components pooled for each renderer and component class.
+     */
+    private static final int MAXIMUM_POOLED_CELLS = 256;
+    
     private boolean autoCreateColumnsFromModel;
     private boolean headerVisible = true;
     private TableModel model;
@@ -112,9 +120,40 @@ public class Table extends Component {
     private ListSelectionModel selectionModel;
     private boolean suppressChangeNotifications;
     private boolean rendering = false;
+    
+    /**
+     * Pool of detached cell components, for reuse by cell renderers (see <code>acquireCellComponent()</code>),
+     * lazily created.
+     */
+    private ComponentPool cellComponentPool;
+    
+    /**
+     * The owners of the current cell components (i.e., the renderers which rendered them, or the table itself for 
+     * placeholder <code>Label</code>s), indexed by child index.
+     */
+    private Object[] cellOwners;
+    
+    /** The cell components prior to the current rendering, indexed by child index, if rendering. */
+    private transient Component[] previousCells;
+    
+    /** The owners of the cell components prior to the current rendering, if rendering. */
+    private transient Object[] previousCellOwners;
+    
+    /** The child index of the cell being rendered, if rendering. */
+    private transient int renderingCellIndex;
+    
+    /** The owner of the cell being rendered, if rendering. */
+    private transient Object renderingCellOwner;
+    
+    /** Flag indicating whether the previous component of the cell being rendered has been acquired. */
+    private transient boolean renderingCellAcquired;
+    
     private final PropertyChangeListener child_prop_listener = new PropertyChangeListener() {
           public void propertyChange(PropertyChangeEvent e) {
-              invalidate();
+              // Changes made by cell renderers to reused cells while rendering do not require re-rendering.
+              if (!rendering) {
+                  invalidate();
+              }
           }
     };
     
@@ -261,12 +300,42 @@ public class Table extends Component {
      * @see nextapp.echo.app.Component#remove(nextapp.echo.app.Component)
      */
     public void remove(Component c) {
-        if (!rendering) {
-          c.removePropertyChangeListener(PROPERTY_LAYOUT_DATA, child_prop_listener);
-        }
+        c.removePropertyChangeListener(PROPERTY_LAYOUT_DATA, child_prop_listener);
         super.remove(c);
     }
 
+    /**
+     * Retrieves a recycled component for use as the cell currently being rendered.
+     * This method is intended to be invoked by <code>TableCellRenderer</code>s, to avoid creating new
+     * components each time the table is re-rendered.
+     * <p>
+     * The component which the invoking renderer previously rendered for the same cell is returned if it is of the 
+     * specified class, such that it retains its render id, and generates no updates if its content is unchanged.  
+     * Otherwise a detached component of the specified class which was previously rendered by the invoking renderer
+     * is returned, if available.  Recycled components retain their properties: the renderer must set all of the 
+     * properties on which it relies.  Components are reset using <code>Component.recycle()</code>.
+     * 
+     * @param componentClass the class of the component (subclasses are not considered)
+     * @return the recycled component, or null if none is available (in which case the renderer should create a
+     *         new component), or if the table is not being rendered
+     * @see ComponentPool
+     */
+    public Component acquireCellComponent(Class componentClass) {
+        if (previousCells == null) {
+            return null;
+        }
+        if (!renderingCellAcquired && renderingCellIndex < previousCells.length && previousCellOwners != null
+                && renderingCellIndex < previousCellOwners.length
+                && previousCells[renderingCellIndex].getClass() == componentClass
+                && renderingCellOwner.equals(previousCellOwners[renderingCellIndex])) {
+            Component component = previousCells[renderingCellIndex];
+            renderingCellAcquired = true;
+            component.recycle();
+            return component;
+        }
+        return cellComponentPool == null ? null : cellComponentPool.acquire(renderingCellOwner, componentClass);
+    }
+    
     /**
      * Adds an <code>ActionListener</code> to the <code>Table</code>.
      * <code>ActionListener</code>s will be invoked when the user
@@ -302,14 +371,56 @@ public class Table extends Component {
     
     /**
      * Re-renders changed rows.
+     * Cell components which are returned again by their renderers (see <code>acquireCellComponent()</code>) are 
+     * retained, and replaced cell components are pooled for reuse.
      */
     protected void doRender() {
         try {
             rendering = true;
-            removeAll();
+            previousCells = getComponents();
+            previousCellOwners = cellOwners;
+            renderCells();
         } finally {
             rendering = false;
+            previousCells = null;
+            previousCellOwners = null;
+            renderingCellOwner = null;
         }
+    }
+    
+    /**
+     * Renders a cell.
+     * 
+     * @param renderer the cell renderer
+     * @param value the value to render
+     * @param column the model column index
+     * @param row the row index, or <code>HEADER_ROW</code>
+     * @param cellIndex the child index of the cell
+     * @param cells the array in which the rendered cell component should be stored
+     * @param owners the array in which the owner of the rendered cell component should be stored
+     */
+    private void renderCell(TableCellRenderer renderer, Object value, int column, int row, int cellIndex, 
+            Component[] cells, Object[] owners) {
+        renderingCellIndex = cellIndex;
+        renderingCellOwner = renderer;
+        renderingCellAcquired = false;
+        Component renderedComponent = renderer.getTableCellRendererComponent(this, value, column, row);
+        if (renderedComponent == null || !renderedComponent.isVisible()) {
+            renderingCellOwner = this;
+            renderingCellAcquired = false;
+            renderedComponent = acquireCellComponent(Label.class);
+            if (renderedComponent == null) {
+                renderedComponent = new Label();
+            }
+        }
+        cells[cellIndex] = renderedComponent;
+        owners[cellIndex] = renderingCellOwner;
+    }
+    
+    /**
+     * Renders the cells of the table, and updates the children of the table to the rendered cell components.
+     */
+    private void renderCells() {
         int rowCount = model.getRowCount();
         int columnCount = columnModel.getColumnCount();
         
@@ -335,6 +446,11 @@ public class Table extends Component {
                 columnIndex++;
             }
         }
+        
+        int cellCount = (isHeaderVisible() ? columnCount : 0) + rowCount * columnCount;
+        Component[] cells = new Component[cellCount];
+        Object[] owners = new Object[cellCount];
+        int cellIndex = 0;
 
         if (isHeaderVisible()) {
             for (columnIndex = 0; columnIndex < columnCount; ++columnIndex) {
@@ -350,18 +466,7 @@ public class Table extends Component {
                         headerRenderer = DEFAULT_TABLE_CELL_RENDERER;
                     }
                 }
-                Component renderedComponent 
-                        = headerRenderer.getTableCellRendererComponent(this, headerValue, modelColumnIndex, HEADER_ROW);
-                if (renderedComponent == null || !renderedComponent.isVisible()) {
-                    renderedComponent = new Label();
-                }
-                
-                try {
-                    rendering = true;
-                    add(renderedComponent);
-                } finally {
-                    rendering = false;
-                }
+                renderCell(headerRenderer, headerValue, modelColumnIndex, HEADER_ROW, cellIndex++, cells, owners);
             }
         }
         
@@ -369,18 +474,44 @@ public class Table extends Component {
             for (columnIndex = 0; columnIndex < columnCount; ++columnIndex) {
                 int modelColumnIndex = tableColumns[columnIndex].getModelIndex();
                 Object modelValue = model.getValueAt(modelColumnIndex, rowIndex);
-                Component renderedComponent 
-                        = columnRenderers[columnIndex].getTableCellRendererComponent(this, modelValue, modelColumnIndex, rowIndex);
-                if (renderedComponent == null || !renderedComponent.isVisible()) {
-                    renderedComponent = new Label();
-                }
-                try {
-                    rendering = true;
-                    add(renderedComponent);
-                } finally {
-                    rendering = false;
+                renderCell(columnRenderers[columnIndex], modelValue, modelColumnIndex, rowIndex, cellIndex++, 
+                        cells, owners);
+            }
+        }
+        
+        // Remove cells which have been replaced, pooling those which are no longer in use.
+        Map renderedCells = new IdentityHashMap();
+        for (int i = 0; i < cells.length; ++i) {
+            renderedCells.put(cells[i], cells[i]);
+        }
+        for (int i = previousCells.length - 1; i >= 0; --i) {
+            if (i < cells.length && previousCells[i] == cells[i]) {
+                continue;
+            }
+            remove(previousCells[i]);
+            if (!renderedCells.containsKey(previousCells[i]) && previousCellOwners != null 
+                    && i < previousCellOwners.length) {
+                if (cellComponentPool == null) {
+                    cellComponentPool = new ComponentPool(MAXIMUM_POOLED_CELLS);
                 }
+                cellComponentPool.release(previousCellOwners[i], previousCells[i]);
+            }
+        }
+        
+        // Add new cells.
+        for (int i = 0; i < cells.length; ++i) {
+            if (i >= getComponentCount() || getComponent(i) != cells[i]) {
+                add(cells[i], i);
+            }
+        }
+        cellOwners = owners;
+        
+        if (cellComponentPool != null) {
+            Set ownerSet = new HashSet();
+            for (int i = 0; i < owners.length; ++i) {
+                ownerSet.add(owners[i]);
             }
+            cellComponentPool.retainOwners(ownerSet);
         }
     }
     
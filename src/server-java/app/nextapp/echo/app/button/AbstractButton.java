@@ -600,6 +600,23 @@ public abstract class AbstractButton extends Component {
         }
     }
 
+    /**
+     * Removes all registered <code>ActionListener</code>s, such that a pooled button does not notify the
+     * listeners registered by its previous use.
+     * 
+     * @see nextapp.echo.app.Component#recycle()
+     */
+    protected void recycle() {
+        super.recycle();
+        if (!hasEventListenerList()) {
+            return;
+        }
+        EventListener[] listeners = getEventListenerList().getListeners(ActionListener.class);
+        for (int i = 0; i < listeners.length; ++i) {
+            removeActionListener((ActionListener) listeners[i]);
+        }
+    }
+    
     /**
      * Removes an <code>ActionListener</code> from being notified of user
      * actions, i.e., button presses.
@@ -38,7 +38,9 @@ import nextapp.echo.app.event.ListDataListener;
 
 /**
  * A base class from which <code>ListModel</code> implementations may be 
- * derived.  This class provides event listener management facilities.
+ * derived.  This class provides event listener management facilities,
+ * including batching of modifications: events fired between <code>beginUpdate()</code>
+ * and <code>endUpdate()</code> are coalesced into a single event.
  */
 public abstract class AbstractListModel 
 implements ListModel, Serializable {
@@ -47,6 +49,12 @@ implements ListModel, Serializable {
      * A storage facility for <code>EventListener</code>s.
      */
     private EventListenerList listenerList = new EventListenerList();
+    
+    /** Depth of nested <code>beginUpdate()</code> invocations. */
+    private int updateDepth = 0;
+    
+    /** Event describing all changes made since the outermost <code>beginUpdate()</code>, or null if none. */
+    private ListDataEvent pendingEvent;
  
     /**
      * Creates a new AbstractListModel.
@@ -62,6 +70,82 @@ implements ListModel, Serializable {
         listenerList.addListener(ListDataListener.class, l);
     }
     
+    /**
+     * Begins a batch of modifications.  Events fired until the matching invocation of <code>endUpdate()</code> are
+     * not delivered to listeners, but are coalesced into a single event which is fired by <code>endUpdate()</code>.
+     * Contiguous additions, removals or changes of items are described by a single ranged event; other 
+     * combinations of modifications are described by a contents changed event spanning the entire list.
+     * Batches may be nested, in which case the event is fired by the outermost <code>endUpdate()</code>.
+     */
+    public void beginUpdate() {
+        ++updateDepth;
+    }
+    
+    /**
+     * Returns an event describing the changes of two events fired in sequence.
+     * 
+     * @param first the first event
+     * @param second the second event
+     * @return the coalesced event
+     */
+    private ListDataEvent coalesce(ListDataEvent first, ListDataEvent second) {
+        int type = first.getType();
+        int index0 = first.getIndex0();
+        int index1 = first.getIndex1();
+        int secondIndex0 = second.getIndex0();
+        int secondIndex1 = second.getIndex1();
+        if (type == second.getType()) {
+            switch (type) {
+            case ListDataEvent.INTERVAL_ADDED:
+                if (secondIndex0 >= index0 && secondIndex0 <= index1 + 1) {
+                    // Items added within or immediately following previously added items.
+                    return new ListDataEvent(this, type, index0, index1 + secondIndex1 - secondIndex0 + 1);
+                }
+                break;
+            case ListDataEvent.INTERVAL_REMOVED:
+                if (secondIndex0 == index0) {
+                    // Items removed immediately following previously removed items.
+                    return new ListDataEvent(this, type, index0, index1 + secondIndex1 - secondIndex0 + 1);
+                } else if (secondIndex1 + 1 == index0) {
+                    // Items removed immediately preceding previously removed items.
+                    return new ListDataEvent(this, type, secondIndex0, index1);
+                }
+                break;
+            case ListDataEvent.CONTENTS_CHANGED:
+                if (secondIndex0 <= index1 + 1 && index0 <= secondIndex1 + 1) {
+                    // Overlapping or adjacent intervals changed.
+                    return new ListDataEvent(this, type, Math.min(index0, secondIndex0), 
+                            Math.max(index1, secondIndex1));
+                }
+                break;
+            }
+        } else if (type == ListDataEvent.INTERVAL_ADDED && second.getType() == ListDataEvent.CONTENTS_CHANGED
+                && secondIndex0 >= index0 && secondIndex1 <= index1) {
+            // Change of previously added items.
+            return first;
+        }
+        
+        return new ListDataEvent(this, ListDataEvent.CONTENTS_CHANGED, 0, Math.max(size() - 1, 0));
+    }
+    
+    /**
+     * Ends a batch of modifications begun by <code>beginUpdate()</code>.
+     * If this ends the outermost batch, a single event describing all modifications made during the batch is fired.
+     * 
+     * @throws IllegalStateException if no batch is in progress
+     */
+    public void endUpdate() {
+        if (updateDepth == 0) {
+            throw new IllegalStateException("endUpdate() invoked without beginUpdate().");
+        }
+        --updateDepth;
+        if (updateDepth == 0 && pendingEvent != null) {
+            ListDataEvent e = pendingEvent;
+            pendingEvent = null;
+            fireListDataEvent(e);
+        }
+    }
+    
     /**
      * Returns the <code>EventListenerList</code> being used to manage event 
      * listeners.
@@ -81,12 +165,7 @@ implements ListModel, Serializable {
      * @param index1 the index of the last changed item 
      */ 
     protected void fireContentsChanged(int index0, int index1) {
-        ListDataEvent e = new ListDataEvent(this, ListDataEvent.CONTENTS_CHANGED, index0, index1);
-
-        EventListener[] listeners = listenerList.getListeners(ListDataListener.class);
-        for (int index = 0; index < listeners.length; ++index) {
-            ((ListDataListener) listeners[index]).contentsChanged(e);
-        }
+        fireListDataEvent(new ListDataEvent(this, ListDataEvent.CONTENTS_CHANGED, index0, index1));
     }
 
     /**
@@ -98,12 +177,7 @@ implements ListModel, Serializable {
      * @param index1 the index of the last added item
      */ 
     protected void fireIntervalAdded(int index0, int index1) {
-        ListDataEvent e = new ListDataEvent(this, ListDataEvent.INTERVAL_ADDED, index0, index1);
-
-        EventListener[] listeners = listenerList.getListeners(ListDataListener.class);
-        for (int index = 0; index < listeners.length; ++index) {
-            ((ListDataListener) listeners[index]).intervalAdded(e);
-        }
+        fireListDataEvent(new ListDataEvent(this, ListDataEvent.INTERVAL_ADDED, index0, index1));
     }
     
     /**
@@ -115,14 +189,37 @@ implements ListModel, Serializable {
      * @param index1 the index of the last removed index 
      */
     protected void fireIntervalRemoved(int index0, int index1) {
-        ListDataEvent e = new ListDataEvent(this, ListDataEvent.INTERVAL_REMOVED, index0, index1);
+        fireListDataEvent(new ListDataEvent(this, ListDataEvent.INTERVAL_REMOVED, index0, index1));
+    }
 
+    /**
+     * Notifies listeners of an event, or, if a batch of modifications is in progress (see 
+     * <code>beginUpdate()</code>), coalesces the event with other events of the batch.
+     * 
+     * @param e the event
+     */
+    private void fireListDataEvent(ListDataEvent e) {
+        if (updateDepth > 0) {
+            pendingEvent = pendingEvent == null ? e : coalesce(pendingEvent, e);
+            return;
+        }
+        
         EventListener[] listeners = listenerList.getListeners(ListDataListener.class);
         for (int index = 0; index < listeners.length; ++index) {
-            ((ListDataListener) listeners[index]).intervalRemoved(e);
+            switch (e.getType()) {
+            case ListDataEvent.CONTENTS_CHANGED:
+                ((ListDataListener) listeners[index]).contentsChanged(e);
+                break;
+            case ListDataEvent.INTERVAL_ADDED:
+                ((ListDataListener) listeners[index]).intervalAdded(e);
+                break;
+            case ListDataEvent.INTERVAL_REMOVED:
+                ((ListDataListener) listeners[index]).intervalRemoved(e);
+                break;
+            }
         }
     }
-
+    
     /**
      * @see nextapp.echo.app.list.ListModel#removeListDataListener(nextapp.echo.app.event.ListDataListener)
      */
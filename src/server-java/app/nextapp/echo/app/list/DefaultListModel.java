@@ -86,6 +86,23 @@ public class DefaultListModel extends AbstractListModel {
         fireIntervalAdded(index, index); 
     }
     
+    /**
+     * Adds items at the end of the model.
+     * A single event is fired for all added items.
+     *
+     * @param itemArray the items to add
+     */
+    public void addAll(Object[] itemArray) {
+        if (itemArray.length == 0) {
+            return;
+        }
+        int index = items.size();
+        for (int i = 0; i < itemArray.length; ++i) {
+            items.add(itemArray[i]);
+        }
+        fireIntervalAdded(index, items.size() - 1);
+    }
+    
     /**
      * @see java.lang.Object#equals(java.lang.Object)
      */
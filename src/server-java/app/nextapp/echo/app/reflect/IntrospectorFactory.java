@@ -30,18 +30,29 @@
 package nextapp.echo.app.reflect;
 
 import java.beans.Introspector;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
 /**
  * Factory for creating <code>ClassLoader</code>-specific <code>ObjectIntrospector</code> instances.
+ * <p>
+ * Retrievals of existing introspectors do not acquire any lock: the cache is a copy-on-write structure
+ * whose maps are never modified once published.  Only the creation of a new introspector (which occurs
+ * once per type and <code>ClassLoader</code>) and initialization/disposal are synchronized.
  */
 public class IntrospectorFactory {
 
     /**
-     * A map containing references from class loaders to <code>ObjectIntrospector</code> instances.
+     * Lock used to serialize modifications of the cache.
      */
-    private static final Map classLoaderCache = new HashMap();
+    private static final Object lock = new Object();
+    
+    /**
+     * An immutable map containing references from class loaders to immutable maps of type names to 
+     * <code>ObjectIntrospector</code> instances.  Replaced (never modified) when updated.
+     */
+    private static volatile Map classLoaderCache = Collections.EMPTY_MAP;
     
     /**
      * Creates a <b>new</b> <code>ObjectIntrospector</code> for a specific type
@@ -67,11 +78,13 @@ public class IntrospectorFactory {
      * @param classLoader the <code>ClassLoader</code>
      */
     public static void dispose(ClassLoader classLoader) {
-        synchronized (classLoaderCache) {
-            Map oiStore = (Map) classLoaderCache.remove(classLoader);
-            if (oiStore == null) {
+        synchronized (lock) {
+            if (!classLoaderCache.containsKey(classLoader)) {
                 throw new IllegalStateException("ObjectIntrospectorFactory does not exist for specified ClassLoader.");
             }
+            Map newCache = new HashMap(classLoaderCache);
+            newCache.remove(classLoader);
+            classLoaderCache = newCache;
             Introspector.flushCaches();
         }
     }
@@ -88,26 +101,35 @@ public class IntrospectorFactory {
      */
     public static ObjectIntrospector get(String typeName, ClassLoader classLoader) 
     throws ClassNotFoundException {
-        // Find or Create Object Introspector Store based on ClassLoader Cache.
-        Map oiStore;
-        synchronized (classLoaderCache) {
+        // Fast path: retrieve existing Object Introspector without locking.
+        Map oiStore = (Map) classLoaderCache.get(classLoader);
+        if (oiStore != null) {
+            ObjectIntrospector oi = (ObjectIntrospector) oiStore.get(typeName);
+            if (oi != null) {
+                return oi;
+            }
+        }
+        
+        synchronized (lock) {
+            // Find or Create Object Introspector Store based on ClassLoader Cache.
             oiStore = (Map) classLoaderCache.get(classLoader);
             if (oiStore == null) {
                 init(classLoader);
                 oiStore = (Map) classLoaderCache.get(classLoader);
             }
-        }
-        
-        // Find or Create Object Introspector from Object Introspector Store.
-        ObjectIntrospector oi;
-        synchronized (oiStore) {
-            oi =  (ObjectIntrospector) oiStore.get(typeName);
+            
+            // Find or Create Object Introspector from Object Introspector Store.
+            ObjectIntrospector oi = (ObjectIntrospector) oiStore.get(typeName);
             if (oi == null) {
                 oi = createIntrospector(typeName, classLoader);
-                oiStore.put(typeName, oi);
+                Map newStore = new HashMap(oiStore);
+                newStore.put(typeName, oi);
+                Map newCache = new HashMap(classLoaderCache);
+                newCache.put(classLoader, newStore);
+                classLoaderCache = newCache;
             }
+            return oi;
         }
-        return oi;
     }
     
     /**
@@ -118,14 +140,13 @@ public class IntrospectorFactory {
      * @param classLoader the <code>ClassLoader</code>
      */
     public static void init(ClassLoader classLoader) {
-        synchronized (classLoaderCache) {
-            Map oiStore = (Map) classLoaderCache.get(classLoader);
-            if (oiStore != null) {
+        synchronized (lock) {
+            if (classLoaderCache.containsKey(classLoader)) {
                 throw new IllegalStateException("ObjectIntrospectorFactory already initialized for specified ClassLoader.");
             }
-            
-            oiStore = new HashMap();
-            classLoaderCache.put(classLoader, oiStore);
+            Map newCache = new HashMap(classLoaderCache);
+            newCache.put(classLoader, Collections.EMPTY_MAP);
+            classLoaderCache = newCache;
         }
     }
 }
@@ -89,6 +89,12 @@ public class ObjectIntrospector {
      */
     private SortedMap propertyDescriptorMap = new TreeMap();
     
+    /**
+     * A mapping between the object's property names and pre-resolved 
+     * <code>PropertyAccessor</code>s.
+     */
+    private Map propertyAccessorMap = new HashMap();
+    
     /**
      * Creates a new <code>ObjectIntrospector</code> for the specified
      * type.
@@ -188,15 +194,21 @@ public class ObjectIntrospector {
      * @return the <code>Class</code> of the property
      */
     public Class getPropertyClass(String propertyName) {
-        PropertyDescriptor propertyDescriptor = getPropertyDescriptor(propertyName);
-        if (propertyDescriptor == null) {
+        PropertyAccessor propertyAccessor = getPropertyAccessor(propertyName);
+        if (propertyAccessor == null) {
             throw new IllegalArgumentException("Invalid property name: " + propertyName);
         }
-        if (propertyDescriptor instanceof IndexedPropertyDescriptor) {
-            return ((IndexedPropertyDescriptor) propertyDescriptor).getIndexedPropertyType();
-        } else {
-            return propertyDescriptor.getPropertyType();
-        }
+        return propertyAccessor.getPropertyClass();
+    }
+    
+    /**
+     * Returns the pre-resolved <code>PropertyAccessor</code> for the specified property.
+     * 
+     * @param propertyName the name of the property
+     * @return the <code>PropertyAccessor</code>, or null if the object has no such mutable property
+     */
+    public PropertyAccessor getPropertyAccessor(String propertyName) {
+        return (PropertyAccessor) propertyAccessorMap.get(propertyName);
     }
     
     /**
@@ -289,16 +301,8 @@ public class ObjectIntrospector {
      * @return the write method (if available)
      */
     public Method getWriteMethod(String propertyName) {
-        PropertyDescriptor propertyDescriptor = getPropertyDescriptor(propertyName);
-        if (propertyDescriptor == null) {
-            return null;
-        } else {
-            if (propertyDescriptor instanceof IndexedPropertyDescriptor) {
-                return ((IndexedPropertyDescriptor) propertyDescriptor).getIndexedWriteMethod();
-            } else {
-                return propertyDescriptor.getWriteMethod();
-            }
-        }
+        PropertyAccessor propertyAccessor = getPropertyAccessor(propertyName);
+        return propertyAccessor == null ? null : propertyAccessor.getWriteMethod();
     }
 
     /**
@@ -308,7 +312,8 @@ public class ObjectIntrospector {
      * @return true if the specified property is indexed
      */
     public boolean isIndexedProperty(String propertyName) {
-        return propertyDescriptorMap.get(propertyName) instanceof IndexedPropertyDescriptor;
+        PropertyAccessor propertyAccessor = getPropertyAccessor(propertyName);
+        return propertyAccessor != null && propertyAccessor.isIndexed();
     }
 
     /**
@@ -343,6 +348,7 @@ public class ObjectIntrospector {
                     
                     // Store JavaBean PropertyDescriptor.
                     propertyDescriptorMap.put(name, propertyDescriptors[index]);
+                    propertyAccessorMap.put(name, new PropertyAccessor(propertyDescriptors[index]));
                 }
             } else {
                 if (propertyDescriptors[index].getWriteMethod() != null) {
@@ -350,6 +356,7 @@ public class ObjectIntrospector {
                     
                     // Store JavaBean PropertyDescriptor.
                     propertyDescriptorMap.put(name, propertyDescriptors[index]);
+                    propertyAccessorMap.put(name, new PropertyAccessor(propertyDescriptors[index]));
                 }
             }
         }
@@ -374,13 +381,11 @@ public class ObjectIntrospector {
      */
     public void setProperty(Object object, String propertyName, int index, Object propertyValue)
     throws IllegalArgumentException, IllegalAccessException, InvocationTargetException {
-        PropertyDescriptor propertyDescriptor = getPropertyDescriptor(propertyName);
-        if (propertyDescriptor instanceof IndexedPropertyDescriptor) {
-            Method writeMethod = ((IndexedPropertyDescriptor) propertyDescriptor).getIndexedWriteMethod();
-            writeMethod.invoke(object, new Object[]{new Integer(index), propertyValue});
+        PropertyAccessor propertyAccessor = getPropertyAccessor(propertyName);
+        if (propertyAccessor.isIndexed()) {
+            propertyAccessor.set(object, index, propertyValue);
         } else {
-            Method writeMethod = propertyDescriptor.getWriteMethod();
-            writeMethod.invoke(object, new Object[]{propertyValue});
+            propertyAccessor.set(object, propertyValue);
         }
     }
 
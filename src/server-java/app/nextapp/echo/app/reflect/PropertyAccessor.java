@@ -0,0 +1,210 @@
+/* 
+ * This file is part of the Echo Web Application Framework (hereinafter "Echo").
+ * Copyright (C) 2002-2009 NextApp, Inc.
+ *
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ */
+
+package nextapp.echo.app.reflect;
+
+import java.beans.IndexedPropertyDescriptor;
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * Pre-resolved accessor for a single property of a specific class.
+ * <p>
+ * Accessors are created once per introspected type and property by <code>ObjectIntrospector</code>, 
+ * when the type is first introspected.  The getter and setter methods are resolved from the JavaBean
+ * <code>PropertyDescriptor</code> at that time and have their access checks suppressed, such that
+ * subsequent invocations need not consult the <code>java.beans</code> API or perform per-call access 
+ * verification.  Instances are immutable and may be shared between threads.
+ */
+public class PropertyAccessor {
+
+    /** Empty argument array for getter invocations. */
+    private static final Object[] NO_ARGUMENTS = new Object[0];
+    
+    private final String name;
+    private final Class propertyClass;
+    private final boolean indexed;
+    private final Method readMethod;
+    private final Method writeMethod;
+    
+    /**
+     * Creates a new <code>PropertyAccessor</code> from a JavaBean <code>PropertyDescriptor</code>.
+     * 
+     * @param propertyDescriptor the descriptor
+     */
+    PropertyAccessor(PropertyDescriptor propertyDescriptor) {
+        super();
+        name = propertyDescriptor.getName();
+        if (propertyDescriptor instanceof IndexedPropertyDescriptor) {
+            IndexedPropertyDescriptor indexedPropertyDescriptor = (IndexedPropertyDescriptor) propertyDescriptor;
+            indexed = true;
+            propertyClass = indexedPropertyDescriptor.getIndexedPropertyType();
+            readMethod = prepare(indexedPropertyDescriptor.getIndexedReadMethod());
+            writeMethod = prepare(indexedPropertyDescriptor.getIndexedWriteMethod());
+        } else {
+            indexed = false;
+            propertyClass = propertyDescriptor.getPropertyType();
+            readMethod = prepare(propertyDescriptor.getReadMethod());
+            writeMethod = prepare(propertyDescriptor.getWriteMethod());
+        }
+    }
+    
+    /**
+     * Suppresses access checks on a method, if permitted.
+     * 
+     * @param method the method (may be null)
+     * @return the method
+     */
+    private static Method prepare(Method method) {
+        if (method != null) {
+            try {
+                method.setAccessible(true);
+            } catch (SecurityException ex) {
+                // Access checks will be performed on each invocation.
+            }
+        }
+        return method;
+    }
+    
+    /**
+     * Retrieves the value of a non-indexed property.
+     * 
+     * @param object the object to query
+     * @return the property value
+     */
+    public Object get(Object object) 
+    throws IllegalAccessException, InvocationTargetException {
+        if (indexed) {
+            throw new IllegalStateException("Property is indexed: " + name);
+        }
+        if (readMethod == null) {
+            throw new IllegalStateException("Property is not readable: " + name);
+        }
+        return readMethod.invoke(object, NO_ARGUMENTS);
+    }
+    
+    /**
+     * Retrieves the value of an indexed property.
+     * 
+     * @param object the object to query
+     * @param index the property index
+     * @return the property value
+     */
+    public Object get(Object object, int index) 
+    throws IllegalAccessException, InvocationTargetException {
+        if (!indexed) {
+            throw new IllegalStateException("Property is not indexed: " + name);
+        }
+        if (readMethod == null) {
+            throw new IllegalStateException("Property is not readable: " + name);
+        }
+        return readMethod.invoke(object, new Object[]{ new Integer(index) });
+    }
+    
+    /**
+     * Returns the property name.
+     * 
+     * @return the property name
+     */
+    public String getName() {
+        return name;
+    }
+    
+    /**
+     * Returns the <code>Class</code> of the property (the element type, in the case of indexed properties).
+     * 
+     * @return the property <code>Class</code>
+     */
+    public Class getPropertyClass() {
+        return propertyClass;
+    }
+    
+    /**
+     * Returns the read (getter) method of the property.
+     * 
+     * @return the read method, or null if the property is not readable
+     */
+    public Method getReadMethod() {
+        return readMethod;
+    }
+
+    /**
+     * Returns the write (setter) method of the property.
+     * 
+     * @return the write method, or null if the property is not writable
+     */
+    public Method getWriteMethod() {
+        return writeMethod;
+    }
+    
+    /**
+     * Determines if the property is indexed.
+     * 
+     * @return true if the property is indexed
+     */
+    public boolean isIndexed() {
+        return indexed;
+    }
+    
+    /**
+     * Sets the value of a non-indexed property.
+     * 
+     * @param object the object to modify
+     * @param value the new property value
+     */
+    public void set(Object object, Object value) 
+    throws IllegalAccessException, InvocationTargetException {
+        if (indexed) {
+            throw new IllegalStateException("Property is indexed: " + name);
+        }
+        if (writeMethod == null) {
+            throw new IllegalStateException("Property is not writable: " + name);
+        }
+        writeMethod.invoke(object, new Object[]{ value });
+    }
+    
+    /**
+     * Sets the value of an indexed property.
+     * 
+     * @param object the object to modify
+     * @param index the property index
+     * @param value the new property value
+     */
+    public void set(Object object, int index, Object value) 
+    throws IllegalAccessException, InvocationTargetException {
+        if (!indexed) {
+            throw new IllegalStateException("Property is not indexed: " + name);
+        }
+        if (writeMethod == null) {
+            throw new IllegalStateException("Property is not writable: " + name);
+        }
+        writeMethod.invoke(object, new Object[]{ new Integer(index), value });
+    }
+}
@@ -0,0 +1,494 @@
+/* 
+ * This file is part of the Echo Web Application Framework (hereinafter "Echo").
+ * Copyright (C) 2002-2009 NextApp, Inc.
+ *
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ */
+
+package nextapp.echo.app.serial;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectStreamException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import nextapp.echo.app.DerivedMutableStyle;
+import nextapp.echo.app.Style;
+import nextapp.echo.app.StyleSheet;
+import nextapp.echo.app.util.Snapshot;
+
+/**
+ * An immutable, compiled representation of a <code>StyleSheet</code>.
+ * Derived styles are flattened when the style sheet is compiled, such that retrieving a property 
+ * never requires consulting a parent style.
+ * <p>
+ * As compiled style sheets cannot be modified, a single instance may be safely shared between all 
+ * <code>ApplicationInstance</code>s.  <code>forResource()</code> loads each style sheet resource only once 
+ * per <code>ClassLoader</code>, and returns the shared instance for subsequent requests.  Shared instances
+ * (which reference classes of their <code>ClassLoader</code>) are retained until <code>dispose()</code> is
+ * invoked for the <code>ClassLoader</code>.
+ * <p>
+ * A compiled style sheet may optionally be precompiled into a binary form at build time, using the 
+ * <code>main()</code> method of this class:
+ * <pre>java nextapp.echo.app.serial.CompiledStyleSheet Default.stylesheet.xml Default.stylesheet.xml.compiled</pre>
+ * If a resource with the name of the XML style sheet resource followed by <code>PRECOMPILED_SUFFIX</code> 
+ * is available, <code>forResource()</code> will load it in place of the XML resource, avoiding XML parsing and 
+ * property introspection entirely.
+ */
+public class CompiledStyleSheet 
+implements StyleSheet {
+
+    /** Serial Version UID. */
+    private static final long serialVersionUID = 20070101L;
+    
+    /**
+     * Suffix appended to the name of an XML style sheet resource to determine the name of its
+     * precompiled binary form.
+     */
+    public static final String PRECOMPILED_SUFFIX = ".compiled";
+    
+    /**
+     * An immutable <code>Style</code> containing the flattened properties of a source style and its parent styles.
+     */
+    private static class CompiledStyle 
+    implements Style {
+        
+        /** Serial Version UID. */
+        private static final long serialVersionUID = 20070101L;
+        
+        /** Names of all set properties. */
+        private String[] propertyNames;
+        
+        /** Mapping between non-indexed property names and values. */
+        private Map properties = new HashMap();
+        
+        /** Mapping between indexed property names and <code>SortedMap</code>s of indices to values. */
+        private Map indexedProperties = new HashMap();
+        
+        /**
+         * Creates a new <code>CompiledStyle</code>.
+         * 
+         * @param style the source style, the properties of which (including those of any parent styles)
+         *        will be copied
+         */
+        CompiledStyle(Style style) {
+            super();
+            Iterator it = style.getPropertyNames();
+            while (it.hasNext()) {
+                String propertyName = (String) it.next();
+                SortedMap indexedValues = null;
+                for (Style sourceStyle = style; sourceStyle != null; sourceStyle = getParentStyle(sourceStyle)) {
+                    Iterator indicesIt = sourceStyle.getPropertyIndices(propertyName);
+                    if (indicesIt == null) {
+                        continue;
+                    }
+                    if (indexedValues == null) {
+                        indexedValues = new TreeMap();
+                    }
+                    while (indicesIt.hasNext()) {
+                        Integer index = (Integer) indicesIt.next();
+                        if (!indexedValues.containsKey(index)) {
+                            indexedValues.put(index, style.getIndex(propertyName, index.intValue()));
+                        }
+                    }
+                }
+                if (indexedValues == null) {
+                    properties.put(propertyName, style.get(propertyName));
+                } else {
+                    indexedProperties.put(propertyName, Collections.unmodifiableSortedMap(indexedValues));
+                }
+            }
+            propertyNames = new String[properties.size() + indexedProperties.size()];
+            int i = 0;
+            it = properties.keySet().iterator();
+            while (it.hasNext()) {
+                propertyNames[i++] = (String) it.next();
+            }
+            it = indexedProperties.keySet().iterator();
+            while (it.hasNext()) {
+                propertyNames[i++] = (String) it.next();
+            }
+        }
+        
+        /**
+         * Returns the parent style of a style, if it has one.
+         * 
+         * @param style the style
+         * @return the parent style, or null
+         */
+        private static Style getParentStyle(Style style) {
+            return style instanceof DerivedMutableStyle ? ((DerivedMutableStyle) style).getParentStyle() : null;
+        }
+        
+        /**
+         * @see nextapp.echo.app.Style#get(java.lang.String)
+         */
+        public Object get(String propertyName) {
+            return properties.get(propertyName);
+        }
+
+        /**
+         * @see nextapp.echo.app.Style#getIndex(java.lang.String, int)
+         */
+        public Object getIndex(String propertyName, int index) {
+            Map indexedValues = (Map) indexedProperties.get(propertyName);
+            return indexedValues == null ? null : indexedValues.get(new Integer(index));
+        }
+
+        /**
+         * @see nextapp.echo.app.Style#getIndexedProperty(java.lang.String, int)
+         * @deprecated Use {@link #getIndex(String, int)} instead.
+         */
+        public Object getIndexedProperty(String propertyName, int index) {
+            return getIndex(propertyName, index);
+        }
+
+        /**
+         * @see nextapp.echo.app.Style#getProperty(java.lang.String)
+         * @deprecated Use {@link #get(String)} instead.
+         */
+        public Object getProperty(String propertyName) {
+            return get(propertyName);
+        }
+
+        /**
+         * @see nextapp.echo.app.Style#getPropertyIndices(java.lang.String)
+         */
+        public Iterator getPropertyIndices(String propertyName) {
+            SortedMap indexedValues = (SortedMap) indexedProperties.get(propertyName);
+            return indexedValues == null ? null : indexedValues.keySet().iterator();
+        }
+
+        /**
+         * @see nextapp.echo.app.Style#getPropertyNames()
+         */
+        public Iterator getPropertyNames() {
+            return Collections.unmodifiableList(Arrays.asList(propertyNames)).iterator();
+        }
+
+        /**
+         * @see nextapp.echo.app.Style#isIndexedPropertySet(java.lang.String, int)
+         */
+        public boolean isIndexedPropertySet(String propertyName, int index) {
+            Map indexedValues = (Map) indexedProperties.get(propertyName);
+            return indexedValues != null && indexedValues.containsKey(new Integer(index));
+        }
+
+        /**
+         * @see nextapp.echo.app.Style#isPropertySet(java.lang.String)
+         */
+        public boolean isPropertySet(String propertyName) {
+            return properties.containsKey(propertyName) || indexedProperties.containsKey(propertyName);
+        }
+    }
+    
+    /**
+     * Mapping between <code>ClassLoader</code>s and <code>Map</code>s of resource names to 
+     * shared <code>CompiledStyleSheet</code>s.
+     */
+    private static final Map classLoaderToStyleSheetMap = new HashMap();
+    
+    /**
+     * Compiles a <code>StyleSheet</code>.
+     * The compiled style sheet will not reflect future changes to the source style sheet or its styles.
+     * 
+     * @param styleSheet the source <code>StyleSheet</code>
+     * @return the <code>CompiledStyleSheet</code>
+     */
+    public static CompiledStyleSheet compile(StyleSheet styleSheet) {
+        return new CompiledStyleSheet(styleSheet, null);
+    }
+    
+    /**
+     * Discards the shared <code>CompiledStyleSheet</code>s loaded by <code>forResource()</code> for a specific
+     * <code>ClassLoader</code>, e.g., when a web application using the <code>ClassLoader</code> is undeployed.
+     * 
+     * @param classLoader the <code>ClassLoader</code>
+     */
+    public static void dispose(ClassLoader classLoader) {
+        synchronized (classLoaderToStyleSheetMap) {
+            classLoaderToStyleSheetMap.remove(classLoader);
+        }
+    }
+    
+    /**
+     * Returns the shared <code>CompiledStyleSheet</code> for a style sheet resource.
+     * The style sheet will be loaded from its precompiled binary form if available, or otherwise
+     * from XML using the <code>StyleSheetLoader</code>.  The style sheet will only be loaded on the first 
+     * invocation for a given resource name and <code>ClassLoader</code>.
+     * <p>
+     * Styles for components that cannot be loaded by the specified 
+     * <code>ClassLoader</code> will be ignored.
+     * 
+     * @param resourceName the name of the resource on the <code>CLASSPATH</code> containing the XML data
+     * @param classLoader the <code>ClassLoader</code> with which to load the resource and instantiate property objects
+     * @return the <code>CompiledStyleSheet</code>, or null if the resource does not exist
+     * @throws SerialException if parsing/instantiation errors occur
+     */
+    public static CompiledStyleSheet forResource(String resourceName, ClassLoader classLoader) 
+    throws SerialException {
+        synchronized (classLoaderToStyleSheetMap) {
+            Map styleSheetMap = (Map) classLoaderToStyleSheetMap.get(classLoader);
+            if (styleSheetMap == null) {
+                styleSheetMap = new HashMap();
+                classLoaderToStyleSheetMap.put(classLoader, styleSheetMap);
+            }
+            CompiledStyleSheet styleSheet = (CompiledStyleSheet) styleSheetMap.get(resourceName);
+            if (styleSheet == null) {
+                styleSheet = loadPrecompiled(resourceName, classLoader);
+                if (styleSheet == null) {
+                    StyleSheet sourceStyleSheet = StyleSheetLoader.load(resourceName, classLoader);
+                    if (sourceStyleSheet == null) {
+                        return null;
+                    }
+                    styleSheet = new CompiledStyleSheet(sourceStyleSheet, resourceName);
+                } else {
+                    styleSheet.resourceName = resourceName;
+                }
+                styleSheetMap.put(resourceName, styleSheet);
+            }
+            return styleSheet;
+        }
+    }
+    
+    /**
+     * Loads the precompiled binary form of a style sheet resource, if it exists.
+     * 
+     * @param resourceName the name of the XML style sheet resource
+     * @param classLoader the <code>ClassLoader</code> with which to load the resource and property objects
+     * @return the <code>CompiledStyleSheet</code>, or null if no precompiled form exists
+     * @throws SerialException if the precompiled form is invalid
+     */
+    private static CompiledStyleSheet loadPrecompiled(String resourceName, ClassLoader classLoader) 
+    throws SerialException {
+        InputStream in = null;
+        try {
+            in = classLoader.getResourceAsStream(resourceName + PRECOMPILED_SUFFIX);
+            if (in == null) {
+                return null;
+            }
+            return read(readFully(in), classLoader);
+        } catch (IOException ex) {
+            throw new SerialException("Failed to load precompiled style sheet: " + resourceName, ex);
+        } finally {
+            if (in != null) { try { in.close(); } catch (IOException ex) { } }
+        }
+    }
+    
+    /**
+     * Precompiles an XML style sheet file into binary form.
+     * Usage: <code>CompiledStyleSheet [input XML file] [output file]</code>.
+     * Component and property classes are loaded using the context class loader.
+     * 
+     * @param arguments the command line arguments
+     * @throws Exception if the style sheet cannot be compiled
+     */
+    public static void main(String[] arguments) 
+    throws Exception {
+        if (arguments.length != 2) {
+            System.err.println("Usage: " + CompiledStyleSheet.class.getName() + " [input XML file] [output file]");
+            System.exit(1);
+        }
+        StyleSheet styleSheet;
+        InputStream in = new FileInputStream(arguments[0]);
+        try {
+            styleSheet = StyleSheetLoader.load(in, Thread.currentThread().getContextClassLoader());
+        } finally {
+            in.close();
+        }
+        OutputStream out = new FileOutputStream(arguments[1]);
+        try {
+            out.write(compile(styleSheet).toBinary());
+        } finally {
+            out.close();
+        }
+    }
+    
+    /**
+     * Reads a <code>CompiledStyleSheet</code> from its binary form.
+     * 
+     * @param data the binary form, as returned by <code>toBinary()</code>
+     * @param classLoader the <code>ClassLoader</code> with which to load component and property classes
+     * @return the <code>CompiledStyleSheet</code>
+     * @throws SerialException if the binary form is invalid
+     */
+    public static CompiledStyleSheet read(byte[] data, ClassLoader classLoader) 
+    throws SerialException {
+        try {
+            return (CompiledStyleSheet) Snapshot.read(data, null, classLoader);
+        } catch (IOException ex) {
+            throw new SerialException("Invalid precompiled style sheet.", ex);
+        } catch (ClassNotFoundException ex) {
+            throw new SerialException("Invalid precompiled style sheet.", ex);
+        } catch (ClassCastException ex) {
+            throw new SerialException("Invalid precompiled style sheet.", ex);
+        }
+    }
+    
+    /**
+     * Reads the entire content of an <code>InputStream</code>.
+     * 
+     * @param in the <code>InputStream</code>
+     * @return the content
+     * @throws IOException
+     */
+    private static byte[] readFully(InputStream in) 
+    throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int length;
+        while ((length = in.read(buffer)) != -1) {
+            out.write(buffer, 0, length);
+        }
+        return out.toByteArray();
+    }
+    
+    /** Mapping between component <code>Class</code>es and default <code>CompiledStyle</code>s. */
+    private Map defaultStyleMap = new HashMap();
+    
+    /** Mapping between style names and <code>Map</code>s of component <code>Class</code>es to <code>CompiledStyle</code>s. */
+    private Map namedStyleMap = new HashMap();
+    
+    /** 
+     * The name of the resource from which the style sheet was loaded, if it is shared by 
+     * <code>forResource()</code>, or null.
+     */
+    private String resourceName;
+    
+    /**
+     * Creates a new <code>CompiledStyleSheet</code>.
+     * 
+     * @param styleSheet the source <code>StyleSheet</code>
+     * @param resourceName the name of the resource from which the style sheet was loaded, 
+     *        if it is shared by <code>forResource()</code>
+     */
+    private CompiledStyleSheet(StyleSheet styleSheet, String resourceName) {
+        super();
+        this.resourceName = resourceName;
+        Iterator styleNameIt = styleSheet.getStyleNames();
+        while (styleNameIt.hasNext()) {
+            String styleName = (String) styleNameIt.next();
+            Map styleMap;
+            if (styleName == null) {
+                styleMap = defaultStyleMap;
+            } else {
+                styleMap = new HashMap();
+                namedStyleMap.put(styleName, styleMap);
+            }
+            Iterator componentTypeIt = styleSheet.getComponentTypes(styleName);
+            while (componentTypeIt.hasNext()) {
+                Class componentClass = (Class) componentTypeIt.next();
+                Style style = styleSheet.getStyle(styleName, componentClass, false);
+                if (style != null) {
+                    styleMap.put(componentClass, new CompiledStyle(style));
+                }
+            }
+        }
+    }
+    
+    /**
+     * @see nextapp.echo.app.StyleSheet#getComponentTypes(java.lang.String)
+     */
+    public Iterator getComponentTypes(String styleName) {
+        Map styleMap = styleName == null ? defaultStyleMap : (Map) namedStyleMap.get(styleName);
+        if (styleMap == null) {
+            return Collections.EMPTY_SET.iterator();
+        }
+        return Collections.unmodifiableSet(styleMap.keySet()).iterator();
+    }
+
+    /**
+     * @see nextapp.echo.app.StyleSheet#getStyle(java.lang.String, java.lang.Class, boolean)
+     */
+    public Style getStyle(String styleName, Class componentClass, boolean searchSuperClasses) {
+        Map styleMap = styleName == null ? defaultStyleMap : (Map) namedStyleMap.get(styleName);
+        if (styleMap == null) {
+            return null;
+        }
+        while (componentClass != Object.class) {
+            Style style = (Style) styleMap.get(componentClass);
+            if (!searchSuperClasses || style != null) {
+                return style;
+            }
+            componentClass = componentClass.getSuperclass();
+        }
+        return null;
+    }
+
+    /**
+     * @see nextapp.echo.app.StyleSheet#getStyleNames()
+     */
+    public Iterator getStyleNames() {
+        if (defaultStyleMap.size() == 0) {
+            return Collections.unmodifiableSet(namedStyleMap.keySet()).iterator();
+        }
+        Object[] styleNames = new Object[namedStyleMap.size() + 1];
+        namedStyleMap.keySet().toArray(styleNames);
+        // styleNames[styleNames.length - 1] remains null, representing the default styles.
+        return Collections.unmodifiableList(Arrays.asList(styleNames)).iterator();
+    }
+    
+    /**
+     * Replaces a deserialized shared style sheet with the shared instance for the current context 
+     * <code>ClassLoader</code>, if one has been loaded, such that deserialized 
+     * <code>ApplicationInstance</code>s continue to share style sheets.
+     * 
+     * @return the shared instance, or this instance
+     * @throws ObjectStreamException
+     */
+    private Object readResolve() 
+    throws ObjectStreamException {
+        if (resourceName == null) {
+            return this;
+        }
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        synchronized (classLoaderToStyleSheetMap) {
+            Map styleSheetMap = (Map) classLoaderToStyleSheetMap.get(classLoader);
+            Object sharedStyleSheet = styleSheetMap == null ? null : styleSheetMap.get(resourceName);
+            return sharedStyleSheet == null ? this : sharedStyleSheet;
+        }
+    }
+    
+    /**
+     * Returns the binary form of this style sheet, which may be read using <code>read()</code>.
+     * 
+     * @return the binary form
+     * @throws IOException if the style sheet contains property values which cannot be serialized
+     */
+    public byte[] toBinary() 
+    throws IOException {
+        return Snapshot.write(this, null);
+    }
+}
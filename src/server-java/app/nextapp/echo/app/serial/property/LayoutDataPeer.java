@@ -30,7 +30,6 @@
 package nextapp.echo.app.serial.property;
 
 import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.util.Iterator;
 
 import org.w3c.dom.Element;
@@ -39,6 +38,7 @@ import nextapp.echo.app.LayoutData;
 import nextapp.echo.app.Style;
 import nextapp.echo.app.reflect.IntrospectorFactory;
 import nextapp.echo.app.reflect.ObjectIntrospector;
+import nextapp.echo.app.reflect.PropertyAccessor;
 import nextapp.echo.app.serial.SerialContext;
 import nextapp.echo.app.serial.SerialException;
 import nextapp.echo.app.serial.SerialPropertyPeer;
@@ -77,8 +77,8 @@ implements SerialPropertyPeer {
             Iterator it = propertyStyle.getPropertyNames();
             while (it.hasNext()) {
                 String propertyName = (String) it.next();
-                Method writeMethod = introspector.getWriteMethod(propertyName);
-                writeMethod.invoke(layoutData, new Object[]{propertyStyle.get(propertyName)});
+                PropertyAccessor propertyAccessor = introspector.getPropertyAccessor(propertyName);
+                propertyAccessor.set(layoutData, propertyStyle.get(propertyName));
             }
             
             return layoutData;
@@ -47,6 +47,8 @@ import nextapp.echo.app.event.TableModelListener;
  *  <li>a generic implementation of <code>getColumnName()</code> which
  *      returns "spreadsheet-style" column names, i.e., 
  *      A, B, C...Y, Z, AA, AB, AC....</li>
+ *  <li>batching of modifications: events fired between <code>beginUpdate()</code> and
+ *      <code>endUpdate()</code> are coalesced into a single event</li>
  * </ul>
  * 
  * @see DefaultTableModel
@@ -56,6 +58,12 @@ implements Serializable, TableModel {
 
     private EventListenerList listenerList = new EventListenerList();
     
+    /** Depth of nested <code>beginUpdate()</code> invocations. */
+    private int updateDepth = 0;
+    
+    /** Event describing all changes made since the outermost <code>beginUpdate()</code>, or null if none. */
+    private TableModelEvent pendingEvent;
+    
     /** 
      * Default constructor.
      */
@@ -70,6 +78,96 @@ implements Serializable, TableModel {
         listenerList.addListener(TableModelListener.class, l);
     }
     
+    /**
+     * Begins a batch of modifications.  Events fired until the matching invocation of <code>endUpdate()</code> are
+     * not delivered to listeners, but are coalesced into a single event which is fired by <code>endUpdate()</code>.
+     * Contiguous insertions, deletions or updates of rows are described by a single ranged event; other 
+     * combinations of modifications are described by a data changed (or structure changed) event.
+     * Batches may be nested, in which case the event is fired by the outermost <code>endUpdate()</code>.
+     */
+    public void beginUpdate() {
+        ++updateDepth;
+    }
+    
+    /**
+     * Returns an event describing the changes of two events fired in sequence.
+     * 
+     * @param first the first event
+     * @param second the second event
+     * @return the coalesced event
+     */
+    private TableModelEvent coalesce(TableModelEvent first, TableModelEvent second) {
+        int type = first.getType();
+        if (type == TableModelEvent.STRUCTURE_CHANGED || second.getType() == TableModelEvent.STRUCTURE_CHANGED) {
+            return new TableModelEvent(this, TableModelEvent.ALL_COLUMNS, TableModelEvent.HEADER_ROW,
+                    TableModelEvent.HEADER_ROW, TableModelEvent.STRUCTURE_CHANGED);
+        }
+        if (type == TableModelEvent.UPDATE && first.getFirstRow() == 0 && first.getLastRow() == Integer.MAX_VALUE) {
+            // All rows already changed.
+            return first;
+        }
+        
+        int firstRow = first.getFirstRow();
+        int lastRow = first.getLastRow();
+        int secondFirstRow = second.getFirstRow();
+        int secondLastRow = second.getLastRow();
+        if (type == second.getType()) {
+            switch (type) {
+            case TableModelEvent.INSERT:
+                if (secondFirstRow >= firstRow && secondFirstRow <= lastRow + 1) {
+                    // Rows inserted within or immediately following previously inserted rows.
+                    return new TableModelEvent(this, TableModelEvent.ALL_COLUMNS, firstRow, 
+                            lastRow + secondLastRow - secondFirstRow + 1, TableModelEvent.INSERT);
+                }
+                break;
+            case TableModelEvent.DELETE:
+                if (secondFirstRow == firstRow) {
+                    // Rows deleted immediately following previously deleted rows.
+                    return new TableModelEvent(this, TableModelEvent.ALL_COLUMNS, firstRow, 
+                            lastRow + secondLastRow - secondFirstRow + 1, TableModelEvent.DELETE);
+                } else if (secondLastRow + 1 == firstRow) {
+                    // Rows deleted immediately preceding previously deleted rows.
+                    return new TableModelEvent(this, TableModelEvent.ALL_COLUMNS, secondFirstRow, 
+                            lastRow, TableModelEvent.DELETE);
+                }
+                break;
+            case TableModelEvent.UPDATE:
+                if (secondFirstRow <= lastRow + 1 && firstRow <= secondLastRow + 1) {
+                    // Overlapping or adjacent row intervals updated.
+                    int column = first.getColumn() == second.getColumn() 
+                            ? first.getColumn() : TableModelEvent.ALL_COLUMNS;
+                    return new TableModelEvent(this, column, Math.min(firstRow, secondFirstRow), 
+                            Math.max(lastRow, secondLastRow), TableModelEvent.UPDATE);
+                }
+                break;
+            }
+        } else if (type == TableModelEvent.INSERT && second.getType() == TableModelEvent.UPDATE
+                && secondFirstRow >= firstRow && secondLastRow <= lastRow) {
+            // Update of previously inserted rows.
+            return first;
+        }
+        
+        return new TableModelEvent(this);
+    }
+    
+    /**
+     * Ends a batch of modifications begun by <code>beginUpdate()</code>.
+     * If this ends the outermost batch, a single event describing all modifications made during the batch is fired.
+     * 
+     * @throws IllegalStateException if no batch is in progress
+     */
+    public void endUpdate() {
+        if (updateDepth == 0) {
+            throw new IllegalStateException("endUpdate() invoked without beginUpdate().");
+        }
+        --updateDepth;
+        if (updateDepth == 0 && pendingEvent != null) {
+            TableModelEvent e = pendingEvent;
+            pendingEvent = null;
+            fireTableChanged(e);
+        }
+    }
+    
     /**
      * Notifies <code>TableModelListener</code>s that the contents of the cell 
      * at the specified coordinate were changed.
@@ -78,7 +176,7 @@ implements Serializable, TableModel {
      * @param row the row index
      */
     public void fireTableCellUpdated(int column, int row) {
-        fireTableChanged(new TableModelEvent(this, row, row, column, TableModelEvent.UPDATE));
+        fireTableChanged(new TableModelEvent(this, column, row, row, TableModelEvent.UPDATE));
     }
     
     /**
@@ -135,10 +233,21 @@ implements Serializable, TableModel {
     
     /**
      * Notifies <code>TableModelListener</code>s of the specified event.
+     * If a batch of modifications is in progress (see <code>beginUpdate()</code>), the event is instead 
+     * coalesced with other events of the batch.
      *
      * @param e the event
      */
     public void fireTableChanged(TableModelEvent e) {
+        if (updateDepth > 0) {
+            if (e == null) {
+                // A null event is treated by listeners as a change to the table's structure.
+                e = new TableModelEvent(this, TableModelEvent.ALL_COLUMNS, TableModelEvent.HEADER_ROW,
+                        TableModelEvent.HEADER_ROW, TableModelEvent.STRUCTURE_CHANGED);
+            }
+            pendingEvent = pendingEvent == null ? e : coalesce(pendingEvent, e);
+            return;
+        }
         EventListener[] listeners = listenerList.getListeners(TableModelListener.class);
         
         for (int index = 0; index < listeners.length; ++index) {
@@ -41,10 +41,46 @@ implements TableCellRenderer {
 
     /** Serial Version UID. */
     private static final long serialVersionUID = 20070101L;
+    
+    /** Flag indicating whether rendered <code>Label</code>s are recycled. */
+    private boolean recycling;
+    
+    /**
+     * Creates a new <code>DefaultTableCellRenderer</code> which renders a new <code>Label</code> for each cell.
+     */
+    public DefaultTableCellRenderer() {
+        this(false);
+    }
+    
+    /**
+     * Creates a new <code>DefaultTableCellRenderer</code>.
+     * <p>
+     * Recycling should only be enabled if the rendered <code>Label</code>s are not further configured, e.g., by a 
+     * subclass which styles the <code>Label</code> returned by this implementation, as recycled 
+     * <code>Label</code>s retain all properties other than their text.
+     * 
+     * @param recycling true if previously rendered <code>Label</code>s should be recycled (see 
+     *        <code>Table.acquireCellComponent()</code>)
+     */
+    public DefaultTableCellRenderer(boolean recycling) {
+        super();
+        this.recycling = recycling;
+    }
+    
+    /**
+     * Determines whether previously rendered <code>Label</code>s are recycled.
+     * 
+     * @return true if <code>Label</code>s are recycled
+     */
+    public boolean isRecycling() {
+        return recycling;
+    }
 
     /**
      * Returns a <code>Label</code> containing the toString() value of the 
      * model value.  Returns null in the event the model value is null.
+     * If recycling is enabled, a previously rendered <code>Label</code> is reused if one is available (see 
+     * <code>Table.acquireCellComponent()</code>).
      * 
      * @see nextapp.echo.app.table.TableCellRenderer#getTableCellRendererComponent(
      *      nextapp.echo.app.Table, java.lang.Object, int, int)
@@ -53,7 +89,12 @@ implements TableCellRenderer {
         if (value == null) {
             return null;
         } else {
-            return new Label(value.toString());
+            Label label = recycling ? (Label) table.acquireCellComponent(Label.class) : null;
+            if (label == null) {
+                return new Label(value.toString());
+            }
+            label.setText(value.toString());
+            return label;
         }
     }
 }
@@ -131,6 +131,42 @@ public class DefaultTableModel extends AbstractTableModel {
         insertRow(rows.size(), rowData);
     }
     
+    /**
+     * Adds rows containing the provided data to the end of the model.
+     * A single event is fired for all added rows.
+     *
+     * @param rowData the data of the rows to add (the first index of the array
+     *        represents the row index, and the second index represents the
+     *        column index)
+     */
+    public void addRows(Object[][] rowData) {
+        if (rowData.length == 0) {
+            return;
+        }
+        int firstRow = rows.size();
+        for (int i = 0; i < rowData.length; ++i) {
+            rows.add(createRowList(rowData[i]));
+        }
+        fireTableRowsInserted(firstRow, rows.size() - 1);
+    }
+    
+    /**
+     * Creates the internal representation of a row containing the provided data.
+     * Data exceeding the number of columns is discarded.
+     * 
+     * @param rowData the row data
+     * @return the row
+     */
+    private List createRowList(Object[] rowData) {
+        int maxIndex = rowData.length > columnNames.size() ? columnNames.size() : rowData.length;
+        List rowList = new ArrayList(columnNames.size());
+    
+        for (int index = 0; index < maxIndex; ++index) {
+            rowList.add(rowData[index]);
+        }
+        return rowList;
+    }
+    
     /**
      * Deletes the specified column.
      *
@@ -288,14 +324,7 @@ public class DefaultTableModel extends AbstractTableModel {
             row = rows.size();
         }
 
-        int maxIndex = rowData.length > columnNames.size() ? columnNames.size() : rowData.length;
-        List rowList = new ArrayList(columnNames.size());
-    
-        for (int index = 0; index < maxIndex; ++index) {
-            rowList.add(rowData[index]);
-        }
-
-        rows.add(row, rowList);
+        rows.add(row, createRowList(rowData));
         fireTableRowsInserted(row, row);
     }
 
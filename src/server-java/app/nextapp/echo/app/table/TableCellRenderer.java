@@ -53,7 +53,8 @@ extends Serializable {
      * @return a component representation  of the value (This component must 
      *         be unique.  Returning a single instance of a component across
      *         multiple calls to this method will result in undefined 
-     *         behavior.)
+     *         behavior.  A recycled component may be retrieved using
+     *         <code>Table.acquireCellComponent()</code>.)
      */
     public Component getTableCellRendererComponent(Table table, Object value, int column, int row);
 }
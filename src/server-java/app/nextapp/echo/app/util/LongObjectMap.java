@@ -0,0 +1,227 @@
+/* 
+ * This file is part of the Echo Web Application Framework (hereinafter "Echo").
+ * Copyright (C) 2002-2009 NextApp, Inc.
+ *
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ */
+
+package nextapp.echo.app.util;
+
+import java.io.Serializable;
+
+/**
+ * A map whose keys are primitive <code>long</code> values.
+ * <p>
+ * Entries are stored in parallel key and value arrays using open addressing with linear probing, such that 
+ * neither keys nor map entries need to be allocated as objects.  <code>null</code> values are not supported.
+ * <p>
+ * <strong>This class is not thread-safe.</strong> 
+ */
+public class LongObjectMap 
+implements Serializable {
+
+    /** Serial Version UID. */
+    private static final long serialVersionUID = 20070101L;
+    
+    /** Initial capacity of the key and value arrays, must be a power of two. */
+    private static final int INITIAL_CAPACITY = 16;
+    
+    /**
+     * Returns the preferred slot of a key, given the mask of the current table.
+     * 
+     * @param key the key
+     * @param mask the table mask (the table capacity minus one)
+     * @return the preferred slot
+     */
+    private static int slot(long key, int mask) {
+        // Mix the bits of the key such that sequential keys are spread across the table.
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        return (int) key & mask;
+    }
+    
+    /** The keys, valid only at indices where a non-null value is present. */
+    private long[] keys;
+    
+    /** The values, <code>null</code> indicating an empty slot. */
+    private Object[] values;
+    
+    /** The number of entries. */
+    private int size;
+    
+    /**
+     * Creates a new <code>LongObjectMap</code>.
+     */
+    public LongObjectMap() {
+        super();
+        keys = new long[INITIAL_CAPACITY];
+        values = new Object[INITIAL_CAPACITY];
+    }
+    
+    /**
+     * Removes all entries from the map.
+     */
+    public void clear() {
+        for (int i = 0; i < values.length; ++i) {
+            values[i] = null;
+        }
+        size = 0;
+    }
+    
+    /**
+     * Determines whether the map contains an entry for the specified key.
+     * 
+     * @param key the key
+     * @return true if an entry exists
+     */
+    public boolean containsKey(long key) {
+        return indexOf(key) != -1;
+    }
+    
+    /**
+     * Returns the value associated with the specified key.
+     * 
+     * @param key the key
+     * @return the value, or <code>null</code> if no entry exists
+     */
+    public Object get(long key) {
+        int index = indexOf(key);
+        return index == -1 ? null : values[index];
+    }
+    
+    /**
+     * Returns the slot index of the entry with the specified key.
+     * 
+     * @param key the key
+     * @return the slot index, or -1 if no entry exists
+     */
+    private int indexOf(long key) {
+        int mask = values.length - 1;
+        int index = slot(key, mask);
+        while (values[index] != null) {
+            if (keys[index] == key) {
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+        return -1;
+    }
+    
+    /**
+     * Associates a value with the specified key, replacing any existing value.
+     * 
+     * @param key the key
+     * @param value the value (may not be <code>null</code>)
+     * @return the value previously associated with the key, or <code>null</code> if none
+     */
+    public Object put(long key, Object value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Null values are not supported.");
+        }
+        int mask = values.length - 1;
+        int index = slot(key, mask);
+        while (values[index] != null) {
+            if (keys[index] == key) {
+                Object oldValue = values[index];
+                values[index] = value;
+                return oldValue;
+            }
+            index = (index + 1) & mask;
+        }
+        keys[index] = key;
+        values[index] = value;
+        ++size;
+        if (size * 2 > values.length) {
+            resize(values.length * 2);
+        }
+        return null;
+    }
+    
+    /**
+     * Removes the entry with the specified key.
+     * 
+     * @param key the key
+     * @return the value that was associated with the key, or <code>null</code> if none
+     */
+    public Object remove(long key) {
+        int index = indexOf(key);
+        if (index == -1) {
+            return null;
+        }
+        Object oldValue = values[index];
+        values[index] = null;
+        --size;
+        
+        // Shift back subsequent entries of the probe sequence such that they remain reachable.
+        int mask = values.length - 1;
+        int emptyIndex = index;
+        index = (index + 1) & mask;
+        while (values[index] != null) {
+            int preferredIndex = slot(keys[index], mask);
+            // Move the entry if its preferred slot is not cyclically within (emptyIndex, index].
+            if (((index - preferredIndex) & mask) >= ((index - emptyIndex) & mask)) {
+                keys[emptyIndex] = keys[index];
+                values[emptyIndex] = values[index];
+                values[index] = null;
+                emptyIndex = index;
+            }
+            index = (index + 1) & mask;
+        }
+        return oldValue;
+    }
+    
+    /**
+     * Rebuilds the table with the specified capacity.
+     * 
+     * @param capacity the new capacity, a power of two
+     */
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new long[capacity];
+        values = new Object[capacity];
+        int mask = capacity - 1;
+        for (int i = 0; i < oldValues.length; ++i) {
+            if (oldValues[i] != null) {
+                int index = slot(oldKeys[i], mask);
+                while (values[index] != null) {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = oldKeys[i];
+                values[index] = oldValues[i];
+            }
+        }
+    }
+    
+    /**
+     * Returns the number of entries in the map.
+     * 
+     * @return the number of entries
+     */
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,123 @@
+/* 
+ * This file is part of the Echo Web Application Framework (hereinafter "Echo").
+ * Copyright (C) 2002-2009 NextApp, Inc.
+ *
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ */
+
+package nextapp.echo.app.util;
+
+/**
+ * Encodes sequentially generated numeric render ids into compact strings, and decodes them back.
+ * <p>
+ * The encoded form of a value consists of its least significant decimal digit, followed by the remaining
+ * (value / 10) in base 62 (digits, then upper-case letters, then lower-case letters), omitted when zero.
+ * Encoded ids thus always begin with a digit, such that they may never collide with custom render ids, which
+ * must begin with a letter (see <code>Component.setRenderId()</code>).
+ * For example, 7 is encoded as "7", 625 as "510", and 1,000,000 as "0Q0u".
+ */
+public class RenderIdCodec {
+    
+    /** The base-62 alphabet. */
+    private static final char[] DIGITS = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz".toCharArray();
+    
+    /** The maximum length of an encoded id, sufficient for any non-negative <code>long</code> value. */
+    private static final int MAXIMUM_LENGTH = 12;
+    
+    /**
+     * Decodes an encoded id.
+     * 
+     * @param s the string containing the id
+     * @param beginIndex the index at which the id begins, the id continuing to the end of the string
+     * @return the decoded value, or -1 if the string does not contain a valid encoded id (e.g., if it is a 
+     *         custom render id)
+     */
+    public static long decode(String s, int beginIndex) {
+        int length = s.length() - beginIndex;
+        if (length <= 0 || length > MAXIMUM_LENGTH) {
+            return -1;
+        }
+        char ch = s.charAt(beginIndex);
+        if (ch < '0' || ch > '9') {
+            return -1;
+        }
+        long leadingDigit = ch - '0';
+        if (length == 1) {
+            return leadingDigit;
+        }
+        if (s.charAt(beginIndex + 1) == '0') {
+            // Non-canonical representation.
+            return -1;
+        }
+        long value = 0;
+        for (int i = beginIndex + 1; i < s.length(); ++i) {
+            ch = s.charAt(i);
+            int digit;
+            if (ch >= '0' && ch <= '9') {
+                digit = ch - '0';
+            } else if (ch >= 'A' && ch <= 'Z') {
+                digit = ch - 'A' + 10;
+            } else if (ch >= 'a' && ch <= 'z') {
+                digit = ch - 'a' + 36;
+            } else {
+                return -1;
+            }
+            if (value > (Long.MAX_VALUE / 10 - digit) / 62) {
+                // Overflow.
+                return -1;
+            }
+            value = value * 62 + digit;
+        }
+        if (value > (Long.MAX_VALUE - leadingDigit) / 10) {
+            // Overflow.
+            return -1;
+        }
+        return value * 10 + leadingDigit;
+    }
+    
+    /**
+     * Encodes a value.
+     * 
+     * @param value the value, which must be non-negative
+     * @return the encoded id
+     */
+    public static String encode(long value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Cannot encode negative value: " + value);
+        }
+        char[] buffer = new char[MAXIMUM_LENGTH];
+        int index = buffer.length;
+        long remainder = value / 10;
+        while (remainder > 0) {
+            buffer[--index] = DIGITS[(int) (remainder % 62)];
+            remainder /= 62;
+        }
+        buffer[--index] = DIGITS[(int) (value % 10)];
+        return new String(buffer, index, buffer.length - index);
+    }
+    
+    /** Non-instantiable class. */
+    private RenderIdCodec() { }
+}
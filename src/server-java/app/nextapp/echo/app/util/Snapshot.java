@@ -0,0 +1,287 @@
+/* 
+ * This file is part of the Echo Web Application Framework (hereinafter "Echo").
+ * Copyright (C) 2002-2009 NextApp, Inc.
+ *
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ */
+
+package nextapp.echo.app.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.io.StreamCorruptedException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import nextapp.echo.app.Alignment;
+import nextapp.echo.app.Color;
+import nextapp.echo.app.Extent;
+import nextapp.echo.app.Font;
+import nextapp.echo.app.Insets;
+
+/**
+ * Compact, versioned binary snapshot format for serializable object graphs, 
+ * e.g., <code>UserInstance</code>s and their <code>Component</code> hierarchies.
+ * <p>
+ * A snapshot consists of a short header (magic number and format version)
+ * followed by a deflate-compressed Java serialization stream.  While writing,
+ * equal instances of common immutable property value types (<code>String</code>s,
+ * <code>Color</code>s, <code>Extent</code>s, <code>Insets</code>,
+ * <code>Font</code>s and <code>Alignment</code>s) are replaced with a single
+ * canonical instance, such that each distinct value is only written once and 
+ * subsequent occurrences are written as back-references.  Strings are not
+ * interned while reading; objects which benefit from canonical strings (e.g.,
+ * <code>MutableStyle</code>'s property names) intern them in their own
+ * <code>readObject()</code> implementations.
+ * <p>
+ * An optional context object may be provided when writing and reading a snapshot.
+ * References to the context object within the graph are not serialized, but rather
+ * are replaced with the context object provided when the snapshot is read.  This
+ * allows an object to store its dependents in a snapshot from within its own 
+ * <code>writeObject()</code> method.
+ */
+public class Snapshot {
+    
+    /**
+     * Snapshot magic number ("ES3S").
+     */
+    private static final int MAGIC = 0x45533353;
+    
+    /**
+     * Current snapshot format version.
+     */
+    public static final int VERSION = 1;
+    
+    /**
+     * Immutable value types whose equal instances are replaced with a canonical instance.
+     * Types are matched exactly (not by <code>instanceof</code>), such that, e.g., 
+     * <code>DecimalExtent</code>s are not canonicalized to <code>Extent</code>s.
+     */
+    private static final Class[] CANONICAL_TYPES = { String.class, Color.class, Extent.class, Insets.class, Font.class, 
+            Alignment.class };
+    
+    /**
+     * Serialized stand-in for the context object.
+     */
+    private static final class ContextReference
+    implements Serializable {
+
+        /** Serial Version UID. */
+        private static final long serialVersionUID = 20070101L;
+    }
+    
+    /**
+     * <code>ObjectOutputStream</code> which canonicalizes immutable values and replaces the context object.
+     */
+    private static class SnapshotOutputStream extends ObjectOutputStream {
+        
+        private Object context;
+        private Map canonicalValues = new HashMap();
+        
+        /**
+         * Creates a new <code>SnapshotOutputStream</code>.
+         * 
+         * @param out the target stream
+         * @param context the context object (may be null)
+         */
+        SnapshotOutputStream(OutputStream out, Object context) 
+        throws IOException {
+            super(out);
+            this.context = context;
+            enableReplaceObject(true);
+        }
+        
+        /**
+         * @see java.io.ObjectOutputStream#replaceObject(java.lang.Object)
+         */
+        protected Object replaceObject(Object obj) 
+        throws IOException {
+            if (obj == null) {
+                return null;
+            }
+            if (context != null && obj == context) {
+                return new ContextReference();
+            }
+            Class objClass = obj.getClass();
+            for (int i = 0; i < CANONICAL_TYPES.length; ++i) {
+                if (CANONICAL_TYPES[i] == objClass) {
+                    Map values = (Map) canonicalValues.get(objClass);
+                    if (values == null) {
+                        values = new HashMap();
+                        canonicalValues.put(objClass, values);
+                    }
+                    Object canonical = values.get(obj);
+                    if (canonical == null) {
+                        values.put(obj, obj);
+                        return obj;
+                    }
+                    return canonical;
+                }
+            }
+            return obj;
+        }
+    }
+    
+    /**
+     * <code>ObjectInputStream</code> which restores the context object, and resolves
+     * classes using a specific class loader (by default the context class loader) where available.
+     */
+    private static class SnapshotInputStream extends ObjectInputStream {
+        
+        private Object context;
+        private ClassLoader classLoader;
+        
+        /**
+         * Creates a new <code>SnapshotInputStream</code>.
+         * 
+         * @param in the source stream
+         * @param context the context object (may be null)
+         * @param classLoader the <code>ClassLoader</code> with which to resolve classes
+         *        (if null, the context class loader will be used)
+         */
+        SnapshotInputStream(InputStream in, Object context, ClassLoader classLoader) 
+        throws IOException {
+            super(in);
+            this.context = context;
+            this.classLoader = classLoader == null ? Thread.currentThread().getContextClassLoader() : classLoader;
+            enableResolveObject(true);
+        }
+        
+        /**
+         * @see java.io.ObjectInputStream#resolveClass(java.io.ObjectStreamClass)
+         */
+        protected Class resolveClass(ObjectStreamClass desc) 
+        throws IOException, ClassNotFoundException {
+            if (classLoader != null) {
+                try {
+                    return Class.forName(desc.getName(), false, classLoader);
+                } catch (ClassNotFoundException ex) {
+                    // Fall through to default resolution.
+                }
+            }
+            return super.resolveClass(desc);
+        }
+        
+        /**
+         * @see java.io.ObjectInputStream#resolveObject(java.lang.Object)
+         */
+        protected Object resolveObject(Object obj) 
+        throws IOException {
+            if (obj instanceof ContextReference) {
+                return context;
+            } else {
+                return obj;
+            }
+        }
+    }
+    
+    /**
+     * Reads an object graph from a snapshot.
+     * 
+     * @param data the snapshot data, as returned by <code>write()</code>
+     * @param context the context object which will replace references to the context object
+     *        provided when the snapshot was written (may be null)
+     * @return the deserialized object graph
+     * @throws IOException if the snapshot is invalid or of an unsupported version
+     * @throws ClassNotFoundException if a class contained in the snapshot cannot be found
+     */
+    public static Object read(byte[] data, Object context) 
+    throws IOException, ClassNotFoundException {
+        return read(data, context, null);
+    }
+    
+    /**
+     * Reads an object graph from a snapshot, resolving classes with a specific <code>ClassLoader</code>.
+     * 
+     * @param data the snapshot data, as returned by <code>write()</code>
+     * @param context the context object which will replace references to the context object
+     *        provided when the snapshot was written (may be null)
+     * @param classLoader the <code>ClassLoader</code> with which to resolve classes 
+     *        (if null, the context class loader will be used)
+     * @return the deserialized object graph
+     * @throws IOException if the snapshot is invalid or of an unsupported version
+     * @throws ClassNotFoundException if a class contained in the snapshot cannot be found
+     */
+    public static Object read(byte[] data, Object context, ClassLoader classLoader) 
+    throws IOException, ClassNotFoundException {
+        DataInputStream header = new DataInputStream(new ByteArrayInputStream(data));
+        if (header.readInt() != MAGIC) {
+            throw new StreamCorruptedException("Invalid snapshot header.");
+        }
+        int version = header.readUnsignedByte();
+        if (version != VERSION) {
+            throw new InvalidClassException("Unsupported snapshot version: " + version);
+        }
+        ObjectInputStream in = new SnapshotInputStream(new InflaterInputStream(header), context, classLoader);
+        try {
+            return in.readObject();
+        } finally {
+            in.close();
+        }
+    }
+    
+    /**
+     * Writes an object graph to a snapshot.
+     * 
+     * @param value the root of the object graph
+     * @param context the context object, references to which will not be serialized (may be null)
+     * @return the snapshot data
+     * @throws IOException if the object graph cannot be serialized
+     */
+    public static byte[] write(Object value, Object context) 
+    throws IOException {
+        ByteArrayOutputStream byteOut = new ByteArrayOutputStream();
+        DataOutputStream header = new DataOutputStream(byteOut);
+        header.writeInt(MAGIC);
+        header.writeByte(VERSION);
+        header.flush();
+        
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            ObjectOutputStream out = new SnapshotOutputStream(new DeflaterOutputStream(byteOut, deflater), context);
+            out.writeObject(value);
+            out.close();
+        } finally {
+            deflater.end();
+        }
+        return byteOut.toByteArray();
+    }
+    
+    /** Non-instantiable class. */
+    private Snapshot() { }
+}
@@ -114,10 +114,10 @@ public class Styles {
     public static final StyleSheet GREEN_STYLE_SHEET;
     static {
         try {
-            DEFAULT_STYLE_SHEET = nextapp.echo.app.serial.StyleSheetLoader.load(STYLE_PATH + "Default.stylesheet.xml", 
-                    Thread.currentThread().getContextClassLoader());
-            GREEN_STYLE_SHEET = nextapp.echo.app.serial.StyleSheetLoader.load(STYLE_PATH + "Green.stylesheet.xml", 
-                    Thread.currentThread().getContextClassLoader());
+            DEFAULT_STYLE_SHEET = nextapp.echo.app.serial.CompiledStyleSheet.forResource(
+                    STYLE_PATH + "Default.stylesheet.xml", Thread.currentThread().getContextClassLoader());
+            GREEN_STYLE_SHEET = nextapp.echo.app.serial.CompiledStyleSheet.forResource(
+                    STYLE_PATH + "Green.stylesheet.xml", Thread.currentThread().getContextClassLoader());
         } catch (SerialException ex) {
             throw new RuntimeException(ex);
         }
@@ -0,0 +1,102 @@
+/* 
+ * This file is part of the Echo Web Application Framework (hereinafter "Echo").
+ * Copyright (C) 2002-2009 NextApp, Inc.
+ *
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ */
+
+package nextapp.echo.webcontainer.benchmark;
+
+import nextapp.echo.app.ApplicationInstance;
+import nextapp.echo.app.Button;
+import nextapp.echo.app.ContentPane;
+import nextapp.echo.app.Window;
+import nextapp.echo.app.event.ActionEvent;
+import nextapp.echo.app.event.ActionListener;
+
+/**
+ * Base class for benchmark applications.
+ * Each application renders a representative component hierarchy, and provides an "update" 
+ * button which performs an incremental modification of the hierarchy when clicked.
+ */
+public abstract class BenchmarkApp extends ApplicationInstance {
+    
+    /** Serial Version UID. */
+    private static final long serialVersionUID = 20070101L;
+    
+    /** The update button. */
+    private Button updateButton;
+    
+    /** The number of updates performed. */
+    private int updateCount;
+    
+    /**
+     * Creates the component hierarchy of the application.
+     * 
+     * @param contentPane the <code>ContentPane</code> to which the hierarchy should be added
+     */
+    protected abstract void createContent(ContentPane contentPane);
+    
+    /**
+     * Returns the button which performs an incremental update when an action event is fired from it.
+     * 
+     * @return the update button
+     */
+    public Button getUpdateButton() {
+        return updateButton;
+    }
+    
+    /**
+     * @see nextapp.echo.app.ApplicationInstance#init()
+     */
+    public Window init() {
+        Window window = new Window();
+        window.setTitle(getClass().getName());
+        ContentPane contentPane = window.getContent();
+        
+        updateButton = new Button("Update");
+        updateButton.addActionListener(new ActionListener() {
+        
+            /** Serial Version UID. */
+            private static final long serialVersionUID = 20070101L;
+
+            /**
+             * @see nextapp.echo.app.event.ActionListener#actionPerformed(nextapp.echo.app.event.ActionEvent)
+             */
+            public void actionPerformed(ActionEvent e) {
+                update(updateCount++);
+            }
+        });
+        createContent(contentPane);
+        return window;
+    }
+    
+    /**
+     * Performs an incremental modification of the component hierarchy.
+     * 
+     * @param updateCount the number of previously performed updates
+     */
+    protected abstract void update(int updateCount);
+}
@@ -0,0 +1,247 @@
+/* 
+ * This file is part of the Echo Web Application Framework (hereinafter "Echo").
+ * Copyright (C) 2002-2009 NextApp, Inc.
+ *
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ */
+
+package nextapp.echo.webcontainer.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpSession;
+
+/**
+ * In-memory <code>HttpServletRequest</code> stand-in.
+ */
+public class BenchmarkRequest extends StandIn {
+    
+    /** The request URI of the benchmark servlet. */
+    static final String REQUEST_URI = "/benchmark/app";
+
+    /** The HTTP method. */
+    private String method;
+    
+    /** Mapping between parameter names and <code>String[]</code> values. */
+    private Map parameters = new HashMap();
+    
+    /** Mapping between lower-case header names and values. */
+    private Map headers = new HashMap();
+    
+    /** The request body. */
+    private byte[] body;
+    
+    /** The content type of the request body. */
+    private String contentType;
+    
+    /** The <code>ServletTransport</code> which provides the session. */
+    private ServletTransport transport;
+    
+    /**
+     * Creates a new <code>BenchmarkRequest</code>.
+     * 
+     * @param transport the <code>ServletTransport</code> which provides the session
+     * @param method the HTTP method, e.g., "GET" or "POST"
+     */
+    public BenchmarkRequest(ServletTransport transport, String method) {
+        super(HttpServletRequest.class);
+        this.transport = transport;
+        this.method = method;
+        headers.put("user-agent", "Mozilla/5.0 (X11; U; Linux i686; en-US) Gecko/20090101 Firefox/3.0 Echo3Benchmark");
+    }
+    
+    public String getCharacterEncoding() {
+        return "UTF-8";
+    }
+    
+    public int getContentLength() {
+        return body == null ? -1 : body.length;
+    }
+    
+    public String getContentType() {
+        return contentType;
+    }
+    
+    public String getContextPath() {
+        return "/benchmark";
+    }
+    
+    public String getHeader(String name) {
+        return (String) headers.get(name.toLowerCase());
+    }
+    
+    public Enumeration getHeaderNames() {
+        return Collections.enumeration(headers.keySet());
+    }
+    
+    public ServletInputStream getInputStream() {
+        final ByteArrayInputStream in = new ByteArrayInputStream(body == null ? new byte[0] : body);
+        return new ServletInputStream() {
+            public int read() {
+                return in.read();
+            }
+            public int read(byte[] b, int off, int len) {
+                return in.read(b, off, len);
+            }
+        };
+    }
+    
+    public Locale getLocale() {
+        return Locale.US;
+    }
+    
+    public Enumeration getLocales() {
+        return Collections.enumeration(Collections.singletonList(Locale.US));
+    }
+    
+    public String getMethod() {
+        return method;
+    }
+    
+    public String getParameter(String name) {
+        String[] values = (String[]) parameters.get(name);
+        return values == null ? null : values[0];
+    }
+    
+    public Map getParameterMap() {
+        return Collections.unmodifiableMap(parameters);
+    }
+    
+    public Enumeration getParameterNames() {
+        return Collections.enumeration(parameters.keySet());
+    }
+    
+    public String[] getParameterValues(String name) {
+        return (String[]) parameters.get(name);
+    }
+    
+    public String getProtocol() {
+        return "HTTP/1.1";
+    }
+    
+    public String getQueryString() {
+        StringBuffer out = new StringBuffer();
+        java.util.Iterator it = parameters.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry entry = (Map.Entry) it.next();
+            if (out.length() > 0) {
+                out.append('&');
+            }
+            out.append(entry.getKey());
+            out.append('=');
+            out.append(((String[]) entry.getValue())[0]);
+        }
+        return out.length() == 0 ? null : out.toString();
+    }
+    
+    public String getRemoteAddr() {
+        return "127.0.0.1";
+    }
+    
+    public String getRemoteHost() {
+        return "localhost";
+    }
+    
+    /**
+     * Returns the <code>HttpServletRequest</code> proxy.
+     * 
+     * @return the request
+     */
+    public HttpServletRequest getRequest() {
+        return (HttpServletRequest) getProxy();
+    }
+    
+    public String getRequestURI() {
+        return REQUEST_URI;
+    }
+    
+    public StringBuffer getRequestURL() {
+        return new StringBuffer("http://localhost" + REQUEST_URI);
+    }
+    
+    public String getScheme() {
+        return "http";
+    }
+    
+    public String getServerName() {
+        return "localhost";
+    }
+    
+    public int getServerPort() {
+        return 80;
+    }
+    
+    public String getServletPath() {
+        return "/app";
+    }
+    
+    public HttpSession getSession() {
+        return getSession(true);
+    }
+    
+    public HttpSession getSession(boolean create) {
+        return transport.getSession(create);
+    }
+    
+    /**
+     * Sets the request body.
+     * 
+     * @param body the body
+     * @param contentType the content type of the body
+     */
+    public void setBody(byte[] body, String contentType) {
+        this.body = body;
+        this.contentType = contentType;
+    }
+    
+    public void setCharacterEncoding(String encoding) { }
+    
+    /**
+     * Sets a request header.
+     * 
+     * @param name the header name
+     * @param value the header value
+     */
+    public void setHeader(String name, String value) {
+        headers.put(name.toLowerCase(), value);
+    }
+    
+    /**
+     * Sets a request parameter.
+     * 
+     * @param name the parameter name
+     * @param value the parameter value
+     */
+    public void setParameter(String name, String value) {
+        parameters.put(name, new String[] { value });
+    }
+}
@@ -0,0 +1,238 @@
+/* 
+ * This file is part of the Echo Web Application Framework (hereinafter "Echo").
+ * Copyright (C) 2002-2009 NextApp, Inc.
+ *
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ */
+
+package nextapp.echo.webcontainer.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UnsupportedEncodingException;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * In-memory <code>HttpServletResponse</code> stand-in, which retains the response body.
+ */
+public class BenchmarkResponse extends StandIn {
+    
+    /** The response body. */
+    private ByteArrayOutputStream body = new ByteArrayOutputStream(16384);
+    
+    /** The content type. */
+    private String contentType;
+    
+    /** The character encoding. */
+    private String characterEncoding = "ISO-8859-1";
+    
+    /** Mapping between lower-case header names and values. */
+    private Map headers = new HashMap();
+    
+    /** The HTTP status code. */
+    private int status = HttpServletResponse.SC_OK;
+    
+    /** The <code>PrintWriter</code>, if retrieved. */
+    private PrintWriter writer;
+    
+    /** The <code>ServletOutputStream</code>, if retrieved. */
+    private ServletOutputStream outputStream;
+    
+    /**
+     * Creates a new <code>BenchmarkResponse</code>.
+     */
+    public BenchmarkResponse() {
+        super(HttpServletResponse.class);
+    }
+    
+    public void addDateHeader(String name, long value) {
+        setHeader(name, Long.toString(value));
+    }
+    
+    public void addHeader(String name, String value) {
+        setHeader(name, value);
+    }
+    
+    public void addIntHeader(String name, int value) {
+        setHeader(name, Integer.toString(value));
+    }
+    
+    public boolean containsHeader(String name) {
+        return headers.containsKey(name.toLowerCase());
+    }
+    
+    public String encodeURL(String url) {
+        return url;
+    }
+    
+    public String encodeRedirectURL(String url) {
+        return url;
+    }
+    
+    public void flushBuffer() {
+        if (writer != null) {
+            writer.flush();
+        }
+    }
+    
+    /**
+     * Returns the response body.
+     * Any content buffered by the <code>PrintWriter</code> is flushed first.
+     * 
+     * @return the response body
+     */
+    public byte[] getBody() {
+        flushBuffer();
+        return body.toByteArray();
+    }
+    
+    /**
+     * Returns the response body as text, decoded using the response character encoding.
+     * 
+     * @return the response body text
+     */
+    public String getBodyText() {
+        try {
+            return new String(getBody(), characterEncoding);
+        } catch (UnsupportedEncodingException ex) {
+            throw new RuntimeException(ex.toString());
+        }
+    }
+    
+    public String getCharacterEncoding() {
+        return characterEncoding;
+    }
+    
+    public String getContentType() {
+        return contentType;
+    }
+    
+    /**
+     * Returns the value of a response header.
+     * 
+     * @param name the header name
+     * @return the header value
+     */
+    public String getHeader(String name) {
+        return (String) headers.get(name.toLowerCase());
+    }
+    
+    public ServletOutputStream getOutputStream() {
+        if (writer != null) {
+            throw new IllegalStateException("getWriter() has already been invoked.");
+        }
+        if (outputStream == null) {
+            outputStream = new ServletOutputStream() {
+                public void write(int b) {
+                    body.write(b);
+                }
+                public void write(byte[] b, int off, int len) {
+                    body.write(b, off, len);
+                }
+            };
+        }
+        return outputStream;
+    }
+    
+    /**
+     * Returns the <code>HttpServletResponse</code> proxy.
+     * 
+     * @return the response
+     */
+    public HttpServletResponse getResponse() {
+        return (HttpServletResponse) getProxy();
+    }
+    
+    /**
+     * Returns the HTTP status code.
+     * 
+     * @return the status code
+     */
+    public int getStatus() {
+        return status;
+    }
+    
+    public PrintWriter getWriter() 
+    throws UnsupportedEncodingException {
+        if (outputStream != null) {
+            throw new IllegalStateException("getOutputStream() has already been invoked.");
+        }
+        if (writer == null) {
+            writer = new PrintWriter(new OutputStreamWriter(body, characterEncoding));
+        }
+        return writer;
+    }
+    
+    public boolean isCommitted() {
+        return false;
+    }
+    
+    public void sendError(int status) {
+        this.status = status;
+    }
+    
+    public void sendError(int status, String message) 
+    throws IOException {
+        this.status = status;
+    }
+    
+    public void setContentLength(int length) {
+        setIntHeader("Content-Length", length);
+    }
+    
+    public void setCharacterEncoding(String characterEncoding) {
+        this.characterEncoding = characterEncoding;
+    }
+    
+    public void setContentType(String contentType) {
+        this.contentType = contentType;
+        int charsetIndex = contentType.indexOf("charset=");
+        if (charsetIndex != -1) {
+            characterEncoding = contentType.substring(charsetIndex + 8).trim();
+        }
+    }
+    
+    public void setDateHeader(String name, long value) {
+        setHeader(name, Long.toString(value));
+    }
+    
+    public void setHeader(String name, String value) {
+        headers.put(name.toLowerCase(), value);
+    }
+    
+    public void setIntHeader(String name, int value) {
+        setHeader(name, Integer.toString(value));
+    }
+    
+    public void setStatus(int status) {
+        this.status = status;
+    }
+}
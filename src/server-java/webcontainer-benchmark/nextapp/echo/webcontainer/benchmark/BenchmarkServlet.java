@@ -0,0 +1,120 @@
+/* 
+ * This file is part of the Echo Web Application Framework (hereinafter "Echo").
+ * Copyright (C) 2002-2009 NextApp, Inc.
+ *
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ */
+
+package nextapp.echo.webcontainer.benchmark;
+
+import java.util.Collections;
+import java.util.Enumeration;
+
+import javax.servlet.ServletConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+
+import nextapp.echo.app.ApplicationInstance;
+import nextapp.echo.webcontainer.WebContainerServlet;
+
+/**
+ * <code>WebContainerServlet</code> which serves a benchmark application.
+ */
+public class BenchmarkServlet extends WebContainerServlet {
+
+    /** Serial Version UID. */
+    private static final long serialVersionUID = 20070101L;
+    
+    /**
+     * In-memory <code>ServletConfig</code> stand-in.
+     */
+    public static class Config extends StandIn {
+        
+        /**
+         * Creates a new <code>Config</code>.
+         */
+        public Config() {
+            super(ServletConfig.class);
+        }
+        
+        public String getInitParameter(String name) {
+            return null;
+        }
+        
+        public Enumeration getInitParameterNames() {
+            return Collections.enumeration(Collections.EMPTY_LIST);
+        }
+        
+        public ServletContext getServletContext() {
+            return null;
+        }
+        
+        public String getServletName() {
+            return "Echo3Benchmark";
+        }
+    }
+    
+    /** The <code>BenchmarkApp</code> class. */
+    private Class applicationClass;
+    
+    /** The most recently created application instance. */
+    private BenchmarkApp lastApplication;
+    
+    /**
+     * Creates and initializes a new <code>BenchmarkServlet</code>.
+     * 
+     * @param applicationClass the <code>BenchmarkApp</code> class which will be instantiated for each user
+     * @throws ServletException
+     */
+    public BenchmarkServlet(Class applicationClass) 
+    throws ServletException {
+        super();
+        this.applicationClass = applicationClass;
+        init((ServletConfig) new Config().getProxy());
+    }
+
+    /**
+     * Returns the most recently created application instance.
+     * 
+     * @return the application instance
+     */
+    public BenchmarkApp getLastApplication() {
+        return lastApplication;
+    }
+
+    /**
+     * @see nextapp.echo.webcontainer.WebContainerServlet#newApplicationInstance()
+     */
+    public ApplicationInstance newApplicationInstance() {
+        try {
+            lastApplication = (BenchmarkApp) applicationClass.newInstance();
+            return lastApplication;
+        } catch (InstantiationException ex) {
+            throw new RuntimeException(ex.toString());
+        } catch (IllegalAccessException ex) {
+            throw new RuntimeException(ex.toString());
+        }
+    }
+}
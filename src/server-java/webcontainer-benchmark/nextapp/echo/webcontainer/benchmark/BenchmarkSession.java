@@ -0,0 +1,113 @@
+/* 
+ * This file is part of the Echo Web Application Framework (hereinafter "Echo").
+ * Copyright (C) 2002-2009 NextApp, Inc.
+ *
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ */
+
+package nextapp.echo.webcontainer.benchmark;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.servlet.http.HttpSession;
+import javax.servlet.http.HttpSessionBindingEvent;
+import javax.servlet.http.HttpSessionBindingListener;
+
+/**
+ * In-memory <code>HttpSession</code> stand-in.
+ */
+public class BenchmarkSession extends StandIn {
+    
+    /** Sequential session id generator. */
+    private static int nextId = 0;
+
+    /** Session attributes. */
+    private Map attributes = new HashMap();
+    
+    /** The session id. */
+    private String id;
+    
+    /** Session creation time. */
+    private long creationTime = System.currentTimeMillis();
+    
+    /**
+     * Creates a new <code>BenchmarkSession</code>.
+     */
+    public BenchmarkSession() {
+        super(HttpSession.class);
+        synchronized (BenchmarkSession.class) {
+            id = "benchmark-" + nextId++;
+        }
+    }
+    
+    public Object getAttribute(String name) {
+        return attributes.get(name);
+    }
+    
+    public java.util.Enumeration getAttributeNames() {
+        return Collections.enumeration(attributes.keySet());
+    }
+    
+    public long getCreationTime() {
+        return creationTime;
+    }
+    
+    public String getId() {
+        return id;
+    }
+    
+    /**
+     * Returns the <code>HttpSession</code> proxy.
+     * 
+     * @return the session
+     */
+    public HttpSession getSession() {
+        return (HttpSession) getProxy();
+    }
+    
+    public void invalidate() {
+        Object[] names = attributes.keySet().toArray();
+        for (int i = 0; i < names.length; ++i) {
+            removeAttribute((String) names[i]);
+        }
+    }
+    
+    public void removeAttribute(String name) {
+        Object value = attributes.remove(name);
+        if (value instanceof HttpSessionBindingListener) {
+            ((HttpSessionBindingListener) value).valueUnbound(new HttpSessionBindingEvent(getSession(), name));
+        }
+    }
+    
+    public void setAttribute(String name, Object value) {
+        removeAttribute(name);
+        attributes.put(name, value);
+        if (value instanceof HttpSessionBindingListener) {
+            ((HttpSessionBindingListener) value).valueBound(new HttpSessionBindingEvent(getSession(), name));
+        }
+    }
+}
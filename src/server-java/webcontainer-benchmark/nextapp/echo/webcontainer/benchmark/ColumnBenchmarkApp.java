@@ -0,0 +1,86 @@
+/* 
+ * This file is part of the Echo Web Application Framework (hereinafter "Echo").
+ * Copyright (C) 2002-2009 NextApp, Inc.
+ *
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ */
+
+package nextapp.echo.webcontainer.benchmark;
+
+import nextapp.echo.app.Column;
+import nextapp.echo.app.ContentPane;
+import nextapp.echo.app.Extent;
+import nextapp.echo.app.Insets;
+import nextapp.echo.app.Label;
+import nextapp.echo.app.Row;
+
+/**
+ * Benchmark application containing deeply nested <code>Column</code>s.
+ * Updates modify the text of the most deeply nested <code>Label</code>.
+ */
+public class ColumnBenchmarkApp extends BenchmarkApp {
+
+    /** Serial Version UID. */
+    private static final long serialVersionUID = 20070101L;
+    
+    /** Nesting depth of the <code>Column</code> hierarchy. */
+    private static final int DEPTH = 60;
+    
+    /** Number of labels at each level of the hierarchy. */
+    private static final int SIBLINGS = 3;
+    
+    /** The label which is updated by incremental synchronizations. */
+    private Label deepestLabel;
+    
+    /**
+     * @see nextapp.echo.webcontainer.benchmark.BenchmarkApp#createContent(nextapp.echo.app.ContentPane)
+     */
+    protected void createContent(ContentPane contentPane) {
+        Column root = new Column();
+        root.add(getUpdateButton());
+        Column parent = root;
+        for (int depth = 0; depth < DEPTH; ++depth) {
+            Column column = new Column();
+            column.setInsets(new Insets(new Extent(2)));
+            Row row = new Row();
+            for (int i = 0; i < SIBLINGS; ++i) {
+                row.add(new Label("Depth " + depth + " / " + i));
+            }
+            column.add(row);
+            parent.add(column);
+            parent = column;
+        }
+        deepestLabel = new Label("Deepest");
+        parent.add(deepestLabel);
+        contentPane.add(root);
+    }
+
+    /**
+     * @see nextapp.echo.webcontainer.benchmark.BenchmarkApp#update(int)
+     */
+    protected void update(int updateCount) {
+        deepestLabel.setText("Deepest " + updateCount);
+    }
+}
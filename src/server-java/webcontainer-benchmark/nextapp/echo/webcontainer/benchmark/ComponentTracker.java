@@ -0,0 +1,228 @@
+/* 
+ * This file is part of the Echo Web Application Framework (hereinafter "Echo").
+ * Copyright (C) 2002-2009 NextApp, Inc.
+ *
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ */
+
+package nextapp.echo.webcontainer.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.xml.sax.SAXException;
+
+/**
+ * Tracks the client-side component hierarchy of a simulated client by interpreting the component 
+ * synchronization directives ("CSyncUp" and "CSyncRm") of XML server messages.
+ * Only component ids, types and parent relationships are tracked.
+ */
+public class ComponentTracker {
+    
+    /** Id used as the parent of components added to the root of the hierarchy. */
+    private static final String ROOT_ID = "";
+    
+    /** The parser. */
+    private DocumentBuilder documentBuilder;
+    
+    /** Mapping between client render ids and client component types. */
+    private Map idToType = new HashMap();
+    
+    /** Mapping between client render ids and parent client render ids. */
+    private Map idToParentId = new HashMap();
+    
+    /**
+     * Creates a new <code>ComponentTracker</code>.
+     */
+    public ComponentTracker() {
+        super();
+        try {
+            documentBuilder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+        } catch (ParserConfigurationException ex) {
+            throw new RuntimeException(ex.toString());
+        }
+    }
+    
+    /**
+     * Adds a component, and all components beneath it, to the tracked hierarchy.
+     * 
+     * @param cElement the "c" element describing the component
+     * @param parentId the client render id of the parent component
+     */
+    private void add(Element cElement, String parentId) {
+        String id = cElement.getAttribute("i");
+        idToType.put(id, cElement.getAttribute("t"));
+        idToParentId.put(id, parentId);
+        for (Node node = cElement.getFirstChild(); node != null; node = node.getNextSibling()) {
+            if ("c".equals(node.getNodeName())) {
+                add((Element) node, id);
+            }
+        }
+    }
+    
+    /**
+     * Returns the number of tracked components.
+     * 
+     * @return the component count
+     */
+    public int getComponentCount() {
+        return idToType.size();
+    }
+    
+    /**
+     * Returns the client render ids of all tracked components of the specified types.
+     * 
+     * @param types the client component types, e.g., "B" and "Button"
+     * @return the client render ids
+     */
+    public List getComponentIds(String[] types) {
+        List ids = new ArrayList();
+        Iterator it = idToType.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry entry = (Map.Entry) it.next();
+            for (int i = 0; i < types.length; ++i) {
+                if (types[i].equals(entry.getValue())) {
+                    ids.add(entry.getKey());
+                    break;
+                }
+            }
+        }
+        return ids;
+    }
+    
+    /**
+     * Updates the tracked hierarchy to reflect a server message.
+     * 
+     * @param serverMessage the XML server message
+     * @throws IOException if the server message cannot be parsed
+     */
+    public void process(String serverMessage) 
+    throws IOException {
+        Document document;
+        try {
+            document = documentBuilder.parse(new ByteArrayInputStream(serverMessage.getBytes("UTF-8")));
+        } catch (SAXException ex) {
+            throw new IOException("Invalid server message: " + ex.getMessage());
+        }
+        
+        for (Node groupNode = document.getDocumentElement().getFirstChild(); groupNode != null; 
+                groupNode = groupNode.getNextSibling()) {
+            if (!"group".equals(groupNode.getNodeName())) {
+                continue;
+            }
+            for (Node dirNode = groupNode.getFirstChild(); dirNode != null; dirNode = dirNode.getNextSibling()) {
+                if (!"dir".equals(dirNode.getNodeName())) {
+                    continue;
+                }
+                String processor = ((Element) dirNode).getAttribute("proc");
+                if ("CSyncRm".equals(processor)) {
+                    processRemoves((Element) dirNode);
+                } else if ("CSyncUp".equals(processor)) {
+                    processUpdates((Element) dirNode);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Processes a "CSyncRm" directive.
+     * 
+     * @param dirElement the directive element
+     */
+    private void processRemoves(Element dirElement) {
+        for (Node node = dirElement.getFirstChild(); node != null; node = node.getNextSibling()) {
+            if (!"rm".equals(node.getNodeName())) {
+                continue;
+            }
+            String[] ids = ((Element) node).getAttribute("rm").split(",");
+            for (int i = 0; i < ids.length; ++i) {
+                remove(ids[i]);
+            }
+        }
+    }
+    
+    /**
+     * Processes a "CSyncUp" directive.
+     * 
+     * @param dirElement the directive element
+     */
+    private void processUpdates(Element dirElement) {
+        for (Node node = dirElement.getFirstChild(); node != null; node = node.getNextSibling()) {
+            if (!"up".equals(node.getNodeName())) {
+                continue;
+            }
+            Element upElement = (Element) node;
+            String parentId;
+            if ("true".equals(upElement.getAttribute("r"))) {
+                // Full render: replace the entire hierarchy.
+                idToType.clear();
+                idToParentId.clear();
+                parentId = ROOT_ID;
+            } else {
+                parentId = upElement.getAttribute("i");
+            }
+            for (Node childNode = upElement.getFirstChild(); childNode != null; childNode = childNode.getNextSibling()) {
+                if ("c".equals(childNode.getNodeName())) {
+                    add((Element) childNode, parentId);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Removes a component, and all components beneath it, from the tracked hierarchy.
+     * 
+     * @param id the client render id of the component
+     */
+    private void remove(String id) {
+        if (idToType.remove(id) == null) {
+            return;
+        }
+        idToParentId.remove(id);
+        List childIds = new ArrayList();
+        Iterator it = idToParentId.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry entry = (Map.Entry) it.next();
+            if (id.equals(entry.getValue())) {
+                childIds.add(entry.getKey());
+            }
+        }
+        for (int i = 0; i < childIds.size(); ++i) {
+            remove((String) childIds.get(i));
+        }
+    }
+}
@@ -0,0 +1,179 @@
+/* 
+ * This file is part of the Echo Web Application Framework (hereinafter "Echo").
+ * Copyright (C) 2002-2009 NextApp, Inc.
+ *
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ */
+
+package nextapp.echo.webcontainer.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+import nextapp.echo.webcontainer.WebContainerServlet;
+
+/**
+ * <code>Transport</code> which sends requests over HTTP to an application deployed in a servlet container.
+ * The session is tracked using the session cookie provided by the container.
+ */
+public class HttpTransport 
+implements Transport {
+    
+    /** Name of the servlet session cookie. */
+    private static final String SESSION_COOKIE_NAME = "JSESSIONID";
+    
+    /**
+     * Reads the entirety of an <code>InputStream</code>.
+     * 
+     * @param in the stream
+     * @return the content
+     * @throws IOException
+     */
+    private static byte[] readFully(InputStream in) 
+    throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int length;
+        while ((length = in.read(buffer)) != -1) {
+            out.write(buffer, 0, length);
+        }
+        return out.toByteArray();
+    }
+
+    /** The URL of the application servlet. */
+    private String servletUrl;
+    
+    /** The session cookie, in the form "name=value", or null if no session has been established. */
+    private String sessionCookie;
+    
+    /** Size, in bytes, of the most recent response. */
+    private int lastResponseSize;
+    
+    /**
+     * Creates a new <code>HttpTransport</code>.
+     * 
+     * @param servletUrl the URL of the application servlet, e.g., "http://localhost:8080/app/app"
+     */
+    public HttpTransport(String servletUrl) {
+        super();
+        this.servletUrl = servletUrl;
+    }
+    
+    /**
+     * Opens a connection to a service.
+     * 
+     * @param serviceId the service id, or null to connect to the application's HTML document
+     * @param method the HTTP method
+     * @return the connection
+     * @throws IOException
+     */
+    private HttpURLConnection connect(String serviceId, String method) 
+    throws IOException {
+        String url = serviceId == null ? servletUrl 
+                : servletUrl + (servletUrl.indexOf('?') == -1 ? '?' : '&') 
+                + WebContainerServlet.SERVICE_ID_PARAMETER + "=" + serviceId;
+        HttpURLConnection conn = (HttpURLConnection) new URL(url).openConnection();
+        conn.setRequestMethod(method);
+        conn.setInstanceFollowRedirects(false);
+        conn.setUseCaches(false);
+        conn.setRequestProperty("User-Agent", 
+                "Mozilla/5.0 (X11; U; Linux i686; en-US) Gecko/20090101 Firefox/3.0 Echo3LoadGenerator");
+        if (sessionCookie != null) {
+            conn.setRequestProperty("Cookie", sessionCookie);
+        }
+        return conn;
+    }
+    
+    /**
+     * @see nextapp.echo.webcontainer.benchmark.Transport#get(java.lang.String)
+     */
+    public String get(String serviceId) 
+    throws IOException {
+        return receive(connect(serviceId, "GET"));
+    }
+    
+    /**
+     * @see nextapp.echo.webcontainer.benchmark.Transport#getLastResponseSize()
+     */
+    public int getLastResponseSize() {
+        return lastResponseSize;
+    }
+    
+    /**
+     * @see nextapp.echo.webcontainer.benchmark.Transport#post(java.lang.String, byte[], java.lang.String)
+     */
+    public String post(String serviceId, byte[] body, String contentType) 
+    throws IOException {
+        HttpURLConnection conn = connect(serviceId, "POST");
+        conn.setDoOutput(true);
+        conn.setRequestProperty("Content-Type", contentType);
+        OutputStream out = conn.getOutputStream();
+        out.write(body);
+        out.close();
+        return receive(conn);
+    }
+    
+    /**
+     * Receives the response of a connection, storing the session cookie if one is provided.
+     * 
+     * @param conn the connection
+     * @return the response body
+     * @throws IOException if the response status is not 200 (OK)
+     */
+    private String receive(HttpURLConnection conn) 
+    throws IOException {
+        int status = conn.getResponseCode();
+        for (int i = 1; conn.getHeaderFieldKey(i) != null; ++i) {
+            if ("Set-Cookie".equalsIgnoreCase(conn.getHeaderFieldKey(i))) {
+                String cookie = conn.getHeaderField(i);
+                if (cookie.startsWith(SESSION_COOKIE_NAME + "=")) {
+                    int semicolonIndex = cookie.indexOf(';');
+                    sessionCookie = semicolonIndex == -1 ? cookie : cookie.substring(0, semicolonIndex);
+                }
+            }
+        }
+        if (status != HttpURLConnection.HTTP_OK) {
+            InputStream errorIn = conn.getErrorStream();
+            if (errorIn != null) {
+                // Consume error response such that the connection may be reused.
+                readFully(errorIn);
+                errorIn.close();
+            }
+            throw new IOException("Request failed with status " + status + ".");
+        }
+        InputStream in = conn.getInputStream();
+        try {
+            byte[] body = readFully(in);
+            lastResponseSize = body.length;
+            return new String(body, "UTF-8");
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,176 @@
+/* 
+ * This file is part of the Echo Web Application Framework (hereinafter "Echo").
+ * Copyright (C) 2002-2009 NextApp, Inc.
+ *
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ */
+
+package nextapp.echo.webcontainer.benchmark;
+
+import java.io.PrintStream;
+
+import nextapp.echo.webcontainer.util.Histogram;
+
+/**
+ * Protocol-level load generator, which simulates many concurrent users of an Echo application.
+ * <p>
+ * Each user is a <code>SimulatedClient</code> running in its own thread.  Clients either invoke an
+ * in-process <code>BenchmarkServlet</code> serving one of the benchmark applications, or send HTTP requests
+ * to an application deployed in a servlet container.  Throughput, request latency percentiles and (for 
+ * in-process runs) heap usage per session are reported.
+ * <p>
+ * Usage: <code>LoadGenerator [-clients n] [-duration seconds] [-think milliseconds] 
+ * [-url servletUrl | Table|Column|WindowPane]</code>
+ */
+public class LoadGenerator {
+    
+    /**
+     * Returns the heap in use after requesting garbage collection.
+     * 
+     * @return the used heap, in bytes
+     */
+    private static long getUsedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; ++i) {
+            System.gc();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException ex) {
+                break;
+            }
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+    
+    /**
+     * Entry point.
+     * 
+     * @param arguments command line arguments
+     * @throws Exception
+     */
+    public static void main(String[] arguments) 
+    throws Exception {
+        LoadGenerator generator = new LoadGenerator();
+        String url = null;
+        String scenario = "WindowPane";
+        for (int i = 0; i < arguments.length; ++i) {
+            if ("-clients".equals(arguments[i])) {
+                generator.clientCount = Integer.parseInt(arguments[++i]);
+            } else if ("-duration".equals(arguments[i])) {
+                generator.duration = Integer.parseInt(arguments[++i]);
+            } else if ("-think".equals(arguments[i])) {
+                generator.thinkTime = Integer.parseInt(arguments[++i]);
+            } else if ("-url".equals(arguments[i])) {
+                url = arguments[++i];
+            } else {
+                scenario = arguments[i];
+            }
+        }
+        
+        if (url == null) {
+            generator.servlet = new BenchmarkServlet(SyncBenchmark.getScenarioClass(scenario));
+        } else {
+            generator.url = url;
+        }
+        generator.run(System.out);
+    }
+    
+    /** The number of simulated clients. */
+    private int clientCount = 100;
+    
+    /** The duration of the run, in seconds. */
+    private int duration = 30;
+    
+    /** The mean think time of each client between operations, in milliseconds. */
+    private int thinkTime = 500;
+    
+    /** The in-process servlet, or null if requests are sent over HTTP. */
+    private BenchmarkServlet servlet;
+    
+    /** The servlet URL, if requests are sent over HTTP. */
+    private String url;
+    
+    /**
+     * Creates a transport for a new client.
+     * 
+     * @return the transport
+     */
+    private Transport createTransport() {
+        return servlet == null ? (Transport) new HttpTransport(url) : new ServletTransport(servlet);
+    }
+    
+    /**
+     * Performs the load test.
+     * 
+     * @param out the stream to which results are reported
+     * @throws Exception
+     */
+    public void run(PrintStream out) 
+    throws Exception {
+        Histogram initLatency = new Histogram();
+        Histogram latency = new Histogram();
+        SimulatedClient[] clients = new SimulatedClient[clientCount];
+        
+        long heapBefore = servlet == null ? 0 : getUsedHeap();
+        for (int i = 0; i < clientCount; ++i) {
+            clients[i] = new SimulatedClient(createTransport(), latency, thinkTime, i);
+            long start = Measurement.nanoTime();
+            clients[i].initialize();
+            initLatency.record(Measurement.nanoTime() - start);
+        }
+        long heapPerSession = servlet == null ? -1 : (getUsedHeap() - heapBefore) / clientCount;
+        
+        long startTime = System.currentTimeMillis();
+        Thread[] threads = new Thread[clientCount];
+        for (int i = 0; i < clientCount; ++i) {
+            clients[i].setEndTime(startTime + duration * 1000L);
+            threads[i] = new Thread(clients[i], "SimulatedClient-" + i);
+            threads[i].start();
+        }
+        int errorCount = 0;
+        Exception lastError = null;
+        for (int i = 0; i < clientCount; ++i) {
+            threads[i].join();
+            errorCount += clients[i].getErrorCount();
+            if (clients[i].getLastError() != null) {
+                lastError = clients[i].getLastError();
+            }
+        }
+        long elapsed = System.currentTimeMillis() - startTime;
+
+        out.println("Target:            " + (servlet == null ? url : "in-process"));
+        out.println("Clients:           " + clientCount);
+        out.println("Duration (ms):     " + elapsed);
+        out.println("Requests:          " + latency.getCount());
+        out.println("Errors:            " + errorCount + (lastError == null ? "" : " (last: " + lastError.getMessage() + ")"));
+        out.println("Throughput (req/s): " + (elapsed == 0 ? 0 : latency.getCount() * 1000 / elapsed));
+        out.println("Init latency (us): mean " + initLatency.getMean() / 1000 + ", p50 " 
+                + initLatency.getPercentile(50) / 1000 + ", p99 " + initLatency.getPercentile(99) / 1000);
+        out.println("Latency (us):      mean " + latency.getMean() / 1000 + ", p50 " + latency.getPercentile(50) / 1000 
+                + ", p90 " + latency.getPercentile(90) / 1000 + ", p99 " + latency.getPercentile(99) / 1000 
+                + ", max " + latency.getMax() / 1000);
+        out.println("Heap per session:  " + (heapPerSession < 0 ? "n/a" : heapPerSession + " bytes"));
+    }
+}
@@ -0,0 +1,239 @@
+/* 
+ * This file is part of the Echo Web Application Framework (hereinafter "Echo").
+ * Copyright (C) 2002-2009 NextApp, Inc.
+ *
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ */
+
+package nextapp.echo.webcontainer.benchmark;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+
+/**
+ * Accumulates latency, allocation, and response size samples for a benchmarked operation.
+ * <p>
+ * Latency is measured using <code>System.nanoTime()</code> and per-thread allocation using 
+ * <code>com.sun.management.ThreadMXBean</code> where the runtime provides them (both are accessed
+ * reflectively, as this module is compiled at the same source level as the framework).  
+ * Otherwise, latency is measured with millisecond precision and allocation is not reported.
+ */
+public class Measurement {
+    
+    /** <code>System.nanoTime()</code>, if available. */
+    private static Method nanoTimeMethod;
+    
+    /** The platform <code>ThreadMXBean</code>, if allocation measurement is supported. */
+    private static Object threadMXBean;
+    
+    /** <code>com.sun.management.ThreadMXBean.getThreadAllocatedBytes(long)</code>, if available. */
+    private static Method threadAllocatedBytesMethod;
+    
+    /** The id of the benchmark thread. */
+    private static Long threadId;
+    
+    static {
+        try {
+            nanoTimeMethod = System.class.getMethod("nanoTime", new Class[0]);
+        } catch (Exception ex) {
+            nanoTimeMethod = null;
+        }
+        try {
+            Class managementFactoryClass = Class.forName("java.lang.management.ManagementFactory");
+            threadMXBean = managementFactoryClass.getMethod("getThreadMXBean", new Class[0])
+                    .invoke(null, new Object[0]);
+            Class threadMXBeanClass = Class.forName("com.sun.management.ThreadMXBean");
+            threadAllocatedBytesMethod = threadMXBeanClass.getMethod("getThreadAllocatedBytes", 
+                    new Class[] { Long.TYPE });
+            threadId = (Long) Thread.class.getMethod("getId", new Class[0])
+                    .invoke(Thread.currentThread(), new Object[0]);
+            if (!threadMXBeanClass.isInstance(threadMXBean)) {
+                threadAllocatedBytesMethod = null;
+            }
+        } catch (Exception ex) {
+            threadAllocatedBytesMethod = null;
+        }
+    }
+    
+    /**
+     * Returns the number of bytes allocated by the benchmark thread, or -1 if not supported.
+     * 
+     * @return the number of allocated bytes
+     */
+    static long allocatedBytes() {
+        if (threadAllocatedBytesMethod == null) {
+            return -1;
+        }
+        try {
+            return ((Long) threadAllocatedBytesMethod.invoke(threadMXBean, new Object[] { threadId })).longValue();
+        } catch (Exception ex) {
+            return -1;
+        }
+    }
+    
+    /**
+     * Returns the current time in nanoseconds (with millisecond precision if 
+     * <code>System.nanoTime()</code> is not available).
+     * 
+     * @return the current time
+     */
+    static long nanoTime() {
+        if (nanoTimeMethod != null) {
+            try {
+                return ((Long) nanoTimeMethod.invoke(null, new Object[0])).longValue();
+            } catch (Exception ex) {
+                // Fall through.
+            }
+        }
+        return System.currentTimeMillis() * 1000000L;
+    }
+    
+    /** The name of the measured scenario. */
+    private String scenario;
+    
+    /** The name of the measured operation. */
+    private String operation;
+    
+    /** Latency samples, in nanoseconds. */
+    private long[] latencies;
+    
+    /** Number of recorded samples. */
+    private int count;
+    
+    /** Total response size, in bytes. */
+    private long totalBytes;
+    
+    /** Total allocation, in bytes, or -1 if not supported. */
+    private long totalAllocation;
+    
+    /**
+     * Creates a new <code>Measurement</code>.
+     * 
+     * @param scenario the name of the measured scenario
+     * @param operation the name of the measured operation
+     * @param capacity the number of samples which will be recorded
+     */
+    public Measurement(String scenario, String operation, int capacity) {
+        super();
+        this.scenario = scenario;
+        this.operation = operation;
+        latencies = new long[capacity];
+    }
+    
+    /**
+     * Returns the mean latency.
+     * 
+     * @return the mean latency, in nanoseconds
+     */
+    public long getMeanLatency() {
+        if (count == 0) {
+            return 0;
+        }
+        long total = 0;
+        for (int i = 0; i < count; ++i) {
+            total += latencies[i];
+        }
+        return total / count;
+    }
+    
+    /**
+     * Returns the mean allocation per operation.
+     * 
+     * @return the mean allocation, in bytes, or -1 if allocation measurement is not supported
+     */
+    public long getMeanAllocation() {
+        return count == 0 || totalAllocation < 0 ? -1 : totalAllocation / count;
+    }
+    
+    /**
+     * Returns the mean response size per operation.
+     * 
+     * @return the mean response size, in bytes
+     */
+    public long getMeanBytes() {
+        return count == 0 ? 0 : totalBytes / count;
+    }
+    
+    /**
+     * Returns the name of the measured operation.
+     * 
+     * @return the operation name
+     */
+    public String getOperation() {
+        return operation;
+    }
+    
+    /**
+     * Returns a latency percentile.
+     * 
+     * @param percentile the percentile, between 0 and 100
+     * @return the latency, in nanoseconds
+     */
+    public long getPercentileLatency(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long[] sorted = new long[count];
+        System.arraycopy(latencies, 0, sorted, 0, count);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100 * count) - 1;
+        return sorted[Math.max(0, Math.min(count - 1, index))];
+    }
+    
+    /**
+     * Returns the name of the measured scenario.
+     * 
+     * @return the scenario name
+     */
+    public String getScenario() {
+        return scenario;
+    }
+    
+    /**
+     * Returns the number of recorded samples.
+     * 
+     * @return the number of samples
+     */
+    public int getSampleCount() {
+        return count;
+    }
+    
+    /**
+     * Records a sample.
+     * 
+     * @param latency the latency of the operation, in nanoseconds
+     * @param allocation the number of bytes allocated by the operation, or -1 if not measured
+     * @param bytes the size of the response, in bytes
+     */
+    public void record(long latency, long allocation, long bytes) {
+        latencies[count++] = latency;
+        totalBytes += bytes;
+        if (allocation < 0 || totalAllocation < 0) {
+            totalAllocation = -1;
+        } else {
+            totalAllocation += allocation;
+        }
+    }
+}
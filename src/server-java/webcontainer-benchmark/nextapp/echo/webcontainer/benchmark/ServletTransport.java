@@ -0,0 +1,130 @@
+/* 
+ * This file is part of the Echo Web Application Framework (hereinafter "Echo").
+ * Copyright (C) 2002-2009 NextApp, Inc.
+ *
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ */
+
+package nextapp.echo.webcontainer.benchmark;
+
+import java.io.IOException;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+
+import nextapp.echo.webcontainer.WebContainerServlet;
+
+/**
+ * <code>Transport</code> which invokes a <code>WebContainerServlet</code> in-process, using in-memory
+ * requests, responses and sessions.
+ */
+public class ServletTransport 
+implements Transport {
+    
+    /** The servlet. */
+    private WebContainerServlet servlet;
+    
+    /** The simulated client's session, or null if not yet created. */
+    private BenchmarkSession session;
+    
+    /** Size, in bytes, of the most recent response. */
+    private int lastResponseSize;
+    
+    /**
+     * Creates a new <code>ServletTransport</code>.
+     * 
+     * @param servlet the servlet to invoke
+     */
+    public ServletTransport(WebContainerServlet servlet) {
+        super();
+        this.servlet = servlet;
+    }
+    
+    /**
+     * @see nextapp.echo.webcontainer.benchmark.Transport#get(java.lang.String)
+     */
+    public String get(String serviceId) 
+    throws IOException {
+        BenchmarkRequest request = new BenchmarkRequest(this, "GET");
+        if (serviceId != null) {
+            request.setParameter(WebContainerServlet.SERVICE_ID_PARAMETER, serviceId);
+        }
+        return service(request);
+    }
+    
+    /**
+     * @see nextapp.echo.webcontainer.benchmark.Transport#getLastResponseSize()
+     */
+    public int getLastResponseSize() {
+        return lastResponseSize;
+    }
+    
+    /**
+     * Returns the session of the simulated client.
+     * 
+     * @param create flag indicating whether the session should be created if it does not exist
+     * @return the session, or null if it does not exist and <code>create</code> is false
+     */
+    HttpSession getSession(boolean create) {
+        if (session == null && create) {
+            session = new BenchmarkSession();
+        }
+        return session == null ? null : session.getSession();
+    }
+    
+    /**
+     * @see nextapp.echo.webcontainer.benchmark.Transport#post(java.lang.String, byte[], java.lang.String)
+     */
+    public String post(String serviceId, byte[] body, String contentType) 
+    throws IOException {
+        BenchmarkRequest request = new BenchmarkRequest(this, "POST");
+        request.setParameter(WebContainerServlet.SERVICE_ID_PARAMETER, serviceId);
+        request.setBody(body, contentType);
+        return service(request);
+    }
+    
+    /**
+     * Processes a request.
+     * 
+     * @param request the request
+     * @return the response body
+     * @throws IOException
+     */
+    private String service(BenchmarkRequest request) 
+    throws IOException {
+        BenchmarkResponse response = new BenchmarkResponse();
+        try {
+            servlet.service(request.getRequest(), response.getResponse());
+        } catch (ServletException ex) {
+            throw new IOException(ex.toString());
+        }
+        if (response.getStatus() != HttpServletResponse.SC_OK) {
+            throw new IOException("Request failed with status " + response.getStatus() + ": " + response.getBodyText());
+        }
+        lastResponseSize = response.getBody().length;
+        return response.getBodyText();
+    }
+}
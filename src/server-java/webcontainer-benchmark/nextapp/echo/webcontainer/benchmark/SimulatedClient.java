@@ -0,0 +1,211 @@
+/* 
+ * This file is part of the Echo Web Application Framework (hereinafter "Echo").
+ * Copyright (C) 2002-2009 NextApp, Inc.
+ *
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ */
+
+package nextapp.echo.webcontainer.benchmark;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+
+import nextapp.echo.webcontainer.util.Histogram;
+
+/**
+ * A simulated user of an Echo application, which speaks the synchronization and asynchronous monitoring
+ * protocols directly.
+ * <p>
+ * The client tracks the component hierarchy rendered by the server (see <code>ComponentTracker</code>), and
+ * repeatedly performs a randomly selected operation: firing an action event from a button, updating the
+ * text of a text component, or polling the asynchronous monitoring service (synchronizing if the
+ * server requests it).  Latency of each request is recorded in a shared <code>Histogram</code>.
+ */
+public class SimulatedClient 
+implements Runnable {
+    
+    /** Client component types which fire action events. */
+    private static final String[] ACTION_TYPES = { "B", "Button" };
+    
+    /** Client component types which have an editable "text" property. */
+    private static final String[] TEXT_TYPES = { "RTF", "TextField", "RTA", "TextArea" };
+    
+    /** Percentage of operations which fire action events. */
+    private static final int ACTION_PERCENT = 50;
+    
+    /** Percentage of operations which update text properties. */
+    private static final int TEXT_PERCENT = 30;
+    
+    /** The driver. */
+    private SyncDriver driver;
+    
+    /** The component tracker. */
+    private ComponentTracker tracker = new ComponentTracker();
+    
+    /** The random number generator. */
+    private Random random;
+    
+    /** Histogram to which request latencies (nanoseconds) are recorded. */
+    private Histogram latency;
+    
+    /** The think time between operations, in milliseconds. */
+    private int thinkTime;
+    
+    /** The time at which the client should stop, as returned by <code>System.currentTimeMillis()</code>. */
+    private long endTime;
+    
+    /** The number of failed requests. */
+    private int errorCount;
+    
+    /** The most recent failure, or null. */
+    private IOException lastError;
+    
+    /**
+     * Creates a new <code>SimulatedClient</code>.
+     * 
+     * @param transport the transport through which requests are sent
+     * @param latency the histogram to which request latencies (nanoseconds) are recorded
+     * @param thinkTime the think time between operations, in milliseconds
+     * @param seed the random seed
+     */
+    public SimulatedClient(Transport transport, Histogram latency, int thinkTime, long seed) {
+        super();
+        driver = new SyncDriver(transport);
+        this.latency = latency;
+        this.thinkTime = thinkTime;
+        random = new Random(seed);
+    }
+    
+    /**
+     * Returns the number of failed requests.
+     * 
+     * @return the error count
+     */
+    public int getErrorCount() {
+        return errorCount;
+    }
+    
+    /**
+     * Returns the most recent request failure.
+     * 
+     * @return the failure, or null if no request has failed
+     */
+    public IOException getLastError() {
+        return lastError;
+    }
+    
+    /**
+     * Loads the application and performs the initial synchronization.
+     * 
+     * @throws IOException
+     */
+    public void initialize() 
+    throws IOException {
+        String initId = driver.loadDocument();
+        tracker.process(driver.initialize(initId));
+    }
+    
+    /**
+     * Performs a single randomly selected operation.
+     * 
+     * @throws IOException
+     */
+    private void performOperation() 
+    throws IOException {
+        int operation = random.nextInt(100);
+        if (operation < ACTION_PERCENT) {
+            String id = select(tracker.getComponentIds(ACTION_TYPES));
+            if (id != null) {
+                long start = Measurement.nanoTime();
+                String serverMessage = driver.action(id);
+                latency.record(Measurement.nanoTime() - start);
+                tracker.process(serverMessage);
+                return;
+            }
+        } else if (operation < ACTION_PERCENT + TEXT_PERCENT) {
+            String id = select(tracker.getComponentIds(TEXT_TYPES));
+            if (id != null) {
+                long start = Measurement.nanoTime();
+                String serverMessage = driver.update(id, "text", "Input " + random.nextInt(10000));
+                latency.record(Measurement.nanoTime() - start);
+                tracker.process(serverMessage);
+                return;
+            }
+        }
+        
+        long start = Measurement.nanoTime();
+        boolean syncRequired = driver.poll();
+        latency.record(Measurement.nanoTime() - start);
+        if (syncRequired) {
+            start = Measurement.nanoTime();
+            String serverMessage = driver.sync("", driver.getTransactionId());
+            latency.record(Measurement.nanoTime() - start);
+            tracker.process(serverMessage);
+        }
+    }
+    
+    /**
+     * Performs operations until the end time is reached.
+     * 
+     * @see java.lang.Runnable#run()
+     */
+    public void run() {
+        while (System.currentTimeMillis() < endTime) {
+            try {
+                performOperation();
+            } catch (IOException ex) {
+                ++errorCount;
+                lastError = ex;
+            }
+            if (thinkTime > 0) {
+                try {
+                    Thread.sleep(thinkTime / 2 + random.nextInt(thinkTime + 1));
+                } catch (InterruptedException ex) {
+                    return;
+                }
+            }
+        }
+    }
+    
+    /**
+     * Selects a random element of a list.
+     * 
+     * @param ids the list
+     * @return the selected element, or null if the list is empty
+     */
+    private String select(List ids) {
+        return ids.size() == 0 ? null : (String) ids.get(random.nextInt(ids.size()));
+    }
+    
+    /**
+     * Sets the time at which <code>run()</code> should return.
+     * 
+     * @param newValue the end time, as returned by <code>System.currentTimeMillis()</code>
+     */
+    public void setEndTime(long newValue) {
+        endTime = newValue;
+    }
+}
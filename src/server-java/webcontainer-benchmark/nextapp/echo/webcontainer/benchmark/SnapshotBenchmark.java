@@ -0,0 +1,256 @@
+/* 
+ * This file is part of the Echo Web Application Framework (hereinafter "Echo").
+ * Copyright (C) 2002-2009 NextApp, Inc.
+ *
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ */
+
+package nextapp.echo.webcontainer.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import nextapp.echo.app.ApplicationInstance;
+import nextapp.echo.app.util.Snapshot;
+
+/**
+ * Benchmark of user instance serialization, comparing <code>Snapshot</code>s with default Java serialization.
+ * <p>
+ * Serializes the <code>ApplicationInstance</code> of each scenario (as used by <code>SyncBenchmark</code>) and 
+ * reports latency percentiles, serialized size, and allocation per operation for writing and reading it in 
+ * either form.
+ * <p>
+ * Usage: <code>SnapshotBenchmark [-warmup n] [-iterations n] [-csv] [Table|Column|WindowPane ...]</code>
+ */
+public class SnapshotBenchmark {
+    
+    /**
+     * Entry point.
+     * 
+     * @param arguments command line arguments
+     * @throws Exception
+     */
+    public static void main(String[] arguments) 
+    throws Exception {
+        SnapshotBenchmark benchmark = new SnapshotBenchmark();
+        List scenarios = new ArrayList();
+        boolean csv = false;
+        for (int i = 0; i < arguments.length; ++i) {
+            if ("-warmup".equals(arguments[i])) {
+                benchmark.setWarmupIterations(Integer.parseInt(arguments[++i]));
+            } else if ("-iterations".equals(arguments[i])) {
+                benchmark.setIterations(Integer.parseInt(arguments[++i]));
+            } else if ("-csv".equals(arguments[i])) {
+                csv = true;
+            } else {
+                scenarios.add(arguments[i]);
+            }
+        }
+        if (scenarios.size() == 0) {
+            for (int i = 0; i < SyncBenchmark.SCENARIO_NAMES.length; ++i) {
+                scenarios.add(SyncBenchmark.SCENARIO_NAMES[i]);
+            }
+        }
+        
+        List measurements = new ArrayList();
+        for (int i = 0; i < scenarios.size(); ++i) {
+            String name = (String) scenarios.get(i);
+            Measurement[] results = benchmark.run(name, SyncBenchmark.getScenarioClass(name));
+            for (int j = 0; j < results.length; ++j) {
+                measurements.add(results[j]);
+            }
+        }
+        
+        Measurement[] results = (Measurement[]) measurements.toArray(new Measurement[measurements.size()]);
+        if (csv) {
+            SyncBenchmark.printCsv(System.out, results);
+        } else {
+            SyncBenchmark.printTable(System.out, results);
+        }
+    }
+    
+    /**
+     * Reads an object written with default Java serialization.
+     * 
+     * @param data the serialized object
+     * @return the object
+     * @throws IOException
+     * @throws ClassNotFoundException
+     */
+    private static Object deserialize(byte[] data) 
+    throws IOException, ClassNotFoundException {
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(data));
+        try {
+            return in.readObject();
+        } finally {
+            in.close();
+        }
+    }
+    
+    /**
+     * Writes an object with default Java serialization.
+     * 
+     * @param value the object
+     * @return the serialized object
+     * @throws IOException
+     */
+    private static byte[] serialize(Object value) 
+    throws IOException {
+        ByteArrayOutputStream byteOut = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(byteOut);
+        out.writeObject(value);
+        out.close();
+        return byteOut.toByteArray();
+    }
+    
+    /** Number of untimed warm-up iterations per operation. */
+    private int warmupIterations = 200;
+    
+    /** Number of timed iterations per operation. */
+    private int iterations = 500;
+    
+    /**
+     * Creates a new <code>SnapshotBenchmark</code>.
+     */
+    public SnapshotBenchmark() {
+        super();
+    }
+    
+    /**
+     * Measures reading an application from serialized form.
+     * 
+     * @param scenario the scenario name
+     * @param operation the operation name
+     * @param data the serialized application
+     * @param snapshot true if <code>data</code> is a <code>Snapshot</code>, false if it was written with default
+     *        Java serialization
+     * @return the measurement
+     * @throws IOException
+     * @throws ClassNotFoundException
+     */
+    private Measurement measureRead(String scenario, String operation, byte[] data, boolean snapshot) 
+    throws IOException, ClassNotFoundException {
+        Measurement measurement = new Measurement(scenario, operation, iterations);
+        for (int i = -warmupIterations; i < iterations; ++i) {
+            long allocation = Measurement.allocatedBytes();
+            long start = Measurement.nanoTime();
+            if (snapshot) {
+                Snapshot.read(data, null);
+            } else {
+                deserialize(data);
+            }
+            long latency = Measurement.nanoTime() - start;
+            if (i >= 0) {
+                measurement.record(latency, allocation < 0 ? -1 : Measurement.allocatedBytes() - allocation, 
+                        data.length);
+            }
+        }
+        return measurement;
+    }
+    
+    /**
+     * Measures writing an application in serialized form.
+     * 
+     * @param scenario the scenario name
+     * @param operation the operation name
+     * @param app the application
+     * @param snapshot true to write a <code>Snapshot</code>, false to use default Java serialization
+     * @return the measurement
+     * @throws IOException
+     */
+    private Measurement measureWrite(String scenario, String operation, ApplicationInstance app, boolean snapshot) 
+    throws IOException {
+        Measurement measurement = new Measurement(scenario, operation, iterations);
+        for (int i = -warmupIterations; i < iterations; ++i) {
+            long allocation = Measurement.allocatedBytes();
+            long start = Measurement.nanoTime();
+            byte[] data = snapshot ? Snapshot.write(app, null) : serialize(app);
+            long latency = Measurement.nanoTime() - start;
+            if (i >= 0) {
+                measurement.record(latency, allocation < 0 ? -1 : Measurement.allocatedBytes() - allocation, 
+                        data.length);
+            }
+        }
+        return measurement;
+    }
+    
+    /**
+     * Runs all operations of a scenario.
+     * Scenarios whose component hierarchies are not serializable are skipped.
+     * 
+     * @param scenario the scenario name
+     * @param applicationClass the <code>BenchmarkApp</code> class
+     * @return the measurements
+     * @throws Exception
+     */
+    public Measurement[] run(String scenario, Class applicationClass) 
+    throws Exception {
+        BenchmarkApp app = (BenchmarkApp) applicationClass.newInstance();
+        ApplicationInstance.setActive(app);
+        try {
+            app.doInit();
+        } finally {
+            ApplicationInstance.setActive(null);
+        }
+        
+        try {
+            serialize(app);
+        } catch (NotSerializableException ex) {
+            System.err.println("Skipping scenario " + scenario + ", not serializable: " + ex.getMessage());
+            return new Measurement[0];
+        }
+        
+        Measurement serialize = measureWrite(scenario, "serialize", app, false);
+        Measurement deserialize = measureRead(scenario, "deserialize", serialize(app), false);
+        Measurement snapshot = measureWrite(scenario, "snapshot", app, true);
+        Measurement restore = measureRead(scenario, "restore", Snapshot.write(app, null), true);
+        
+        return new Measurement[] { serialize, deserialize, snapshot, restore };
+    }
+    
+    /**
+     * Sets the number of timed iterations per operation.
+     * 
+     * @param newValue the new number of iterations
+     */
+    public void setIterations(int newValue) {
+        iterations = newValue;
+    }
+    
+    /**
+     * Sets the number of untimed warm-up iterations per operation.
+     * 
+     * @param newValue the new number of iterations
+     */
+    public void setWarmupIterations(int newValue) {
+        warmupIterations = newValue;
+    }
+}
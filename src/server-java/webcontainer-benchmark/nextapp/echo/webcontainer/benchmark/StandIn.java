@@ -0,0 +1,128 @@
+/* 
+ * This file is part of the Echo Web Application Framework (hereinafter "Echo").
+ * Copyright (C) 2002-2009 NextApp, Inc.
+ *
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ */
+
+package nextapp.echo.webcontainer.benchmark;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Base class for in-memory stand-ins of Servlet API interfaces.
+ * <p>
+ * A stand-in is exposed as a dynamic proxy implementing the target interface, such that it is
+ * independent of the Servlet API version against which it is compiled.  Invocations are dispatched to 
+ * public methods of the stand-in with identical signatures; methods not provided by the stand-in 
+ * return null, zero or false.
+ */
+abstract class StandIn 
+implements InvocationHandler {
+    
+    /** Mapping between interface <code>Method</code>s and implementing <code>Method</code>s of the stand-in. */
+    private Map methodMap = new HashMap();
+    
+    /** The proxy. */
+    private Object proxy;
+    
+    /**
+     * Creates a new <code>StandIn</code>.
+     * 
+     * @param interfaceClass the interface which the proxy should implement
+     */
+    StandIn(Class interfaceClass) {
+        super();
+        proxy = Proxy.newProxyInstance(interfaceClass.getClassLoader(), new Class[]{ interfaceClass }, this);
+    }
+    
+    /**
+     * Returns the default value for a method return type.
+     * 
+     * @param returnType the return type
+     * @return the default value
+     */
+    private static Object getDefaultValue(Class returnType) {
+        if (!returnType.isPrimitive() || returnType == Void.TYPE) {
+            return null;
+        } else if (returnType == Boolean.TYPE) {
+            return Boolean.FALSE;
+        } else if (returnType == Character.TYPE) {
+            return new Character((char) 0);
+        } else if (returnType == Long.TYPE) {
+            return new Long(0);
+        } else if (returnType == Float.TYPE) {
+            return new Float(0);
+        } else if (returnType == Double.TYPE) {
+            return new Double(0);
+        } else if (returnType == Byte.TYPE) {
+            return new Byte((byte) 0);
+        } else if (returnType == Short.TYPE) {
+            return new Short((short) 0);
+        } else {
+            return new Integer(0);
+        }
+    }
+    
+    /**
+     * Returns the proxy, which implements the target interface.
+     * 
+     * @return the proxy
+     */
+    Object getProxy() {
+        return proxy;
+    }
+    
+    /**
+     * @see java.lang.reflect.InvocationHandler#invoke(java.lang.Object, java.lang.reflect.Method, java.lang.Object[])
+     */
+    public Object invoke(Object proxy, Method method, Object[] arguments) 
+    throws Throwable {
+        Method implementation;
+        if (methodMap.containsKey(method)) {
+            implementation = (Method) methodMap.get(method);
+        } else {
+            try {
+                implementation = getClass().getMethod(method.getName(), method.getParameterTypes());
+            } catch (NoSuchMethodException ex) {
+                implementation = null;
+            }
+            methodMap.put(method, implementation);
+        }
+        if (implementation == null) {
+            return getDefaultValue(method.getReturnType());
+        }
+        try {
+            return implementation.invoke(this, arguments);
+        } catch (InvocationTargetException ex) {
+            throw ex.getTargetException();
+        }
+    }
+}
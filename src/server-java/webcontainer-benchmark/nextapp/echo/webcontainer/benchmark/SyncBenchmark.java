@@ -0,0 +1,310 @@
+/* 
+ * This file is part of the Echo Web Application Framework (hereinafter "Echo").
+ * Copyright (C) 2002-2009 NextApp, Inc.
+ *
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ */
+
+package nextapp.echo.webcontainer.benchmark;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.servlet.ServletException;
+
+/**
+ * Headless end-to-end synchronization benchmark.
+ * <p>
+ * Drives <code>WebContainerServlet</code> through the complete request/response path (client message
+ * parsing, input processing, update management, rendering, and server message serialization) using
+ * in-memory servlet stand-ins, and reports latency percentiles, response size, and allocation per 
+ * operation for each scenario.
+ * <p>
+ * Usage: <code>SyncBenchmark [-warmup n] [-iterations n] [-csv] [Table|Column|WindowPane ...]</code>
+ */
+public class SyncBenchmark {
+    
+    /** Available scenario names. */
+    static final String[] SCENARIO_NAMES = { "Table", "Column", "WindowPane" };
+    
+    /** Application classes corresponding to <code>SCENARIO_NAMES</code>. */
+    private static final Class[] SCENARIO_CLASSES = { TableBenchmarkApp.class, ColumnBenchmarkApp.class, 
+            WindowPaneBenchmarkApp.class };
+    
+    /**
+     * Returns the application class for the specified scenario name.
+     * 
+     * @param name the scenario name
+     * @return the application class
+     * @throws IllegalArgumentException if the scenario does not exist
+     */
+    static Class getScenarioClass(String name) {
+        for (int i = 0; i < SCENARIO_NAMES.length; ++i) {
+            if (SCENARIO_NAMES[i].equals(name)) {
+                return SCENARIO_CLASSES[i];
+            }
+        }
+        throw new IllegalArgumentException("Unknown scenario: " + name);
+    }
+    
+    /**
+     * Entry point.
+     * 
+     * @param arguments command line arguments
+     * @throws Exception
+     */
+    public static void main(String[] arguments) 
+    throws Exception {
+        SyncBenchmark benchmark = new SyncBenchmark();
+        List scenarios = new ArrayList();
+        boolean csv = false;
+        for (int i = 0; i < arguments.length; ++i) {
+            if ("-warmup".equals(arguments[i])) {
+                benchmark.setWarmupIterations(Integer.parseInt(arguments[++i]));
+            } else if ("-iterations".equals(arguments[i])) {
+                benchmark.setIterations(Integer.parseInt(arguments[++i]));
+            } else if ("-csv".equals(arguments[i])) {
+                csv = true;
+            } else {
+                scenarios.add(arguments[i]);
+            }
+        }
+        if (scenarios.size() == 0) {
+            for (int i = 0; i < SCENARIO_NAMES.length; ++i) {
+                scenarios.add(SCENARIO_NAMES[i]);
+            }
+        }
+        
+        List measurements = new ArrayList();
+        for (int i = 0; i < scenarios.size(); ++i) {
+            String name = (String) scenarios.get(i);
+            Measurement[] results = benchmark.run(name, getScenarioClass(name));
+            for (int j = 0; j < results.length; ++j) {
+                measurements.add(results[j]);
+            }
+        }
+        
+        Measurement[] results = (Measurement[]) measurements.toArray(new Measurement[measurements.size()]);
+        if (csv) {
+            printCsv(System.out, results);
+        } else {
+            printTable(System.out, results);
+        }
+    }
+    
+    /**
+     * Prints measurements as comma-separated values.
+     * 
+     * @param out the output stream
+     * @param measurements the measurements
+     */
+    static void printCsv(PrintStream out, Measurement[] measurements) {
+        out.println("scenario,operation,samples,mean_us,p50_us,p90_us,p99_us,max_us,bytes_per_op,alloc_per_op");
+        for (int i = 0; i < measurements.length; ++i) {
+            Measurement m = measurements[i];
+            out.println(m.getScenario() + "," + m.getOperation() + "," + m.getSampleCount() + "," 
+                    + toMicros(m.getMeanLatency()) + "," + toMicros(m.getPercentileLatency(50)) + ","
+                    + toMicros(m.getPercentileLatency(90)) + "," + toMicros(m.getPercentileLatency(99)) + ","
+                    + toMicros(m.getPercentileLatency(100)) + "," + m.getMeanBytes() + "," + m.getMeanAllocation());
+        }
+    }
+    
+    /**
+     * Prints measurements as a human-readable table.
+     * 
+     * @param out the output stream
+     * @param measurements the measurements
+     */
+    static void printTable(PrintStream out, Measurement[] measurements) {
+        out.println(pad("Scenario", 12) + pad("Operation", 13) + pad("Samples", 9) + pad("Mean(us)", 10) 
+                + pad("p50(us)", 10) + pad("p90(us)", 10) + pad("p99(us)", 10) + pad("Max(us)", 10) 
+                + pad("Bytes/op", 10) + "Alloc/op");
+        for (int i = 0; i < measurements.length; ++i) {
+            Measurement m = measurements[i];
+            long allocation = m.getMeanAllocation();
+            out.println(pad(m.getScenario(), 12) + pad(m.getOperation(), 13) + pad(String.valueOf(m.getSampleCount()), 9)
+                    + pad(toMicros(m.getMeanLatency()), 10) + pad(toMicros(m.getPercentileLatency(50)), 10)
+                    + pad(toMicros(m.getPercentileLatency(90)), 10) + pad(toMicros(m.getPercentileLatency(99)), 10)
+                    + pad(toMicros(m.getPercentileLatency(100)), 10) + pad(String.valueOf(m.getMeanBytes()), 10)
+                    + (allocation < 0 ? "n/a" : String.valueOf(allocation)));
+        }
+    }
+    
+    /**
+     * Pads a string with trailing spaces.
+     * 
+     * @param value the string
+     * @param width the minimum width
+     * @return the padded string
+     */
+    private static String pad(String value, int width) {
+        StringBuffer out = new StringBuffer(value);
+        do {
+            out.append(' ');
+        } while (out.length() < width);
+        return out.toString();
+    }
+    
+    /**
+     * Converts a nanosecond value to a microsecond string.
+     * 
+     * @param nanos the value, in nanoseconds
+     * @return the value, in microseconds
+     */
+    private static String toMicros(long nanos) {
+        return String.valueOf(nanos / 1000);
+    }
+    
+    /** Number of untimed warm-up iterations per operation. */
+    private int warmupIterations = 200;
+    
+    /** Number of timed iterations per operation. */
+    private int iterations = 500;
+    
+    /**
+     * Creates a new <code>SyncBenchmark</code>.
+     */
+    public SyncBenchmark() {
+        super();
+    }
+    
+    /**
+     * Measures the initial synchronization of new user instances.
+     * 
+     * @param scenario the scenario name
+     * @param servlet the servlet
+     * @return the measurement
+     * @throws IOException
+     */
+    private Measurement measureInit(String scenario, BenchmarkServlet servlet)
+    throws IOException {
+        Measurement measurement = new Measurement(scenario, "init", iterations);
+        for (int i = -warmupIterations; i < iterations; ++i) {
+            SyncDriver driver = new SyncDriver(servlet);
+            String initId = driver.loadDocument();
+            long allocation = Measurement.allocatedBytes();
+            long start = Measurement.nanoTime();
+            driver.initialize(initId);
+            long latency = Measurement.nanoTime() - start;
+            if (i >= 0) {
+                measurement.record(latency, allocation < 0 ? -1 : Measurement.allocatedBytes() - allocation, 
+                        driver.getLastResponseSize());
+            }
+        }
+        return measurement;
+    }
+    
+    /**
+     * Measures synchronizations of a client which is out of sync, which result in a full refresh.
+     * 
+     * @param scenario the scenario name
+     * @param driver an initialized driver
+     * @return the measurement
+     * @throws IOException
+     */
+    private Measurement measureRefresh(String scenario, SyncDriver driver)
+    throws IOException {
+        Measurement measurement = new Measurement(scenario, "refresh", iterations);
+        for (int i = -warmupIterations; i < iterations; ++i) {
+            long allocation = Measurement.allocatedBytes();
+            long start = Measurement.nanoTime();
+            driver.refresh();
+            long latency = Measurement.nanoTime() - start;
+            if (i >= 0) {
+                measurement.record(latency, allocation < 0 ? -1 : Measurement.allocatedBytes() - allocation, 
+                        driver.getLastResponseSize());
+            }
+        }
+        return measurement;
+    }
+    
+    /**
+     * Measures incremental synchronizations, in which a client action results in a small update.
+     * 
+     * @param scenario the scenario name
+     * @param driver an initialized driver
+     * @param app the application instance associated with <code>driver</code>
+     * @return the measurement
+     * @throws IOException
+     */
+    private Measurement measureIncremental(String scenario, SyncDriver driver, BenchmarkApp app)
+    throws IOException {
+        Measurement measurement = new Measurement(scenario, "incremental", iterations);
+        for (int i = -warmupIterations; i < iterations; ++i) {
+            long allocation = Measurement.allocatedBytes();
+            long start = Measurement.nanoTime();
+            driver.action(app.getUpdateButton());
+            long latency = Measurement.nanoTime() - start;
+            if (i >= 0) {
+                measurement.record(latency, allocation < 0 ? -1 : Measurement.allocatedBytes() - allocation, 
+                        driver.getLastResponseSize());
+            }
+        }
+        return measurement;
+    }
+    
+    /**
+     * Runs all operations of a scenario.
+     * 
+     * @param scenario the scenario name
+     * @param applicationClass the <code>BenchmarkApp</code> class
+     * @return the measurements
+     * @throws IOException
+     * @throws ServletException
+     */
+    public Measurement[] run(String scenario, Class applicationClass) 
+    throws IOException, ServletException {
+        BenchmarkServlet servlet = new BenchmarkServlet(applicationClass);
+        Measurement init = measureInit(scenario, servlet);
+        
+        SyncDriver driver = new SyncDriver(servlet);
+        driver.initialize(driver.loadDocument());
+        BenchmarkApp app = servlet.getLastApplication();
+        Measurement refresh = measureRefresh(scenario, driver);
+        Measurement incremental = measureIncremental(scenario, driver, app);
+        
+        return new Measurement[] { init, refresh, incremental };
+    }
+    
+    /**
+     * Sets the number of timed iterations per operation.
+     * 
+     * @param newValue the new number of iterations
+     */
+    public void setIterations(int newValue) {
+        iterations = newValue;
+    }
+    
+    /**
+     * Sets the number of untimed warm-up iterations per operation.
+     * 
+     * @param newValue the new number of iterations
+     */
+    public void setWarmupIterations(int newValue) {
+        warmupIterations = newValue;
+    }
+}
@@ -0,0 +1,266 @@
+/* 
+ * This file is part of the Echo Web Application Framework (hereinafter "Echo").
+ * Copyright (C) 2002-2009 NextApp, Inc.
+ *
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ */
+
+package nextapp.echo.webcontainer.benchmark;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import nextapp.echo.app.Component;
+import nextapp.echo.webcontainer.WebContainerServlet;
+
+/**
+ * Drives the synchronization process of an Echo application for a single simulated client, 
+ * sending scripted client messages through a <code>Transport</code>.
+ * Responses are not interpreted beyond retrieving the transaction id.
+ */
+public class SyncDriver {
+    
+    /** Client message namespace. */
+    private static final String CLIENT_MESSAGE_NAMESPACE = "http://www.nextapp.com/products/echo/svrmsg/clientmessage.3.0";
+    
+    /** The simulated client's window id. */
+    private static final String WINDOW_ID = "benchmark";
+
+    /** Pattern used to retrieve the initial request id from the application's HTML document. */
+    private static final Pattern INIT_ID_PATTERN = Pattern.compile("Echo\\.Boot\\.boot\\('[^']*', '([^']*)'");
+    
+    /** Pattern used to retrieve the transaction id from a server message. */
+    private static final Pattern TRANSACTION_ID_PATTERN = Pattern.compile("<smsg[^>]*\\si=\"(\\d+)\"");
+
+    /** Client properties directive sent with the initial synchronization. */
+    private static final String CLIENT_PROPERTIES_DIRECTIVE = "<dir proc=\"ClientProperties\">"
+            + "<p n=\"screenWidth\">1280</p><p n=\"screenHeight\">1024</p><p n=\"screenColorDepth\">24</p>"
+            + "<p n=\"utcOffset\">0</p><p n=\"navigatorAppName\">Netscape</p>"
+            + "<p n=\"navigatorUserAgent\">Echo3Benchmark</p><p n=\"browserMozillaFirefox\">true</p>"
+            + "<p n=\"browserMozilla\">true</p><p n=\"browserVersionMajor\">3</p><p n=\"browserVersionMinor\">0</p>"
+            + "<p n=\"engineGecko\">true</p><p n=\"engineVersionMajor\">1</p><p n=\"engineVersionMinor\">9</p>"
+            + "</dir>";
+    
+    /** Id of the synchronization service. */
+    private static final String SYNC_SERVICE_ID = "Echo.Sync";
+    
+    /** Id of the asynchronous monitoring service. */
+    private static final String ASYNC_MONITOR_SERVICE_ID = "Echo.AsyncMonitor";
+    
+    /**
+     * Escapes XML special characters in a string.
+     * 
+     * @param text the string
+     * @return the escaped string
+     */
+    private static String escape(String text) {
+        StringBuffer out = new StringBuffer(text.length());
+        for (int i = 0; i < text.length(); ++i) {
+            char ch = text.charAt(i);
+            switch (ch) {
+            case '<': out.append("&lt;"); break;
+            case '>': out.append("&gt;"); break;
+            case '&': out.append("&amp;"); break;
+            case '"': out.append("&quot;"); break;
+            default: out.append(ch);
+            }
+        }
+        return out.toString();
+    }
+    
+    /** The transport. */
+    private Transport transport;
+    
+    /** The current transaction id. */
+    private String transactionId = "0";
+    
+    /**
+     * Creates a new <code>SyncDriver</code> which invokes a servlet in-process.
+     * 
+     * @param servlet the servlet to drive
+     */
+    public SyncDriver(WebContainerServlet servlet) {
+        this(new ServletTransport(servlet));
+    }
+    
+    /**
+     * Creates a new <code>SyncDriver</code>.
+     * 
+     * @param transport the transport through which requests are sent
+     */
+    public SyncDriver(Transport transport) {
+        super();
+        this.transport = transport;
+    }
+    
+    /**
+     * Performs a synchronization in which the specified component fires an action event.
+     * 
+     * @param component the component
+     * @return the server message
+     * @throws IOException
+     */
+    public String action(Component component) 
+    throws IOException {
+        return action("C." + component.getRenderId());
+    }
+    
+    /**
+     * Performs a synchronization in which the specified component fires an action event.
+     * 
+     * @param clientRenderId the client render id of the component
+     * @return the server message
+     * @throws IOException
+     */
+    public String action(String clientRenderId) 
+    throws IOException {
+        return sync("<dir proc=\"CSync\"><e t=\"action\" i=\"" + clientRenderId + "\"/></dir>", transactionId);
+    }
+    
+    /**
+     * Returns the size, in bytes, of the most recent response.
+     * 
+     * @return the size
+     */
+    public int getLastResponseSize() {
+        return transport.getLastResponseSize();
+    }
+    
+    /**
+     * Returns the current transaction id, i.e., the id of the most recently received server message.
+     * 
+     * @return the transaction id
+     */
+    public String getTransactionId() {
+        return transactionId;
+    }
+    
+    /**
+     * Performs the initial synchronization.
+     * 
+     * @param initId the initial request id, as returned by <code>loadDocument()</code>
+     * @return the server message
+     * @throws IOException
+     */
+    public String initialize(String initId) 
+    throws IOException {
+        return post("<cmsg xmlns=\"" + CLIENT_MESSAGE_NAMESPACE + "\" t=\"init\" w=\"" + WINDOW_ID + "\" ii=\"" 
+                + initId + "\" i=\"0\">" + CLIENT_PROPERTIES_DIRECTIVE + "<dir proc=\"CSync\"/></cmsg>");
+    }
+    
+    /**
+     * Retrieves the application's HTML document, creating the session.
+     * 
+     * @return the initial request id, to be provided to <code>initialize()</code>
+     * @throws IOException
+     */
+    public String loadDocument() 
+    throws IOException {
+        String html = transport.get(null);
+        Matcher matcher = INIT_ID_PATTERN.matcher(html);
+        if (!matcher.find()) {
+            throw new IOException("Initial request id not found in HTML document.");
+        }
+        return matcher.group(1);
+    }
+    
+    /**
+     * Posts a client message to the synchronization service.
+     * 
+     * @param clientMessage the client message
+     * @return the server message
+     * @throws IOException
+     */
+    private String post(String clientMessage) 
+    throws IOException {
+        byte[] body;
+        try {
+            body = clientMessage.getBytes("UTF-8");
+        } catch (UnsupportedEncodingException ex) {
+            throw new RuntimeException(ex.toString());
+        }
+        String serverMessage = transport.post(SYNC_SERVICE_ID, body, "text/xml; charset=UTF-8");
+        Matcher matcher = TRANSACTION_ID_PATTERN.matcher(serverMessage);
+        if (!matcher.find()) {
+            throw new IOException("Transaction id not found in server message.");
+        }
+        transactionId = matcher.group(1);
+        return serverMessage;
+    }
+    
+    /**
+     * Polls the asynchronous monitoring service.
+     * 
+     * @return true if the server requests a synchronization, i.e., asynchronous tasks are queued
+     * @throws IOException
+     */
+    public boolean poll() 
+    throws IOException {
+        return transport.get(ASYNC_MONITOR_SERVICE_ID).indexOf("request-sync=\"true\"") != -1;
+    }
+    
+    /**
+     * Performs a synchronization from an out-of-sync client, which results in a full refresh 
+     * of the client.
+     * 
+     * @return the server message
+     * @throws IOException
+     */
+    public String refresh() 
+    throws IOException {
+        return sync("", "-1");
+    }
+    
+    /**
+     * Performs a synchronization.
+     * 
+     * @param directives the client message directives
+     * @param clientTransactionId the transaction id reported by the client
+     * @return the server message
+     * @throws IOException
+     */
+    public String sync(String directives, String clientTransactionId) 
+    throws IOException {
+        return post("<cmsg xmlns=\"" + CLIENT_MESSAGE_NAMESPACE + "\" w=\"" + WINDOW_ID + "\" i=\"" 
+                + clientTransactionId + "\">" + directives + "</cmsg>");
+    }
+    
+    /**
+     * Performs a synchronization in which the specified component updates a property.
+     * 
+     * @param clientRenderId the client render id of the component
+     * @param propertyName the name of the property
+     * @param value the new property value
+     * @return the server message
+     * @throws IOException
+     */
+    public String update(String clientRenderId, String propertyName, String value) 
+    throws IOException {
+        return sync("<dir proc=\"CSync\"><p i=\"" + clientRenderId + "\" n=\"" + propertyName + "\">" + escape(value) 
+                + "</p></dir>", transactionId);
+    }
+}
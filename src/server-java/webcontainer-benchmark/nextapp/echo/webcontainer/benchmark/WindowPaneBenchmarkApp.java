@@ -0,0 +1,83 @@
+/* 
+ * This file is part of the Echo Web Application Framework (hereinafter "Echo").
+ * Copyright (C) 2002-2009 NextApp, Inc.
+ *
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ */
+
+package nextapp.echo.webcontainer.benchmark;
+
+import nextapp.echo.app.Button;
+import nextapp.echo.app.Column;
+import nextapp.echo.app.ContentPane;
+import nextapp.echo.app.Extent;
+import nextapp.echo.app.Label;
+import nextapp.echo.app.TextField;
+import nextapp.echo.app.WindowPane;
+
+/**
+ * Benchmark application containing many <code>WindowPane</code>s.
+ * Updates move and retitle a single <code>WindowPane</code>.
+ */
+public class WindowPaneBenchmarkApp extends BenchmarkApp {
+
+    /** Serial Version UID. */
+    private static final long serialVersionUID = 20070101L;
+    
+    /** Number of <code>WindowPane</code>s. */
+    private static final int WINDOW_PANES = 40;
+    
+    /** The <code>WindowPane</code>s. */
+    private WindowPane[] windowPanes = new WindowPane[WINDOW_PANES];
+    
+    /**
+     * @see nextapp.echo.webcontainer.benchmark.BenchmarkApp#createContent(nextapp.echo.app.ContentPane)
+     */
+    protected void createContent(ContentPane contentPane) {
+        contentPane.add(getUpdateButton());
+        for (int i = 0; i < WINDOW_PANES; ++i) {
+            windowPanes[i] = new WindowPane("Window " + i, new Extent(300), new Extent(200));
+            windowPanes[i].setPositionX(new Extent(10 * i));
+            windowPanes[i].setPositionY(new Extent(10 * i));
+            Column column = new Column();
+            for (int j = 0; j < 5; ++j) {
+                column.add(new Label("Window " + i + " Label " + j));
+            }
+            column.add(new TextField());
+            column.add(new Button("Button " + i));
+            windowPanes[i].add(column);
+            contentPane.add(windowPanes[i]);
+        }
+    }
+
+    /**
+     * @see nextapp.echo.webcontainer.benchmark.BenchmarkApp#update(int)
+     */
+    protected void update(int updateCount) {
+        WindowPane windowPane = windowPanes[updateCount % WINDOW_PANES];
+        windowPane.setTitle("Window " + updateCount);
+        windowPane.setPositionX(new Extent(updateCount % 500));
+    }
+}
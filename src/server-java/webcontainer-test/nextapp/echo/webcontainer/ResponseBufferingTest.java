@@ -0,0 +1,342 @@
+/* 
+ * This file is part of the Echo Web Application Framework (hereinafter "Echo").
+ * Copyright (C) 2002-2009 NextApp, Inc.
+ *
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ */
+
+package nextapp.echo.webcontainer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+
+import nextapp.echo.app.ApplicationInstance;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit test for buffering of responses in <code>ResponseBufferPool</code> buffers, as performed by 
+ * <code>Connection</code> when a service enables it.
+ * Requests are processed by <code>WebContainerServlet</code> using in-memory request, response, and session 
+ * stand-ins.
+ * Resides in the <code>nextapp.echo.webcontainer</code> package in order to access package-private methods.
+ */
+public class ResponseBufferingTest extends TestCase {
+    
+    /** Size of response buffers. */
+    private static final int BUFFER_SIZE = 4096;
+    
+    /**
+     * Service which writes the number of bytes specified by the "size" request parameter to a buffered response, 
+     * and then fails if the "fail" request parameter is set.
+     */
+    private static class WriteService 
+    implements Service {
+        
+        public String getId() {
+            return "ResponseBufferingTest.Write";
+        }
+        
+        public int getVersion() {
+            return DO_NOT_CACHE;
+        }
+        
+        public void service(Connection conn) 
+        throws IOException {
+            conn.enableResponseBuffering();
+            conn.setContentType(ContentType.TEXT_PLAIN);
+            int size = Integer.parseInt(conn.getRequest().getParameter("size"));
+            OutputStream out = conn.getOutputStream();
+            for (int i = 0; i < size; ++i) {
+                out.write('a' + i % 26);
+            }
+            if (conn.getRequest().getParameter("fail") != null) {
+                throw new RuntimeException("Test failure.");
+            }
+        }
+    }
+    
+    /**
+     * Servlet with response buffering enabled.
+     */
+    private static class TestServlet extends WebContainerServlet {
+        
+        public TestServlet() {
+            super();
+            enableResponseBuffering(BUFFER_SIZE, 8);
+        }
+        
+        public String getServletName() {
+            return "ResponseBufferingTest";
+        }
+        
+        public ApplicationInstance newApplicationInstance() {
+            return null;
+        }
+    }
+    
+    /**
+     * <code>HttpServletRequest</code> stand-in.
+     */
+    private class TestRequest 
+    implements InvocationHandler {
+        
+        private Map parameters = new HashMap();
+        
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            String name = method.getName();
+            if ("getParameter".equals(name)) {
+                return parameters.get(args[0]);
+            } else if ("getSession".equals(name)) {
+                return session;
+            } else if ("getRequestURI".equals(name)) {
+                return "/test";
+            }
+            return null;
+        }
+    }
+    
+    /**
+     * <code>HttpServletResponse</code> stand-in.  
+     * The response is committed when content is written to it. 
+     */
+    private class TestResponse 
+    implements InvocationHandler {
+        
+        private ByteArrayOutputStream body = new ByteArrayOutputStream();
+        private int contentLength = -1;
+        private int status = HttpServletResponse.SC_OK;
+        private int writeCount;
+        private PrintWriter writer;
+        
+        private ServletOutputStream out = new ServletOutputStream() {
+            
+            public void write(int b) {
+                body.write(b);
+            }
+            
+            public void write(byte[] b, int off, int len) {
+                ++writeCount;
+                body.write(b, off, len);
+            }
+        };
+        
+        public Object invoke(Object proxy, Method method, Object[] args) 
+        throws IOException {
+            String name = method.getName();
+            if ("getOutputStream".equals(name)) {
+                return out;
+            } else if ("getWriter".equals(name)) {
+                if (writer == null) {
+                    writer = new PrintWriter(new OutputStreamWriter(out, "UTF-8"), true);
+                }
+                return writer;
+            } else if ("getCharacterEncoding".equals(name)) {
+                return "UTF-8";
+            } else if ("isCommitted".equals(name)) {
+                return Boolean.valueOf(body.size() > 0);
+            } else if ("reset".equals(name)) {
+                if (body.size() > 0) {
+                    throw new IllegalStateException("Response committed.");
+                }
+                contentLength = -1;
+                status = HttpServletResponse.SC_OK;
+            } else if ("setContentLength".equals(name)) {
+                contentLength = ((Integer) args[0]).intValue();
+            } else if ("setStatus".equals(name)) {
+                status = ((Integer) args[0]).intValue();
+            }
+            return null;
+        }
+        
+        private String getBody() {
+            if (writer != null) {
+                writer.flush();
+            }
+            return new String(body.toByteArray());
+        }
+    }
+    
+    /**
+     * <code>HttpSession</code> stand-in.
+     */
+    private static class TestSession 
+    implements InvocationHandler {
+        
+        private Map attributes = new HashMap();
+        
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            String name = method.getName();
+            if ("getAttribute".equals(name)) {
+                return attributes.get(args[0]);
+            } else if ("setAttribute".equals(name)) {
+                attributes.put(args[0], args[1]);
+            } else if ("getId".equals(name)) {
+                return "test";
+            }
+            return null;
+        }
+    }
+    
+    static {
+        WebContainerServlet.getServiceRegistry().add(new WriteService());
+    }
+    
+    private TestServlet servlet;
+    private HttpSession session;
+    
+    /**
+     * @see junit.framework.TestCase#setUp()
+     */
+    protected void setUp() throws Exception {
+        super.setUp();
+        servlet = new TestServlet();
+        session = (HttpSession) Proxy.newProxyInstance(HttpSession.class.getClassLoader(), 
+                new Class[] { HttpSession.class }, new TestSession());
+        
+        // Create a UserInstanceContainer, such that services are available.
+        TestRequest request = new TestRequest();
+        Connection conn = new Connection(servlet, createRequest(request), createResponse(new TestResponse()));
+        UserInstanceContainer.newInstance(conn);
+    }
+    
+    private HttpServletRequest createRequest(TestRequest request) {
+        return (HttpServletRequest) Proxy.newProxyInstance(HttpServletRequest.class.getClassLoader(), 
+                new Class[] { HttpServletRequest.class }, request);
+    }
+    
+    private HttpServletResponse createResponse(TestResponse response) {
+        return (HttpServletResponse) Proxy.newProxyInstance(HttpServletResponse.class.getClassLoader(), 
+                new Class[] { HttpServletResponse.class }, response);
+    }
+    
+    /**
+     * Processes a request for the <code>WriteService</code>.
+     */
+    private TestResponse process(int size, boolean fail) 
+    throws Exception {
+        TestRequest request = new TestRequest();
+        request.parameters.put(WebContainerServlet.SERVICE_ID_PARAMETER, new WriteService().getId());
+        request.parameters.put("size", Integer.toString(size));
+        if (fail) {
+            request.parameters.put("fail", "true");
+        }
+        TestResponse response = new TestResponse();
+        servlet.process(createRequest(request), createResponse(response));
+        return response;
+    }
+    
+    private static String expectedBody(int size) {
+        StringBuffer out = new StringBuffer();
+        for (int i = 0; i < size; ++i) {
+            out.append((char) ('a' + i % 26));
+        }
+        return out.toString();
+    }
+    
+    /**
+     * Tests that a response which fits in the buffer is written in a single write with a 
+     * <code>Content-Length</code> header.
+     */
+    public void testBufferedContentLength() 
+    throws Exception {
+        TestResponse response = process(1000, false);
+        assertEquals(HttpServletResponse.SC_OK, response.status);
+        assertEquals(1000, response.contentLength);
+        assertEquals(1, response.writeCount);
+        assertEquals(expectedBody(1000), response.getBody());
+        
+        ResponseBufferPool pool = servlet.getResponseBufferPool();
+        assertEquals(0, pool.getStreamedCount());
+        assertEquals(1, pool.getResponseSize().getCount());
+    }
+    
+    /**
+     * Tests that the buffer is returned to the pool when a response has been completed, such that it is reused
+     * by subsequent responses.
+     */
+    public void testBufferReuse() 
+    throws Exception {
+        process(1000, false);
+        process(2000, false);
+        process(BUFFER_SIZE + 1, false);
+        process(3000, false);
+        
+        ResponseBufferPool pool = servlet.getResponseBufferPool();
+        assertEquals(4, pool.getAcquiredCount());
+        assertEquals(1, pool.getAllocatedCount());
+    }
+    
+    /**
+     * Tests that a response which fails while being rendered is replaced by an error response: the buffered 
+     * partial output is never written (such that the response may be reset), and the buffer is released.
+     */
+    public void testErrorDiscardsBufferedOutput() 
+    throws Exception {
+        TestResponse response = process(1000, true);
+        assertEquals(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, response.status);
+        assertEquals(-1, response.contentLength);
+        String body = response.getBody();
+        assertTrue(body, body.startsWith("Server Exception. ID: "));
+        assertEquals(-1, body.indexOf("abc"));
+        
+        ResponseBufferPool pool = servlet.getResponseBufferPool();
+        assertEquals(0, pool.getResponseSize().getCount());
+        
+        process(1000, false);
+        assertEquals(2, pool.getAcquiredCount());
+        assertEquals(1, pool.getAllocatedCount());
+    }
+    
+    /**
+     * Tests that a response which exceeds the buffer is streamed, without a <code>Content-Length</code> header.
+     */
+    public void testStreamingPastBufferSize() 
+    throws Exception {
+        int size = BUFFER_SIZE * 2 + 100;
+        TestResponse response = process(size, false);
+        assertEquals(HttpServletResponse.SC_OK, response.status);
+        assertEquals(-1, response.contentLength);
+        assertTrue(response.writeCount > 1);
+        assertEquals(expectedBody(size), response.getBody());
+        
+        ResponseBufferPool pool = servlet.getResponseBufferPool();
+        assertEquals(1, pool.getStreamedCount());
+        assertEquals(0, pool.getResponseSize().getCount());
+    }
+}
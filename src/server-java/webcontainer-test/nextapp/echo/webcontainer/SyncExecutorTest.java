@@ -0,0 +1,327 @@
+/* 
+ * This file is part of the Echo Web Application Framework (hereinafter "Echo").
+ * Copyright (C) 2002-2009 NextApp, Inc.
+ *
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ */
+
+package nextapp.echo.webcontainer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import nextapp.echo.app.ApplicationInstance;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit test for <code>SyncExecutor</code>.
+ * Resides in the <code>nextapp.echo.webcontainer</code> package in order to test package-private lane suspension
+ * and disposal.
+ */
+public class SyncExecutorTest extends TestCase {
+    
+    /**
+     * A one-shot gate on which threads may wait.
+     */
+    private static class Gate {
+        
+        private boolean open;
+        
+        public synchronized void open() {
+            open = true;
+            notifyAll();
+        }
+        
+        public synchronized boolean await() {
+            long end = System.currentTimeMillis() + 5000;
+            while (!open) {
+                long remaining = end - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return false;
+                }
+                try {
+                    wait(remaining);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+    
+    /**
+     * Task which records its name in a shared list, optionally waiting for a gate first.
+     */
+    private static class RecordingTask 
+    implements Runnable {
+        
+        private String name;
+        private List log;
+        private Gate gate;
+        
+        public RecordingTask(String name, List log, Gate gate) {
+            this.name = name;
+            this.log = log;
+            this.gate = gate;
+        }
+        
+        public void run() {
+            if (gate != null) {
+                gate.await();
+            }
+            log.add(name);
+        }
+    }
+    
+    /**
+     * Servlet providing the worker threads.
+     */
+    private static class TestServlet extends WebContainerServlet {
+        
+        public ApplicationInstance newApplicationInstance() {
+            return null;
+        }
+    }
+    
+    private SyncExecutor executor;
+    
+    private SyncExecutor createExecutor(int threadCount, int maxLaneTasks, int maxTasks) {
+        executor = new SyncExecutor(threadCount, maxLaneTasks, maxTasks);
+        executor.start(new TestServlet());
+        return executor;
+    }
+    
+    /**
+     * @see junit.framework.TestCase#tearDown()
+     */
+    protected void tearDown() throws Exception {
+        if (executor != null) {
+            executor.dispose();
+            executor = null;
+        }
+        super.tearDown();
+    }
+    
+    /**
+     * Waits for the workers to dequeue all queued tasks.
+     */
+    private void awaitEmptyQueue() {
+        long end = System.currentTimeMillis() + 5000;
+        while (executor.getTaskCount() > 0 && System.currentTimeMillis() < end) {
+            Thread.yield();
+        }
+        assertEquals(0, executor.getTaskCount());
+    }
+    
+    /**
+     * Queues a task which opens a gate once all previously queued tasks of its lane have been executed. 
+     */
+    private Gate executeMarker(Object key) {
+        final Gate done = new Gate();
+        assertTrue(executor.execute(key, new Runnable() {
+            public void run() {
+                done.open();
+            }
+        }));
+        return done;
+    }
+    
+    /**
+     * Tests that tasks which are discarded on disposal are returned (such that their requests may be rejected) and 
+     * not executed, and that tasks submitted after disposal are rejected.
+     */
+    public void testDispose() {
+        createExecutor(1, 10, 10);
+        List log = Collections.synchronizedList(new ArrayList());
+        Gate gate = new Gate();
+        assertTrue(executor.execute("blocker", new RecordingTask("blocker", log, gate)));
+        awaitEmptyQueue();
+        
+        RecordingTask a1 = new RecordingTask("a1", log, null);
+        RecordingTask a2 = new RecordingTask("a2", log, null);
+        RecordingTask b1 = new RecordingTask("b1", log, null);
+        assertTrue(executor.execute("a", a1));
+        assertTrue(executor.execute("a", a2));
+        assertTrue(executor.execute("b", b1));
+        assertEquals(3, executor.getTaskCount());
+        
+        List discarded = executor.dispose();
+        assertEquals(3, discarded.size());
+        assertTrue(discarded.indexOf(a1) < discarded.indexOf(a2));
+        assertTrue(discarded.contains(b1));
+        assertEquals(0, executor.getTaskCount());
+        
+        assertFalse(executor.execute("a", new RecordingTask("a3", log, null)));
+        
+        gate.open();
+        long end = System.currentTimeMillis() + 5000;
+        while (log.isEmpty() && System.currentTimeMillis() < end) {
+            Thread.yield();
+        }
+        assertEquals(Collections.singletonList("blocker"), log);
+    }
+    
+    /**
+     * Tests that lanes with queued tasks are served round-robin, one task at a time.
+     */
+    public void testFairness() {
+        createExecutor(1, 10, 10);
+        List log = Collections.synchronizedList(new ArrayList());
+        Gate gate = new Gate();
+        assertTrue(executor.execute("blocker", new RecordingTask("blocker", log, gate)));
+        assertTrue(executor.execute("a", new RecordingTask("a1", log, null)));
+        assertTrue(executor.execute("a", new RecordingTask("a2", log, null)));
+        assertTrue(executor.execute("a", new RecordingTask("a3", log, null)));
+        assertTrue(executor.execute("b", new RecordingTask("b1", log, null)));
+        assertTrue(executor.execute("c", new RecordingTask("c1", log, null)));
+        assertTrue(executor.execute("b", new RecordingTask("b2", log, null)));
+        gate.open();
+        
+        assertTrue(executeMarker("a").await());
+        assertTrue(executeMarker("b").await());
+        assertTrue(executeMarker("c").await());
+        
+        List expected = new ArrayList();
+        expected.add("blocker");
+        expected.add("a1");
+        expected.add("b1");
+        expected.add("c1");
+        expected.add("a2");
+        expected.add("b2");
+        expected.add("a3");
+        assertEquals(expected, log);
+    }
+    
+    /**
+     * Tests that the tasks of a lane are executed serially, in the order in which they were submitted, even when
+     * multiple workers are available.
+     */
+    public void testLaneSerialization() {
+        createExecutor(4, 100, 1000);
+        final List log = Collections.synchronizedList(new ArrayList());
+        final int[] running = new int[1];
+        final boolean[] overlapped = new boolean[1];
+        for (int i = 0; i < 50; ++i) {
+            final Integer index = new Integer(i);
+            assertTrue(executor.execute("a", new Runnable() {
+                public void run() {
+                    synchronized (running) {
+                        if (++running[0] > 1) {
+                            overlapped[0] = true;
+                        }
+                    }
+                    Thread.yield();
+                    log.add(index);
+                    synchronized (running) {
+                        --running[0];
+                    }
+                }
+            }));
+            assertTrue(executor.execute(new Integer(i), new RecordingTask("other", new ArrayList(), null)));
+        }
+        assertTrue(executeMarker("a").await());
+        
+        assertFalse(overlapped[0]);
+        assertEquals(50, log.size());
+        for (int i = 0; i < 50; ++i) {
+            assertEquals(new Integer(i), log.get(i));
+        }
+    }
+    
+    /**
+     * Tests rejection of tasks exceeding the lane and executor limits.
+     */
+    public void testRejection() {
+        createExecutor(1, 2, 3);
+        List log = Collections.synchronizedList(new ArrayList());
+        Gate gate = new Gate();
+        assertTrue(executor.execute("blocker", new RecordingTask("blocker", log, gate)));
+        awaitEmptyQueue();
+        
+        assertTrue(executor.execute("a", new RecordingTask("a1", log, null)));
+        assertTrue(executor.execute("a", new RecordingTask("a2", log, null)));
+        assertFalse(executor.execute("a", new RecordingTask("a3", log, null)));
+        assertTrue(executor.execute("b", new RecordingTask("b1", log, null)));
+        assertFalse(executor.execute("c", new RecordingTask("c1", log, null)));
+        assertEquals(3, executor.getTaskCount());
+        assertEquals(2, executor.getRejectedCount());
+        
+        gate.open();
+        awaitEmptyQueue();
+        assertTrue(executeMarker("a").await());
+        assertTrue(executeMarker("b").await());
+        assertEquals(4, log.size());
+        assertFalse(log.contains("a3"));
+        assertFalse(log.contains("c1"));
+    }
+    
+    /**
+     * Tests that suspending the executing task of a lane allows the next task of the lane to be executed by another
+     * worker, and that the lane is served serially again once the task resumes.
+     */
+    public void testSuspendResume() {
+        createExecutor(2, 10, 10);
+        final List log = Collections.synchronizedList(new ArrayList());
+        final Gate secondDone = new Gate();
+        final Gate firstDone = new Gate();
+        final boolean[] secondRan = new boolean[1];
+        assertTrue(executor.execute("a", new Runnable() {
+            public void run() {
+                SyncExecutor.suspendLane();
+                try {
+                    secondRan[0] = secondDone.await();
+                } finally {
+                    SyncExecutor.resumeLane();
+                }
+                log.add("first");
+                firstDone.open();
+            }
+        }));
+        assertTrue(executor.execute("a", new Runnable() {
+            public void run() {
+                log.add("second");
+                secondDone.open();
+            }
+        }));
+        assertTrue(firstDone.await());
+        
+        assertTrue(secondRan[0]);
+        List expected = new ArrayList();
+        expected.add("second");
+        expected.add("first");
+        assertEquals(expected, log);
+    }
+    
+    /**
+     * Tests that suspending and resuming has no effect on a thread which is not executing a task.
+     */
+    public void testSuspendResumeWithoutExecutor() {
+        SyncExecutor.suspendLane();
+        SyncExecutor.resumeLane();
+    }
+}
@@ -0,0 +1,145 @@
+/* 
+ * This file is part of the Echo Web Application Framework (hereinafter "Echo").
+ * Copyright (C) 2002-2009 NextApp, Inc.
+ *
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ */
+
+package nextapp.echo.webcontainer;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit test for the processing order of pipelined client messages, i.e., <code>InputProcessor.isInSync()</code> and
+ * <code>UserInstance.waitForSyncSequence()</code>.
+ * Resides in the <code>nextapp.echo.webcontainer</code> package in order to test package-private methods.
+ */
+public class SyncSequenceTest extends TestCase {
+    
+    private UserInstance userInstance;
+    
+    /**
+     * @see junit.framework.TestCase#setUp()
+     */
+    protected void setUp() throws Exception {
+        super.setUp();
+        userInstance = new UserInstance(null, "test", null, null);
+    }
+    
+    private void setSyncSequence(int sequence) {
+        synchronized (userInstance) {
+            userInstance.setSyncSequence(sequence);
+        }
+    }
+    
+    private void waitForSyncSequence(int sequence, long timeout) {
+        synchronized (userInstance) {
+            userInstance.waitForSyncSequence(sequence, timeout);
+        }
+    }
+    
+    public void testIsInSyncNotPipelined() {
+        assertTrue(InputProcessor.isInSync(userInstance, -1, 0, 1));
+        userInstance.getNextTransactionId();
+        assertFalse(InputProcessor.isInSync(userInstance, -1, 0, 1));
+        assertTrue(InputProcessor.isInSync(userInstance, -1, 1, 1));
+        
+        // The pipeline depth does not apply to non-pipelined messages.
+        assertFalse(InputProcessor.isInSync(userInstance, -1, 0, 4));
+    }
+    
+    public void testIsInSyncPipelined() {
+        userInstance.getNextTransactionId();
+        userInstance.getNextTransactionId();
+        
+        // Messages may be based on server messages which are up to (pipeline depth - 1) transactions old.
+        assertTrue(InputProcessor.isInSync(userInstance, 1, 2, 3));
+        assertTrue(InputProcessor.isInSync(userInstance, 1, 1, 3));
+        assertTrue(InputProcessor.isInSync(userInstance, 1, 0, 3));
+        assertFalse(InputProcessor.isInSync(userInstance, 1, -1, 3));
+        assertFalse(InputProcessor.isInSync(userInstance, 1, 0, 2));
+        
+        // Messages may not be based on server messages which have not yet been sent.
+        assertFalse(InputProcessor.isInSync(userInstance, 1, 3, 3));
+        
+        // Messages must immediately follow the last processed message.
+        assertFalse(InputProcessor.isInSync(userInstance, 2, 2, 3));
+        setSyncSequence(1);
+        assertFalse(InputProcessor.isInSync(userInstance, 1, 2, 3));
+        assertTrue(InputProcessor.isInSync(userInstance, 2, 2, 3));
+    }
+    
+    public void testWaitForSyncSequenceInterrupted() {
+        long startTime = System.currentTimeMillis();
+        Thread.currentThread().interrupt();
+        waitForSyncSequence(5, 10000);
+        assertTrue(Thread.interrupted());
+        assertTrue(System.currentTimeMillis() - startTime < 5000);
+    }
+    
+    public void testWaitForSyncSequenceNext() {
+        long startTime = System.currentTimeMillis();
+        setSyncSequence(3);
+        waitForSyncSequence(4, 10000);
+        waitForSyncSequence(2, 10000);
+        assertTrue(System.currentTimeMillis() - startTime < 5000);
+    }
+    
+    public void testWaitForSyncSequenceNotified() 
+    throws InterruptedException {
+        final boolean[] done = new boolean[1];
+        Thread waiter = new Thread() {
+            public void run() {
+                waitForSyncSequence(3, 10000);
+                synchronized (done) {
+                    done[0] = true;
+                }
+            }
+        };
+        waiter.start();
+        
+        Thread.sleep(50);
+        setSyncSequence(1);
+        Thread.sleep(50);
+        synchronized (done) {
+            assertFalse(done[0]);
+        }
+        
+        setSyncSequence(2);
+        waiter.join(5000);
+        synchronized (done) {
+            assertTrue(done[0]);
+        }
+    }
+    
+    public void testWaitForSyncSequenceTimeout() {
+        long startTime = System.currentTimeMillis();
+        waitForSyncSequence(5, 100);
+        long duration = System.currentTimeMillis() - startTime;
+        assertTrue(duration >= 90);
+        assertTrue(duration < 5000);
+        assertEquals(0, userInstance.getSyncSequence());
+    }
+}
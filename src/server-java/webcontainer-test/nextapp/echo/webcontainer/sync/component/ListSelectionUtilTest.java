@@ -0,0 +1,124 @@
+/* 
+ * This file is part of the Echo Web Application Framework (hereinafter "Echo").
+ * Copyright (C) 2002-2009 NextApp, Inc.
+ *
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ */
+
+package nextapp.echo.webcontainer.sync.component;
+
+import java.util.Arrays;
+
+import nextapp.echo.app.list.DefaultListSelectionModel;
+import nextapp.echo.app.list.ListSelectionModel;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit test for <code>ListSelectionUtil</code>.
+ * Located in the package of <code>ListSelectionUtil</code>, which is not public.
+ */
+public class ListSelectionUtilTest extends TestCase {
+    
+    private static ListSelectionModel createSelectionModel(int[] indices) {
+        DefaultListSelectionModel selectionModel = new DefaultListSelectionModel();
+        selectionModel.setSelectionMode(ListSelectionModel.MULTIPLE_SELECTION);
+        for (int i = 0; i < indices.length; ++i) {
+            selectionModel.setSelectedIndex(indices[i], true);
+        }
+        return selectionModel;
+    }
+    
+    private static void assertIndices(int[] expected, int[] actual) {
+        assertTrue("Expected " + toString(expected) + ", was " + toString(actual), Arrays.equals(expected, actual));
+    }
+    
+    private static String toString(int[] indices) {
+        StringBuffer out = new StringBuffer("[");
+        for (int i = 0; i < indices.length; ++i) {
+            if (i > 0) {
+                out.append(",");
+            }
+            out.append(indices[i]);
+        }
+        out.append("]");
+        return out.toString();
+    }
+    
+    public void testToIntArrayAdjacent() {
+        assertIndices(new int[] { 1, 2, 3, 4, 7 }, ListSelectionUtil.toIntArray("1-4,7", 10));
+        assertIndices(new int[] { 1, 2, 3, 4 }, ListSelectionUtil.toIntArray("1-2,3-4", 10));
+        assertIndices(new int[] { 2, 3 }, ListSelectionUtil.toIntArray("3,2,3", 10));
+    }
+    
+    public void testToIntArrayClamped() {
+        assertIndices(new int[] { 3, 4, 5 }, ListSelectionUtil.toIntArray("3-2000000000", 6));
+        assertIndices(new int[] { 2 }, ListSelectionUtil.toIntArray("2,9", 5));
+        assertIndices(new int[0], ListSelectionUtil.toIntArray("5-9", 5));
+        assertIndices(new int[0], ListSelectionUtil.toIntArray("1-4", 0));
+    }
+    
+    public void testToIntArrayEmpty() {
+        assertIndices(new int[0], ListSelectionUtil.toIntArray(null, 10));
+        assertIndices(new int[0], ListSelectionUtil.toIntArray("", 10));
+        assertIndices(new int[0], ListSelectionUtil.toIntArray(",", 10));
+    }
+    
+    public void testToIntArraySingle() {
+        assertIndices(new int[] { 5 }, ListSelectionUtil.toIntArray("5", 10));
+        assertIndices(new int[] { 0 }, ListSelectionUtil.toIntArray("0-0", 10));
+    }
+    
+    public void testToStringAdjacent() {
+        assertEquals("1-4,7", ListSelectionUtil.toString(createSelectionModel(new int[] { 4, 1, 3, 2, 7 }), 10));
+        assertEquals("0-9", ListSelectionUtil.toString(createSelectionModel(new int[] { 0, 1, 2, 3, 4, 5, 6, 7, 8, 9 }), 
+                10));
+        assertEquals("1,3", ListSelectionUtil.toString(createSelectionModel(new int[] { 1, 3 }), 10));
+    }
+    
+    public void testToStringClamped() {
+        assertEquals("2-4", ListSelectionUtil.toString(createSelectionModel(new int[] { 2, 3, 4, 5, 6 }), 5));
+        assertEquals("1", ListSelectionUtil.toString(createSelectionModel(new int[] { 1, 8 }), 5));
+    }
+    
+    public void testToStringEmpty() {
+        assertEquals("", ListSelectionUtil.toString(createSelectionModel(new int[0]), 10));
+    }
+    
+    public void testToStringSingle() {
+        assertEquals("5", ListSelectionUtil.toString(createSelectionModel(new int[] { 5 }), 10));
+        
+        DefaultListSelectionModel selectionModel = new DefaultListSelectionModel();
+        selectionModel.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        selectionModel.setSelectedIndex(3, true);
+        assertEquals("3", ListSelectionUtil.toString(selectionModel, 10));
+    }
+    
+    public void testRoundTrip() {
+        ListSelectionModel selectionModel = createSelectionModel(new int[] { 0, 1, 2, 5, 7, 8 });
+        assertIndices(new int[] { 0, 1, 2, 5, 7, 8 }, 
+                ListSelectionUtil.toIntArray(ListSelectionUtil.toString(selectionModel, 9), 9));
+    }
+}
@@ -0,0 +1,90 @@
+/* 
+ * This file is part of the Echo Web Application Framework (hereinafter "Echo").
+ * Copyright (C) 2002-2009 NextApp, Inc.
+ *
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ */
+
+package nextapp.echo.webcontainer.test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import nextapp.echo.app.util.DomUtil;
+import nextapp.echo.webcontainer.util.CompactDomWriter;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit test for <code>nextapp.echo.webcontainer.util.CompactDomWriter</code>. 
+ */
+public class CompactDomWriterTest extends TestCase {
+    
+    private static String write(Document document) 
+    throws IOException {
+        StringWriter out = new StringWriter();
+        CompactDomWriter.write(document, out);
+        return out.toString();
+    }
+    
+    public void testBasic() 
+    throws IOException {
+        Document document = DomUtil.createDocument("smsg", null, null, "urn:test");
+        Element root = document.getDocumentElement();
+        Element a = document.createElement("a");
+        a.setAttribute("x", "1");
+        root.appendChild(a);
+        Element b = document.createElement("b");
+        b.appendChild(document.createTextNode("hello"));
+        root.appendChild(b);
+        assertEquals("{\"f\":\"echo-dom-1\",\"ns\":\"urn:test\",\"n\":[\"smsg\",\"a\",\"x\",\"b\"],\"v\":[],"
+                + "\"d\":[0,0,[1,[2,\"1\"]],[3,0,\"hello\"]]}", write(document));
+    }
+    
+    public void testEscape() 
+    throws IOException {
+        Document document = DomUtil.createDocument("smsg", null, null, null);
+        document.getDocumentElement().appendChild(document.createTextNode("\"\\\n\u0001\u2028"));
+        assertEquals("{\"f\":\"echo-dom-1\",\"n\":[\"smsg\"],\"v\":[],\"d\":[0,0,\"\\\"\\\\\\n\\u0001\\u2028\"]}", 
+                write(document));
+    }
+    
+    public void testValueTable() 
+    throws IOException {
+        Document document = DomUtil.createDocument("smsg", null, null, null);
+        Element root = document.getDocumentElement();
+        for (int i = 0; i < 3; ++i) {
+            Element p = document.createElement("p");
+            p.setAttribute("t", "Extent");
+            p.appendChild(document.createTextNode(i == 2 ? "5px" : "unique" + i));
+            root.appendChild(p);
+        }
+        assertEquals("{\"f\":\"echo-dom-1\",\"n\":[\"smsg\",\"p\",\"t\"],\"v\":[\"Extent\"],"
+                + "\"d\":[0,0,[1,[2,0],\"unique0\"],[1,[2,0],\"unique1\"],[1,[2,0],\"5px\"]]}", write(document));
+    }
+}
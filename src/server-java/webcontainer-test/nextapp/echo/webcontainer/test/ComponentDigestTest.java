@@ -0,0 +1,142 @@
+/* 
+ * This file is part of the Echo Web Application Framework (hereinafter "Echo").
+ * Copyright (C) 2002-2009 NextApp, Inc.
+ *
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ */
+
+package nextapp.echo.webcontainer.test;
+
+import nextapp.echo.app.util.DomUtil;
+import nextapp.echo.webcontainer.util.ComponentDigest;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit test for <code>nextapp.echo.webcontainer.util.ComponentDigest</code>. 
+ */
+public class ComponentDigestTest extends TestCase {
+    
+    private Document document = DomUtil.createDocument("smsg", null, null, null);
+    
+    private Element createComponent(String id, String text) {
+        Element cElement = document.createElement("c");
+        cElement.setAttribute("i", id);
+        cElement.setAttribute("t", "Label");
+        Element pElement = document.createElement("p");
+        pElement.setAttribute("n", "text");
+        pElement.appendChild(document.createTextNode(text));
+        cElement.appendChild(pElement);
+        return cElement;
+    }
+    
+    private Element createReference(Element parentElement, String name, String key, String value) {
+        Element element = document.createElement(name);
+        element.setAttribute("i", key);
+        element.setAttribute("t", "s");
+        element.appendChild(document.createTextNode(value));
+        parentElement.appendChild(element);
+        return element;
+    }
+    
+    public void testAnnotate() {
+        Element parent = createComponent("C.1", "parent");
+        Element child = createComponent("C.2", "child");
+        parent.appendChild(child);
+        ComponentDigest digest = new ComponentDigest(null, null);
+        digest.annotate(parent);
+        assertEquals(digest.getDigest(parent), parent.getAttribute(ComponentDigest.ATTRIBUTE_DIGEST));
+        assertEquals(digest.getDigest(child), child.getAttribute(ComponentDigest.ATTRIBUTE_DIGEST));
+    }
+    
+    public void testChildren() {
+        ComponentDigest digest = new ComponentDigest(null, null);
+        Element parent1 = createComponent("C.1", "parent");
+        parent1.appendChild(createComponent("C.2", "child"));
+        Element parent2 = createComponent("C.1", "parent");
+        parent2.appendChild(createComponent("C.2", "modified"));
+        Element parent3 = createComponent("C.1", "parent");
+        parent3.appendChild(createComponent("C.3", "child"));
+        
+        // Changes to the state of a child do not affect the digest of its parent, changes to the children do.
+        assertEquals(digest.getDigest(parent1), digest.getDigest(parent2));
+        assertFalse(digest.getDigest(parent1).equals(digest.getDigest(parent3)));
+    }
+    
+    public void testIgnoredAttributes() {
+        ComponentDigest digest = new ComponentDigest(null, null);
+        Element c1 = createComponent("C.1", "text");
+        Element c2 = createComponent("C.1", "text");
+        c2.setAttribute("x", "4");
+        c2.setAttribute(ComponentDigest.ATTRIBUTE_DIGEST, "abc");
+        assertEquals(digest.getDigest(c1), digest.getDigest(c2));
+    }
+    
+    public void testProperties() {
+        ComponentDigest digest = new ComponentDigest(null, null);
+        assertEquals(digest.getDigest(createComponent("C.1", "text")), digest.getDigest(createComponent("C.1", "text")));
+        assertFalse(digest.getDigest(createComponent("C.1", "text")).equals(
+                digest.getDigest(createComponent("C.1", "text2"))));
+        assertFalse(digest.getDigest(createComponent("C.1", "text")).equals(
+                digest.getDigest(createComponent("C.2", "text"))));
+    }
+    
+    public void testReferences() {
+        Element rp1 = document.createElement("rp");
+        createReference(rp1, "p", "0", "other");
+        createReference(rp1, "p", "1", "value");
+        Element rp2 = document.createElement("rp");
+        createReference(rp2, "p", "0", "value");
+        Element rs1 = document.createElement("rs");
+        createReference(rs1, "s", "3", "style");
+        Element rs2 = document.createElement("rs");
+        createReference(rs2, "s", "0", "style");
+        
+        Element c1 = createComponent("C.1", "text");
+        Element p1 = document.createElement("p");
+        p1.setAttribute("n", "model");
+        p1.setAttribute("r", "1");
+        c1.appendChild(p1);
+        Element sr1 = document.createElement("sr");
+        sr1.appendChild(document.createTextNode("3"));
+        c1.appendChild(sr1);
+        
+        Element c2 = createComponent("C.1", "text");
+        Element p2 = document.createElement("p");
+        p2.setAttribute("n", "model");
+        p2.setAttribute("r", "0");
+        c2.appendChild(p2);
+        Element sr2 = document.createElement("sr");
+        sr2.appendChild(document.createTextNode("0"));
+        c2.appendChild(sr2);
+        
+        // Referenced values are digested by value, regardless of their keys.
+        assertEquals(new ComponentDigest(rp1, rs1).getDigest(c1), new ComponentDigest(rp2, rs2).getDigest(c2));
+        assertFalse(new ComponentDigest(rp1, rs1).getDigest(c1).equals(new ComponentDigest(rp1, rs1).getDigest(c2)));
+    }
+}
@@ -0,0 +1,174 @@
+/* 
+ * This file is part of the Echo Web Application Framework (hereinafter "Echo").
+ * Copyright (C) 2002-2009 NextApp, Inc.
+ *
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ */
+
+package nextapp.echo.webcontainer.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import nextapp.echo.webcontainer.util.CompressingOutputStream;
+import nextapp.echo.webcontainer.util.CompressionStatistics;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit test for <code>nextapp.echo.webcontainer.util.CompressingOutputStream</code>. 
+ */
+public class CompressingOutputStreamTest extends TestCase {
+    
+    private static byte[] createContent(int size) {
+        byte[] content = new byte[size];
+        for (int i = 0; i < size; ++i) {
+            content[i] = (byte) "<c id=\"c_1\" t=\"Label\"/>".charAt(i % 23);
+        }
+        return content;
+    }
+    
+    private static byte[] readFully(InputStream in) 
+    throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int length;
+        while ((length = in.read(buffer)) != -1) {
+            out.write(buffer, 0, length);
+        }
+        return out.toByteArray();
+    }
+    
+    public void testBelowThreshold() 
+    throws IOException {
+        CompressionStatistics statistics = new CompressionStatistics();
+        byte[] content = createContent(100);
+        ByteArrayOutputStream byteOut = new ByteArrayOutputStream();
+        CompressingOutputStream out = new CompressingOutputStream(byteOut, CompressingOutputStream.ENCODING_GZIP, 101,
+                statistics);
+        out.write(content, 0, 50);
+        out.write(content, 50, 50);
+        assertEquals(0, byteOut.size());
+        out.finish();
+        assertFalse(out.isCompressing());
+        assertTrue(Arrays.equals(content, byteOut.toByteArray()));
+        assertEquals(1, statistics.getUncompressedCount());
+        assertEquals(100, statistics.getUncompressedBytes());
+        assertEquals(0, statistics.getCompressedCount());
+    }
+    
+    public void testDeflate() 
+    throws IOException {
+        byte[] content = createContent(50000);
+        ByteArrayOutputStream byteOut = new ByteArrayOutputStream();
+        CompressingOutputStream out = new CompressingOutputStream(byteOut, CompressingOutputStream.ENCODING_DEFLATE, 
+                1024);
+        out.write(content);
+        out.finish();
+        assertTrue(out.isCompressing());
+        byte[] decompressed = readFully(new InflaterInputStream(new ByteArrayInputStream(byteOut.toByteArray())));
+        assertTrue(Arrays.equals(content, decompressed));
+    }
+    
+    public void testGZip() 
+    throws IOException {
+        CompressionStatistics statistics = new CompressionStatistics();
+        byte[] content = createContent(50000);
+        ByteArrayOutputStream byteOut = new ByteArrayOutputStream();
+        final boolean[] started = new boolean[1];
+        CompressingOutputStream out = new CompressingOutputStream(byteOut, CompressingOutputStream.ENCODING_GZIP, 
+                1024, statistics) {
+            protected void compressionStarted() {
+                started[0] = true;
+            }
+        };
+        for (int i = 0; i < content.length; i += 100) {
+            out.write(content, i, 100);
+        }
+        out.write('!');
+        out.close();
+        assertTrue(started[0]);
+        byte[] decompressed = readFully(new GZIPInputStream(new ByteArrayInputStream(byteOut.toByteArray())));
+        assertEquals(content.length + 1, decompressed.length);
+        assertEquals('!', decompressed[content.length]);
+        
+        assertEquals(1, statistics.getCompressedCount());
+        assertEquals(content.length + 1, statistics.getCompressedBytesIn());
+        assertEquals(byteOut.size(), statistics.getCompressedBytesOut());
+        assertTrue(statistics.getCompressionRatio() < 0.1);
+        
+        statistics.reset();
+        assertEquals(0, statistics.getCompressedCount());
+    }
+    
+    public void testRelease() 
+    throws IOException {
+        byte[] content = createContent(50000);
+        ByteArrayOutputStream byteOut = new ByteArrayOutputStream();
+        CompressingOutputStream out = new CompressingOutputStream(byteOut, CompressingOutputStream.ENCODING_GZIP, 
+                1024);
+        out.write(content, 0, 10000);
+        assertTrue(out.isCompressing());
+        int size = byteOut.size();
+        
+        out.release();
+        out.finish();
+        assertEquals(size, byteOut.size());
+        try {
+            out.write(content, 0, 100);
+            fail("Write permitted after release.");
+        } catch (IOException ex) {
+            // Expected.
+        }
+        
+        // Released (pooled) Deflater must be reusable.
+        byteOut = new ByteArrayOutputStream();
+        out = new CompressingOutputStream(byteOut, CompressingOutputStream.ENCODING_GZIP, 1024);
+        out.write(content);
+        out.finish();
+        byte[] decompressed = readFully(new GZIPInputStream(new ByteArrayInputStream(byteOut.toByteArray())));
+        assertTrue(Arrays.equals(content, decompressed));
+    }
+    
+    public void testNegotiation() {
+        String firefox = "Mozilla/5.0 (X11; U; Linux i686; en-US; rv:1.9.0.5) Gecko/2008121622 Firefox/3.0.5";
+        assertEquals("gzip", CompressingOutputStream.getContentEncoding("gzip,deflate", firefox));
+        assertEquals("gzip", CompressingOutputStream.getContentEncoding("deflate, gzip;q=0.5", firefox));
+        assertEquals("deflate", CompressingOutputStream.getContentEncoding("gzip;q=0, deflate", firefox));
+        assertNull(CompressingOutputStream.getContentEncoding("identity", firefox));
+        assertNull(CompressingOutputStream.getContentEncoding(null, firefox));
+        
+        assertNull(CompressingOutputStream.getContentEncoding("gzip", null));
+        assertNull(CompressingOutputStream.getContentEncoding("gzip", 
+                "Mozilla/4.0 (compatible; MSIE 6.0; Windows NT 5.1; SV1)"));
+        assertEquals("gzip", CompressingOutputStream.getContentEncoding("gzip", 
+                "Mozilla/4.0 (compatible; MSIE 7.0; Windows NT 6.0)"));
+    }
+}
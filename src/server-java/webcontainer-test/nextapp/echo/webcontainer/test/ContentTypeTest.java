@@ -46,5 +46,6 @@ public class ContentTypeTest extends TestCase {
         assertFalse(ContentType.TEXT_HTML.isBinary());
         assertFalse(ContentType.TEXT_PLAIN.isBinary());
         assertFalse(ContentType.TEXT_XML.isBinary());
+        assertFalse(ContentType.APPLICATION_JSON.isBinary());
     }
 }
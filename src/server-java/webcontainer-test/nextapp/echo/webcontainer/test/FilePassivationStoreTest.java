@@ -0,0 +1,111 @@
+/* 
+ * This file is part of the Echo Web Application Framework (hereinafter "Echo").
+ * Copyright (C) 2002-2009 NextApp, Inc.
+ *
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ */
+
+package nextapp.echo.webcontainer.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import nextapp.echo.webcontainer.FilePassivationStore;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit test for <code>nextapp.echo.webcontainer.FilePassivationStore</code>. 
+ */
+public class FilePassivationStoreTest extends TestCase {
+    
+    private File directory;
+    
+    /**
+     * @see junit.framework.TestCase#setUp()
+     */
+    protected void setUp() 
+    throws Exception {
+        File tempFile = File.createTempFile("FilePassivationStoreTest", "");
+        tempFile.delete();
+        directory = new File(tempFile.getPath() + ".d");
+    }
+    
+    /**
+     * @see junit.framework.TestCase#tearDown()
+     */
+    protected void tearDown() 
+    throws Exception {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (int i = 0; i < files.length; ++i) {
+                files[i].delete();
+            }
+        }
+        directory.delete();
+    }
+    
+    public void testCreatesDirectory() 
+    throws IOException {
+        assertFalse(directory.exists());
+        FilePassivationStore store = new FilePassivationStore(directory);
+        assertTrue(directory.isDirectory());
+        assertEquals(directory, store.getDirectory());
+    }
+    
+    public void testReadMissing() 
+    throws IOException {
+        FilePassivationStore store = new FilePassivationStore(directory);
+        assertNull(store.read("missing"));
+        store.remove("missing");
+    }
+    
+    public void testRemove() 
+    throws IOException {
+        FilePassivationStore store = new FilePassivationStore(directory);
+        store.write("a", new byte[] { 1, 2, 3 });
+        assertEquals(1, directory.list().length);
+        store.remove("a");
+        assertNull(store.read("a"));
+        assertEquals(0, directory.list().length);
+    }
+    
+    public void testWriteRead() 
+    throws IOException {
+        FilePassivationStore store = new FilePassivationStore(directory);
+        byte[] data = new byte[100000];
+        for (int i = 0; i < data.length; ++i) {
+            data[i] = (byte) i;
+        }
+        store.write("key_1-a", data);
+        store.write("key_2-a", new byte[0]);
+        assertTrue(Arrays.equals(data, store.read("key_1-a")));
+        assertEquals(0, store.read("key_2-a").length);
+        
+        store.write("key_1-a", new byte[] { 42 });
+        assertTrue(Arrays.equals(new byte[] { 42 }, store.read("key_1-a")));
+    }
+}
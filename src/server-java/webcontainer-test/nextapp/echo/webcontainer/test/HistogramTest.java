@@ -0,0 +1,109 @@
+/* 
+ * This file is part of the Echo Web Application Framework (hereinafter "Echo").
+ * Copyright (C) 2002-2009 NextApp, Inc.
+ *
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ */
+
+package nextapp.echo.webcontainer.test;
+
+import nextapp.echo.webcontainer.util.Histogram;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit test for <code>nextapp.echo.webcontainer.util.Histogram</code>. 
+ */
+public class HistogramTest extends TestCase {
+    
+    public void testEmpty() {
+        Histogram histogram = new Histogram();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMin());
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.getMean());
+        assertEquals(0, histogram.getPercentile(50));
+    }
+    
+    public void testLargeValues() {
+        Histogram histogram = new Histogram();
+        histogram.record(Long.MAX_VALUE);
+        histogram.record(1L << 40);
+        assertEquals(Long.MAX_VALUE, histogram.getMax());
+        assertEquals(Long.MAX_VALUE, histogram.getPercentile(100));
+        long p50 = histogram.getPercentile(50);
+        assertTrue(p50 >= 1L << 40);
+        assertTrue(p50 < (1L << 40) + (1L << 39));
+    }
+    
+    public void testPercentiles() {
+        Histogram histogram = new Histogram();
+        for (int i = 1; i <= 1000; ++i) {
+            histogram.record(i);
+        }
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1, histogram.getMin());
+        assertEquals(1000, histogram.getMax());
+        assertEquals(500, histogram.getMean());
+        assertEquals(500500, histogram.getSum());
+        assertPercentile(500, histogram.getPercentile(50));
+        assertPercentile(900, histogram.getPercentile(90));
+        assertPercentile(990, histogram.getPercentile(99));
+        assertEquals(1000, histogram.getPercentile(100));
+    }
+    
+    public void testReset() {
+        Histogram histogram = new Histogram();
+        histogram.record(5);
+        histogram.record(-3);
+        assertEquals(0, histogram.getMin());
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMax());
+        histogram.record(7);
+        assertEquals(7, histogram.getMin());
+        assertEquals(7, histogram.getPercentile(50));
+    }
+    
+    public void testSmallValues() {
+        Histogram histogram = new Histogram();
+        histogram.record(0);
+        histogram.record(1);
+        histogram.record(2);
+        histogram.record(3);
+        assertEquals(0, histogram.getPercentile(25));
+        assertEquals(1, histogram.getPercentile(50));
+        assertEquals(2, histogram.getPercentile(75));
+        assertEquals(3, histogram.getPercentile(100));
+    }
+    
+    /**
+     * Asserts that an approximate percentile is within the histogram's precision of the exact value.
+     */
+    private void assertPercentile(long expected, long actual) {
+        assertTrue("Expected approximately " + expected + ", was " + actual, 
+                actual >= expected && actual <= expected * 5 / 4);
+    }
+}
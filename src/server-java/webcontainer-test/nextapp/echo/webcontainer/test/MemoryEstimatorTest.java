@@ -0,0 +1,85 @@
+/* 
+ * This file is part of the Echo Web Application Framework (hereinafter "Echo").
+ * Copyright (C) 2002-2009 NextApp, Inc.
+ *
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ */
+
+package nextapp.echo.webcontainer.test;
+
+import nextapp.echo.app.Column;
+import nextapp.echo.app.Component;
+import nextapp.echo.app.Label;
+import nextapp.echo.app.MutableStyle;
+import nextapp.echo.app.update.ServerComponentUpdate;
+import nextapp.echo.webcontainer.util.MemoryEstimator;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit test for <code>nextapp.echo.webcontainer.util.MemoryEstimator</code>. 
+ */
+public class MemoryEstimatorTest extends TestCase {
+    
+    public void testComponent() {
+        assertEquals(0, MemoryEstimator.estimateComponent(null));
+        
+        Column column = new Column();
+        assertEquals(MemoryEstimator.COMPONENT_SIZE, MemoryEstimator.estimateComponent(column));
+        
+        Label label = new Label("abcd");
+        long labelSize = MemoryEstimator.COMPONENT_SIZE + MemoryEstimator.PROPERTY_SIZE + MemoryEstimator.STRING_SIZE + 8;
+        assertEquals(labelSize, MemoryEstimator.estimateComponent(label));
+        
+        column.add(label);
+        column.add(new Column());
+        assertEquals(3 * MemoryEstimator.COMPONENT_SIZE + labelSize - MemoryEstimator.COMPONENT_SIZE, 
+                MemoryEstimator.estimateComponent(column));
+    }
+    
+    public void testStyle() {
+        assertEquals(0, MemoryEstimator.estimateStyle(null));
+        
+        MutableStyle style = new MutableStyle();
+        style.set("text", "ab");
+        style.set("enabled", Boolean.TRUE);
+        assertEquals(2 * MemoryEstimator.PROPERTY_SIZE + MemoryEstimator.STRING_SIZE + 4 
+                + MemoryEstimator.PROPERTY_VALUE_SIZE, MemoryEstimator.estimateStyle(style));
+    }
+    
+    public void testUpdates() {
+        Column parent = new Column();
+        Component added = new Label("abcd");
+        Column removed = new Column();
+        removed.add(new Column());
+        
+        ServerComponentUpdate update = new ServerComponentUpdate(parent);
+        update.addChild(added);
+        update.removeChild(removed);
+        assertEquals(MemoryEstimator.estimateComponent(added) - MemoryEstimator.estimateComponent(removed),
+                MemoryEstimator.estimateUpdates(new ServerComponentUpdate[] { update }));
+        assertEquals(0, MemoryEstimator.estimateUpdates(new ServerComponentUpdate[0]));
+    }
+}
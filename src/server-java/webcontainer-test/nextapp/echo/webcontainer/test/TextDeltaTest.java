@@ -0,0 +1,80 @@
+/* 
+ * This file is part of the Echo Web Application Framework (hereinafter "Echo").
+ * Copyright (C) 2002-2009 NextApp, Inc.
+ *
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ */
+
+package nextapp.echo.webcontainer.test;
+
+import nextapp.echo.webcontainer.util.TextDelta;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit test for <code>nextapp.echo.webcontainer.util.TextDelta</code>. 
+ */
+public class TextDeltaTest extends TestCase {
+    
+    private void assertRoundTrip(String oldText, String newText) {
+        String delta = TextDelta.create(oldText, newText);
+        assertEquals(newText, TextDelta.apply(oldText, delta));
+    }
+    
+    public void testCreate() {
+        assertEquals(TextDelta.checksum("abXYef") + ":2:2:XY", TextDelta.create("abcdef", "abXYef"));
+        assertEquals(TextDelta.checksum("abcdef") + ":4:0:ef", TextDelta.create("abcd", "abcdef"));
+        assertEquals(TextDelta.checksum("") + ":0:3:", TextDelta.create("abc", ""));
+        assertEquals(TextDelta.checksum("abc") + ":3:0:", TextDelta.create("abc", "abc"));
+        assertEquals(TextDelta.checksum("abc") + ":0:-1:abc", TextDelta.create(null, "abc"));
+    }
+    
+    public void testRoundTrip() {
+        assertRoundTrip("abcdef", "abXYef");
+        assertRoundTrip("aaaa", "aaaaaa");
+        assertRoundTrip("aaaaaa", "aaaa");
+        assertRoundTrip("", "a:b:c");
+        assertRoundTrip("a:b:c", "");
+        assertRoundTrip(null, "abc");
+    }
+    
+    public void testSurrogatePairs() {
+        String oldText = "a\uD834\uDD1Eb";
+        String newText = "a\uD834\uDD1Fb";
+        String delta = TextDelta.create(oldText, newText);
+        assertEquals(TextDelta.checksum(newText) + ":1:2:\uD834\uDD1F", delta);
+        assertEquals(newText, TextDelta.apply(oldText, delta));
+    }
+    
+    public void testApplyInvalid() {
+        String delta = TextDelta.create("abcdef", "abXYef");
+        assertNull(TextDelta.apply("abcdeg", delta));
+        assertNull(TextDelta.apply("ab", delta));
+        assertNull(TextDelta.apply(null, delta));
+        assertNull(TextDelta.apply("abcdef", "garbage"));
+        assertNull(TextDelta.apply("abcdef", "x:1:2:y"));
+        assertNull(TextDelta.apply("abcdef", null));
+    }
+}
@@ -99,6 +99,12 @@ public class ClientMessage {
     /** The sequential transaction identifier, used for determining if the client has the current application state. */
     private int transactionId;
     
+    /** 
+     * The client-generated sequence number of a pipelined client message, used to process pipelined messages in the
+     * order in which they were sent, or -1 if the message is not pipelined.
+     */
+    private int sequence;
+    
     /**
      * the server-generated initialization request identifier, used to distinguish initial HTTP requests to an application.
      * (Used specifically for storing initialization request parameters.)
@@ -121,6 +127,7 @@ public class ClientMessage {
         type = cmsg.getAttribute("t");
         initId = cmsg.hasAttribute("ii") ? cmsg.getAttribute("ii") : null;
         transactionId = Integer.parseInt(cmsg.getAttribute("i"));
+        sequence = cmsg.hasAttribute("s") ? Integer.parseInt(cmsg.getAttribute("s")) : -1;
         windowId = cmsg.hasAttribute("w") ? cmsg.getAttribute("w") : null;
     }
     
@@ -142,6 +149,16 @@ public class ClientMessage {
         return transactionId;
     }
     
+    /**
+     * Returns the sequence number of a pipelined client message, used to process pipelined messages in the order in 
+     * which they were sent.
+     * 
+     * @return the sequence number, or -1 if the message is not pipelined
+     */
+    public int getSequence() {
+        return sequence;
+    }
+    
     /**
      * Returns the server-generated initialization request identifier, used to distinguish initial HTTP requests to an application.
      * (Used specifically for storing initialization request parameters.)
@@ -202,6 +202,12 @@ implements Serializable {
      */
     public static final String UTC_OFFSET = "utcOffset";
     
+    /**
+     * Space-separated list of additional server message wire formats supported by the client,
+     * e.g., "json" (<code>CompactDomWriter</code> format).
+     */
+    public static final String WIRE_FORMATS = "wireFormats";
+    
     private Map data = new HashMap();
     
     /**
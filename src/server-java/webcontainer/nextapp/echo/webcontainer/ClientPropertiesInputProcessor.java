@@ -74,6 +74,7 @@ implements ClientMessage.Processor {
         m.put(ClientProperties.NAVIGATOR_LANGUAGE, String.class);
         m.put(ClientProperties.NAVIGATOR_PLATFORM, String.class);
         m.put(ClientProperties.NAVIGATOR_USER_AGENT, String.class);
+        m.put(ClientProperties.WIRE_FORMATS, String.class);
 
         m.put(ClientProperties.BROWSER_CHROME, Boolean.class);
         m.put(ClientProperties.BROWSER_OPERA, Boolean.class);
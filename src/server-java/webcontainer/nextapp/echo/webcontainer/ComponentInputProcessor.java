@@ -228,6 +228,13 @@ implements ClientMessage.Processor {
             }
         }
 
+        SyncMetrics metrics = ((Connection) context.get(Connection.class)).getSyncMetrics();
+        if (metrics != null) {
+            metrics.endPhase(SyncMetrics.PHASE_INPUT);
+        }
         updateManager.processClientUpdates();
+        if (metrics != null) {
+            metrics.endPhase(SyncMetrics.PHASE_CLIENT_UPDATES);
+        }
     }
 }
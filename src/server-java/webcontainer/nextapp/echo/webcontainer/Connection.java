@@ -31,6 +31,7 @@ package nextapp.echo.webcontainer;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.util.HashMap;
 import java.util.Map;
@@ -40,6 +41,8 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
 
+import nextapp.echo.webcontainer.util.CompressingOutputStream;
+import nextapp.echo.webcontainer.util.CountingOutputStream;
 
 /**
  * A representation of a connection to the server by the client, encapsulating
@@ -50,6 +53,118 @@ import javax.servlet.http.HttpSession;
  */
 public class Connection {
 
+    /**
+     * An <code>OutputStream</code> which buffers the response in a buffer retrieved from the servlet's 
+     * <code>ResponseBufferPool</code>, such that it may be sent in a single write with a 
+     * <code>Content-Length</code> header.  If the response exceeds the size of the buffer, the buffered content
+     * is written to the response, and the remainder is streamed.
+     */
+    private class ResponseBufferOutputStream extends OutputStream {
+        
+        /** The pool from which the buffer was retrieved. */
+        private ResponseBufferPool pool;
+        
+        /** The buffer, or null if the buffer has been released. */
+        private byte[] buffer;
+        
+        /** The number of bytes buffered. */
+        private int count;
+        
+        /** The response <code>OutputStream</code>, if the response is being streamed. */
+        private OutputStream out;
+        
+        /**
+         * Creates a new <code>ResponseBufferOutputStream</code>.
+         * 
+         * @param pool the pool from which the buffer should be retrieved
+         */
+        private ResponseBufferOutputStream(ResponseBufferPool pool) {
+            super();
+            this.pool = pool;
+            buffer = pool.acquire();
+        }
+        
+        /**
+         * Writes the buffered response to the client with a <code>Content-Length</code> header, unless it is being
+         * streamed, and releases the buffer.
+         * 
+         * @throws IOException
+         */
+        private void finish()
+        throws IOException {
+            if (out == null && buffer != null) {
+                response.setContentLength(count);
+                OutputStream responseOut = response.getOutputStream();
+                responseOut.write(buffer, 0, count);
+                pool.recordBuffered(count);
+                release();
+            }
+        }
+        
+        /**
+         * Does not flush the response until it has been fully rendered, unless it is being streamed.
+         * 
+         * @see java.io.OutputStream#flush()
+         */
+        public void flush() 
+        throws IOException {
+            if (out != null) {
+                out.flush();
+            }
+        }
+        
+        /**
+         * Returns the buffer to the pool, if it has not been released.
+         */
+        private void release() {
+            if (buffer != null) {
+                pool.release(buffer);
+                buffer = null;
+            }
+        }
+        
+        /**
+         * Writes the buffered content to the response and releases the buffer, such that the remainder of the 
+         * response will be streamed.
+         * 
+         * @throws IOException
+         */
+        private void startStreaming() 
+        throws IOException {
+            out = response.getOutputStream();
+            out.write(buffer, 0, count);
+            release();
+            pool.recordStreamed();
+        }
+        
+        /**
+         * @see java.io.OutputStream#write(byte[], int, int)
+         */
+        public void write(byte[] b, int off, int len) 
+        throws IOException {
+            if (out == null) {
+                if (buffer == null) {
+                    throw new IOException("Response has been completed.");
+                }
+                if (count + len <= buffer.length) {
+                    System.arraycopy(b, off, buffer, count, len);
+                    count += len;
+                    return;
+                }
+                startStreaming();
+            }
+            out.write(b, off, len);
+        }
+        
+        /**
+         * @see java.io.OutputStream#write(int)
+         */
+        public void write(int b) 
+        throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+    }
+
     /**
      * Prefix to use for <code>UserInstanceContainer</code> <code>HttpSession</code> keys.
      */
@@ -63,6 +178,30 @@ public class Connection {
     private Map propertyMap;
     private String uiid;
     
+    /** The negotiated response content encoding, or null if the response is not to be compressed. */
+    private String contentEncoding;
+    
+    /** The compressing response <code>OutputStream</code>, if compression is enabled and the stream has been retrieved. */
+    private CompressingOutputStream compressingOutputStream;
+    
+    /** 
+     * The wrapping response <code>PrintWriter</code>, if compression or metrics are enabled and the writer has been 
+     * retrieved. 
+     */
+    private PrintWriter wrappingWriter;
+    
+    /** The metrics of the synchronization being processed, or null if metrics are not being collected. */
+    private SyncMetrics syncMetrics;
+    
+    /** The byte-counting response <code>OutputStream</code>, if metrics are enabled and the stream has been retrieved. */
+    private CountingOutputStream countingOutputStream;
+    
+    /** Flag indicating whether the response is to be buffered. */
+    private boolean responseBufferingEnabled;
+    
+    /** The response buffer, if buffering is enabled and the stream has been retrieved. */
+    private ResponseBufferOutputStream responseBuffer;
+    
     /**
      * Creates a <code>connection</code> object that will handle the given 
      * request and response.  The <code>UserInstance</code> will be acquired from the session 
@@ -96,6 +235,7 @@ public class Connection {
         if (session != null) {
             userInstanceContainer = (UserInstanceContainer) session.getAttribute(getUserInstanceContainerSessionKey());
             if (userInstanceContainer != null) {
+                registerUserInstanceContainer();
                 userInstance = userInstanceContainer.getUserInstanceById(uiid);
             }
         }
@@ -111,6 +251,63 @@ public class Connection {
         }
     }
 
+    /**
+     * Enables compression of the response, if supported by the client and enabled by the servlet
+     * (see <code>WebContainerServlet.getCompressionThreshold()</code>).
+     * Compression is negotiated using the request's "Accept-Encoding" and "User-Agent" headers, and is only
+     * performed if the size of the response reaches the servlet's compression threshold.
+     * This method must be invoked before <code>getOutputStream()</code> or <code>getWriter()</code>.
+     * It is intended for use by services which render dynamic content.
+     */
+    public void enableCompression() {
+        if (servlet.getCompressionThreshold() < 0) {
+            return;
+        }
+        response.addHeader("Vary", "Accept-Encoding");
+        contentEncoding = CompressingOutputStream.getContentEncoding(request.getHeader("accept-encoding"), 
+                request.getHeader("user-agent"));
+    }
+    
+    /**
+     * Enables buffering of the response, if enabled by the servlet (see 
+     * <code>WebContainerServlet.enableResponseBuffering()</code>).
+     * The response is rendered in its entirety into a pooled buffer and then written with a 
+     * <code>Content-Length</code> header when the response is completed, unless it exceeds the size of the
+     * buffer, in which case it is streamed.
+     * This method must be invoked before <code>getOutputStream()</code> or <code>getWriter()</code>.
+     * It is intended for use by services which render dynamic content.
+     */
+    public void enableResponseBuffering() {
+        responseBufferingEnabled = servlet.getResponseBufferPool() != null;
+    }
+    
+    /**
+     * Completes the response, finishing compression if it is enabled.
+     * If metrics are being collected, the write phase is ended and the response size is recorded.
+     * If the response is buffered, it is written to the client.
+     * 
+     * @throws IOException
+     */
+    void finish() 
+    throws IOException {
+        if (wrappingWriter != null) {
+            wrappingWriter.flush();
+        }
+        if (compressingOutputStream != null) {
+            compressingOutputStream.finish();
+        }
+        if (syncMetrics != null) {
+            if (countingOutputStream != null) {
+                countingOutputStream.flush();
+                syncMetrics.setResponseBytes(countingOutputStream.getCount());
+            }
+            syncMetrics.endPhase(SyncMetrics.PHASE_WRITE);
+        }
+        if (responseBuffer != null) {
+            responseBuffer.finish();
+        }
+    }
+    
     /**
      * Returns the <code>OutputStream</code> object that may be used to 
      * generate a response.  This method may be called once.  If it is called, 
@@ -123,7 +320,33 @@ public class Connection {
      */
     public OutputStream getOutputStream() {
         try {
-            return response.getOutputStream();
+            OutputStream out;
+            if (responseBufferingEnabled) {
+                if (responseBuffer == null) {
+                    responseBuffer = new ResponseBufferOutputStream(servlet.getResponseBufferPool());
+                }
+                out = responseBuffer;
+            } else {
+                out = response.getOutputStream();
+            }
+            if (syncMetrics != null) {
+                if (countingOutputStream == null) {
+                    countingOutputStream = new CountingOutputStream(out);
+                }
+                out = countingOutputStream;
+            }
+            if (contentEncoding != null) {
+                if (compressingOutputStream == null) {
+                    compressingOutputStream = new CompressingOutputStream(out, contentEncoding,
+                            servlet.getCompressionThreshold(), servlet.getCompressionStatistics()) {
+                        protected void compressionStarted() {
+                            response.setHeader("Content-Encoding", contentEncoding);
+                        }
+                    };
+                }
+                out = compressingOutputStream;
+            }
+            return out;
         } catch (IOException ex) {
             throw new WebContainerServletException("Unable to get PrintWriter.", ex);
         }
@@ -169,6 +392,15 @@ public class Connection {
         return USER_INSTANCE_CONTAINER_SESSION_KEY_PREFIX + ":" + servlet.getServletName();
     }
     
+    /**
+     * Returns the metrics of the synchronization being processed by this <code>Connection</code>.
+     * 
+     * @return the metrics, or null if metrics are not being collected
+     */
+    SyncMetrics getSyncMetrics() {
+        return syncMetrics;
+    }
+    
     /**
      * Returns the <code>WebContainerServlet</code> wrapped by this 
      * <code>Connection</code>.
@@ -222,6 +454,13 @@ public class Connection {
      */
     public PrintWriter getWriter() {
         try {
+            if (contentEncoding != null || syncMetrics != null || responseBufferingEnabled) {
+                if (wrappingWriter == null) {
+                    wrappingWriter = new PrintWriter(new OutputStreamWriter(getOutputStream(), 
+                            response.getCharacterEncoding()));
+                }
+                return wrappingWriter;
+            }
             return response.getWriter();
         } catch (IOException ex) {
             throw new WebContainerServletException("Unable to get PrintWriter.", ex);
@@ -239,6 +478,41 @@ public class Connection {
         userInstanceContainer.setServletUri(request.getRequestURI());
         HttpSession session = request.getSession(true);
         session.setAttribute(getUserInstanceContainerSessionKey(), userInstanceContainer);
+        registerUserInstanceContainer();
+    }
+    
+    /**
+     * Registers the <code>UserInstanceContainer</code> with the servlet's <code>PassivationManager</code> and
+     * <code>MemoryManager</code>, if enabled.
+     */
+    private void registerUserInstanceContainer() {
+        if (servlet.getPassivationManager() != null) {
+            servlet.getPassivationManager().register(userInstanceContainer);
+        }
+        if (servlet.getMemoryManager() != null) {
+            servlet.getMemoryManager().register(userInstanceContainer);
+        }
+    }
+    
+    /**
+     * Abandons the compressed response, if it has not been finished, such that the compressing stream's 
+     * <code>Deflater</code> is returned to the <code>DeflaterPool</code> when the response is not completed.
+     */
+    void releaseCompressor() {
+        if (compressingOutputStream != null) {
+            compressingOutputStream.release();
+        }
+    }
+    
+    /**
+     * Returns the response buffer to the servlet's <code>ResponseBufferPool</code>, if it has not been released.
+     * Buffered content which has not been written is discarded, e.g., such that an error response may be written
+     * in its place.
+     */
+    void releaseResponseBuffer() {
+        if (responseBuffer != null) {
+            responseBuffer.release();
+        }
     }
     
     /**
@@ -257,6 +531,17 @@ public class Connection {
         }
     }
     
+    /**
+     * Starts collection of metrics for the synchronization processed by this <code>Connection</code>.
+     * This method must be invoked before <code>getOutputStream()</code> or <code>getWriter()</code>.
+     * 
+     * @return the created metrics
+     */
+    SyncMetrics startSyncMetrics() {
+        syncMetrics = new SyncMetrics();
+        return syncMetrics;
+    }
+    
     /**
      * Sets a property in the <code>Connection</code>-persistent 
      * property map.  (Properties are disposed of when <code>Connection</code>
@@ -0,0 +1,141 @@
+/* 
+ * This file is part of the Echo Web Application Framework (hereinafter "Echo").
+ * Copyright (C) 2002-2009 NextApp, Inc.
+ *
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ */
+
+package nextapp.echo.webcontainer;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * A <code>PassivationStore</code> which stores each snapshot as a file in a local directory.
+ */
+public class FilePassivationStore 
+implements PassivationStore {
+    
+    /** Extension of snapshot files. */
+    private static final String FILE_EXTENSION = ".snapshot";
+
+    /** The directory in which snapshots are stored. */
+    private File directory;
+    
+    /**
+     * Creates a new <code>FilePassivationStore</code>.
+     * 
+     * @param directory the directory in which snapshots should be stored, which will be created if it 
+     *        does not exist
+     * @throws IOException if the directory does not exist and cannot be created
+     */
+    public FilePassivationStore(File directory) 
+    throws IOException {
+        super();
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create passivation directory: " + directory);
+        }
+        this.directory = directory;
+    }
+    
+    /**
+     * Returns the directory in which snapshots are stored.
+     * 
+     * @return the directory
+     */
+    public File getDirectory() {
+        return directory;
+    }
+    
+    /**
+     * Returns the file in which the snapshot with the specified key is stored.
+     * 
+     * @param key the key
+     * @return the file
+     */
+    private File getFile(String key) {
+        return new File(directory, key + FILE_EXTENSION);
+    }
+
+    /**
+     * @see nextapp.echo.webcontainer.PassivationStore#read(java.lang.String)
+     */
+    public byte[] read(String key) 
+    throws IOException {
+        File file = getFile(key);
+        if (!file.exists()) {
+            return null;
+        }
+        byte[] data = new byte[(int) file.length()];
+        InputStream in = null;
+        try {
+            in = new FileInputStream(file);
+            int offset = 0;
+            while (offset < data.length) {
+                int bytesRead = in.read(data, offset, data.length - offset);
+                if (bytesRead == -1) {
+                    throw new IOException("Unexpected end of passivated snapshot: " + file);
+                }
+                offset += bytesRead;
+            }
+        } finally {
+            if (in != null) { try { in.close(); } catch (IOException ex) { } } 
+        }
+        return data;
+    }
+
+    /**
+     * @see nextapp.echo.webcontainer.PassivationStore#remove(java.lang.String)
+     */
+    public void remove(String key) {
+        getFile(key).delete();
+    }
+
+    /**
+     * @see nextapp.echo.webcontainer.PassivationStore#write(java.lang.String, byte[])
+     */
+    public void write(String key, byte[] data) 
+    throws IOException {
+        File file = getFile(key);
+        OutputStream out = null;
+        boolean complete = false;
+        try {
+            out = new FileOutputStream(file);
+            out.write(data);
+            out.close();
+            out = null;
+            complete = true;
+        } finally {
+            if (out != null) { try { out.close(); } catch (IOException ex) { } } 
+            if (!complete) {
+                file.delete();
+            }
+        }
+    }
+}
@@ -0,0 +1,193 @@
+/* 
+ * This file is part of the Echo Web Application Framework (hereinafter "Echo").
+ * Copyright (C) 2002-2009 NextApp, Inc.
+ *
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ */
+
+package nextapp.echo.webcontainer;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import nextapp.echo.app.Component;
+import nextapp.echo.app.StyleSheet;
+import nextapp.echo.app.util.DomUtil;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+/**
+ * Cache of the rendered state of component hierarchies (the "c" elements created by the 
+ * <code>OutputProcessor</code>), used to avoid re-rendering static hierarchies on full refreshes, or when a 
+ * previously rendered hierarchy is re-added.
+ * <p>
+ * The subtree version of each rendered component (see <code>Component.getSubtreeVersion()</code>) is recorded.
+ * The rendered state of a component is stored only once the component has been rendered at an unchanged 
+ * version, i.e., once its hierarchy has proven to be static, and only for the top-most such component of a static 
+ * hierarchy, such that nested states are not stored redundantly.
+ * <p>
+ * Instances are stored in (transient) <code>UserInstance</code> state and are only accessed while the 
+ * <code>UserInstance</code> is locked for synchronization.
+ */
+class FragmentCache {
+    
+    /**
+     * Cache entry describing the last rendered state of a single component.
+     */
+    private static class Entry {
+        
+        /** The subtree version of the component when last rendered. */
+        private int version;
+        
+        /** The rendered state of the component hierarchy, or null if it is not stored. */
+        private Element fragment;
+        
+        /** The number of components in the stored <code>fragment</code>. */
+        private int componentCount;
+        
+        /** 
+         * Flag indicating the rendered state of the hierarchy at the current version may not be stored, e.g., 
+         * because it references state specific to the server message in which it was rendered. 
+         */
+        private boolean uncacheable;
+    }
+    
+    /** Mapping between (weakly referenced) <code>Component</code>s and <code>Entry</code>s. */
+    private Map componentToEntryMap = new WeakHashMap();
+    
+    /** The <code>Document</code> which owns stored fragments. */
+    private Document document;
+    
+    /** The <code>StyleSheet</code> in use when the stored fragments were rendered. */
+    private StyleSheet styleSheet;
+    
+    /** The <code>ClientProperties</code> in use when the stored fragments were rendered. */
+    private ClientProperties clientProperties;
+    
+    /**
+     * Returns the stored rendered state of a component hierarchy, if the hierarchy has not changed since it was 
+     * stored.
+     * 
+     * @param component the component
+     * @return the stored rendered state, owned by a private <code>Document</code> (the returned element must be 
+     *         imported before use), or null if none is available
+     */
+    Element get(Component component) {
+        Entry entry = (Entry) componentToEntryMap.get(component);
+        if (entry == null || entry.fragment == null || entry.version != component.getSubtreeVersion()) {
+            return null;
+        }
+        return entry.fragment;
+    }
+    
+    /**
+     * Returns the number of components whose rendered state is currently stored.
+     * 
+     * @return the number of components
+     */
+    int getCachedComponentCount() {
+        int count = 0;
+        Iterator it = componentToEntryMap.values().iterator();
+        while (it.hasNext()) {
+            Entry entry = (Entry) it.next();
+            if (entry.fragment != null) {
+                count += entry.componentCount;
+            }
+        }
+        return count;
+    }
+    
+    /**
+     * Determines whether the rendered state of a component hierarchy should be stored when it is next rendered,
+     * i.e., whether the hierarchy has not changed since it was last rendered.
+     * 
+     * @param component the component
+     * @return true if the rendered state should be stored
+     */
+    boolean isStable(Component component) {
+        Entry entry = (Entry) componentToEntryMap.get(component);
+        return entry != null && !entry.uncacheable && entry.version == component.getSubtreeVersion();
+    }
+    
+    /**
+     * Records that a component hierarchy has been rendered, without storing its rendered state.
+     * Any previously stored state is discarded.
+     * 
+     * @param component the component
+     */
+    void record(Component component) {
+        Entry entry = (Entry) componentToEntryMap.get(component);
+        if (entry == null) {
+            entry = new Entry();
+            componentToEntryMap.put(component, entry);
+        } else if (entry.version != component.getSubtreeVersion()) {
+            entry.uncacheable = false;
+        }
+        entry.version = component.getSubtreeVersion();
+        entry.fragment = null;
+        entry.componentCount = 0;
+    }
+    
+    /**
+     * Stores the rendered state of a component hierarchy.
+     * 
+     * @param component the component
+     * @param cElement the rendered state of the component
+     * @param componentCount the number of components in the rendered state
+     * @param cacheable flag indicating whether the rendered state may be stored; if false, the hierarchy will
+     *        not be stored again until it changes
+     */
+    void store(Component component, Element cElement, int componentCount, boolean cacheable) {
+        record(component);
+        Entry entry = (Entry) componentToEntryMap.get(component);
+        if (cacheable) {
+            if (document == null) {
+                document = DomUtil.getDocumentBuilder().newDocument();
+            }
+            entry.fragment = (Element) document.importNode(cElement, true);
+            entry.componentCount = componentCount;
+        } else {
+            entry.uncacheable = true;
+        }
+    }
+    
+    /**
+     * Discards all cached state if the application or client state upon which all rendered states depend has 
+     * changed.  Invoked before rendering.
+     * 
+     * @param styleSheet the current <code>StyleSheet</code> of the application
+     * @param clientProperties the current <code>ClientProperties</code> of the user instance
+     */
+    void validate(StyleSheet styleSheet, ClientProperties clientProperties) {
+        if (this.styleSheet != styleSheet || this.clientProperties != clientProperties) {
+            componentToEntryMap.clear();
+            document = null;
+            this.styleSheet = styleSheet;
+            this.clientProperties = clientProperties;
+        }
+    }
+}
@@ -52,6 +52,7 @@ public class InputProcessor {
         ClientMessage.register("CSync", ComponentInputProcessor.class);
         ClientMessage.register("ClientProperties", ClientPropertiesInputProcessor.class);
         ClientMessage.register("CFocus", ComponentFocusInputProcessor.class);
+        ClientMessage.register("Resync", ResyncInputProcessor.class);
     }
     
     /**
@@ -122,6 +123,48 @@ public class InputProcessor {
         return clientMessage.getInitId();
     }
     
+    /**
+     * Returns the sequence number of a pipelined <code>ClientMessage</code>.
+     * 
+     * @return the sequence number, or -1 if the message is not pipelined
+     */
+    public int getSequence() {
+        return clientMessage.getSequence();
+    }
+    
+    /**
+     * Determines whether the client state on which the <code>ClientMessage</code> is based is current.
+     * 
+     * @param userInstance the relevant <code>UserInstance</code>
+     * @return true if the client is synchronized with the server
+     * @see #isInSync(UserInstance, int, int, int)
+     */
+    private boolean isInSync(UserInstance userInstance) {
+        return isInSync(userInstance, clientMessage.getSequence(), clientMessage.getTransactionId(), 
+                conn.getServlet().getSyncPipelineDepth());
+    }
+    
+    /**
+     * Determines whether the client state on which a client message is based is current.
+     * A non-pipelined message must be based on the most recent server message.
+     * A pipelined message must immediately follow the last processed pipelined message, and may be based on an 
+     * earlier server message provided that no more server messages have since been sent than the client may have 
+     * pipelined requests in progress.
+     * 
+     * @param userInstance the relevant <code>UserInstance</code>
+     * @param sequence the sequence number of the client message, or -1 if it is not pipelined
+     * @param transactionId the id of the server message on which the client message is based
+     * @param pipelineDepth the maximum number of pipelined requests a client may have in progress
+     * @return true if the client is synchronized with the server
+     */
+    static boolean isInSync(UserInstance userInstance, int sequence, int transactionId, int pipelineDepth) {
+        if (sequence == -1) {
+            return transactionId == userInstance.getCurrentTransactionId();
+        }
+        int lag = userInstance.getCurrentTransactionId() - transactionId;
+        return sequence == userInstance.getSyncSequence() + 1 && lag >= 0 && lag < pipelineDepth;
+    }
+    
     /**
      * Processes input to the application, parsing a client message provided in the <code>Connection</code>.
      * Verifies client/server are in sync, and performs full refresh if they are not.
@@ -137,13 +180,21 @@ public class InputProcessor {
         if (ClientMessage.TYPE_INITIALIZE.equals(clientMessage.getType())) {
             // Flag full refresh if initializing.
             updateManager.getServerUpdateManager().processFullRefresh();
-        } else if (clientMessage.getTransactionId() != userInstance.getCurrentTransactionId()) {
-            // Flag full refresh for an out of sync client.
-            updateManager.getServerUpdateManager().processFullRefresh();
+            userInstance.setSyncSequence(0);
+            userInstance.setClientDigestsRequested(false);
+        } else if (!isInSync(userInstance)) {
+            if (!conn.getServlet().isIncrementalResyncEnabled()) {
+                // Flag full refresh for an out of sync client.
+                // (If incremental resynchronization is enabled, the client will instead be requested to report the 
+                // digests of its rendered state, and refreshed on its next synchronization.)
+                updateManager.getServerUpdateManager().processFullRefresh();
+            }
             this.syncState.setOutOfSync();
             if (WebContainerServlet.DEBUG_PRINT_MESSAGES_TO_CONSOLE) {
                 Log.log("Client out of sync: client id = " + clientMessage.getTransactionId() + 
-                        ", server id = " + userInstance.getCurrentTransactionId());
+                        ", server id = " + userInstance.getCurrentTransactionId() + 
+                        ", client sequence = " + clientMessage.getSequence() + 
+                        ", server sequence = " + userInstance.getSyncSequence());
             }
         }
         
@@ -158,9 +209,22 @@ public class InputProcessor {
             }
         }
         
+        SyncMetrics metrics = conn.getSyncMetrics();
+        if (metrics != null) {
+            metrics.setInputDirectiveCount(DomUtil.getChildElementsByTagName(
+                    clientMessage.getDocument().getDocumentElement(), "dir").length);
+        }
+        
         if (!syncState.isOutOfSync()) {
             // Only process the client message if client/server are synchronized.
             clientMessage.process(context);
+            
+            if (userInstance.isClientDigestsRequested()) {
+                // Flag full refresh for a client which has been requested to report the digests of its rendered state
+                // (only the divergent components are rendered if it has done so).
+                userInstance.setClientDigestsRequested(false);
+                updateManager.getServerUpdateManager().processFullRefresh();
+            }
         }
     }
 }
@@ -0,0 +1,336 @@
+/* 
+ * This file is part of the Echo Web Application Framework (hereinafter "Echo").
+ * Copyright (C) 2002-2009 NextApp, Inc.
+ *
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ */
+
+package nextapp.echo.webcontainer;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.WeakHashMap;
+
+import nextapp.echo.webcontainer.util.Histogram;
+
+/**
+ * Enforces limits on the estimated heap memory retained by the <code>UserInstance</code>s of a servlet.
+ * <p>
+ * When the total estimated size exceeds the soft limit, the largest <code>UserInstance</code>s which have been 
+ * idle for at least the minimum idle time are shed until the total falls below the soft limit: they are 
+ * passivated if passivation is enabled, and otherwise unloaded.  New sessions are rejected while the total 
+ * exceeds the hard limit.
+ * <p>
+ * Sizes are estimated by each <code>UserInstance</code> at the end of each synchronization 
+ * (see <code>UserInstance.getEstimatedSize()</code>), and are thus approximate.
+ * 
+ * @see WebContainerServlet#enableMemoryLimits(long, long, long)
+ */
+public class MemoryManager {
+    
+    /** Interval between checks of the soft limit, in milliseconds. */
+    private static final long CHECK_INTERVAL = 5000;
+    
+    /**
+     * A <code>UserInstance</code> which may be shed.
+     */
+    private static class Candidate {
+        
+        /** The container of the <code>UserInstance</code>. */
+        private UserInstanceContainer container;
+        
+        /** The <code>UserInstance</code>. */
+        private UserInstance userInstance;
+        
+        /** The estimated size of the <code>UserInstance</code>. */
+        private long size;
+        
+        /**
+         * Creates a new <code>Candidate</code>.
+         * 
+         * @param container the container of the <code>UserInstance</code>
+         * @param userInstance the <code>UserInstance</code>
+         */
+        private Candidate(UserInstanceContainer container, UserInstance userInstance) {
+            super();
+            this.container = container;
+            this.userInstance = userInstance;
+            size = userInstance.getEstimatedSize();
+        }
+    }
+    
+    /** <code>Comparator</code> ordering <code>Candidate</code>s by descending size. */
+    private static final Comparator LARGEST_FIRST = new Comparator() {
+    
+        /**
+         * @see java.util.Comparator#compare(java.lang.Object, java.lang.Object)
+         */
+        public int compare(Object a, Object b) {
+            long sizeA = ((Candidate) a).size;
+            long sizeB = ((Candidate) b).size;
+            return sizeA > sizeB ? -1 : (sizeA < sizeB ? 1 : 0);
+        }
+    };
+    
+    /** The total estimated size above which idle <code>UserInstance</code>s are shed, in bytes. */
+    private long softLimit;
+    
+    /** The total estimated size above which new sessions are rejected, in bytes. */
+    private long hardLimit;
+    
+    /** The time for which a <code>UserInstance</code> must be unused before it may be shed, in milliseconds. */
+    private long minimumIdleTime;
+    
+    /** Registered <code>UserInstanceContainer</code>s (keys), weakly referenced. */
+    private Map containers = new WeakHashMap();
+    
+    /** Timer which periodically checks the soft limit, or null if not started. */
+    private Timer timer;
+    
+    /** Number of shed <code>UserInstance</code>s. */
+    private long shedCount;
+    
+    /** Number of rejected sessions. */
+    private long rejectedCount;
+
+    /**
+     * Creates a new <code>MemoryManager</code>.
+     * 
+     * @param softLimit the total estimated size above which idle <code>UserInstance</code>s should be shed, 
+     *        in bytes
+     * @param hardLimit the total estimated size above which new sessions should be rejected, in bytes
+     * @param minimumIdleTime the time for which a <code>UserInstance</code> must be unused before it may be 
+     *        shed, in milliseconds
+     */
+    public MemoryManager(long softLimit, long hardLimit, long minimumIdleTime) {
+        super();
+        this.softLimit = softLimit;
+        this.hardLimit = hardLimit;
+        this.minimumIdleTime = minimumIdleTime;
+    }
+    
+    /**
+     * Determines whether a new session may be created, shedding idle <code>UserInstance</code>s if the 
+     * total estimated size exceeds the soft limit.
+     * 
+     * @return true if the total estimated size is below the hard limit
+     */
+    public boolean admit() {
+        if (getEstimatedSize() < softLimit) {
+            return true;
+        }
+        shed();
+        if (getEstimatedSize() < hardLimit) {
+            return true;
+        }
+        synchronized (this) {
+            ++rejectedCount;
+        }
+        return false;
+    }
+    
+    /**
+     * Stops periodic checks of the soft limit.
+     */
+    synchronized void dispose() {
+        if (timer != null) {
+            timer.cancel();
+            timer = null;
+        }
+    }
+    
+    /**
+     * Returns the registered <code>UserInstanceContainer</code>s.
+     * 
+     * @return the containers
+     */
+    private Object[] getContainers() {
+        synchronized (containers) {
+            return containers.keySet().toArray();
+        }
+    }
+    
+    /**
+     * Returns the total estimated size of all <code>UserInstance</code>s.
+     * 
+     * @return the size, in bytes
+     */
+    public long getEstimatedSize() {
+        Object[] registered = getContainers();
+        long size = 0;
+        for (int i = 0; i < registered.length; ++i) {
+            size += ((UserInstanceContainer) registered[i]).getEstimatedSize();
+        }
+        return size;
+    }
+    
+    /**
+     * Returns the total estimated size above which new sessions are rejected.
+     * 
+     * @return the limit, in bytes
+     */
+    public long getHardLimit() {
+        return hardLimit;
+    }
+    
+    /**
+     * Returns the time for which a <code>UserInstance</code> must be unused before it may be shed.
+     * 
+     * @return the time, in milliseconds
+     */
+    public long getMinimumIdleTime() {
+        return minimumIdleTime;
+    }
+    
+    /**
+     * Returns the number of sessions which have been rejected.
+     * 
+     * @return the count
+     */
+    public synchronized long getRejectedCount() {
+        return rejectedCount;
+    }
+    
+    /**
+     * Returns the number of <code>UserInstance</code>s which have been shed.
+     * 
+     * @return the count
+     */
+    public synchronized long getShedCount() {
+        return shedCount;
+    }
+    
+    /**
+     * Returns the total estimated size above which idle <code>UserInstance</code>s are shed.
+     * 
+     * @return the limit, in bytes
+     */
+    public long getSoftLimit() {
+        return softLimit;
+    }
+    
+    /**
+     * Registers a <code>UserInstanceContainer</code>, such that its <code>UserInstance</code>s will be 
+     * accounted for.  Registering a container more than once has no effect.
+     * 
+     * @param container the <code>UserInstanceContainer</code>
+     */
+    void register(UserInstanceContainer container) {
+        synchronized (containers) {
+            containers.put(container, Boolean.TRUE);
+        }
+    }
+    
+    /**
+     * Sheds the largest idle <code>UserInstance</code>s until the total estimated size falls below the soft limit.
+     * Invoked periodically once the manager has been started.
+     * 
+     * @return the number of shed <code>UserInstance</code>s
+     */
+    public int shed() {
+        long size = getEstimatedSize();
+        if (size < softLimit) {
+            return 0;
+        }
+        
+        long idleSince = System.currentTimeMillis() - minimumIdleTime;
+        List candidates = new ArrayList();
+        Object[] registered = getContainers();
+        for (int i = 0; i < registered.length; ++i) {
+            UserInstanceContainer container = (UserInstanceContainer) registered[i];
+            UserInstance[] userInstances = container.getUserInstances();
+            for (int j = 0; j < userInstances.length; ++j) {
+                if (userInstances[j].getLastAccessTime() <= idleSince) {
+                    candidates.add(new Candidate(container, userInstances[j]));
+                }
+            }
+        }
+        Collections.sort(candidates, LARGEST_FIRST);
+        
+        int count = 0;
+        for (int i = 0; i < candidates.size() && size >= softLimit; ++i) {
+            Candidate candidate = (Candidate) candidates.get(i);
+            if (candidate.container.shedUserInstance(candidate.userInstance, idleSince)) {
+                size -= candidate.size;
+                ++count;
+            }
+        }
+        synchronized (this) {
+            shedCount += count;
+        }
+        return count;
+    }
+    
+    /**
+     * Starts periodic checks of the soft limit, using a daemon thread.
+     */
+    synchronized void start() {
+        if (timer != null) {
+            return;
+        }
+        timer = new Timer(true);
+        timer.schedule(new TimerTask() {
+        
+            /**
+             * @see java.util.TimerTask#run()
+             */
+            public void run() {
+                try {
+                    shed();
+                } catch (RuntimeException ex) {
+                    // Do not allow a failure to terminate the timer thread.
+                }
+            }
+        }, CHECK_INTERVAL, CHECK_INTERVAL);
+    }
+    
+    /**
+     * Writes a human-readable summary of memory usage.
+     * 
+     * @param out the <code>PrintWriter</code> to which the summary should be written
+     */
+    public void write(PrintWriter out) {
+        Histogram instanceSize = new Histogram();
+        Object[] registered = getContainers();
+        for (int i = 0; i < registered.length; ++i) {
+            UserInstance[] userInstances = ((UserInstanceContainer) registered[i]).getUserInstances();
+            for (int j = 0; j < userInstances.length; ++j) {
+                instanceSize.record(userInstances[j].getEstimatedSize());
+            }
+        }
+        out.println("estimated bytes: " + instanceSize.getSum() + " (soft limit: " + softLimit 
+                + ", hard limit: " + hardLimit + ")");
+        out.println("user instances: " + instanceSize.getCount() + " (shed: " + getShedCount() 
+                + ", rejected: " + getRejectedCount() + ")");
+        SyncStatistics.writeHeader(out);
+        SyncStatistics.writeHistogram(out, "instanceBytes", instanceSize, 1);
+    }
+}
@@ -30,9 +30,12 @@
 package nextapp.echo.webcontainer;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
@@ -43,6 +46,7 @@ import java.util.Map.Entry;
 import nextapp.echo.app.ApplicationInstance;
 import nextapp.echo.app.Command;
 import nextapp.echo.app.Component;
+import nextapp.echo.app.ContainerAccess;
 import nextapp.echo.app.ContentPane;
 import nextapp.echo.app.Style;
 import nextapp.echo.app.StyleSheet;
@@ -57,9 +61,13 @@ import nextapp.echo.app.update.ServerUpdateManager;
 import nextapp.echo.app.util.Context;
 import nextapp.echo.app.util.DomUtil;
 import nextapp.echo.app.util.Log;
+import nextapp.echo.webcontainer.util.CompactDomWriter;
+import nextapp.echo.webcontainer.util.ComponentDigest;
 
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
 import org.xml.sax.SAXException;
 
 /**
@@ -127,6 +135,21 @@ class OutputProcessor {
     private Element rsElement;
     private SynchronizationState syncState;
     
+    /** The number of components whose full state or updated properties have been rendered. */
+    private int renderedComponentCount = 0;
+    
+    /** 
+     * The <code>FragmentCache</code> of the <code>UserInstance</code>, or null if fragment caching is not enabled 
+     * by the servlet. 
+     */
+    private FragmentCache fragmentCache;
+    
+    /** 
+     * The number of references to message-specific state (referenced properties, styles, and focus traversal 
+     * component ids) which have been rendered, used to determine whether rendered component states may be cached.
+     */
+    private int messageReferenceCount = 0;
+    
     private ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
 
     /**
@@ -145,8 +168,88 @@ class OutputProcessor {
         userInstance = conn.getUserInstance();
         serverUpdateManager = userInstance.getUpdateManager().getServerUpdateManager();
         propertyPeerFactory = PropertySerialPeerFactory.forClassLoader(classLoader);
+        if (conn.getServlet().isFragmentCacheEnabled()) {
+            ContainerAccess.setSubtreeVersioningEnabled(userInstance.getApplicationInstance(), true);
+            fragmentCache = userInstance.getFragmentCache();
+            fragmentCache.validate(userInstance.getApplicationInstance().getStyleSheet(), 
+                    userInstance.getClientProperties());
+        }
     }
         
+    /**
+     * Finds the components of a rendered hierarchy whose states differ from those held by a resynchronizing client.
+     * Divergent components are not searched further, as their entire states will be rendered.
+     * 
+     * @param cElement the rendered state of a component whose state is held by the client
+     * @param componentDigest the <code>ComponentDigest</code>
+     * @param clientDigests a mapping between client render ids and the digests of the rendered component states held
+     *        by the client
+     * @param parentToDivergentChildrenMap mapping between the rendered states of parent components and 
+     *        <code>List</code>s of the rendered states of their divergent children, to which divergent components
+     *        are added (the index of each is set as its "x" attribute)
+     */
+    private void findDivergentComponents(Element cElement, ComponentDigest componentDigest, Map clientDigests, 
+            Map parentToDivergentChildrenMap) {
+        int index = 0;
+        Node node = cElement.getFirstChild();
+        while (node != null) {
+            if (node.getNodeType() == Node.ELEMENT_NODE && "c".equals(node.getNodeName())) {
+                Element childElement = (Element) node;
+                String childId = childElement.getAttribute("i");
+                if (componentDigest.getDigest(childElement).equals(clientDigests.get(childId))) {
+                    findDivergentComponents(childElement, componentDigest, clientDigests, parentToDivergentChildrenMap);
+                } else {
+                    List divergentChildren = (List) parentToDivergentChildrenMap.get(cElement);
+                    if (divergentChildren == null) {
+                        divergentChildren = new ArrayList();
+                        parentToDivergentChildrenMap.put(cElement, divergentChildren);
+                    }
+                    childElement.setAttribute("x", Integer.toString(index));
+                    divergentChildren.add(childElement);
+                }
+                ++index;
+            }
+            node = node.getNextSibling();
+        }
+    }
+    
+    /**
+     * Initializes the synchronization peers of a component hierarchy whose state is not being rendered because 
+     * it is available from the <code>FragmentCache</code>, e.g., such that required client libraries are loaded.
+     * 
+     * @param c the root component of the hierarchy
+     */
+    private void initComponentState(Component c) {
+        ComponentSynchronizePeer componentPeer = SynchronizePeerFactory.getPeerForComponent(c.getClass());
+        if (componentPeer == null) {
+            throw new IllegalStateException("No synchronize peer found for component: " + c.getClass().getName());
+        }
+        ++renderedComponentCount;
+        componentPeer.init(context, c);
+        Component[] children = c.getVisibleComponents();
+        for (int i = 0; i < children.length; ++i) {
+            initComponentState(children[i]);
+        }
+    }
+    
+    /**
+     * Determines whether the server message should be rendered in the compact JSON wire format, i.e., 
+     * whether the format is enabled by the servlet and the client has advertised support for it.
+     * 
+     * @return true if the compact wire format should be used
+     */
+    private boolean isCompactWireFormat() {
+        if (!conn.getServlet().isCompactWireFormatEnabled()) {
+            return false;
+        }
+        ClientProperties clientProperties = userInstance.getClientProperties();
+        if (clientProperties == null) {
+            return false;
+        }
+        String wireFormats = clientProperties.getString(ClientProperties.WIRE_FORMATS);
+        return (" " + wireFormats + " ").indexOf(" json ") != -1;
+    }
+    
     /**
      * Processes pending output from the application, generating a server message and rendering it
      * to the output <code>PrintWriter</code> of the <code>Connection</code> specified in the constructor.
@@ -155,15 +258,27 @@ class OutputProcessor {
     throws IOException {
         serverMessage.setUserInstanceId(userInstance.getId());
         serverMessage.setTransactionId(userInstance.getNextTransactionId());
+        serverMessage.setPipelineDepth(conn.getServlet().getSyncPipelineDepth());
         if (syncState.isOutOfSync()) {
             serverMessage.setResync();
         }
         
+        boolean incrementalResync = conn.getServlet().isIncrementalResyncEnabled();
+        Map clientDigests = userInstance.getClientDigests();
+        if (clientDigests != null) {
+            userInstance.setClientDigests(null);
+        }
+        
         try {
             // Render output to server message DOM.
-            if (serverUpdateManager.isFullRefreshRequired()) {
+            if (incrementalResync && syncState.isOutOfSync()) {
+                // Request the digests of the client's rendered state rather than rendering the component hierarchy:
+                // the client will be refreshed on its next synchronization.
+                serverMessage.setDigestRequest();
+                userInstance.setClientDigestsRequested(true);
+            } else if (serverUpdateManager.isFullRefreshRequired()) {
                 renderApplicationFull();
-                renderComponentsFull();
+                renderComponentsFull(clientDigests);
             } else {
                 renderApplicationIncremental();
                 renderComponentsIncremental();
@@ -171,16 +286,36 @@ class OutputProcessor {
             renderCommands();
             renderFocus();
             renderAsyncState();
+            if (incrementalResync) {
+                renderDigests();
+            }
         } catch (SerialException ex) {
             throw new SynchronizationException("Cannot serialize server state.", ex);
         }
         
-        try {
-            // Render DOM to <code>PrintWriter</code>.
-            conn.setContentType(ContentType.TEXT_XML);
-            DomUtil.save(serverMessage.getDocument(), conn.getWriter(), null);
-        } catch (SAXException ex) {
-            throw new SynchronizationException("Cannot serialize server state.", ex);
+        SyncMetrics metrics = conn.getSyncMetrics();
+        if (metrics != null) {
+            metrics.setComponentCount(renderedComponentCount);
+            metrics.setOutputDirectiveCount(serverMessage.getDirectiveCount());
+            metrics.endPhase(SyncMetrics.PHASE_RENDER);
+        }
+        
+        if (isCompactWireFormat()) {
+            // Render DOM to <code>PrintWriter</code> in compact JSON format.
+            conn.setContentType(ContentType.APPLICATION_JSON);
+            CompactDomWriter.write(serverMessage.getDocument(), conn.getWriter());
+        } else {
+            try {
+                // Render DOM to <code>PrintWriter</code>.
+                conn.setContentType(ContentType.TEXT_XML);
+                DomUtil.save(serverMessage.getDocument(), conn.getWriter(), null);
+            } catch (SAXException ex) {
+                throw new SynchronizationException("Cannot serialize server state.", ex);
+            }
+        }
+        if (metrics != null) {
+            conn.getWriter().flush();
+            metrics.endPhase(SyncMetrics.PHASE_SERIALIZE);
         }
         
         if (WebContainerServlet.DEBUG_PRINT_MESSAGES_TO_CONSOLE) {
@@ -196,6 +331,45 @@ class OutputProcessor {
         }
     }
     
+    /**
+     * Removes referenced property and style values which are no longer referenced by the server message, i.e., 
+     * those of components whose states were rendered but are not being sent to a resynchronizing client.
+     */
+    private void removeUnreferencedValues() {
+        Set propertyKeys = new HashSet();
+        NodeList pList = document.getElementsByTagName("p");
+        for (int i = 0; i < pList.getLength(); ++i) {
+            Element pElement = (Element) pList.item(i);
+            if (pElement.hasAttribute("r")) {
+                propertyKeys.add(pElement.getAttribute("r"));
+            }
+        }
+        Set styleKeys = new HashSet();
+        NodeList srList = document.getElementsByTagName("sr");
+        for (int i = 0; i < srList.getLength(); ++i) {
+            Node textNode = srList.item(i).getFirstChild();
+            if (textNode != null) {
+                styleKeys.add(textNode.getNodeValue());
+            }
+        }
+        
+        Element[] referenceElements = { rpElement, rsElement };
+        Set[] referencedKeys = { propertyKeys, styleKeys };
+        for (int i = 0; i < referenceElements.length; ++i) {
+            if (referenceElements[i] == null) {
+                continue;
+            }
+            Node node = referenceElements[i].getFirstChild();
+            while (node != null) {
+                Node nextNode = node.getNextSibling();
+                if (!referencedKeys[i].contains(((Element) node).getAttribute("i"))) {
+                    referenceElements[i].removeChild(node);
+                }
+                node = nextNode;
+            }
+        }
+    }
+    
     /**
      * Renders asynchronous callback settings to server message.
      */
@@ -345,30 +519,45 @@ class OutputProcessor {
     /**
      * Renders the state of the entire component hierarchy to the server message, i.e.,
      * on initialization or when the client page is reloaded.
+     * If the digests of the rendered component states held by the client are provided, only the states of those
+     * components which differ are rendered.
      * 
+     * @param clientDigests a mapping between client render ids and the digests of the rendered component states held
+     *        by the client, or null to clear and render the entire hierarchy
      * @throws SerialException
      */
-    private void renderComponentsFull()
+    private void renderComponentsFull(Map clientDigests)
     throws SerialException {
         // Special case: clear/full redraw.  Render entire component hierarchy by rendering an
         // add directive to add the Window's child ContentPane to the root.   
         // Render all properties of Window. 
         Window window = userInstance.getApplicationInstance().getDefaultWindow();
-        serverMessage.addDirective(ServerMessage.GROUP_ID_INIT, "CSyncIn", "cl");
-        serverMessage.setAttribute("root", userInstance.getRootHtmlElementId());
-        
-        // Render Style Sheet
-        renderStyleSheet();
-        
-        // Render Add ContentPane to Window
         ContentPane content = window.getContent();
         if (content == null) {
             throw new IllegalStateException("No content to render: default window has no content.");
         }
         
+        if (clientDigests == null) {
+            serverMessage.addDirective(ServerMessage.GROUP_ID_INIT, "CSyncIn", "cl");
+        }
+        serverMessage.setAttribute("root", userInstance.getRootHtmlElementId());
+        
+        // Render Style Sheet
+        Element ssElement = renderStyleSheet();
+        if (clientDigests != null && new ComponentDigest(null, null).getDigest(ssElement).equals(
+                clientDigests.get(ResyncInputProcessor.STYLE_SHEET_KEY))) {
+            // Client style sheet is current.
+            ssElement.getParentNode().removeChild(ssElement);
+        }
+        
+        // Render Add ContentPane to Window
         Element upElement = serverMessage.addDirective(ServerMessage.GROUP_ID_UPDATE, "CSyncUp", "up");
         upElement.setAttribute("r", "true"); // Adding to root.
-        renderComponentState(upElement, content);
+        if (clientDigests == null) {
+            renderComponentState(upElement, content);
+        } else {
+            renderComponentsResync(upElement, content, clientDigests);
+        }
 
         // Render Window properties
         ComponentSynchronizePeer componentPeer = SynchronizePeerFactory.getPeerForComponent(window.getClass());
@@ -380,6 +569,10 @@ class OutputProcessor {
             String propertyName = (String) propertyNameIterator.next();
             renderComponentProperty(upElement, componentPeer, window, propertyName, false);
         }
+        
+        if (clientDigests != null) {
+            removeUnreferencedValues();
+        }
     }
     
     /**
@@ -481,6 +674,64 @@ class OutputProcessor {
         }
     }
     
+    /**
+     * Renders the states of those components of the hierarchy whose rendered states differ from those held by a 
+     * resynchronizing client.  Each divergent component is removed from its parent and replaced with its entire 
+     * rendered state.  If the <code>ContentPane</code> itself differs, the client hierarchy is cleared and 
+     * rendered in its entirety.
+     * 
+     * @param upElement the update ("up") element of the root, to which the <code>ContentPane</code> is added if it
+     *        differs
+     * @param content the <code>ContentPane</code>
+     * @param clientDigests a mapping between client render ids and the digests of the rendered component states held
+     *        by the client
+     * @throws SerialException
+     */
+    private void renderComponentsResync(Element upElement, ContentPane content, Map clientDigests)
+    throws SerialException {
+        Element contentElement = renderComponentState(document.createElement("up"), content);
+        ComponentDigest componentDigest = new ComponentDigest(rpElement, rsElement);
+        if (!componentDigest.getDigest(contentElement).equals(clientDigests.get(contentElement.getAttribute("i")))) {
+            serverMessage.addDirective(ServerMessage.GROUP_ID_INIT, "CSyncIn", "cl");
+            upElement.appendChild(contentElement);
+            return;
+        }
+        
+        Map parentToDivergentChildrenMap = new LinkedHashMap();
+        findDivergentComponents(contentElement, componentDigest, clientDigests, parentToDivergentChildrenMap);
+        
+        // Render removes of divergent components.
+        Iterator it = parentToDivergentChildrenMap.entrySet().iterator();
+        while (it.hasNext()) {
+            Entry entry = (Entry) it.next();
+            List divergentChildren = (List) entry.getValue();
+            StringBuffer out = new StringBuffer();
+            for (int i = 0; i < divergentChildren.size(); ++i) {
+                if (i > 0) {
+                    out.append(",");
+                }
+                out.append(((Element) divergentChildren.get(i)).getAttribute("i"));
+            }
+            Element rmElement = serverMessage.addDirective(ServerMessage.GROUP_ID_UPDATE, "CSyncRm", "rm");
+            rmElement.setAttribute("i", ((Element) entry.getKey()).getAttribute("i"));
+            rmElement.setAttribute("rm", out.toString());
+        }
+        
+        // Render adds of divergent components, along with the (unchanged) digests of their parents.
+        it = parentToDivergentChildrenMap.entrySet().iterator();
+        while (it.hasNext()) {
+            Entry entry = (Entry) it.next();
+            Element parentElement = (Element) entry.getKey();
+            List divergentChildren = (List) entry.getValue();
+            Element parentUpElement = serverMessage.addDirective(ServerMessage.GROUP_ID_UPDATE, "CSyncUp", "up");
+            parentUpElement.setAttribute("i", parentElement.getAttribute("i"));
+            parentUpElement.setAttribute(ComponentDigest.ATTRIBUTE_DIGEST, componentDigest.getDigest(parentElement));
+            for (int i = 0; i < divergentChildren.size(); ++i) {
+                parentUpElement.appendChild((Element) divergentChildren.get(i));
+            }
+        }
+    }
+    
     /**
      * Renders a single property of a component.
      * 
@@ -564,6 +815,7 @@ class OutputProcessor {
             }
 
             pElement.setAttribute("r", propertyKey);
+            ++messageReferenceCount;
         } else {
             propertyDataElement = pElement;
         }
@@ -609,6 +861,58 @@ class OutputProcessor {
      * @param c the rendering component
      */
     private Element renderComponentState(Element parentElement, Component c)
+    throws SerialException {
+        return renderComponentState(parentElement, c, false);
+    }
+    
+    /**
+     * Renders the full state of a specific component, using or updating the <code>FragmentCache</code> if enabled.
+     * 
+     * @param parentElement the element to append the component element to
+     * @param c the rendering component
+     * @param ancestorStored flag indicating that the rendered state of an ancestor component will be stored in the
+     *        <code>FragmentCache</code>, in which case the state of the component is not stored separately 
+     */
+    private Element renderComponentState(Element parentElement, Component c, boolean ancestorStored)
+    throws SerialException {
+        if (fragmentCache == null) {
+            return renderComponentStateImpl(parentElement, c, false);
+        }
+        
+        boolean store = false;
+        if (!ancestorStored) {
+            Element fragment = fragmentCache.get(c);
+            if (fragment != null) {
+                // Hierarchy is unchanged since its state was stored: initialize peers and splice in stored state.
+                initComponentState(c);
+                Element cElement = (Element) parentElement.getOwnerDocument().importNode(fragment, true);
+                parentElement.appendChild(cElement);
+                return cElement;
+            }
+            store = fragmentCache.isStable(c);
+        }
+        
+        int initialComponentCount = renderedComponentCount;
+        int initialReferenceCount = messageReferenceCount;
+        Element cElement = renderComponentStateImpl(parentElement, c, ancestorStored || store);
+        if (store) {
+            fragmentCache.store(c, cElement, renderedComponentCount - initialComponentCount, 
+                    messageReferenceCount == initialReferenceCount);
+        } else {
+            fragmentCache.record(c);
+        }
+        return cElement;
+    }
+    
+    /**
+     * Implementation method for <code>renderComponentState()</code>.
+     * 
+     * @param parentElement the element to append the component element to
+     * @param c the rendering component
+     * @param ancestorStored flag indicating that the rendered state of this component or an ancestor will be stored
+     *        in the <code>FragmentCache</code>
+     */
+    private Element renderComponentStateImpl(Element parentElement, Component c, boolean ancestorStored)
     throws SerialException {
         Document document = parentElement.getOwnerDocument();
         ComponentSynchronizePeer componentPeer = SynchronizePeerFactory.getPeerForComponent(c.getClass());
@@ -616,6 +920,7 @@ class OutputProcessor {
             throw new IllegalStateException("No synchronize peer found for component: " + c.getClass().getName());
         }
         
+        ++renderedComponentCount;
         Element cElement = document.createElement("c");
         cElement.setAttribute("i", userInstance.getClientRenderId(c));
 
@@ -628,6 +933,7 @@ class OutputProcessor {
         
         // Render focus traversal information.
         if (c.getFocusNextId() != null || c.getFocusPreviousId() != null) {
+            ++messageReferenceCount;
             Element fElement = document.createElement("f");
             if (c.getFocusNextId() != null) {
                 Component focusComponent = c.getApplicationInstance().getComponentByRenderId(c.getFocusNextId());
@@ -687,7 +993,7 @@ class OutputProcessor {
         // Render child components.
         Component[] children = c.getVisibleComponents();
         for (int i = 0; i < children.length; ++i) {
-            renderComponentState(cElement, children[i]);
+            renderComponentState(cElement, children[i], ancestorStored);
         }
         
         // Append component element to parent.
@@ -735,6 +1041,7 @@ class OutputProcessor {
         Element srElement = document.createElement("sr");
         srElement.appendChild(document.createTextNode(styleKey));
         element.appendChild(srElement);
+        ++messageReferenceCount;
     }
 
     /**
@@ -795,6 +1102,7 @@ class OutputProcessor {
      */
     private void renderComponentUpdatedProperties(Element upElement, Component c, ServerComponentUpdate update) 
     throws SerialException {
+        ++renderedComponentCount;
         ComponentSynchronizePeer componentPeer = SynchronizePeerFactory.getPeerForComponent(c.getClass());
         if (componentPeer == null) {
             throw new IllegalStateException("No synchronize peer found for component: " + c.getClass().getName());
@@ -855,6 +1163,36 @@ class OutputProcessor {
         }
     }
     
+    /**
+     * Renders the digests of all rendered component states and of the rendered style sheet, such that they may be
+     * reported by the client when it is resynchronized.
+     * 
+     * @see WebContainerServlet#isIncrementalResyncEnabled()
+     */
+    private void renderDigests() {
+        ComponentDigest componentDigest = new ComponentDigest(rpElement, rsElement);
+        Element[] dirElements = DomUtil.getChildElementsByTagName(
+                serverMessage.getPartGroup(ServerMessage.GROUP_ID_UPDATE), "dir");
+        for (int i = 0; i < dirElements.length; ++i) {
+            if (!"CSyncUp".equals(dirElements[i].getAttribute("proc"))) {
+                continue;
+            }
+            Node node = dirElements[i].getFirstChild();
+            while (node != null) {
+                if ("ss".equals(node.getNodeName())) {
+                    ((Element) node).setAttribute(ComponentDigest.ATTRIBUTE_DIGEST, 
+                            componentDigest.getDigest((Element) node));
+                } else if ("up".equals(node.getNodeName())) {
+                    Element[] cElements = DomUtil.getChildElementsByTagName((Element) node, "c");
+                    for (int j = 0; j < cElements.length; ++j) {
+                        componentDigest.annotate(cElements[j]);
+                    }
+                }
+                node = node.getNextSibling();
+            }
+        }
+    }
+    
     /**
      * Renders the focus state of the application, if necessary.
      */
@@ -935,15 +1273,16 @@ class OutputProcessor {
     /**
      * Renders the complete style sheet of an application to the ServerMessage.
      * 
+     * @return the rendered style sheet ("ss") element
      * @throws SerialException
      */
-    private void renderStyleSheet() 
+    private Element renderStyleSheet() 
     throws SerialException {
         Element ssElement = serverMessage.addDirective(ServerMessage.GROUP_ID_UPDATE, "CSyncUp", "ss");
         
         StyleSheet styleSheet = userInstance.getApplicationInstance().getStyleSheet();
         if (styleSheet == null) {
-            return;
+            return ssElement;
         }
         
         Document document = ssElement.getOwnerDocument();
@@ -983,6 +1322,7 @@ class OutputProcessor {
                 ssElement.appendChild(sElement);
             }
         }
+        return ssElement;
     }
 
     /**
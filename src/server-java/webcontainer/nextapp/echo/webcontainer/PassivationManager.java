@@ -0,0 +1,282 @@
+/* 
+ * This file is part of the Echo Web Application Framework (hereinafter "Echo").
+ * Copyright (C) 2002-2009 NextApp, Inc.
+ *
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ */
+
+package nextapp.echo.webcontainer;
+
+import java.io.PrintWriter;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.WeakHashMap;
+
+import nextapp.echo.webcontainer.util.Histogram;
+
+/**
+ * Passivates idle <code>UserInstance</code>s, writing them to a <code>PassivationStore</code> and removing them
+ * from the heap.  A passivated <code>UserInstance</code> is restored when it is next retrieved by a 
+ * <code>Connection</code>, and performs a full refresh on its next synchronization.
+ * <p>
+ * <code>UserInstance</code>s with active task queues are never passivated.
+ * A <code>UserInstanceContainer</code> restores all of its passivated <code>UserInstance</code>s before it is 
+ * serialized or disposed.
+ * 
+ * @see WebContainerServlet#enablePassivation(PassivationStore, long)
+ */
+public class PassivationManager {
+    
+    /** Minimum interval between checks for idle <code>UserInstance</code>s, in milliseconds. */
+    private static final long MINIMUM_CHECK_INTERVAL = 1000;
+    
+    /** The store to which <code>UserInstance</code>s are passivated. */
+    private PassivationStore store;
+    
+    /** The time after which an unused <code>UserInstance</code> is passivated, in milliseconds. */
+    private long idleTime;
+    
+    /** Registered <code>UserInstanceContainer</code>s (keys), weakly referenced. */
+    private Map containers = new WeakHashMap();
+    
+    /** Timer which periodically passivates idle <code>UserInstance</code>s, or null if not started. */
+    private Timer timer;
+    
+    /** Passivation duration histogram (nanoseconds). */
+    private Histogram passivationTime = new Histogram();
+    
+    /** Activation duration histogram (nanoseconds). */
+    private Histogram activationTime = new Histogram();
+    
+    /** Passivated snapshot size histogram (bytes). */
+    private Histogram snapshotSize = new Histogram();
+    
+    /** Number of currently passivated <code>UserInstance</code>s. */
+    private int passivatedCount;
+    
+    /** Number of failed passivations and activations. */
+    private long failureCount;
+
+    /**
+     * Creates a new <code>PassivationManager</code>.
+     * 
+     * @param store the store to which <code>UserInstance</code>s should be passivated
+     * @param idleTime the time after which an unused <code>UserInstance</code> should be passivated, 
+     *        in milliseconds
+     */
+    public PassivationManager(PassivationStore store, long idleTime) {
+        super();
+        this.store = store;
+        this.idleTime = idleTime;
+    }
+    
+    /**
+     * Stops periodic passivation of idle <code>UserInstance</code>s.
+     */
+    synchronized void dispose() {
+        if (timer != null) {
+            timer.cancel();
+            timer = null;
+        }
+    }
+    
+    /**
+     * Returns the activation duration histogram, in nanoseconds.
+     * 
+     * @return the histogram
+     */
+    public Histogram getActivationTime() {
+        return activationTime;
+    }
+    
+    /**
+     * Returns the number of passivations and activations which have failed.
+     * 
+     * @return the count
+     */
+    public synchronized long getFailureCount() {
+        return failureCount;
+    }
+    
+    /**
+     * Returns the time after which an unused <code>UserInstance</code> is passivated.
+     * 
+     * @return the time, in milliseconds
+     */
+    public long getIdleTime() {
+        return idleTime;
+    }
+    
+    /**
+     * Returns the number of currently passivated <code>UserInstance</code>s.
+     * 
+     * @return the count
+     */
+    public synchronized int getPassivatedCount() {
+        return passivatedCount;
+    }
+    
+    /**
+     * Returns the passivation duration histogram, in nanoseconds.
+     * 
+     * @return the histogram
+     */
+    public Histogram getPassivationTime() {
+        return passivationTime;
+    }
+    
+    /**
+     * Returns the passivated snapshot size histogram, in bytes.
+     * 
+     * @return the histogram
+     */
+    public Histogram getSnapshotSize() {
+        return snapshotSize;
+    }
+    
+    /**
+     * Returns the store to which <code>UserInstance</code>s are passivated.
+     * 
+     * @return the store
+     */
+    public PassivationStore getStore() {
+        return store;
+    }
+    
+    /**
+     * Passivates all <code>UserInstance</code>s of registered <code>UserInstanceContainer</code>s which have not 
+     * been used within the idle time.  Invoked periodically once the manager has been started.
+     * 
+     * @return the number of passivated <code>UserInstance</code>s
+     */
+    public int passivateIdleUserInstances() {
+        Object[] registered;
+        synchronized (containers) {
+            registered = containers.keySet().toArray();
+        }
+        long idleSince = System.currentTimeMillis() - idleTime;
+        int count = 0;
+        for (int i = 0; i < registered.length; ++i) {
+            count += ((UserInstanceContainer) registered[i]).passivateIdleUserInstances(idleSince);
+        }
+        return count;
+    }
+    
+    /**
+     * Records the activation of a <code>UserInstance</code>.
+     * 
+     * @param time the duration of the activation, in nanoseconds
+     */
+    void recordActivation(long time) {
+        activationTime.record(time);
+        synchronized (this) {
+            --passivatedCount;
+        }
+    }
+    
+    /**
+     * Records that a passivated <code>UserInstance</code> has been discarded without being activated.
+     */
+    synchronized void recordDiscard() {
+        --passivatedCount;
+    }
+    
+    /**
+     * Records a failed passivation or activation.
+     */
+    synchronized void recordFailure() {
+        ++failureCount;
+    }
+    
+    /**
+     * Records the passivation of a <code>UserInstance</code>.
+     * 
+     * @param time the duration of the passivation, in nanoseconds
+     * @param size the size of the snapshot, in bytes
+     */
+    void recordPassivation(long time, int size) {
+        passivationTime.record(time);
+        snapshotSize.record(size);
+        synchronized (this) {
+            ++passivatedCount;
+        }
+    }
+    
+    /**
+     * Registers a <code>UserInstanceContainer</code>, such that its idle <code>UserInstance</code>s will be 
+     * passivated.  Registering a container more than once has no effect.
+     * 
+     * @param container the <code>UserInstanceContainer</code>
+     */
+    void register(UserInstanceContainer container) {
+        synchronized (containers) {
+            if (containers.containsKey(container)) {
+                return;
+            }
+            containers.put(container, Boolean.TRUE);
+        }
+        container.setPassivationManager(this);
+    }
+    
+    /**
+     * Starts periodic passivation of idle <code>UserInstance</code>s, using a daemon thread.
+     */
+    synchronized void start() {
+        if (timer != null) {
+            return;
+        }
+        long interval = Math.max(idleTime / 4, MINIMUM_CHECK_INTERVAL);
+        timer = new Timer(true);
+        timer.schedule(new TimerTask() {
+        
+            /**
+             * @see java.util.TimerTask#run()
+             */
+            public void run() {
+                try {
+                    passivateIdleUserInstances();
+                } catch (RuntimeException ex) {
+                    // Do not allow a failure to terminate the timer thread.
+                    recordFailure();
+                }
+            }
+        }, interval, interval);
+    }
+    
+    /**
+     * Writes a human-readable summary of passivation statistics.
+     * Durations are written in microseconds.
+     * 
+     * @param out the <code>PrintWriter</code> to which the summary should be written
+     */
+    public void write(PrintWriter out) {
+        out.println("passivated: " + getPassivatedCount() + " (failures: " + getFailureCount() + ")");
+        SyncStatistics.writeHeader(out);
+        SyncStatistics.writeHistogram(out, "passivate(us)", passivationTime, 1000);
+        SyncStatistics.writeHistogram(out, "activate(us)", activationTime, 1000);
+        SyncStatistics.writeHistogram(out, "snapshotBytes", snapshotSize, 1);
+    }
+}
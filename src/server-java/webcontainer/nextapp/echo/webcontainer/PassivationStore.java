@@ -0,0 +1,70 @@
+/* 
+ * This file is part of the Echo Web Application Framework (hereinafter "Echo").
+ * Copyright (C) 2002-2009 NextApp, Inc.
+ *
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ */
+
+package nextapp.echo.webcontainer;
+
+import java.io.IOException;
+
+/**
+ * Storage for the snapshots of passivated <code>UserInstance</code>s, which are removed from the heap while 
+ * idle and restored when next accessed.
+ * <p>
+ * Implementations must be thread-safe.
+ * 
+ * @see PassivationManager
+ */
+public interface PassivationStore {
+
+    /**
+     * Reads a stored snapshot.
+     * 
+     * @param key the key with which the snapshot was written
+     * @return the snapshot data, or null if no snapshot is stored with the specified key
+     * @throws IOException if the snapshot cannot be read
+     */
+    public byte[] read(String key)
+    throws IOException;
+    
+    /**
+     * Removes a stored snapshot.  Has no effect if no snapshot is stored with the specified key.
+     * 
+     * @param key the key with which the snapshot was written
+     */
+    public void remove(String key);
+    
+    /**
+     * Writes a snapshot, replacing any snapshot previously written with the same key.
+     * 
+     * @param key the key, a <code>String</code> consisting of letters, digits, underscores and hyphens
+     * @param data the snapshot data
+     * @throws IOException if the snapshot cannot be written
+     */
+    public void write(String key, byte[] data)
+    throws IOException;
+}
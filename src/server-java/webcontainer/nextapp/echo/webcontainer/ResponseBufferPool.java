@@ -0,0 +1,229 @@
+/* 
+ * This file is part of the Echo Web Application Framework (hereinafter "Echo").
+ * Copyright (C) 2002-2009 NextApp, Inc.
+ *
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ */
+
+package nextapp.echo.webcontainer;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import nextapp.echo.webcontainer.util.Histogram;
+
+/**
+ * A pool of response buffers, into which dynamic content is rendered in its entirety, such that it may be sent in
+ * a single write with a <code>Content-Length</code> header (rather than in many small chunked writes), and such 
+ * that a response which fails while being rendered may be replaced by an error response.
+ * Responses which exceed the buffer size are streamed to the client.
+ * <p>
+ * Idle buffers are striped across several pools (selected by thread), to reduce contention.
+ * 
+ * @see WebContainerServlet#enableResponseBuffering(int, int)
+ * @see Connection#enableResponseBuffering()
+ */
+public class ResponseBufferPool {
+    
+    /**
+     * A stripe of idle buffers, with acquisition statistics of the threads using it.
+     * Guarded by its own monitor.
+     */
+    private static class Stripe {
+        
+        /** Idle buffers, a <code>List</code> of <code>byte[]</code>s. */
+        private List idle = new ArrayList();
+        
+        /** Number of buffers acquired from the stripe. */
+        private long acquiredCount;
+        
+        /** Number of buffers allocated because the stripe had no idle buffer. */
+        private long allocatedCount;
+    }
+    
+    /** Number of stripes of idle buffers. */
+    private static final int STRIPE_COUNT = 8;
+    
+    /** The size of each buffer, in bytes. */
+    private int bufferSize;
+    
+    /** The maximum number of idle buffers retained by each stripe. */
+    private int maximumIdlePerStripe;
+    
+    /** Stripes of idle buffers. */
+    private Stripe[] stripes = new Stripe[STRIPE_COUNT];
+    
+    /** Buffered response size histogram (bytes). */
+    private Histogram responseSize = new Histogram();
+    
+    /** Number of responses which exceeded the buffer size and were streamed. */
+    private long streamedCount;
+    
+    /**
+     * Creates a new <code>ResponseBufferPool</code>.
+     * 
+     * @param bufferSize the size of each buffer, i.e., the size above which responses are streamed, in bytes
+     * @param maximumIdle the maximum number of idle buffers to retain
+     */
+    public ResponseBufferPool(int bufferSize, int maximumIdle) {
+        super();
+        this.bufferSize = bufferSize;
+        maximumIdlePerStripe = Math.max(1, maximumIdle / STRIPE_COUNT);
+        for (int i = 0; i < STRIPE_COUNT; ++i) {
+            stripes[i] = new Stripe();
+        }
+    }
+    
+    /**
+     * Retrieves a buffer from the pool, allocating a new one if none is available.
+     * 
+     * @return the buffer
+     */
+    byte[] acquire() {
+        Stripe stripe = getStripe();
+        synchronized (stripe) {
+            ++stripe.acquiredCount;
+            int size = stripe.idle.size();
+            if (size > 0) {
+                return (byte[]) stripe.idle.remove(size - 1);
+            }
+            ++stripe.allocatedCount;
+        }
+        return new byte[bufferSize];
+    }
+    
+    /**
+     * Returns the number of buffers acquired.  Buffers which were not allocated were reused.
+     * 
+     * @return the count
+     */
+    public long getAcquiredCount() {
+        long count = 0;
+        for (int i = 0; i < STRIPE_COUNT; ++i) {
+            synchronized (stripes[i]) {
+                count += stripes[i].acquiredCount;
+            }
+        }
+        return count;
+    }
+    
+    /**
+     * Returns the number of buffers allocated.
+     * 
+     * @return the count
+     */
+    public long getAllocatedCount() {
+        long count = 0;
+        for (int i = 0; i < STRIPE_COUNT; ++i) {
+            synchronized (stripes[i]) {
+                count += stripes[i].allocatedCount;
+            }
+        }
+        return count;
+    }
+    
+    /**
+     * Returns the size of each buffer, i.e., the size above which responses are streamed.
+     * 
+     * @return the size, in bytes
+     */
+    public int getBufferSize() {
+        return bufferSize;
+    }
+    
+    /**
+     * Returns the buffered response size histogram, in bytes.
+     * Streamed responses are not included.
+     * 
+     * @return the histogram
+     */
+    public Histogram getResponseSize() {
+        return responseSize;
+    }
+    
+    /**
+     * Returns the stripe of idle buffers of the current thread.
+     * 
+     * @return the stripe
+     */
+    private Stripe getStripe() {
+        return stripes[(Thread.currentThread().hashCode() & 0x7fffffff) % STRIPE_COUNT];
+    }
+    
+    /**
+     * Returns the number of responses which exceeded the buffer size and were streamed.
+     * 
+     * @return the count
+     */
+    public synchronized long getStreamedCount() {
+        return streamedCount;
+    }
+    
+    /**
+     * Records the size of a buffered response.
+     * 
+     * @param size the size, in bytes
+     */
+    void recordBuffered(int size) {
+        responseSize.record(size);
+    }
+    
+    /**
+     * Records a response which exceeded the buffer size and was streamed.
+     */
+    synchronized void recordStreamed() {
+        ++streamedCount;
+    }
+    
+    /**
+     * Returns a buffer to the pool.
+     * The buffer is discarded if the pool is full.
+     * The buffer may not be used by the caller after it has been released.
+     * 
+     * @param buffer the buffer, which must have been retrieved by <code>acquire()</code>
+     */
+    void release(byte[] buffer) {
+        Stripe stripe = getStripe();
+        synchronized (stripe) {
+            if (stripe.idle.size() < maximumIdlePerStripe) {
+                stripe.idle.add(buffer);
+            }
+        }
+    }
+    
+    /**
+     * Writes a human-readable summary of response buffering statistics.
+     * 
+     * @param out the <code>PrintWriter</code> to which the summary should be written
+     */
+    public void write(PrintWriter out) {
+        long acquired = getAcquiredCount();
+        out.println("bufferSize: " + bufferSize + ", acquired: " + acquired + " (reused: " 
+                + (acquired - getAllocatedCount()) + "), streamed: " + getStreamedCount());
+        SyncStatistics.writeHeader(out);
+        SyncStatistics.writeHistogram(out, "bufferedBytes", responseSize, 1);
+    }
+}
@@ -0,0 +1,79 @@
+/* 
+ * This file is part of the Echo Web Application Framework (hereinafter "Echo").
+ * Copyright (C) 2002-2009 NextApp, Inc.
+ *
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ */
+
+package nextapp.echo.webcontainer;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import nextapp.echo.app.util.Context;
+import nextapp.echo.app.util.DomUtil;
+
+import org.w3c.dom.Element;
+
+/**
+ * <code>ClientMessage.Processor</code> which stores the digests of the rendered component states held by a
+ * resynchronizing client (see <code>nextapp.echo.webcontainer.util.ComponentDigest</code>), such that only 
+ * those components whose states have diverged from the server are rendered again.
+ * The digests are reported by the client when requested by the server in response to an out-of-sync
+ * client message.
+ * 
+ * @see WebContainerServlet#isIncrementalResyncEnabled()
+ */
+public class ResyncInputProcessor
+implements ClientMessage.Processor {
+    
+    /** 
+     * The key under which the digest of the client's style sheet is stored. 
+     * (Client render ids of components are always prefixed with "C.")
+     */
+    static final String STYLE_SHEET_KEY = "ss";
+
+    /**
+     * @see nextapp.echo.webcontainer.ClientMessage.Processor#process(nextapp.echo.app.util.Context, org.w3c.dom.Element)
+     */
+    public void process(Context context, Element dirElement) 
+    throws IOException {
+        UserInstance userInstance = (UserInstance) context.get(UserInstance.class);
+        Map clientDigests = new HashMap();
+        
+        Element ssElement = DomUtil.getChildElementByTagName(dirElement, "ss");
+        if (ssElement != null) {
+            clientDigests.put(STYLE_SHEET_KEY, ssElement.getAttribute("d"));
+        }
+        
+        Element[] cElements = DomUtil.getChildElementsByTagName(dirElement, "c");
+        for (int i = 0; i < cElements.length; ++i) {
+            clientDigests.put(cElements[i].getAttribute("i"), cElements[i].getAttribute("d"));
+        }
+        
+        userInstance.setClientDigests(clientDigests);
+    }
+}
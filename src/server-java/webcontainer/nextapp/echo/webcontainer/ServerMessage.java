@@ -34,6 +34,7 @@ import java.util.Set;
 
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
+import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 
 import nextapp.echo.app.util.DomUtil;
@@ -190,6 +191,29 @@ public class ServerMessage {
         return directiveElement;
     }
 
+    /**
+     * Returns the number of directives ("message-part" elements) in the document.
+     * 
+     * @return the directive count
+     */
+    public int getDirectiveCount() {
+        int count = 0;
+        Node groupNode = serverMessageElement.getFirstChild();
+        while (groupNode != null) {
+            if ("group".equals(groupNode.getNodeName())) {
+                Node directiveNode = groupNode.getFirstChild();
+                while (directiveNode != null) {
+                    if ("dir".equals(directiveNode.getNodeName())) {
+                        ++count;
+                    }
+                    directiveNode = directiveNode.getNextSibling();
+                }
+            }
+            groupNode = groupNode.getNextSibling();
+        }
+        return count;
+    }
+    
     /**
      * Returns the XML DOM.
      * 
@@ -209,6 +233,29 @@ public class ServerMessage {
         serverMessageElement.setAttribute(attributeName, attributeValue);
     }
     
+    /**
+     * Sets the "rd" attribute to true, requesting that the client report the digests of its rendered component
+     * states in its next client message, such that it may be resynchronized incrementally.
+     *
+     * @see WebContainerServlet#isIncrementalResyncEnabled()
+     */
+    public void setDigestRequest() {
+        serverMessageElement.setAttribute("rd", "true");
+    }
+
+    /**
+     * Sets the maximum number of synchronization requests the client may have in progress at one time.
+     * The attribute is only rendered if pipelining is enabled, i.e., if the depth exceeds 1.
+     * 
+     * @param pipelineDepth the pipeline depth
+     * @see WebContainerServlet#getSyncPipelineDepth()
+     */
+    public void setPipelineDepth(int pipelineDepth) {
+        if (pipelineDepth > 1) {
+            serverMessageElement.setAttribute("pd", Integer.toString(pipelineDepth));
+        }
+    }
+    
     /**
      * Sets the "resync" attribute to true, indicating that the server
      * is recovering from a condition where the client has become out of sync.
@@ -0,0 +1,202 @@
+/* 
+ * This file is part of the Echo Web Application Framework (hereinafter "Echo").
+ * Copyright (C) 2002-2009 NextApp, Inc.
+ *
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ */
+
+package nextapp.echo.webcontainer;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import javax.servlet.ServletRequest;
+
+/**
+ * Provides access to Servlet 3.0 asynchronous request processing, where available.
+ * The Servlet 3.0 API is accessed reflectively, such that the web container may continue to be compiled against and
+ * deployed in Servlet 2.4 containers, in which asynchronous processing is simply not supported.
+ */
+class ServletAsyncSupport {
+    
+    /** <code>ServletRequest.isAsyncSupported()</code>, or null if the Servlet 3.0 API is not available. */
+    private static final Method IS_ASYNC_SUPPORTED;
+    
+    /** <code>ServletRequest.startAsync()</code>, or null if the Servlet 3.0 API is not available. */
+    private static final Method START_ASYNC;
+    
+    /** <code>AsyncContext.setTimeout(long)</code>, or null if the Servlet 3.0 API is not available. */
+    private static final Method SET_TIMEOUT;
+    
+    /** <code>AsyncContext.complete()</code>, or null if the Servlet 3.0 API is not available. */
+    private static final Method COMPLETE;
+    
+    /** <code>AsyncContext.addListener(AsyncListener)</code>, or null if the Servlet 3.0 API is not available. */
+    private static final Method ADD_LISTENER;
+    
+    /** The <code>javax.servlet.AsyncListener</code> interface, or null if the Servlet 3.0 API is not available. */
+    private static final Class ASYNC_LISTENER_CLASS;
+    
+    static {
+        Method isAsyncSupported = null;
+        Method startAsync = null;
+        Method setTimeout = null;
+        Method complete = null;
+        Method addListener = null;
+        Class asyncListenerClass = null;
+        try {
+            Class asyncContextClass = Class.forName("javax.servlet.AsyncContext");
+            asyncListenerClass = Class.forName("javax.servlet.AsyncListener");
+            isAsyncSupported = ServletRequest.class.getMethod("isAsyncSupported", new Class[0]);
+            startAsync = ServletRequest.class.getMethod("startAsync", new Class[0]);
+            setTimeout = asyncContextClass.getMethod("setTimeout", new Class[] { Long.TYPE });
+            addListener = asyncContextClass.getMethod("addListener", new Class[] { asyncListenerClass });
+            complete = asyncContextClass.getMethod("complete", new Class[0]);
+        } catch (ClassNotFoundException ex) {
+            // Servlet 3.0 API not available.
+        } catch (NoSuchMethodException ex) {
+            // Servlet 3.0 API not available.
+        }
+        if (complete == null) {
+            IS_ASYNC_SUPPORTED = START_ASYNC = SET_TIMEOUT = COMPLETE = ADD_LISTENER = null;
+            ASYNC_LISTENER_CLASS = null;
+        } else {
+            IS_ASYNC_SUPPORTED = isAsyncSupported;
+            START_ASYNC = startAsync;
+            SET_TIMEOUT = setTimeout;
+            COMPLETE = complete;
+            ADD_LISTENER = addListener;
+            ASYNC_LISTENER_CLASS = asyncListenerClass;
+        }
+    }
+    
+    /**
+     * <code>InvocationHandler</code> implementing <code>AsyncListener</code>, notifying a handler when 
+     * asynchronous processing times out.
+     */
+    private static class TimeoutListener 
+    implements InvocationHandler {
+        
+        /** The timeout handler. */
+        private Runnable timeoutHandler;
+        
+        /**
+         * Creates a new <code>TimeoutListener</code>.
+         * 
+         * @param timeoutHandler the timeout handler
+         */
+        private TimeoutListener(Runnable timeoutHandler) {
+            super();
+            this.timeoutHandler = timeoutHandler;
+        }
+        
+        /**
+         * @see java.lang.reflect.InvocationHandler#invoke(java.lang.Object, java.lang.reflect.Method, java.lang.Object[])
+         */
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            String name = method.getName();
+            if (method.getDeclaringClass() == Object.class) {
+                if ("equals".equals(name)) {
+                    return Boolean.valueOf(proxy == args[0]);
+                } else if ("hashCode".equals(name)) {
+                    return new Integer(System.identityHashCode(proxy));
+                } else {
+                    return "TimeoutListener";
+                }
+            }
+            if ("onTimeout".equals(name)) {
+                timeoutHandler.run();
+            }
+            return null;
+        }
+    }
+    
+    /**
+     * Completes asynchronous processing of a request, committing the response.
+     * 
+     * @param asyncContext the <code>AsyncContext</code> returned by <code>startAsync()</code>
+     */
+    static void complete(Object asyncContext) {
+        invoke(COMPLETE, asyncContext, new Object[0]);
+    }
+    
+    /**
+     * Invokes a method reflectively, rethrowing any exception it throws as a <code>RuntimeException</code>.
+     * 
+     * @param method the method
+     * @param object the object on which the method should be invoked
+     * @param args the arguments
+     * @return the return value of the method
+     */
+    private static Object invoke(Method method, Object object, Object[] args) {
+        try {
+            return method.invoke(object, args);
+        } catch (IllegalAccessException ex) {
+            throw new WebContainerServletException("Cannot access Servlet 3.0 API.", ex);
+        } catch (InvocationTargetException ex) {
+            if (ex.getTargetException() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getTargetException();
+            }
+            throw new WebContainerServletException("Servlet 3.0 API invocation failed.", ex);
+        }
+    }
+    
+    /**
+     * Determines whether a request may be processed asynchronously, i.e., whether the Servlet 3.0 API is available
+     * and the servlet (and all filters through which the request passed) support asynchronous processing.
+     * 
+     * @param request the request
+     * @return true if the request may be processed asynchronously
+     */
+    static boolean isAsyncSupported(ServletRequest request) {
+        return IS_ASYNC_SUPPORTED != null && Boolean.TRUE.equals(invoke(IS_ASYNC_SUPPORTED, request, new Object[0]));
+    }
+    
+    /**
+     * Puts a request into asynchronous mode, such that the response is not committed when the servlet's service
+     * method returns.
+     * If processing has not completed when the timeout elapses, the timeout handler is invoked (on a container 
+     * thread).  The handler may complete the request; otherwise the servlet container will answer it with an error.
+     * 
+     * @param request the request
+     * @param timeout the timeout, in milliseconds (must be positive)
+     * @param timeoutHandler the timeout handler
+     * @return the <code>AsyncContext</code>, which must be passed to <code>complete()</code> when processing has 
+     *         completed
+     */
+    static Object startAsync(ServletRequest request, long timeout, Runnable timeoutHandler) {
+        Object asyncContext = invoke(START_ASYNC, request, new Object[0]);
+        invoke(SET_TIMEOUT, asyncContext, new Object[] { new Long(timeout) });
+        Object listener = Proxy.newProxyInstance(ASYNC_LISTENER_CLASS.getClassLoader(), 
+                new Class[] { ASYNC_LISTENER_CLASS }, new TimeoutListener(timeoutHandler));
+        invoke(ADD_LISTENER, asyncContext, new Object[] { listener });
+        return asyncContext;
+    }
+    
+    /** Non-instantiable class. */
+    private ServletAsyncSupport() { }
+}
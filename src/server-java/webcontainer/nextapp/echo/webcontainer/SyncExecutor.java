@@ -0,0 +1,377 @@
+/* 
+ * This file is part of the Echo Web Application Framework (hereinafter "Echo").
+ * Copyright (C) 2002-2009 NextApp, Inc.
+ *
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ */
+
+package nextapp.echo.webcontainer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import nextapp.echo.app.util.Log;
+import nextapp.echo.webcontainer.util.Histogram;
+
+/**
+ * Executes client-server synchronizations on a pool of worker threads, such that synchronizations which cannot 
+ * proceed (e.g., because another synchronization of the same <code>UserInstance</code> is in progress) do not 
+ * occupy servlet container threads.
+ * <p>
+ * Tasks are queued in "lanes", one per <code>UserInstance</code>.  The tasks of a lane are executed serially, in the
+ * order in which they were submitted, such that worker threads do not block waiting for one another on the 
+ * <code>UserInstance</code>.  Lanes with queued tasks are served round-robin, one task at a time, such that a single
+ * session cannot monopolize the workers.  Tasks are rejected when the number of queued tasks of a lane or of the 
+ * executor as a whole exceeds its limit.
+ * 
+ * @see WebContainerServlet#enableAsyncSynchronization(int, int, int)
+ */
+public class SyncExecutor {
+    
+    /**
+     * A queue of tasks for a single <code>UserInstance</code>.
+     */
+    private static class Lane {
+        
+        /** The lane key. */
+        private Object key;
+        
+        /** Queued tasks. */
+        private LinkedList tasks = new LinkedList();
+        
+        /** The number of tasks of the lane currently being executed (and not suspended). */
+        private int runningCount;
+        
+        /** The number of tasks of the lane whose execution is suspended. */
+        private int suspendedCount;
+        
+        /** Flag indicating whether the lane is in the ready queue. */
+        private boolean ready;
+        
+        /**
+         * Creates a new <code>Lane</code>.
+         * 
+         * @param key the lane key
+         */
+        private Lane(Object key) {
+            super();
+            this.key = key;
+        }
+    }
+    
+    /**
+     * A queued task.
+     */
+    private static class Task {
+        
+        /** The task. */
+        private Runnable runnable;
+        
+        /** The time at which the task was submitted, as returned by <code>SyncMetrics.nanoTime()</code>. */
+        private long submitTime;
+        
+        /**
+         * Creates a new <code>Task</code>.
+         * 
+         * @param runnable the task
+         */
+        private Task(Runnable runnable) {
+            super();
+            this.runnable = runnable;
+            submitTime = SyncMetrics.nanoTime();
+        }
+    }
+    
+    /** The executor and lane of the task being executed by the current thread. */
+    private static final ThreadLocal currentLane = new ThreadLocal();
+    
+    /**
+     * Notifies the executor executing the current thread's task, if any, that the task is about to wait for another 
+     * task of the same lane, e.g., a preceding pipelined synchronization which has not yet been received.
+     * The next task of the lane may then be executed by another worker.  
+     * Every invocation must be followed by an invocation of <code>resumeLane()</code>.
+     */
+    static void suspendLane() {
+        Object[] current = (Object[]) currentLane.get();
+        if (current != null) {
+            ((SyncExecutor) current[0]).suspend((Lane) current[1]);
+        }
+    }
+    
+    /**
+     * Notifies the executor executing the current thread's task, if any, that the task is no longer waiting.
+     */
+    static void resumeLane() {
+        Object[] current = (Object[]) currentLane.get();
+        if (current != null) {
+            ((SyncExecutor) current[0]).resume((Lane) current[1]);
+        }
+    }
+    
+    /** The number of worker threads. */
+    private int threadCount;
+    
+    /** The maximum number of queued tasks per lane. */
+    private int maxLaneTasks;
+    
+    /** The maximum number of queued tasks. */
+    private int maxTasks;
+    
+    /** Mapping between lane keys and <code>Lane</code>s with queued or executing tasks. */
+    private Map laneMap = new HashMap();
+    
+    /** Lanes with queued tasks which may be executed, in the order in which they should be served. */
+    private LinkedList readyLanes = new LinkedList();
+    
+    /** The number of queued tasks. */
+    private int taskCount;
+    
+    /** The number of rejected tasks. */
+    private long rejectedCount;
+    
+    /** The worker threads, or null if not started. */
+    private Thread[] workers;
+    
+    /** Flag indicating whether the executor has been disposed. */
+    private boolean disposed;
+    
+    /** Queue wait duration histogram (nanoseconds). */
+    private Histogram queueTime = new Histogram();
+    
+    /**
+     * Creates a new <code>SyncExecutor</code>.
+     * 
+     * @param threadCount the number of worker threads
+     * @param maxLaneTasks the maximum number of queued tasks per lane (i.e., per <code>UserInstance</code>)
+     * @param maxTasks the maximum number of queued tasks
+     */
+    public SyncExecutor(int threadCount, int maxLaneTasks, int maxTasks) {
+        super();
+        this.threadCount = threadCount;
+        this.maxLaneTasks = maxLaneTasks;
+        this.maxTasks = maxTasks;
+    }
+    
+    /**
+     * Stops the worker threads.  Queued tasks are discarded and returned, such that the invoker may reject them.
+     * Tasks which are being executed are allowed to complete.
+     * 
+     * @return the discarded tasks (<code>Runnable</code>s), in the order in which they were submitted per lane
+     */
+    synchronized List dispose() {
+        List discarded = new ArrayList();
+        Iterator laneIt = laneMap.values().iterator();
+        while (laneIt.hasNext()) {
+            Lane lane = (Lane) laneIt.next();
+            Iterator taskIt = lane.tasks.iterator();
+            while (taskIt.hasNext()) {
+                discarded.add(((Task) taskIt.next()).runnable);
+            }
+            lane.tasks.clear();
+        }
+        disposed = true;
+        laneMap.clear();
+        readyLanes.clear();
+        taskCount = 0;
+        notifyAll();
+        return discarded;
+    }
+    
+    /**
+     * Queues a task for execution.
+     * 
+     * @param key the lane key, identifying the <code>UserInstance</code> to which the task applies
+     * @param runnable the task
+     * @return true if the task was queued, false if it was rejected because the executor or the lane is at its limit, 
+     *         or the executor has been disposed
+     */
+    public synchronized boolean execute(Object key, Runnable runnable) {
+        Lane lane = (Lane) laneMap.get(key);
+        if (disposed || taskCount >= maxTasks || (lane != null && lane.tasks.size() >= maxLaneTasks)) {
+            ++rejectedCount;
+            return false;
+        }
+        if (lane == null) {
+            lane = new Lane(key);
+            laneMap.put(key, lane);
+        }
+        lane.tasks.add(new Task(runnable));
+        ++taskCount;
+        updateReady(lane);
+        return true;
+    }
+    
+    /**
+     * Returns the queue wait duration histogram, in nanoseconds.
+     * 
+     * @return the histogram
+     */
+    public Histogram getQueueTime() {
+        return queueTime;
+    }
+    
+    /**
+     * Returns the number of rejected tasks.
+     * 
+     * @return the count
+     */
+    public synchronized long getRejectedCount() {
+        return rejectedCount;
+    }
+    
+    /**
+     * Returns the number of queued tasks.
+     * 
+     * @return the count
+     */
+    public synchronized int getTaskCount() {
+        return taskCount;
+    }
+    
+    /**
+     * Returns the number of worker threads.
+     * 
+     * @return the thread count
+     */
+    public int getThreadCount() {
+        return threadCount;
+    }
+    
+    /**
+     * Resumes a suspended task of a lane.
+     * 
+     * @param lane the lane
+     */
+    private synchronized void resume(Lane lane) {
+        --lane.suspendedCount;
+        ++lane.runningCount;
+    }
+    
+    /**
+     * Worker thread main loop.
+     */
+    private void runWorker() {
+        while (true) {
+            Lane lane;
+            Task task;
+            synchronized (this) {
+                while (readyLanes.isEmpty() && !disposed) {
+                    try {
+                        wait();
+                    } catch (InterruptedException ex) {
+                        return;
+                    }
+                }
+                if (disposed) {
+                    return;
+                }
+                lane = (Lane) readyLanes.removeFirst();
+                lane.ready = false;
+                task = (Task) lane.tasks.removeFirst();
+                --taskCount;
+                ++lane.runningCount;
+            }
+            
+            queueTime.record(SyncMetrics.nanoTime() - task.submitTime);
+            currentLane.set(new Object[] { this, lane });
+            try {
+                task.runnable.run();
+            } catch (RuntimeException ex) {
+                // Do not allow a failure to terminate the worker thread.
+                Log.log("Synchronization task failed.", ex);
+            } catch (Error ex) {
+                Log.log("Synchronization task failed.", ex);
+            } finally {
+                currentLane.set(null);
+            }
+            
+            synchronized (this) {
+                --lane.runningCount;
+                updateReady(lane);
+            }
+        }
+    }
+    
+    /**
+     * Starts the worker threads.
+     * 
+     * @param threadFactory the <code>WebContainerServlet</code> which creates the worker threads
+     * @see WebContainerServlet#createSyncWorkerThread(Runnable)
+     */
+    synchronized void start(WebContainerServlet threadFactory) {
+        if (workers != null) {
+            return;
+        }
+        workers = new Thread[threadCount];
+        Runnable worker = new Runnable() {
+            
+            /**
+             * @see java.lang.Runnable#run()
+             */
+            public void run() {
+                runWorker();
+            }
+        };
+        for (int i = 0; i < workers.length; ++i) {
+            workers[i] = threadFactory.createSyncWorkerThread(worker);
+            workers[i].start();
+        }
+    }
+    
+    /**
+     * Suspends an executing task of a lane, allowing the next task of the lane to be executed.
+     * 
+     * @param lane the lane
+     */
+    private synchronized void suspend(Lane lane) {
+        --lane.runningCount;
+        ++lane.suspendedCount;
+        updateReady(lane);
+    }
+    
+    /**
+     * Adds a lane to the end of the ready queue if it has queued tasks and none of its tasks are executing, 
+     * or discards it if it has no queued, executing, or suspended tasks.
+     * The invoking thread must hold the monitor of the executor.
+     * 
+     * @param lane the lane
+     */
+    private void updateReady(Lane lane) {
+        if (lane.runningCount > 0 || lane.ready) {
+            return;
+        }
+        if (!lane.tasks.isEmpty()) {
+            lane.ready = true;
+            readyLanes.addLast(lane);
+            notify();
+        } else if (lane.suspendedCount == 0) {
+            laneMap.remove(lane.key);
+        }
+    }
+}
@@ -0,0 +1,271 @@
+/* 
+ * This file is part of the Echo Web Application Framework (hereinafter "Echo").
+ * Copyright (C) 2002-2009 NextApp, Inc.
+ *
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ */
+
+package nextapp.echo.webcontainer;
+
+import java.lang.reflect.Method;
+
+/**
+ * Measurements of a single client-server synchronization, broken down by processing phase.
+ * <p>
+ * Phases are timed sequentially: each call to <code>endPhase()</code> attributes the time elapsed since the
+ * previous call to the specified phase.  Phases which are entered more than once (e.g., input processing,
+ * which is interrupted by processing of client updates) accumulate their time.
+ * <p>
+ * Metrics are only collected when enabled by the <code>WebContainerServlet</code>, i.e., when
+ * <code>SyncMetricsListener</code>s are registered.
+ */
+public class SyncMetrics {
+    
+    /** Phase of parsing the XML client message. */
+    public static final int PHASE_PARSE = 0;
+    
+    /** Phase of processing client message directives (excluding client updates). */
+    public static final int PHASE_INPUT = 1;
+    
+    /** 
+     * Phase of <code>UpdateManager.processClientUpdates()</code>, including processing of queued tasks and 
+     * hierarchy validation.
+     */
+    public static final int PHASE_CLIENT_UPDATES = 2;
+    
+    /** Phase of clearing/purging <code>RenderState</code>s. */
+    public static final int PHASE_PURGE_RENDER_STATES = 3;
+    
+    /** Phase of rendering application state to the server message DOM. */
+    public static final int PHASE_RENDER = 4;
+    
+    /** Phase of serializing the server message DOM to the response. */
+    public static final int PHASE_SERIALIZE = 5;
+    
+    /** 
+     * Phase of completing the synchronization, i.e., purging processed updates and flushing buffered (and 
+     * possibly compressed) output. 
+     */
+    public static final int PHASE_WRITE = 6;
+    
+    /** The number of phases. */
+    public static final int PHASE_COUNT = 7;
+    
+    /** Phase names, indexed by phase. */
+    private static final String[] PHASE_NAMES = { "parse", "input", "clientUpdates", "purgeRenderStates", "render", 
+            "serialize", "write" };
+    
+    /** <code>System.nanoTime()</code>, if available. */
+    private static final Method nanoTimeMethod;
+    static {
+        Method method;
+        try {
+            method = System.class.getMethod("nanoTime", new Class[0]);
+        } catch (NoSuchMethodException ex) {
+            method = null;
+        }
+        nanoTimeMethod = method;
+    }
+    
+    /**
+     * Returns the name of a phase.
+     * 
+     * @param phase the phase, e.g., <code>PHASE_RENDER</code>
+     * @return the name
+     */
+    public static String getPhaseName(int phase) {
+        return PHASE_NAMES[phase];
+    }
+    
+    /**
+     * Returns the current time in nanoseconds, using <code>System.nanoTime()</code> if it is available.
+     * 
+     * @return the current time
+     */
+    static long nanoTime() {
+        if (nanoTimeMethod != null) {
+            try {
+                return ((Long) nanoTimeMethod.invoke(null, new Object[0])).longValue();
+            } catch (Exception ex) {
+                // Fall through.
+            }
+        }
+        return System.currentTimeMillis() * 1000000L;
+    }
+    
+    /** Accumulated phase durations, in nanoseconds, indexed by phase. */
+    private long[] phaseTimes = new long[PHASE_COUNT];
+    
+    /** The time at which the synchronization started. */
+    private long startTime;
+    
+    /** The time at which the most recent phase ended. */
+    private long markTime;
+    
+    /** The number of directives in the client message. */
+    private int inputDirectiveCount;
+    
+    /** The number of directives in the server message. */
+    private int outputDirectiveCount;
+    
+    /** The number of components rendered to the server message. */
+    private int componentCount;
+    
+    /** The size of the response, in bytes, as written to the client. */
+    private long responseBytes;
+    
+    /** Flag indicating whether the synchronization performed a full refresh. */
+    private boolean fullRefresh;
+    
+    /**
+     * Creates a new <code>SyncMetrics</code>, starting the timing of the first phase.
+     */
+    public SyncMetrics() {
+        super();
+        startTime = nanoTime();
+        markTime = startTime;
+    }
+    
+    /**
+     * Ends a phase, attributing the time elapsed since the end of the previous phase to it.
+     * 
+     * @param phase the phase, e.g., <code>PHASE_RENDER</code>
+     */
+    public void endPhase(int phase) {
+        long time = nanoTime();
+        phaseTimes[phase] += time - markTime;
+        markTime = time;
+    }
+    
+    /**
+     * Returns the number of components rendered to the server message.
+     * Components whose full state is rendered and components whose updated properties are rendered are both counted.
+     * 
+     * @return the component count
+     */
+    public int getComponentCount() {
+        return componentCount;
+    }
+    
+    /**
+     * Returns the number of directives in the client message.
+     * 
+     * @return the directive count
+     */
+    public int getInputDirectiveCount() {
+        return inputDirectiveCount;
+    }
+    
+    /**
+     * Returns the number of directives in the server message.
+     * 
+     * @return the directive count
+     */
+    public int getOutputDirectiveCount() {
+        return outputDirectiveCount;
+    }
+    
+    /**
+     * Returns the accumulated duration of a phase.
+     * 
+     * @param phase the phase, e.g., <code>PHASE_RENDER</code>
+     * @return the duration, in nanoseconds
+     */
+    public long getPhaseTime(int phase) {
+        return phaseTimes[phase];
+    }
+    
+    /**
+     * Returns the size of the response as written to the client, i.e., after compression.
+     * 
+     * @return the size, in bytes
+     */
+    public long getResponseBytes() {
+        return responseBytes;
+    }
+    
+    /**
+     * Returns the total duration of the synchronization, from its start to the end of the most recent phase.
+     * 
+     * @return the duration, in nanoseconds
+     */
+    public long getTotalTime() {
+        return markTime - startTime;
+    }
+    
+    /**
+     * Determines whether the synchronization performed a full refresh of the client.
+     * 
+     * @return true if a full refresh was performed
+     */
+    public boolean isFullRefresh() {
+        return fullRefresh;
+    }
+    
+    /**
+     * Sets the number of components rendered to the server message.
+     * 
+     * @param newValue the new component count
+     */
+    public void setComponentCount(int newValue) {
+        componentCount = newValue;
+    }
+    
+    /**
+     * Sets whether the synchronization performed a full refresh.
+     * 
+     * @param newValue the new full refresh state
+     */
+    public void setFullRefresh(boolean newValue) {
+        fullRefresh = newValue;
+    }
+    
+    /**
+     * Sets the number of directives in the client message.
+     * 
+     * @param newValue the new directive count
+     */
+    public void setInputDirectiveCount(int newValue) {
+        inputDirectiveCount = newValue;
+    }
+    
+    /**
+     * Sets the number of directives in the server message.
+     * 
+     * @param newValue the new directive count
+     */
+    public void setOutputDirectiveCount(int newValue) {
+        outputDirectiveCount = newValue;
+    }
+    
+    /**
+     * Sets the size of the response as written to the client.
+     * 
+     * @param newValue the new size, in bytes
+     */
+    public void setResponseBytes(long newValue) {
+        responseBytes = newValue;
+    }
+}
@@ -0,0 +1,267 @@
+/* 
+ * This file is part of the Echo Web Application Framework (hereinafter "Echo").
+ * Copyright (C) 2002-2009 NextApp, Inc.
+ *
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ */
+
+package nextapp.echo.webcontainer;
+
+import java.io.PrintWriter;
+import java.io.Serializable;
+
+import nextapp.echo.webcontainer.util.Histogram;
+
+/**
+ * Aggregated <code>SyncMetrics</code> of many synchronizations, stored as <code>Histogram</code>s.
+ * A <code>WebContainerServlet</code> with statistics enabled maintains one global instance and one 
+ * instance per <code>UserInstance</code>.
+ * 
+ * @see WebContainerServlet#enableSyncStatistics()
+ */
+public class SyncStatistics 
+implements Serializable {
+
+    /** Serial Version UID. */
+    private static final long serialVersionUID = 20070101L;
+
+    /** Names of the columns written by <code>write()</code>. */
+    private static final String[] COLUMN_NAMES = { "count", "mean", "p50", "p90", "p99", "max" };
+    
+    /** Width of the name column written by <code>write()</code>. */
+    private static final int NAME_WIDTH = 22;
+    
+    /** Width of the columns written by <code>write()</code>. */
+    private static final int COLUMN_WIDTH = 11;
+    
+    /**
+     * Appends a right-aligned column to a line.
+     * 
+     * @param line the line
+     * @param text the column text
+     */
+    private static void append(StringBuffer line, String text) {
+        pad(line, line.length() + COLUMN_WIDTH - text.length());
+        line.append(text);
+    }
+    
+    /**
+     * Pads a line with spaces.
+     * 
+     * @param line the line
+     * @param length the length to which the line should be padded
+     */
+    private static void pad(StringBuffer line, int length) {
+        while (line.length() < length) {
+            line.append(' ');
+        }
+    }
+    
+    /**
+     * Writes the header line of a summary written by <code>write()</code>.
+     * 
+     * @param out the <code>PrintWriter</code>
+     */
+    static void writeHeader(PrintWriter out) {
+        StringBuffer header = new StringBuffer("name");
+        pad(header, NAME_WIDTH);
+        for (int i = 0; i < COLUMN_NAMES.length; ++i) {
+            append(header, COLUMN_NAMES[i]);
+        }
+        out.println(header);
+    }
+    
+    /**
+     * Writes a summary line for a histogram.
+     * 
+     * @param out the <code>PrintWriter</code>
+     * @param name the name of the histogram
+     * @param histogram the histogram
+     * @param divisor the divisor by which recorded values should be divided for display
+     */
+    static void writeHistogram(PrintWriter out, String name, Histogram histogram, long divisor) {
+        StringBuffer line = new StringBuffer(name);
+        pad(line, NAME_WIDTH);
+        append(line, Long.toString(histogram.getCount()));
+        append(line, Long.toString(histogram.getMean() / divisor));
+        append(line, Long.toString(histogram.getPercentile(50) / divisor));
+        append(line, Long.toString(histogram.getPercentile(90) / divisor));
+        append(line, Long.toString(histogram.getPercentile(99) / divisor));
+        append(line, Long.toString(histogram.getMax() / divisor));
+        out.println(line);
+    }
+    
+    /** Phase duration histograms (nanoseconds), indexed by phase. */
+    private Histogram[] phaseTimes = new Histogram[SyncMetrics.PHASE_COUNT];
+    
+    /** Total duration histogram (nanoseconds). */
+    private Histogram totalTime = new Histogram();
+    
+    /** Response size histogram (bytes). */
+    private Histogram responseBytes = new Histogram();
+    
+    /** Rendered component count histogram. */
+    private Histogram componentCount = new Histogram();
+    
+    /** Client message directive count histogram. */
+    private Histogram inputDirectiveCount = new Histogram();
+    
+    /** Server message directive count histogram. */
+    private Histogram outputDirectiveCount = new Histogram();
+    
+    /** Number of synchronizations which performed a full refresh. */
+    private long fullRefreshCount;
+    
+    /**
+     * Creates a new <code>SyncStatistics</code>.
+     */
+    public SyncStatistics() {
+        super();
+        for (int i = 0; i < phaseTimes.length; ++i) {
+            phaseTimes[i] = new Histogram();
+        }
+    }
+    
+    /**
+     * Returns the rendered component count histogram.
+     * 
+     * @return the histogram
+     */
+    public Histogram getComponentCount() {
+        return componentCount;
+    }
+    
+    /**
+     * Returns the number of recorded synchronizations which performed a full refresh.
+     * 
+     * @return the count
+     */
+    public synchronized long getFullRefreshCount() {
+        return fullRefreshCount;
+    }
+    
+    /**
+     * Returns the client message directive count histogram.
+     * 
+     * @return the histogram
+     */
+    public Histogram getInputDirectiveCount() {
+        return inputDirectiveCount;
+    }
+    
+    /**
+     * Returns the server message directive count histogram.
+     * 
+     * @return the histogram
+     */
+    public Histogram getOutputDirectiveCount() {
+        return outputDirectiveCount;
+    }
+    
+    /**
+     * Returns the duration histogram of a phase, in nanoseconds.
+     * 
+     * @param phase the phase, e.g., <code>SyncMetrics.PHASE_RENDER</code>
+     * @return the histogram
+     */
+    public Histogram getPhaseTime(int phase) {
+        return phaseTimes[phase];
+    }
+    
+    /**
+     * Returns the response size histogram, in bytes.
+     * 
+     * @return the histogram
+     */
+    public Histogram getResponseBytes() {
+        return responseBytes;
+    }
+    
+    /**
+     * Returns the total synchronization duration histogram, in nanoseconds.
+     * 
+     * @return the histogram
+     */
+    public Histogram getTotalTime() {
+        return totalTime;
+    }
+    
+    /**
+     * Records the metrics of a synchronization.
+     * 
+     * @param metrics the metrics
+     */
+    public void record(SyncMetrics metrics) {
+        for (int i = 0; i < phaseTimes.length; ++i) {
+            phaseTimes[i].record(metrics.getPhaseTime(i));
+        }
+        totalTime.record(metrics.getTotalTime());
+        responseBytes.record(metrics.getResponseBytes());
+        componentCount.record(metrics.getComponentCount());
+        inputDirectiveCount.record(metrics.getInputDirectiveCount());
+        outputDirectiveCount.record(metrics.getOutputDirectiveCount());
+        if (metrics.isFullRefresh()) {
+            synchronized (this) {
+                ++fullRefreshCount;
+            }
+        }
+    }
+    
+    /**
+     * Discards all recorded statistics.
+     */
+    public void reset() {
+        for (int i = 0; i < phaseTimes.length; ++i) {
+            phaseTimes[i].reset();
+        }
+        totalTime.reset();
+        responseBytes.reset();
+        componentCount.reset();
+        inputDirectiveCount.reset();
+        outputDirectiveCount.reset();
+        synchronized (this) {
+            fullRefreshCount = 0;
+        }
+    }
+    
+    /**
+     * Writes a human-readable summary of the statistics.
+     * Durations are written in microseconds.
+     * 
+     * @param out the <code>PrintWriter</code> to which the summary should be written
+     */
+    public void write(PrintWriter out) {
+        out.println("synchronizations: " + totalTime.getCount() + " (full refresh: " + getFullRefreshCount() + ")");
+        writeHeader(out);
+        writeHistogram(out, "total(us)", totalTime, 1000);
+        for (int i = 0; i < phaseTimes.length; ++i) {
+            writeHistogram(out, SyncMetrics.getPhaseName(i) + "(us)", phaseTimes[i], 1000);
+        }
+        writeHistogram(out, "responseBytes", responseBytes, 1);
+        writeHistogram(out, "components", componentCount, 1);
+        writeHistogram(out, "inputDirectives", inputDirectiveCount, 1);
+        writeHistogram(out, "outputDirectives", outputDirectiveCount, 1);
+    }
+}
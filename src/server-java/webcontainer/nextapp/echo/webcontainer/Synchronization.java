@@ -42,6 +42,12 @@ import nextapp.echo.webcontainer.util.XmlRequestParser.InvalidXmlException;
  */
 public class Synchronization 
 implements SynchronizationState {
+    
+    /** 
+     * Maximum time, in milliseconds, to wait for preceding pipelined client messages to be processed before processing
+     * a pipelined client message.
+     */
+    private static final long PIPELINE_TIMEOUT = 10000;
 
     /** The <code>Connection</code> being processed. */
     private Connection conn;
@@ -96,6 +102,8 @@ implements SynchronizationState {
      */
     public void process() 
     throws IOException {
+        SyncMetrics metrics = conn.getServlet().isSyncMetricsEnabled() ? conn.startSyncMetrics() : null;
+        
         try {
             inputProcessor = new InputProcessor(this, conn);
         } catch (InvalidXmlException ex) {
@@ -104,10 +112,28 @@ implements SynchronizationState {
             conn.getResponse().sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid XML");
             return;
         }
+        if (metrics != null) {
+            metrics.endPhase(SyncMetrics.PHASE_PARSE);
+        }
         
         userInstance = conn.getUserInstance(inputProcessor.getWindowId(), inputProcessor.getInitId());
 
         synchronized(userInstance) {
+            int sequence = inputProcessor.getSequence();
+            if (sequence != -1) {
+                // Process pipelined client messages in the order in which they were sent.
+                if (sequence > userInstance.getSyncSequence() + 1) {
+                    // Allow the preceding message to be executed if synchronizations are being executed 
+                    // asynchronously, in which case it is queued behind this one.
+                    SyncExecutor.suspendLane();
+                    try {
+                        userInstance.waitForSyncSequence(sequence, PIPELINE_TIMEOUT);
+                    } finally {
+                        SyncExecutor.resumeLane();
+                    }
+                }
+            }
+            
             boolean initRequired = !userInstance.isInitialized();
             
             if (initRequired) {
@@ -119,6 +145,9 @@ implements SynchronizationState {
             try {
                 // Process client input.
                 inputProcessor.process();
+                if (metrics != null) {
+                    metrics.endPhase(SyncMetrics.PHASE_INPUT);
+                }
                 
                 // Manage render states.
                 if (userInstance.getUpdateManager().getServerUpdateManager().isFullRefreshRequired()) {
@@ -126,15 +155,28 @@ implements SynchronizationState {
                 } else {
                     userInstance.purgeRenderStates();
                 }
+                if (metrics != null) {
+                    metrics.setFullRefresh(userInstance.getUpdateManager().getServerUpdateManager().isFullRefreshRequired());
+                    metrics.endPhase(SyncMetrics.PHASE_PURGE_RENDER_STATES);
+                }
                 
                 // Render updates.
                 OutputProcessor outputProcessor = new OutputProcessor(this, conn);
                 outputProcessor.process();
                 
+                if (conn.getServlet().getMemoryManager() != null) {
+                    userInstance.updateEstimatedSize();
+                }
+                
                 // Purge updates.
                 userInstance.getUpdateManager().purge();
             } finally {
                 userInstance.setActive(false);
+                if (sequence != -1) {
+                    // Never move the sequence backwards, e.g., when processing a message which arrives after its 
+                    // successor has stopped waiting for it.
+                    userInstance.setSyncSequence(Math.max(sequence, userInstance.getSyncSequence()));
+                }
             }
         }
     }
@@ -44,10 +44,14 @@ import javax.servlet.http.HttpSession;
 
 import nextapp.echo.app.ApplicationInstance;
 import nextapp.echo.app.Component;
+import nextapp.echo.app.ContainerAccess;
 import nextapp.echo.app.TaskQueueHandle;
 import nextapp.echo.app.update.ServerComponentUpdate;
+import nextapp.echo.app.update.ServerUpdateManager;
 import nextapp.echo.app.update.UpdateManager;
+import nextapp.echo.app.util.RenderIdCodec;
 import nextapp.echo.webcontainer.util.IdTable;
+import nextapp.echo.webcontainer.util.MemoryEstimator;
 
 /**
  * Object representing a single user-instance of an application hosted in the 
@@ -63,6 +67,12 @@ public class UserInstance implements Serializable {
     /** Default asynchronous monitor callback interval (in milliseconds). */
     private static final int DEFAULT_CALLBACK_INTERVAL = 500;
     
+    /** 
+     * Number of synchronizations for which the size of the component hierarchy is estimated incrementally, 
+     * before it is again estimated in full.
+     */
+    private static final int FULL_SIZE_ESTIMATE_INTERVAL = 64;
+    
     /** Client configuration data property name. */ 
     public static final String PROPERTY_CLIENT_CONFIGURATION = "clientConfiguration";
 
@@ -157,6 +167,50 @@ public class UserInstance implements Serializable {
      * browser windows pointing at the same application instance.
      */
     private int transactionId = 0;
+    
+    /**
+     * The sequence number of the most recently processed pipelined client message.
+     */
+    private int syncSequence = 0;
+    
+    /** 
+     * Accumulated synchronization statistics, created when the first synchronization is recorded, 
+     * if statistics are enabled by the <code>WebContainerServlet</code>. 
+     */
+    private transient SyncStatistics syncStatistics;
+    
+    /**
+     * The time (as returned by <code>System.currentTimeMillis()</code>) at which the instance was last retrieved 
+     * from its <code>UserInstanceContainer</code>.
+     */
+    private transient long lastAccessTime;
+    
+    /** Flag indicating whether <code>componentSizeEstimate</code> has been determined. */
+    private transient boolean componentSizeEstimated;
+    
+    /** Estimated size of the component hierarchy, in bytes. */
+    private transient long componentSizeEstimate;
+    
+    /** Number of incremental updates made to <code>componentSizeEstimate</code> since it was estimated in full. */
+    private transient int incrementalSizeEstimateCount;
+    
+    /** Estimated retained size of the instance, in bytes, as of its most recent synchronization. */
+    private transient volatile long estimatedSize;
+    
+    /** Cache of rendered component hierarchy states, lazily created. */
+    private transient FragmentCache fragmentCache;
+    
+    /** 
+     * Flag indicating whether the client has been requested to report the digests of its rendered component states,
+     * such that it may be resynchronized incrementally.
+     */
+    private transient boolean clientDigestsRequested;
+    
+    /** 
+     * Mapping between client render ids and the digests of the rendered component states reported by the client
+     * for the current synchronization, or null if none were reported.
+     */
+    private transient Map clientDigests;
        
     /**
      * Creates a new <code>UserInstance</code>.
@@ -172,6 +226,7 @@ public class UserInstance implements Serializable {
         this.id = id;
         this.clientWindowId = clientWindowId;
         this.initialRequestParameterMap = initialRequestParameterMap;
+        lastAccessTime = System.currentTimeMillis();
     }
 
     /**
@@ -181,6 +236,16 @@ public class UserInstance implements Serializable {
         componentToRenderStateMap.clear();
     }
     
+    /**
+     * Returns the digests of the rendered component states reported by the client for the current synchronization.
+     * 
+     * @return a mapping between client render ids and digests, or null if none were reported
+     * @see ResyncInputProcessor
+     */
+    Map getClientDigests() {
+        return clientDigests;
+    }
+    
     /**
      * Returns the corresponding <code>ApplicationInstance</code>
      * for this user instance.
@@ -251,7 +316,12 @@ public class UserInstance implements Serializable {
      * @return the client-side render id
      */
     public String getClientRenderId(Component component) {
-        return getClientRenderId(component.getRenderId());
+        String clientRenderId = ContainerAccess.getClientRenderId(component);
+        if (clientRenderId == null) {
+            clientRenderId = getClientRenderId(component.getRenderId());
+            ContainerAccess.setClientRenderId(component, clientRenderId);
+        }
+        return clientRenderId;
     }
     
     /**
@@ -267,15 +337,19 @@ public class UserInstance implements Serializable {
     /**
      * Retrieves the <code>Component</code> with the specified client-side render id.
      * 
-     * @param clientRenderId client-side element render id, e.g., "C.42323"
-     * @return the component (e.g., the component whose id is "42323")
+     * @param clientRenderId client-side element render id, e.g., "C.2Dx"
+     * @return the component (e.g., the component whose id is "2Dx")
      */
     public Component getComponentByClientRenderId(String clientRenderId) {
-        try {
-            return applicationInstance.getComponentByRenderId(clientRenderId.substring(2));
-        } catch (IndexOutOfBoundsException ex) {
+        if (clientRenderId.length() < 2) {
             throw new IllegalArgumentException("Invalid component element id: " + clientRenderId);
         }
+        long renderIndex = RenderIdCodec.decode(clientRenderId, 2);
+        if (renderIndex == -1) {
+            return applicationInstance.getComponentByRenderId(clientRenderId.substring(2));
+        } else {
+            return applicationInstance.getComponentByRenderIndex(renderIndex);
+        }
     }
 
     /**
@@ -305,6 +379,31 @@ public class UserInstance implements Serializable {
         return clientWindowId; 
     }
 
+    /**
+     * Returns the estimated heap memory retained by the instance, as of its most recent synchronization.
+     * The estimate is only maintained if memory limits are enabled.
+     * 
+     * @return the estimated size, in bytes
+     * @see WebContainerServlet#enableMemoryLimits(long, long, long)
+     * @see MemoryEstimator
+     */
+    public long getEstimatedSize() {
+        return estimatedSize;
+    }
+    
+    /**
+     * Returns the <code>FragmentCache</code> used to store rendered component hierarchy states, creating it
+     * if necessary.
+     * 
+     * @return the <code>FragmentCache</code>
+     */
+    FragmentCache getFragmentCache() {
+        if (fragmentCache == null) {
+            fragmentCache = new FragmentCache();
+        }
+        return fragmentCache;
+    }
+    
     /**
      * Retrieves the <code>IdTable</code> used by this 
      * <code>ContainerInstance</code> to assign weakly-referenced unique 
@@ -329,6 +428,59 @@ public class UserInstance implements Serializable {
         return initialRequestParameterMap;
     }
     
+    /**
+     * Returns the time at which the instance was last retrieved from its <code>UserInstanceContainer</code>.
+     * 
+     * @return the time, as returned by <code>System.currentTimeMillis()</code>
+     */
+    long getLastAccessTime() {
+        return lastAccessTime;
+    }
+    
+    /**
+     * Returns the sequence number of the most recently processed pipelined client message.
+     * 
+     * @return the sequence number
+     */
+    public int getSyncSequence() {
+        return syncSequence;
+    }
+    
+    /**
+     * Sets the sequence number of the most recently processed pipelined client message, notifying any threads waiting
+     * in <code>waitForSyncSequence()</code>.
+     * The invoking thread must hold the monitor of the <code>UserInstance</code>.
+     * 
+     * @param syncSequence the sequence number
+     */
+    public void setSyncSequence(int syncSequence) {
+        this.syncSequence = syncSequence;
+        notifyAll();
+    }
+    
+    /**
+     * Waits until all pipelined client messages preceding the message with the specified sequence number have been 
+     * processed, or until the specified timeout has elapsed (e.g., due to a lost request).
+     * The invoking thread must hold the monitor of the <code>UserInstance</code>, which is released while waiting.
+     * If the invoking thread is interrupted, the method returns immediately with the thread's interrupt status set.
+     * 
+     * @param sequence the sequence number of the client message to be processed
+     * @param timeout the maximum time to wait, in milliseconds
+     */
+    public void waitForSyncSequence(int sequence, long timeout) {
+        long endTime = System.currentTimeMillis() + timeout;
+        long remaining = timeout;
+        while (sequence > syncSequence + 1 && remaining > 0) {
+            try {
+                wait(remaining);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            remaining = endTime - System.currentTimeMillis();
+        }
+    }
+    
     /**
      * Increments the current transaction id and returns it.
      * 
@@ -410,6 +562,16 @@ public class UserInstance implements Serializable {
         return container.getSession();
     }
     
+    /**
+     * Returns the accumulated synchronization statistics of this <code>UserInstance</code>.
+     * 
+     * @return the statistics, or null if statistics are not enabled or no synchronizations have been recorded
+     * @see WebContainerServlet#enableSyncStatistics()
+     */
+    public SyncStatistics getSyncStatistics() {
+        return syncStatistics;
+    }
+    
     /**
      * Returns an iterator over updated property names.
      * Invoked by OutputProcessor.
@@ -474,6 +636,15 @@ public class UserInstance implements Serializable {
         initialized = true;
     }
 
+    /**
+     * Determines whether the client has been requested to report the digests of its rendered component states.
+     * 
+     * @return true if the digests have been requested
+     */
+    boolean isClientDigestsRequested() {
+        return clientDigestsRequested;
+    }
+    
     /**
      * Determines if the <code>UserInstance</code> has been initialized, 
      * i.e., whether its <code>init()</code> method has been invoked.
@@ -498,6 +669,18 @@ public class UserInstance implements Serializable {
         }
     }
     
+    /**
+     * Records the metrics of a synchronization of this <code>UserInstance</code> in its statistics.
+     * 
+     * @param metrics the metrics
+     */
+    synchronized void recordSyncMetrics(SyncMetrics metrics) {
+        if (syncStatistics == null) {
+            syncStatistics = new SyncStatistics();
+        }
+        syncStatistics.record(metrics);
+    }
+    
     /**
      * Removes all <code>RenderState</code>s whose components are not
      * registered.
@@ -556,6 +739,24 @@ public class UserInstance implements Serializable {
         this.updatedPropertyNames.add(PROPERTY_CLIENT_CONFIGURATION);
     }
 
+    /**
+     * Sets the digests of the rendered component states reported by the client for the current synchronization.
+     * 
+     * @param clientDigests a mapping between client render ids and digests, or null
+     */
+    void setClientDigests(Map clientDigests) {
+        this.clientDigests = clientDigests;
+    }
+    
+    /**
+     * Sets whether the client has been requested to report the digests of its rendered component states.
+     * 
+     * @param clientDigestsRequested true if the digests have been requested
+     */
+    void setClientDigestsRequested(boolean clientDigestsRequested) {
+        this.clientDigestsRequested = clientDigestsRequested;
+    }
+    
     /**
      * Stores the <code>ClientProperties</code> object that provides
      * information about the client of this instance.
@@ -597,6 +798,42 @@ public class UserInstance implements Serializable {
         taskQueueToCallbackIntervalMap.put(taskQueue, new Integer(ms));
     }
     
+    /**
+     * Records that the instance has been retrieved from its <code>UserInstanceContainer</code>.
+     */
+    void touch() {
+        lastAccessTime = System.currentTimeMillis();
+    }
+    
+    /**
+     * Updates the estimated retained size of the instance.  Invoked after the server message of a synchronization 
+     * has been rendered, before updates are purged.  The size of the component hierarchy is estimated 
+     * incrementally from added and removed components, except on a full refresh.
+     */
+    void updateEstimatedSize() {
+        ServerUpdateManager serverUpdateManager = getUpdateManager().getServerUpdateManager();
+        if (!componentSizeEstimated || serverUpdateManager.isFullRefreshRequired() 
+                || incrementalSizeEstimateCount >= FULL_SIZE_ESTIMATE_INTERVAL) {
+            componentSizeEstimate = MemoryEstimator.estimateComponent(applicationInstance.getDefaultWindow());
+            componentSizeEstimated = true;
+            incrementalSizeEstimateCount = 0;
+        } else {
+            componentSizeEstimate += MemoryEstimator.estimateUpdates(serverUpdateManager.getComponentUpdates());
+            if (componentSizeEstimate < 0) {
+                componentSizeEstimate = 0;
+            }
+            ++incrementalSizeEstimateCount;
+        }
+        int idCount = idTable == null ? 0 : idTable.size();
+        int taskQueueCount = taskQueueToCallbackIntervalMap == null ? 0 : taskQueueToCallbackIntervalMap.size();
+        int cachedComponentCount = fragmentCache == null ? 0 : fragmentCache.getCachedComponentCount();
+        estimatedSize = MemoryEstimator.USER_INSTANCE_SIZE + componentSizeEstimate 
+                + (long) componentToRenderStateMap.size() * MemoryEstimator.RENDER_STATE_SIZE
+                + (long) idCount * MemoryEstimator.ID_TABLE_ENTRY_SIZE
+                + (long) taskQueueCount * MemoryEstimator.TASK_QUEUE_SIZE
+                + (long) cachedComponentCount * MemoryEstimator.FRAGMENT_COMPONENT_SIZE;
+    }
+    
     /**
      * @see java.lang.Object#toString()
      */
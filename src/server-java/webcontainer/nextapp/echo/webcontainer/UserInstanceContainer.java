@@ -1,5 +1,8 @@
 package nextapp.echo.webcontainer;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -11,8 +14,20 @@ import javax.servlet.http.HttpSessionBindingEvent;
 import javax.servlet.http.HttpSessionBindingListener;
 import javax.servlet.http.HttpSessionEvent;
 
+import nextapp.echo.app.ApplicationInstance;
+import nextapp.echo.app.util.Log;
+import nextapp.echo.app.util.Snapshot;
+import nextapp.echo.app.util.Uid;
+
 /**
  * Container / manager of all <code>UserInstance<code> objects in the servlet session.
+ * <p>
+ * Contained <code>UserInstance</code>s (and their component hierarchies) are serialized as a single compact 
+ * <code>Snapshot</code> when the session is passivated or replicated.
+ * <p>
+ * If passivation is enabled (see <code>WebContainerServlet.enablePassivation()</code>), idle 
+ * <code>UserInstance</code>s are individually written to a <code>PassivationStore</code> and removed from 
+ * the container, and are restored when next retrieved.
  */
 public class UserInstanceContainer 
 implements HttpSessionActivationListener, HttpSessionBindingListener, Serializable {
@@ -29,6 +44,38 @@ implements HttpSessionActivationListener, HttpSessionBindingListener, Serializab
         new UserInstanceContainer(conn);
     }
     
+    /**
+     * Description of a passivated <code>UserInstance</code>.
+     */
+    private static class PassivatedUserInstance {
+        
+        /** The key of the snapshot in the <code>PassivationStore</code>, or null if the snapshot is held in memory. */
+        private String key;
+        
+        /** The client window identifier of the <code>UserInstance</code>. */
+        private String clientWindowId;
+        
+        /** 
+         * The snapshot, if held in memory rather than in the <code>PassivationStore</code>, e.g., after the session 
+         * has been serialized.
+         */
+        private byte[] data;
+        
+        /**
+         * Creates a new <code>PassivatedUserInstance</code>.
+         * 
+         * @param key the key of the snapshot in the <code>PassivationStore</code>, or null
+         * @param clientWindowId the client window identifier of the <code>UserInstance</code>
+         * @param data the snapshot, if held in memory, or null
+         */
+        private PassivatedUserInstance(String key, String clientWindowId, byte[] data) {
+            super();
+            this.key = key;
+            this.clientWindowId = clientWindowId;
+            this.data = data;
+        }
+    }
+    
     /**
      * Sequential <code>UserInstance</code> identifier generator.
      */
@@ -52,18 +99,30 @@ implements HttpSessionActivationListener, HttpSessionBindingListener, Serializab
     /**
      * Mapping between client-generated unique browser window identifiers and <code>UserInstance</code> values.
      */
-    private Map clientWindowIdToUserInstance = new HashMap();
+    private transient Map clientWindowIdToUserInstance = new HashMap();
     
     /**
      * Mapping between <code>UserInstance</code> identifiers and <code>UserInstance</code> values.
      */
-    private Map idToUserInstance = new HashMap();
+    private transient Map idToUserInstance = new HashMap();
     
     /**
      * Mapping between initial request identifiers (as returned by <code>createInitId()</code>) and maps of initial
      * requested parameters retrieved from <code>HttpServletRequest.getParameterMap()</code>.
      */
-    private Map initIdToInitialRequestParameterMap = new HashMap();
+    private transient Map initIdToInitialRequestParameterMap = new HashMap();
+    
+    /**
+     * Mapping between <code>UserInstance</code> identifiers and <code>PassivatedUserInstance</code>s describing
+     * passivated <code>UserInstance</code>s.
+     */
+    private transient Map idToPassivatedUserInstance = new HashMap();
+    
+    /**
+     * The <code>PassivationManager</code> which passivates idle <code>UserInstance</code>s, or null if 
+     * passivation is not enabled.
+     */
+    private transient PassivationManager passivationManager;
     
     /**
      * The containing <code>HttpSession</code>.
@@ -84,10 +143,82 @@ implements HttpSessionActivationListener, HttpSessionBindingListener, Serializab
         windowSpecificUserInstances = conn.getServlet().getInstanceMode() == WebContainerServlet.INSTANCE_MODE_WINDOW;
     }
     
+    /**
+     * Restores a passivated <code>UserInstance</code> from the <code>PassivationStore</code>.
+     * The restored instance will perform a full refresh on its next synchronization, as its transient state 
+     * (e.g., its <code>IdTable</code>) is not retained by the snapshot.
+     * Must be invoked while synchronized on the container.
+     * 
+     * @param id the <code>UserInstance</code> identifier
+     * @return the restored <code>UserInstance</code>, or null if no <code>UserInstance</code> with the 
+     *         specified identifier is passivated or it cannot be restored
+     */
+    private UserInstance activateUserInstance(String id) {
+        PassivatedUserInstance passivated = (PassivatedUserInstance) idToPassivatedUserInstance.remove(id);
+        if (passivated == null) {
+            return null;
+        }
+        
+        long startTime = SyncMetrics.nanoTime();
+        UserInstance userInstance = readPassivatedUserInstance(id, passivated);
+        removePassivatedData(passivated);
+        
+        if (userInstance == null) {
+            // Treat the user instance as having been unloaded.
+            if (passivationManager != null) {
+                passivationManager.recordDiscard();
+                passivationManager.recordFailure();
+            }
+            return null;
+        }
+        
+        ApplicationInstance applicationInstance = userInstance.getApplicationInstance();
+        if (applicationInstance != null) {
+            applicationInstance.activate();
+            applicationInstance.getUpdateManager().getServerUpdateManager().processFullRefresh();
+        }
+        userInstance.touch();
+        clientWindowIdToUserInstance.put(userInstance.getClientWindowId(), userInstance);
+        idToUserInstance.put(userInstance.getId(), userInstance);
+        if (passivationManager != null) {
+            passivationManager.recordActivation(SyncMetrics.nanoTime() - startTime);
+        }
+        return userInstance;
+    }
+    
     /**
      * Disposes of all contained <code>UserInstance</code>s.
+     * Passivated <code>UserInstance</code>s are restored from their snapshots and notified of activation, such 
+     * that <code>ApplicationInstance.dispose()</code> is invoked on them as on any other instance.  They are not 
+     * returned to the container, i.e., no full refresh is scheduled, and their snapshots are then discarded.
+     * Passivated instances whose snapshots cannot be restored are discarded without being disposed.
+     * Snapshots are read from the <code>PassivationStore</code> without holding the monitor of the container.
      */
     private void dispose() {
+        String[] passivatedIds;
+        PassivatedUserInstance[] passivated;
+        synchronized (this) {
+            passivatedIds = new String[idToPassivatedUserInstance.size()];
+            passivated = new PassivatedUserInstance[passivatedIds.length];
+            Iterator it = idToPassivatedUserInstance.entrySet().iterator();
+            for (int i = 0; it.hasNext(); ++i) {
+                Map.Entry entry = (Map.Entry) it.next();
+                passivatedIds[i] = (String) entry.getKey();
+                passivated[i] = (PassivatedUserInstance) entry.getValue();
+            }
+            idToPassivatedUserInstance.clear();
+        }
+        for (int i = 0; i < passivated.length; ++i) {
+            UserInstance userInstance = readPassivatedUserInstance(passivatedIds[i], passivated[i]);
+            removePassivatedData(passivated[i]);
+            if (userInstance != null) {
+                if (userInstance.getApplicationInstance() != null) {
+                    userInstance.getApplicationInstance().activate();
+                }
+                userInstance.dispose();
+            }
+        }
+        
         Iterator it = idToUserInstance.values().iterator();
         while (it.hasNext()) {
             UserInstance userInstance = (UserInstance) it.next();
@@ -132,6 +263,18 @@ implements HttpSessionActivationListener, HttpSessionBindingListener, Serializab
             clientWindowId = null;
         }
         UserInstance userInstance = (UserInstance) clientWindowIdToUserInstance.get(clientWindowId);
+        if (userInstance == null && idToPassivatedUserInstance.size() > 0) {
+            Iterator it = idToPassivatedUserInstance.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry entry = (Map.Entry) it.next();
+                String passivatedClientWindowId = ((PassivatedUserInstance) entry.getValue()).clientWindowId;
+                if (clientWindowId == null ? passivatedClientWindowId == null 
+                        : clientWindowId.equals(passivatedClientWindowId)) {
+                    userInstance = activateUserInstance((String) entry.getKey());
+                    break;
+                }
+            }
+        }
         if (userInstance == null) {
             String uiid;
             
@@ -144,6 +287,8 @@ implements HttpSessionActivationListener, HttpSessionBindingListener, Serializab
             userInstance = new UserInstance(this, uiid, clientWindowId, initialRequestParameterMap); 
             clientWindowIdToUserInstance.put(clientWindowId, userInstance);
             idToUserInstance.put(userInstance.getId(), userInstance);
+        } else {
+            userInstance.touch();
         }
         return userInstance;
     }
@@ -168,7 +313,12 @@ implements HttpSessionActivationListener, HttpSessionBindingListener, Serializab
      * @return the <code>UserInstnace</code>, or null if none exists
      */
     synchronized UserInstance getUserInstanceById(String id) {
-        return (UserInstance) idToUserInstance.get(id);
+        UserInstance userInstance = (UserInstance) idToUserInstance.get(id);
+        if (userInstance == null) {
+            return activateUserInstance(id);
+        }
+        userInstance.touch();
+        return userInstance;
     }
     
     /**
@@ -182,6 +332,25 @@ implements HttpSessionActivationListener, HttpSessionBindingListener, Serializab
         return characterEncoding;
     }
     
+    /**
+     * Returns the total estimated size of the contained <code>UserInstance</code>s, excluding passivated
+     * <code>UserInstance</code>s.
+     * 
+     * @return the estimated size, in bytes
+     * @see UserInstance#getEstimatedSize()
+     */
+    synchronized long getEstimatedSize() {
+        if (session == null) {
+            return 0;
+        }
+        long size = 0;
+        Iterator it = idToUserInstance.values().iterator();
+        while (it.hasNext()) {
+            size += ((UserInstance) it.next()).getEstimatedSize();
+        }
+        return size;
+    }
+    
     /**
      * Returns the id of the HTML element that will serve as the Root component.
      * This element must already be present in the DOM when the application is
@@ -263,6 +432,18 @@ implements HttpSessionActivationListener, HttpSessionBindingListener, Serializab
         return out.toString();
     }
     
+    /**
+     * Returns the contained <code>UserInstance</code>s, excluding passivated <code>UserInstance</code>s.
+     * 
+     * @return the <code>UserInstance</code>s
+     */
+    synchronized UserInstance[] getUserInstances() {
+        if (session == null) {
+            return new UserInstance[0];
+        }
+        return (UserInstance[]) idToUserInstance.values().toArray(new UserInstance[idToUserInstance.size()]);
+    }
+    
     /**
      * Returns the URI of the servlet managing this <code>UserInstanceContainer</code>.
      * 
@@ -272,6 +453,220 @@ implements HttpSessionActivationListener, HttpSessionBindingListener, Serializab
         return servletUri;
     }
     
+    /**
+     * Passivates all contained <code>UserInstance</code>s which have not been retrieved since the specified time.
+     * 
+     * @param idleSince the time, as returned by <code>System.currentTimeMillis()</code>
+     * @return the number of passivated <code>UserInstance</code>s
+     */
+    int passivateIdleUserInstances(long idleSince) {
+        Object[] userInstances;
+        synchronized (this) {
+            if (session == null || passivationManager == null) {
+                return 0;
+            }
+            userInstances = idToUserInstance.values().toArray();
+        }
+        int count = 0;
+        for (int i = 0; i < userInstances.length; ++i) {
+            UserInstance userInstance = (UserInstance) userInstances[i];
+            if (userInstance.getLastAccessTime() <= idleSince && passivateUserInstance(userInstance, idleSince)) {
+                ++count;
+            }
+        }
+        return count;
+    }
+    
+    /**
+     * Passivates a <code>UserInstance</code>, writing it to the <code>PassivationStore</code> and removing it
+     * from the container.  <code>UserInstance</code>s with task queues are not passivated.
+     * <p>
+     * The snapshot is created while holding the monitors of the <code>UserInstance</code> and the container, 
+     * and is held in memory until it has been written to the store, which is done without holding either 
+     * monitor.  If it cannot be written, the snapshot is retained in memory.  If the instance is activated or 
+     * disposed while its snapshot is being written, the written snapshot is removed from the store.
+     * 
+     * @param userInstance the <code>UserInstance</code>
+     * @param idleSince the time since which the <code>UserInstance</code> must not have been retrieved
+     * @return true if the <code>UserInstance</code> was passivated
+     */
+    private boolean passivateUserInstance(UserInstance userInstance, long idleSince) {
+        PassivationManager passivationManager;
+        PassivatedUserInstance passivated;
+        long startTime;
+        // Locks are acquired in the same order as by a synchronization which invalidates the session.
+        synchronized (userInstance) {
+            synchronized (this) {
+                passivationManager = this.passivationManager;
+                if (idToUserInstance.get(userInstance.getId()) != userInstance 
+                        || userInstance.getLastAccessTime() > idleSince) {
+                    // Removed or retrieved since idle instances were determined.
+                    return false;
+                }
+                ApplicationInstance applicationInstance = userInstance.getApplicationInstance();
+                if (applicationInstance != null && applicationInstance.hasTaskQueues()) {
+                    return false;
+                }
+                
+                startTime = SyncMetrics.nanoTime();
+                if (applicationInstance != null) {
+                    applicationInstance.passivate();
+                }
+                byte[] data;
+                try {
+                    data = Snapshot.write(userInstance, this);
+                } catch (IOException ex) {
+                    Log.log("Unable to passivate user instance: " + userInstance.getId(), ex);
+                    if (applicationInstance != null) {
+                        applicationInstance.activate();
+                    }
+                    // Do not reattempt passivation until the instance has again been idle.
+                    userInstance.touch();
+                    passivationManager.recordFailure();
+                    return false;
+                }
+                
+                idToUserInstance.remove(userInstance.getId());
+                clientWindowIdToUserInstance.remove(userInstance.getClientWindowId());
+                passivated = new PassivatedUserInstance(null, userInstance.getClientWindowId(), data);
+                idToPassivatedUserInstance.put(userInstance.getId(), passivated);
+            }
+        }
+        
+        byte[] data = passivated.data;
+        String key = Uid.generateUidString();
+        boolean stored;
+        try {
+            passivationManager.getStore().write(key, data);
+            stored = true;
+        } catch (IOException ex) {
+            Log.log("Unable to store passivated user instance, retaining it in memory: " + userInstance.getId(), ex);
+            stored = false;
+        }
+        
+        synchronized (this) {
+            if (!stored) {
+                passivationManager.recordFailure();
+            } else if (session != null && passivated.data != null
+                    && idToPassivatedUserInstance.get(userInstance.getId()) == passivated) {
+                passivated.key = key;
+                passivated.data = null;
+            } else {
+                // Activated, disposed, or serialized with the session while the snapshot was being written.
+                passivationManager.getStore().remove(key);
+            }
+        }
+        passivationManager.recordPassivation(SyncMetrics.nanoTime() - startTime, data.length);
+        return true;
+    }
+    
+    /**
+     * Restores a passivated <code>UserInstance</code> from its snapshot.
+     * Must be invoked while synchronized on the container, unless the <code>PassivatedUserInstance</code> has 
+     * been removed from it.
+     * 
+     * @param id the <code>UserInstance</code> identifier
+     * @param passivated the <code>PassivatedUserInstance</code>
+     * @return the restored <code>UserInstance</code>, or null if it cannot be restored
+     */
+    private UserInstance readPassivatedUserInstance(String id, PassivatedUserInstance passivated) {
+        try {
+            byte[] data = readPassivatedData(passivated);
+            if (data != null) {
+                return (UserInstance) Snapshot.read(data, this);
+            }
+        } catch (IOException ex) {
+            Log.log("Unable to activate passivated user instance: " + id, ex);
+        } catch (ClassNotFoundException ex) {
+            Log.log("Unable to activate passivated user instance: " + id, ex);
+        }
+        return null;
+    }
+    
+    /**
+     * Retrieves the snapshot of a passivated <code>UserInstance</code>, from memory or from the 
+     * <code>PassivationStore</code>.
+     * Must be invoked while synchronized on the container, unless the <code>PassivatedUserInstance</code> has 
+     * been removed from it.
+     * 
+     * @param passivated the <code>PassivatedUserInstance</code>
+     * @return the snapshot, or null if it is not available
+     * @throws IOException if the snapshot cannot be read from the <code>PassivationStore</code>
+     */
+    private byte[] readPassivatedData(PassivatedUserInstance passivated) 
+    throws IOException {
+        if (passivated.data != null) {
+            return passivated.data;
+        }
+        if (passivated.key == null || passivationManager == null) {
+            return null;
+        }
+        return passivationManager.getStore().read(passivated.key);
+    }
+    
+    /**
+     * Discards the snapshot of a passivated <code>UserInstance</code>, removing it from the 
+     * <code>PassivationStore</code> if it is stored there.
+     * Must be invoked while synchronized on the container, unless the <code>PassivatedUserInstance</code> has 
+     * been removed from it.
+     * 
+     * @param passivated the <code>PassivatedUserInstance</code>
+     */
+    private void removePassivatedData(PassivatedUserInstance passivated) {
+        passivated.data = null;
+        if (passivated.key != null && passivationManager != null) {
+            passivationManager.getStore().remove(passivated.key);
+        }
+        passivated.key = null;
+    }
+    
+    /**
+     * Sets the <code>PassivationManager</code> which passivates idle <code>UserInstance</code>s.
+     * 
+     * @param passivationManager the <code>PassivationManager</code>
+     */
+    synchronized void setPassivationManager(PassivationManager passivationManager) {
+        this.passivationManager = passivationManager;
+    }
+    
+    /**
+     * Sheds an idle <code>UserInstance</code> to reduce heap usage.  The instance is passivated if passivation is
+     * enabled.  Otherwise, the session is invalidated if the instance is the only one it contains (such that the 
+     * client is notified of session expiration), or the instance is unloaded.
+     * The session is invalidated after the monitors of the <code>UserInstance</code> and the container have been 
+     * released, as the servlet container notifies session listeners (including this container, which then 
+     * disposes its <code>UserInstance</code>s) and may acquire its own locks in doing so.
+     * 
+     * @param userInstance the <code>UserInstance</code>
+     * @param idleSince the time since which the <code>UserInstance</code> must not have been retrieved
+     * @return true if the <code>UserInstance</code> was shed
+     */
+    boolean shedUserInstance(UserInstance userInstance, long idleSince) {
+        HttpSession invalidSession;
+        synchronized (userInstance) {
+            synchronized (this) {
+                if (passivationManager != null) {
+                    return passivateUserInstance(userInstance, idleSince);
+                }
+                if (session == null || idToUserInstance.get(userInstance.getId()) != userInstance 
+                        || userInstance.getLastAccessTime() > idleSince) {
+                    return false;
+                }
+                if (idToUserInstance.size() > 1 || idToPassivatedUserInstance.size() > 0) {
+                    unloadUserInstance(userInstance);
+                    return true;
+                }
+                invalidSession = session;
+            }
+        }
+        try {
+            invalidSession.invalidate();
+        } catch (IllegalStateException ex) {
+            // Session has already been invalidated.
+        }
+        return true;
+    }
+    
     /**
      * Sets the URI of the containing servlet.
      * 
@@ -281,6 +676,31 @@ implements HttpSessionActivationListener, HttpSessionBindingListener, Serializab
         this.servletUri = servletUri;
     }
 
+    /**
+     * @see java.io.Serializable
+     * 
+     * Restores contained <code>UserInstance</code>s from snapshot.
+     * The snapshots of passivated <code>UserInstance</code>s are retained in memory until the instances are
+     * activated.
+     */
+    private void readObject(ObjectInputStream in)
+    throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        byte[] snapshot = (byte[]) in.readObject();
+        Map[] maps = (Map[]) Snapshot.read(snapshot, this);
+        clientWindowIdToUserInstance = maps[0];
+        idToUserInstance = maps[1];
+        initIdToInitialRequestParameterMap = maps[2];
+        idToPassivatedUserInstance = new HashMap();
+        int passivatedCount = in.readInt();
+        for (int i = 0; i < passivatedCount; ++i) {
+            String id = (String) in.readObject();
+            String clientWindowId = (String) in.readObject();
+            byte[] data = (byte[]) in.readObject();
+            idToPassivatedUserInstance.put(id, new PassivatedUserInstance(null, clientWindowId, data));
+        }
+    }
+
     /**
      * @see javax.servlet.http.HttpSessionActivationListener#sessionDidActivate(javax.servlet.http.HttpSessionEvent)
      * 
@@ -301,10 +721,37 @@ implements HttpSessionActivationListener, HttpSessionBindingListener, Serializab
     /**
      * @see javax.servlet.http.HttpSessionActivationListener#sessionWillPassivate(javax.servlet.http.HttpSessionEvent)
      * 
+     * Moves the snapshots of passivated <code>UserInstance</code>s from the <code>PassivationStore</code> into 
+     * memory (without activating the instances), such that they will be serialized with the session and not 
+     * remain in the store.
      * Notifies <code>ApplicationInstance</code> of passivation.
      * Discards reference to session.
      */
     public synchronized void sessionWillPassivate(HttpSessionEvent e) {
+        Iterator passivatedIt = idToPassivatedUserInstance.entrySet().iterator();
+        while (passivatedIt.hasNext()) {
+            Map.Entry entry = (Map.Entry) passivatedIt.next();
+            PassivatedUserInstance passivated = (PassivatedUserInstance) entry.getValue();
+            if (passivated.data != null) {
+                continue;
+            }
+            byte[] data = null;
+            try {
+                data = readPassivatedData(passivated);
+            } catch (IOException ex) {
+                Log.log("Unable to read passivated user instance: " + entry.getKey(), ex);
+            }
+            removePassivatedData(passivated);
+            if (data == null) {
+                passivatedIt.remove();
+                if (passivationManager != null) {
+                    passivationManager.recordDiscard();
+                    passivationManager.recordFailure();
+                }
+            } else {
+                passivated.data = data;
+            }
+        }
         Iterator it = idToUserInstance.values().iterator();
         while (it.hasNext()) {
             UserInstance userInstance = (UserInstance) it.next();
@@ -336,4 +783,42 @@ implements HttpSessionActivationListener, HttpSessionBindingListener, Serializab
         dispose();
         session = null;
     }
+    
+    /**
+     * @see java.io.Serializable
+     * 
+     * Writes contained <code>UserInstance</code>s as a compact snapshot.
+     * References from <code>UserInstance</code>s back to this container are not written to the snapshot.
+     * The snapshots of passivated <code>UserInstance</code>s are written as-is, without activating the instances.
+     */
+    private synchronized void writeObject(ObjectOutputStream out)
+    throws IOException {
+        out.defaultWriteObject();
+        Map[] maps = new Map[] { clientWindowIdToUserInstance, idToUserInstance, initIdToInitialRequestParameterMap };
+        out.writeObject(Snapshot.write(maps, this));
+        
+        // Snapshots which cannot be read from the store are omitted, i.e., the instances are treated as unloaded.
+        Map idToData = new HashMap();
+        Iterator it = idToPassivatedUserInstance.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry entry = (Map.Entry) it.next();
+            byte[] data = null;
+            try {
+                data = readPassivatedData((PassivatedUserInstance) entry.getValue());
+            } catch (IOException ex) {
+                Log.log("Unable to read passivated user instance: " + entry.getKey(), ex);
+            }
+            if (data != null) {
+                idToData.put(entry.getKey(), data);
+            }
+        }
+        out.writeInt(idToData.size());
+        it = idToData.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry entry = (Map.Entry) it.next();
+            out.writeObject(entry.getKey());
+            out.writeObject(((PassivatedUserInstance) idToPassivatedUserInstance.get(entry.getKey())).clientWindowId);
+            out.writeObject(entry.getValue());
+        }
+    }
 }
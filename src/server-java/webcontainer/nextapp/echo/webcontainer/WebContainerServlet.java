@@ -30,6 +30,7 @@
 package nextapp.echo.webcontainer;
 
 import nextapp.echo.app.ApplicationInstance;
+import nextapp.echo.app.serial.CompiledStyleSheet;
 import nextapp.echo.app.util.Log;
 import nextapp.echo.app.util.Uid;
 import nextapp.echo.webcontainer.service.AsyncMonitorService;
@@ -38,8 +39,10 @@ import nextapp.echo.webcontainer.service.NewInstanceService;
 import nextapp.echo.webcontainer.service.ResourceService;
 import nextapp.echo.webcontainer.service.SessionExpiredService;
 import nextapp.echo.webcontainer.service.StaticTextService;
+import nextapp.echo.webcontainer.service.SyncStatisticsService;
 import nextapp.echo.webcontainer.service.SynchronizeService;
 import nextapp.echo.webcontainer.service.WindowHtmlService;
+import nextapp.echo.webcontainer.util.CompressionStatistics;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -51,6 +54,7 @@ import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
 
 /**
  * Web container <code>HttpServlet</code> implementation.
@@ -87,6 +91,16 @@ public abstract class WebContainerServlet extends HttpServlet {
     /** Flag indicating whether client-side debug console should be enabled. */
     public static final boolean ENABLE_CLIENT_DEBUG_CONSOLE = true;
     
+    /**
+     * Default value returned by <code>getAsyncSynchronizationTimeout()</code>, in milliseconds.
+     */
+    public static final long DEFAULT_ASYNC_SYNCHRONIZATION_TIMEOUT = 300000;
+    
+    /**
+     * Default value returned by <code>getCompressionThreshold()</code>, in bytes.
+     */
+    public static final int DEFAULT_COMPRESSION_THRESHOLD = 2048;
+    
     /**
      * Constant for <code>getInstanceMode()</code> indicating that one instance (<code>UserInstance</code> of
      * the application should exist per session.
@@ -192,6 +206,90 @@ public abstract class WebContainerServlet extends HttpServlet {
         return (Connection) activeConnection.get();
     }
     
+    /**
+     * A synchronization request being processed asynchronously.
+     * The request is either processed by a <code>SyncExecutor</code> worker or rejected (if it could not be queued,
+     * was discarded when the servlet was destroyed, or timed out while queued), but never both.
+     */
+    private class AsyncSynchronization 
+    implements Runnable {
+        
+        /** The incoming <code>HttpServletRequest</code>. */
+        private HttpServletRequest request;
+        
+        /** The outgoing <code>HttpServletResponse</code>. */
+        private HttpServletResponse response;
+        
+        /** The <code>AsyncContext</code> of the request. */
+        private Object asyncContext;
+        
+        /** Flag indicating whether processing of the request has started. */
+        private boolean started;
+        
+        /** Flag indicating whether the request has been rejected. */
+        private boolean rejected;
+        
+        /**
+         * Creates a new <code>AsyncSynchronization</code>, putting the request into asynchronous mode.
+         * 
+         * @param request the incoming <code>HttpServletRequest</code>
+         * @param response the outgoing <code>HttpServletResponse</code>
+         */
+        private AsyncSynchronization(HttpServletRequest request, HttpServletResponse response) {
+            super();
+            this.request = request;
+            this.response = response;
+            asyncContext = ServletAsyncSupport.startAsync(request, getAsyncSynchronizationTimeout(), new Runnable() {
+                
+                /**
+                 * @see java.lang.Runnable#run()
+                 */
+                public void run() {
+                    reject();
+                }
+            });
+        }
+        
+        /**
+         * Rejects the request, answering it with status 503 (Service Unavailable) and a <code>Retry-After</code> 
+         * header, such that it is resent by the client.  Has no effect if processing of the request has started.
+         */
+        private void reject() {
+            synchronized (this) {
+                if (started || rejected) {
+                    return;
+                }
+                rejected = true;
+            }
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            response.setHeader("Retry-After", "1");
+            ServletAsyncSupport.complete(asyncContext);
+        }
+        
+        /**
+         * Processes the request, unless it has been rejected.
+         * 
+         * @see java.lang.Runnable#run()
+         */
+        public void run() {
+            synchronized (this) {
+                if (rejected) {
+                    return;
+                }
+                started = true;
+            }
+            try {
+                processRequest(request, response);
+            } catch (IOException ex) {
+                Log.log("Server Exception.", ex);
+            } catch (ServletException ex) {
+                Log.log("Server Exception.", ex);
+            } finally {
+                ServletAsyncSupport.complete(asyncContext);
+            }
+        }
+    }
+    
     /**
      * Returns the multipart/form-data encoded HTTP request handler.
      * 
@@ -252,6 +350,27 @@ public abstract class WebContainerServlet extends HttpServlet {
     /** Collection of CSS style sheet <code>Service</code>s which should be initially loaded. */
     private List initStyleSheets = null;
     
+    /** Registered <code>SyncMetricsListener</code>s, replaced (never modified) when listeners are added or removed. */
+    private volatile SyncMetricsListener[] syncMetricsListeners = null;
+    
+    /** Global synchronization statistics, or null if statistics are not enabled. */
+    private SyncStatistics syncStatistics = null;
+    
+    /** Passivation manager, or null if passivation of idle user instances is not enabled. */
+    private PassivationManager passivationManager = null;
+    
+    /** Memory manager, or null if memory limits are not enabled. */
+    private MemoryManager memoryManager = null;
+    
+    /** Synchronization executor, or null if asynchronous synchronization is not enabled. */
+    private SyncExecutor syncExecutor = null;
+    
+    /** Response buffer pool, or null if response buffering is not enabled. */
+    private ResponseBufferPool responseBufferPool = null;
+    
+    /** Statistics of the compression of dynamic responses. */
+    private CompressionStatistics compressionStatistics = new CompressionStatistics();
+    
     /**
      * Default constructor.
      */
@@ -296,6 +415,47 @@ public abstract class WebContainerServlet extends HttpServlet {
         initStyleSheets.add(service);
     }
     
+    /**
+     * Adds a <code>SyncMetricsListener</code> to be notified of the metrics of each synchronization processed by this
+     * servlet.  Metrics are only collected while at least one listener is registered.
+     * 
+     * @param l the listener to add
+     */
+    public synchronized void addSyncMetricsListener(SyncMetricsListener l) {
+        if (syncMetricsListeners == null) {
+            syncMetricsListeners = new SyncMetricsListener[] { l };
+        } else {
+            SyncMetricsListener[] listeners = new SyncMetricsListener[syncMetricsListeners.length + 1];
+            System.arraycopy(syncMetricsListeners, 0, listeners, 0, syncMetricsListeners.length);
+            listeners[syncMetricsListeners.length] = l;
+            syncMetricsListeners = listeners;
+        }
+    }
+    
+    /**
+     * Stops passivation of idle <code>UserInstance</code>s and enforcement of memory limits, if enabled.
+     * Rejects queued asynchronous synchronization requests, if asynchronous synchronization is enabled.
+     * Discards shared <code>CompiledStyleSheet</code>s loaded by the servlet's <code>ClassLoader</code>.
+     * 
+     * @see javax.servlet.GenericServlet#destroy()
+     */
+    public void destroy() {
+        if (passivationManager != null) {
+            passivationManager.dispose();
+        }
+        if (memoryManager != null) {
+            memoryManager.dispose();
+        }
+        if (syncExecutor != null) {
+            Iterator it = syncExecutor.dispose().iterator();
+            while (it.hasNext()) {
+                ((AsyncSynchronization) it.next()).reject();
+            }
+        }
+        CompiledStyleSheet.dispose(getClass().getClassLoader());
+        super.destroy();
+    }
+    
     /**
      * Handles a GET request.
      *
@@ -316,6 +476,151 @@ public abstract class WebContainerServlet extends HttpServlet {
         process(request, response);
     }
     
+    /**
+     * Enables asynchronous processing of client-server synchronizations.
+     * Synchronization requests are detached from the servlet container thread (using Servlet 3.0 asynchronous 
+     * processing) and queued for execution by a pool of worker threads, with the synchronizations of each 
+     * <code>UserInstance</code> being executed serially, such that requests waiting for a <code>UserInstance</code>
+     * do not occupy any thread.  Requests exceeding the queue limits are answered with status 503 
+     * (Service Unavailable) and a <code>Retry-After</code> header, and are resent by the client.
+     * Requests which remain queued longer than <code>getAsyncSynchronizationTimeout()</code> are answered likewise.
+     * Requests are processed synchronously if the servlet container does not support Servlet 3.0, or if 
+     * asynchronous processing is not enabled for the servlet in the deployment descriptor 
+     * (<code>&lt;async-supported&gt;true&lt;/async-supported&gt;</code>).
+     * Invoking this method more than once has no effect.
+     * This method is intended to be invoked by the constructor of a derived servlet.
+     * 
+     * @param threadCount the number of worker threads
+     * @param maxPendingPerInstance the maximum number of queued synchronizations per <code>UserInstance</code>
+     * @param maxPending the maximum number of queued synchronizations
+     * @see #getSyncExecutor()
+     * @see #createSyncWorkerThread(Runnable)
+     */
+    protected synchronized void enableAsyncSynchronization(int threadCount, int maxPendingPerInstance, 
+            int maxPending) {
+        if (syncExecutor != null) {
+            return;
+        }
+        syncExecutor = new SyncExecutor(threadCount, maxPendingPerInstance, maxPending);
+        syncExecutor.start(this);
+    }
+    
+    /**
+     * Enables limits on the estimated heap memory retained by <code>UserInstance</code>s.
+     * When the total estimated size exceeds the soft limit, the largest <code>UserInstance</code>s which have been 
+     * idle for at least <code>minimumIdleTime</code> are passivated (if passivation is enabled) or unloaded.  
+     * New sessions are rejected with status 503 (Service Unavailable) while the total exceeds the hard limit.
+     * Invoking this method more than once has no effect.
+     * This method is intended to be invoked by the constructor of a derived servlet.
+     * 
+     * @param softLimit the total estimated size above which idle <code>UserInstance</code>s should be shed, 
+     *        in bytes
+     * @param hardLimit the total estimated size above which new sessions should be rejected, in bytes
+     * @param minimumIdleTime the time for which a <code>UserInstance</code> must be unused before it may be 
+     *        shed, in milliseconds
+     * @see #getMemoryManager()
+     */
+    protected synchronized void enableMemoryLimits(long softLimit, long hardLimit, long minimumIdleTime) {
+        if (memoryManager != null) {
+            return;
+        }
+        memoryManager = new MemoryManager(softLimit, hardLimit, minimumIdleTime);
+        memoryManager.start();
+    }
+    
+    /**
+     * Enables buffering of dynamically rendered responses (see <code>Connection.enableResponseBuffering()</code>).
+     * Buffered responses are written in a single write with a <code>Content-Length</code> header, and may be 
+     * replaced by an error response should rendering fail.  Responses larger than the buffer size are streamed.
+     * Invoking this method more than once has no effect.
+     * This method is intended to be invoked by the constructor of a derived servlet.
+     * 
+     * @param bufferSize the size of each buffer, i.e., the size above which responses are streamed, in bytes
+     * @param maximumIdle the maximum number of idle buffers to retain for reuse
+     * @see #getResponseBufferPool()
+     */
+    protected synchronized void enableResponseBuffering(int bufferSize, int maximumIdle) {
+        if (responseBufferPool != null) {
+            return;
+        }
+        responseBufferPool = new ResponseBufferPool(bufferSize, maximumIdle);
+    }
+    
+    /**
+     * Enables passivation of idle <code>UserInstance</code>s: a <code>UserInstance</code> which has not been 
+     * accessed for the specified time is written to the <code>PassivationStore</code> and removed from the heap.
+     * It is restored when next accessed, and performs a full refresh on its next synchronization.
+     * Invoking this method more than once has no effect.
+     * This method is intended to be invoked by the constructor of a derived servlet.
+     * 
+     * @param store the store to which idle <code>UserInstance</code>s should be written, e.g., a 
+     *        <code>FilePassivationStore</code>
+     * @param idleTime the time after which an unused <code>UserInstance</code> should be passivated, 
+     *        in milliseconds
+     * @see #getPassivationManager()
+     */
+    protected synchronized void enablePassivation(PassivationStore store, long idleTime) {
+        if (passivationManager != null) {
+            return;
+        }
+        passivationManager = new PassivationManager(store, idleTime);
+        passivationManager.start();
+    }
+    
+    /**
+     * Enables collection of synchronization statistics, which are accumulated globally (see 
+     * <code>getSyncStatistics()</code>) and for each <code>UserInstance</code> (see 
+     * <code>UserInstance.getSyncStatistics()</code>).  Invoking this method more than once has no effect.
+     * This method is intended to be invoked by the constructor of a derived servlet.
+     */
+    protected synchronized void enableSyncStatistics() {
+        if (syncStatistics != null) {
+            return;
+        }
+        syncStatistics = new SyncStatistics();
+        addSyncMetricsListener(new SyncMetricsListener() {
+        
+            /**
+             * @see nextapp.echo.webcontainer.SyncMetricsListener#synchronizationComplete(
+             *      nextapp.echo.webcontainer.SyncMetricsEvent)
+             */
+            public void synchronizationComplete(SyncMetricsEvent e) {
+                syncStatistics.record(e.getMetrics());
+                if (e.getUserInstance() != null) {
+                    e.getUserInstance().recordSyncMetrics(e.getMetrics());
+                }
+            }
+        });
+    }
+    
+    /**
+     * Enables collection of synchronization statistics (see <code>enableSyncStatistics()</code>), and registers
+     * the <code>SyncStatisticsService</code>, which writes the current statistics in text form.
+     * The service is only available to clients with an active session.  It should only be enabled where 
+     * the statistics may be disclosed to users of the application.
+     * This method is intended to be invoked by the constructor of a derived servlet.
+     */
+    protected void enableSyncStatisticsService() {
+        enableSyncStatistics();
+        services.add(SyncStatisticsService.INSTANCE);
+    }
+    
+    /**
+     * Notifies <code>SyncMetricsListener</code>s of the metrics of a completed synchronization.
+     * 
+     * @param conn the <code>Connection</code> which processed the synchronization
+     */
+    private void fireSyncMetrics(Connection conn) {
+        SyncMetricsListener[] listeners = syncMetricsListeners;
+        if (listeners == null) {
+            return;
+        }
+        SyncMetricsEvent e = new SyncMetricsEvent(this, conn.getUserInstance(), conn.getSyncMetrics());
+        for (int i = 0; i < listeners.length; ++i) {
+            listeners[i].synchronizationComplete(e);
+        }
+    }
+    
     /**
      * Returns the service that corresponds to the specified Id.
      *
@@ -371,6 +676,43 @@ public abstract class WebContainerServlet extends HttpServlet {
         return initStyleSheets == null ? null : Collections.unmodifiableCollection(initStyleSheets).iterator();
     }
 
+    /**
+     * Returns the time, in milliseconds, after which an asynchronously processed synchronization request times out.
+     * A request which is still queued when it times out is answered with status 503 (Service Unavailable), such that
+     * it is resent by the client.  A request which is being processed when it times out is answered with an error by 
+     * the servlet container, so the timeout should exceed the time required to process any synchronization.
+     * The default implementation returns <code>DEFAULT_ASYNC_SYNCHRONIZATION_TIMEOUT</code>.
+     * 
+     * @return the timeout (must be positive)
+     * @see #enableAsyncSynchronization(int, int, int)
+     */
+    public long getAsyncSynchronizationTimeout() {
+        return DEFAULT_ASYNC_SYNCHRONIZATION_TIMEOUT;
+    }
+    
+    /**
+     * Returns the statistics describing the effectiveness of the compression of dynamic responses rendered by 
+     * this servlet.
+     * 
+     * @return the <code>CompressionStatistics</code>
+     * @see #getCompressionThreshold()
+     */
+    public CompressionStatistics getCompressionStatistics() {
+        return compressionStatistics;
+    }
+    
+    /**
+     * Returns the minimum size, in bytes, of a dynamic response (e.g., a synchronization response) for
+     * it to be compressed.  Responses smaller than this size are not compressed, as the overhead of compression
+     * would exceed its benefit.  Services opt into compression using <code>Connection.enableCompression()</code>.
+     * The default implementation returns <code>DEFAULT_COMPRESSION_THRESHOLD</code>.
+     * 
+     * @return the threshold, or a negative value to disable compression of dynamic responses
+     */
+    public int getCompressionThreshold() {
+        return DEFAULT_COMPRESSION_THRESHOLD;
+    }
+    
     /**
      * Returns the instance operating mode of the application, determining how the application will perform if it
      * is visited by multiple browser windows.
@@ -386,6 +728,129 @@ public abstract class WebContainerServlet extends HttpServlet {
         return INSTANCE_MODE_SINGLE;
     }
     
+    /**
+     * Returns the <code>MemoryManager</code>, which enforces limits on the estimated heap memory retained by 
+     * <code>UserInstance</code>s.
+     * 
+     * @return the <code>MemoryManager</code>, or null if memory limits are not enabled
+     * @see #enableMemoryLimits(long, long, long)
+     */
+    public MemoryManager getMemoryManager() {
+        return memoryManager;
+    }
+    
+    /**
+     * Returns the <code>PassivationManager</code>, which passivates idle <code>UserInstance</code>s and provides
+     * passivation statistics.
+     * 
+     * @return the <code>PassivationManager</code>, or null if passivation is not enabled
+     * @see #enablePassivation(PassivationStore, long)
+     */
+    public PassivationManager getPassivationManager() {
+        return passivationManager;
+    }
+    
+    /**
+     * Returns the <code>ResponseBufferPool</code>, which provides buffers for dynamically rendered responses and 
+     * response buffering statistics.
+     * 
+     * @return the <code>ResponseBufferPool</code>, or null if response buffering is not enabled
+     * @see #enableResponseBuffering(int, int)
+     */
+    public ResponseBufferPool getResponseBufferPool() {
+        return responseBufferPool;
+    }
+    
+    /**
+     * Returns the <code>SyncExecutor</code>, which executes client-server synchronizations asynchronously and 
+     * provides queue statistics.
+     * 
+     * @return the <code>SyncExecutor</code>, or null if asynchronous synchronization is not enabled
+     * @see #enableAsyncSynchronization(int, int, int)
+     */
+    public SyncExecutor getSyncExecutor() {
+        return syncExecutor;
+    }
+    
+    /**
+     * Returns the global synchronization statistics.
+     * 
+     * @return the statistics, or null if statistics are not enabled
+     * @see #enableSyncStatistics()
+     */
+    public SyncStatistics getSyncStatistics() {
+        return syncStatistics;
+    }
+    
+    /**
+     * Determines whether server messages may be rendered in the compact JSON wire format
+     * (see <code>CompactDomWriter</code>) to clients which advertise support for it.
+     * If enabled, clients are instructed to advertise support when booted, provided that they 
+     * are capable of decoding the format.  Clients which do not advertise support always receive XML.
+     * The default implementation returns false.
+     * 
+     * @return true if the compact wire format is enabled
+     */
+    public boolean isCompactWireFormatEnabled() {
+        return false;
+    }
+    
+    /**
+     * Returns the maximum number of synchronization requests which a client may have in progress at one time, i.e.,
+     * the number of client messages which may be sent before the response to the first has been processed.
+     * Pipelined client messages are processed by the server in the order in which they were sent.  While they are in 
+     * progress, the client restricts input only to those components whose events are awaiting processing.
+     * A value of 1 disables pipelining, such that the client restricts all input and waits for each synchronization
+     * to complete before starting the next.
+     * The default implementation returns 1.
+     * 
+     * @return the maximum number of synchronization requests in progress
+     */
+    public int getSyncPipelineDepth() {
+        return 1;
+    }
+    
+    /**
+     * Determines whether the rendered state of component hierarchies may be cached and reused on subsequent 
+     * renderings (e.g., full refreshes) when the hierarchies have not changed (see 
+     * <code>Component.getSubtreeVersion()</code>).
+     * Caching requires that the output of all component synchronization peers be derived solely from the 
+     * state of their components, such that any change to it is accompanied by a property change of the 
+     * component; peers which render other state will be rendered stale.
+     * The default implementation returns false.
+     * 
+     * @return true if the rendered state of component hierarchies may be cached
+     */
+    public boolean isFragmentCacheEnabled() {
+        return false;
+    }
+
+    /**
+     * Determines whether out-of-sync clients are resynchronized incrementally.
+     * When enabled, rendered component states are accompanied by digests of their content (see
+     * <code>nextapp.echo.webcontainer.util.ComponentDigest</code>).  Rather than clearing and re-rendering its
+     * entire component hierarchy, an out-of-sync client is requested to report the digests of the states it holds,
+     * and only those components whose states differ from those of the server are rendered again.
+     * Resynchronization thus requires an additional client-server round trip, but transfers only the divergent
+     * portions of large hierarchies.
+     * The default implementation returns false.
+     *
+     * @return true if out-of-sync clients should be resynchronized incrementally
+     */
+    public boolean isIncrementalResyncEnabled() {
+        return false;
+    }
+
+    /**
+     * Determines whether synchronization metrics are being collected, i.e., whether any 
+     * <code>SyncMetricsListener</code>s are registered.
+     * 
+     * @return true if metrics are being collected
+     */
+    public boolean isSyncMetricsEnabled() {
+        return syncMetricsListeners != null;
+    }
+    
     /**
      * Creates a new <code>ApplicationInstance</code> for visitor to an 
      * application.
@@ -394,6 +859,21 @@ public abstract class WebContainerServlet extends HttpServlet {
      */
     public abstract ApplicationInstance newApplicationInstance();
     
+    /**
+     * Creates a worker thread for the <code>SyncExecutor</code>.
+     * The default implementation creates a daemon thread.  Derived servlets may override this method to, for 
+     * example, create threads using a container-managed thread factory.
+     * 
+     * @param worker the worker, which should be executed by the thread
+     * @return the thread (not started)
+     * @see #enableAsyncSynchronization(int, int, int)
+     */
+    protected Thread createSyncWorkerThread(Runnable worker) {
+        Thread thread = new Thread(worker, "Echo.SyncExecutor");
+        thread.setDaemon(true);
+        return thread;
+    }
+    
     /**
      * Processes an HTTP request and generates a response.
      * 
@@ -401,6 +881,40 @@ public abstract class WebContainerServlet extends HttpServlet {
      * @param response the outgoing <code>HttpServletResponse</code>
      */
     protected void process(HttpServletRequest request, HttpServletResponse response) 
+    throws IOException, ServletException {
+        if (syncExecutor != null 
+                && SynchronizeService.INSTANCE.getId().equals(request.getParameter(SERVICE_ID_PARAMETER))
+                && ServletAsyncSupport.isAsyncSupported(request)) {
+            processAsync(request, response);
+        } else {
+            processRequest(request, response);
+        }
+    }
+    
+    /**
+     * Processes a synchronization request asynchronously, by queuing it for execution by the 
+     * <code>SyncExecutor</code>.  The request is answered with status 503 (Service Unavailable) if the queue
+     * is full.
+     * 
+     * @param request the incoming <code>HttpServletRequest</code>
+     * @param response the outgoing <code>HttpServletResponse</code>
+     */
+    private void processAsync(HttpServletRequest request, HttpServletResponse response) {
+        AsyncSynchronization synchronization = new AsyncSynchronization(request, response);
+        HttpSession session = request.getSession(false);
+        Object laneKey = session == null ? (Object) request : session.getId() + "/" + request.getParameter("uiid");
+        if (!syncExecutor.execute(laneKey, synchronization)) {
+            synchronization.reject();
+        }
+    }
+    
+    /**
+     * Processes an HTTP request and generates a response on the current thread.
+     * 
+     * @param request the incoming <code>HttpServletRequest</code>
+     * @param response the outgoing <code>HttpServletResponse</code>
+     */
+    private void processRequest(HttpServletRequest request, HttpServletResponse response) 
     throws IOException, ServletException {
         Connection conn = null;
         try {
@@ -430,6 +944,10 @@ public abstract class WebContainerServlet extends HttpServlet {
             }
             
             service.service(conn);
+            conn.finish();
+            if (conn.getSyncMetrics() != null) {
+                fireSyncMetrics(conn);
+            }
             
         } catch (ServletException ex) {
             if (conn != null) {
@@ -447,6 +965,10 @@ public abstract class WebContainerServlet extends HttpServlet {
             }
             processError(request, response, ex);
         } finally {
+            if (conn != null) {
+                conn.releaseCompressor();
+                conn.releaseResponseBuffer();
+            }
             activeConnection.set(null);
         }
     }
@@ -464,8 +986,32 @@ public abstract class WebContainerServlet extends HttpServlet {
     throws ServletException, IOException {
         String exceptionId = Uid.generateUidString();
         Log.log("Server Exception. ID: " + exceptionId, ex);
+        if (response.isCommitted()) {
+            // Response has been partially sent: the error cannot be reported to the client.
+            return;
+        }
+        response.reset();
         response.setContentType("text/plain");
         response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
         response.getWriter().write("Server Exception. ID: " + exceptionId);
     }
+    
+    /**
+     * Removes a <code>SyncMetricsListener</code>.
+     * 
+     * @param l the listener to remove
+     */
+    public synchronized void removeSyncMetricsListener(SyncMetricsListener l) {
+        if (syncMetricsListeners == null) {
+            return;
+        }
+        List listeners = new ArrayList();
+        for (int i = 0; i < syncMetricsListeners.length; ++i) {
+            if (syncMetricsListeners[i] != l) {
+                listeners.add(syncMetricsListeners[i]);
+            }
+        }
+        syncMetricsListeners = listeners.size() == 0 ? null 
+                : (SyncMetricsListener[]) listeners.toArray(new SyncMetricsListener[listeners.size()]);
+    }
 }
@@ -30,8 +30,10 @@ Echo.Boot = {
      * 
      * @param {String} serverBaseUrl the servlet URL
      * @param {Boolean} debug flag indicating whether debug capabilities should be enabled
+     * @param {Boolean} compactWireFormat flag indicating whether the server supports the compact server message
+     *        wire format (see <code>Echo.RemoteClient.compactWireFormat</code>)
      */
-    boot: function(serverBaseUrl, initId, debug) {
+    boot: function(serverBaseUrl, initId, debug, compactWireFormat) {
         Core.Web.init();
         
         if (debug && window.Echo.DebugConsole) {
@@ -39,6 +41,7 @@ Echo.Boot = {
         }
     
         var client = new Echo.RemoteClient(serverBaseUrl, initId);
+        client.compactWireFormat = !!compactWireFormat;
         for (var i = 0; i < Echo.Boot._initMethods.length; ++i) {
             Echo.Boot._initMethods[i](client);
         }
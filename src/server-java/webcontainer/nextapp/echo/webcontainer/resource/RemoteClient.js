@@ -72,6 +72,14 @@ Echo.RemoteClient = Core.extend(Echo.Client, {
      */
     _serverUrl: null,
     
+    /**
+     * Flag indicating whether the client should advertise support for the compact JSON server message wire format
+     * (see <code>Echo.Serial.CompactDom</code>) in its initial client message.  Disabled by default, enabled at 
+     * boot if the server supports the format.  The format is not advertised by clients without native JSON support.
+     * @type Boolean
+     */
+    compactWireFormat: false,
+    
     /**
      * Flag indicating whether a client-server synchronization is requested.
      * @type Boolean
@@ -80,10 +88,61 @@ Echo.RemoteClient = Core.extend(Echo.Client, {
 
     /**
      * Flag indicating whether a client-server transaction is currently in progress.
+     * When synchronization is pipelined, this flag indicates only that a server message is being processed.
      * @type Boolean
      */
     _transactionInProgress: false,
     
+    /**
+     * The maximum number of client messages which may be in progress (sent, with their responses not yet processed)
+     * at one time, as specified by the server.  A value of 1 indicates that synchronization is not pipelined.
+     * @type Number
+     */
+    _pipelineDepth: 1,
+    
+    /**
+     * The number of pipelined client messages in progress.
+     * @type Number
+     */
+    _pipelineCount: 0,
+    
+    /**
+     * Sequence number of the most recently sent pipelined client message.
+     * @type Number
+     */
+    _sequence: 0,
+    
+    /**
+     * Sequence number of the next pipelined server message to be processed.
+     * @type Number
+     */
+    _nextResponseSequence: 1,
+    
+    /**
+     * Mapping between sequence numbers and received pipelined server message responses which have not yet been 
+     * processed (responses are processed in the order in which their requests were sent).
+     */
+    _pipelineResponses: null,
+    
+    /**
+     * Mapping between sequence numbers and the renderIds of the components whose events were sent in the 
+     * corresponding pipelined client messages.
+     */
+    _pipelineEventComponentIds: null,
+    
+    /**
+     * Mapping between renderIds and the number of events fired by those components which are awaiting processing by 
+     * the server.  When synchronization is pipelined, input is restricted only to these components.
+     */
+    _pendingEventCounts: null,
+    
+    /**
+     * Sequence number of the pipelined server message currently being processed, or null if the server message
+     * being processed is not pipelined.
+     * @type Number
+     */
+    _processingSequence: null,
+    
     /**
      * Identifier for input restriction registered with client during transactions.
      * @type String
@@ -126,6 +185,19 @@ Echo.RemoteClient = Core.extend(Echo.Client, {
      */
     _asyncManager: null,
     
+    /**
+     * Mapping between component render ids and the server-provided digests of their rendered states, reported to the
+     * server when it requests them in order to resynchronize the client incrementally.  Digests are discarded when
+     * the states of their components are updated.
+     */
+    _digests: null,
+    
+    /**
+     * The server-provided digest of the current style sheet.
+     * @type String
+     */
+    _styleSheetDigest: null,
+    
     /**
      * Flag indicating whether the remote client has been initialized.
      * @type Boolean
@@ -180,6 +252,10 @@ Echo.RemoteClient = Core.extend(Echo.Client, {
         this._clientMessage = new Echo.RemoteClient.ClientMessage(this, initId);
         this._asyncManager = new Echo.RemoteClient.AsyncManager(this);
         this._pending_events = [];
+        this._pipelineResponses = {};
+        this._pipelineEventComponentIds = {};
+        this._pendingEventCounts = {};
+        this._digests = {};
         this._clientUpdatesHandler = new Core.Web.Scheduler.MethodRunnable(Core.method(this, this._performClientUpdates), 125, false);
     },
     
@@ -253,6 +329,28 @@ Echo.RemoteClient = Core.extend(Echo.Client, {
         }
     },
     
+    /**
+     * Returns the digests of the rendered states of the components of the hierarchy, for which they are available.
+     * 
+     * @return a mapping between component render ids and digests
+     */
+    _getDigests: function() {
+        var digests = {};
+        var components = [this.application.rootComponent];
+        while (components.length > 0) {
+            var component = components.pop();
+            if (this._digests[component.renderId]) {
+                digests[component.renderId] = this._digests[component.renderId];
+            }
+            for (var i = 0; i < component.children.length; ++i) {
+                components.push(component.children[i]);
+            }
+        }
+        // Discard digests of components which are no longer registered.
+        this._digests = digests;
+        return digests;
+    },
+    
     /**
      * Returns the URL of a library service based on the serviceId.
      * 
@@ -399,7 +497,7 @@ Echo.RemoteClient = Core.extend(Echo.Client, {
     
     _processPrendingClientEvent: function(e) {
         this._clientMessage.setEvent(e.source.renderId, e.type, e.data);
-        if (!this._inputRestrictionId) {
+        if (this._pipelineDepth <= 1 && !this._inputRestrictionId) {
            this._inputRestrictionId = this.createInputRestriction();
         }
         this._syncRequested = true;
@@ -412,7 +510,11 @@ Echo.RemoteClient = Core.extend(Echo.Client, {
      * @param e the event to process
      */
     _processClientEvent: function(e) {
-        if (this._syncRequested || this._transactionInProgress || this._pending_events.length > 0) {
+        if (this._pipelineDepth > 1) {
+            // Restrict input to the component until the event has been processed.
+            this._pendingEventCounts[e.source.renderId] = (this._pendingEventCounts[e.source.renderId] || 0) + 1;
+        }
+        if (this._syncRequested || !this._isSyncAvailable() || this._pending_events.length > 0) {
             this._pending_events.push( e );
             return;
         }
@@ -430,6 +532,9 @@ Echo.RemoteClient = Core.extend(Echo.Client, {
             return;
         }
         
+        // The rendered state of the component no longer matches the state provided by the server.
+        delete this._digests[e.parent.renderId];
+        
         var stored = false;
         if (e.parent.peer.storeProperty) {
             stored = e.parent.peer.storeProperty(this._clientMessage, e.propertyName);
@@ -442,12 +547,41 @@ Echo.RemoteClient = Core.extend(Echo.Client, {
     },
     
     _performClientUpdates: function() {
-        if (!this._transactionInProgress && !this._syncRequested && this._clientMessage.hasStoredProperties()) {
+        if (this._isSyncAvailable() && !this._syncRequested && this._clientMessage.hasStoredProperties()) {
             this._syncRequested = true;
             this.sync();
         }
     },
     
+    /**
+     * Determines whether a client-server synchronization may be started, i.e., whether no transaction is in progress, 
+     * or, if synchronization is pipelined, whether no server message is being processed and fewer than the 
+     * maximum number of client messages are in progress.
+     * 
+     * @return true if a synchronization may be started
+     * @type Boolean
+     */
+    _isSyncAvailable: function() {
+        if (this._transactionInProgress) {
+            return false;
+        }
+        return this._pipelineCount < (this._pipelineDepth > 1 ? this._pipelineDepth : 1);
+    },
+    
+    /**
+     * Stores a property update in the outgoing client message, such that it will be sent to the server.
+     * Unlike updates resulting from user input, updates stored with this method are retained if stored while a 
+     * client-server transaction is in progress, and will be sent once the transaction has completed.
+     * 
+     * @param {Echo.Component} component the updated component
+     * @param {String} propertyName the property name
+     * @param value the property value
+     */
+    storeClientUpdate: function(component, propertyName, value) {
+        this._clientMessage.storeProperty(component.renderId, propertyName, value);
+        Core.Web.Scheduler.update(this._clientUpdatesHandler, true);
+    },
+    
     /**
      * ServerMessage completion listener.
      * 
@@ -467,8 +601,21 @@ Echo.RemoteClient = Core.extend(Echo.Client, {
         
         // Flag transaction as being complete.
         this._transactionInProgress = false;
-        this.removeInputRestriction(this._inputRestrictionId);
-        this._inputRestrictionId = null;
+        if (this._processingSequence == null) {
+            this.removeInputRestriction(this._inputRestrictionId);
+            this._inputRestrictionId = null;
+        } else {
+            this._completePipelinedSync(this._processingSequence);
+            this._processingSequence = null;
+        }
+        
+        var pipelineDepth = e.source.document.documentElement.getAttribute("pd");
+        this._pipelineDepth = pipelineDepth ? parseInt(pipelineDepth, 10) : 1;
+        
+        // Send any client updates stored during the transaction.
+        if (this._clientMessage.hasStoredProperties()) {
+            Core.Web.Scheduler.update(this._clientUpdatesHandler, true);
+        }
 
         // Focus component
         if (this._serverFocusedComponent) {
@@ -484,10 +631,69 @@ Echo.RemoteClient = Core.extend(Echo.Client, {
             this.displayError(this.domainElement, this.configuration["Resync.Message"], null, 
                     this.configuration["Action.Continue"], null, Echo.Client.STYLE_MESSAGE);
         }
+        
+        if (e.source.digestRequest) {
+            // Report the digests of rendered component states, such that the server may resynchronize the client by 
+            // rendering only those components whose states differ.
+            this._clientMessage.setDigests(this._getDigests(), this._styleSheetDigest);
+            if (!this._syncRequested && this._isSyncAvailable()) {
+                this._syncRequested = true;
+                Core.Web.Scheduler.run(Core.method(this, this.sync));
+            }
+        }
 
-        if( this._pending_events.length > 0 ) {
+        if (this._pending_events.length > 0 && !this._syncRequested && this._isSyncAvailable()) {
             this._processPrendingClientEvent(this._pending_events.shift());
         }
+        
+        // Process next pipelined response, if it has been received.
+        this._processPipelinedResponses();
+    },
+    
+    /**
+     * Performs completion tasks for a processed pipelined server message, removing the input restriction on the
+     * component whose event was sent in the corresponding client message.
+     * 
+     * @param {Number} sequence the sequence number of the server message
+     */
+    _completePipelinedSync: function(sequence) {
+        --this._pipelineCount;
+        var componentId = this._pipelineEventComponentIds[sequence];
+        if (!componentId) {
+            return;
+        }
+        delete this._pipelineEventComponentIds[sequence];
+        if (!this._pendingEventCounts[componentId]) {
+            return;
+        }
+        if (--this._pendingEventCounts[componentId] > 0) {
+            return;
+        }
+        delete this._pendingEventCounts[componentId];
+        
+        var component = this.application.getComponentByRenderId(componentId);
+        if (component && this.hasRestrictionListener(component)) {
+            // Notify restriction listeners that input to the component is no longer restricted.
+            this.removeInputRestriction(this.createInputRestriction());
+        }
+    },
+    
+    /**
+     * Processes the next received pipelined server message, if it has been received and no other server message is 
+     * being processed.  Pipelined server messages are processed in the order in which their client messages were sent.
+     */
+    _processPipelinedResponses: function() {
+        var e = this._pipelineResponses[this._nextResponseSequence];
+        if (this._transactionInProgress || !e) {
+            return;
+        }
+        delete this._pipelineResponses[this._nextResponseSequence];
+        this._processingSequence = this._nextResponseSequence++;
+
+        this._clientFocusedComponent = this.application ? this.application.getFocusedComponent() : null;
+        this._serverFocusedComponent = null;
+        this._transactionInProgress = true;
+        this._processSyncResponse(e);
     },
     
     /**
@@ -497,7 +703,18 @@ Echo.RemoteClient = Core.extend(Echo.Client, {
      */
     _processSyncResponse: function(e) {
         // Retrieve response document.
-        var responseDocument = e.source.getResponseXml();
+        var responseDocument = null;
+        var contentType = e.valid ? e.source.getResponseHeader("Content-Type") : null;
+        if (contentType && contentType.indexOf("application/json") === 0) {
+            // Decode compact JSON wire format.
+            try {
+                responseDocument = Echo.Serial.CompactDom.parse(e.source.getResponseText());
+            } catch (ex) {
+                e.exception = ex;
+            }
+        } else {
+            responseDocument = e.source.getResponseXml();
+        }
         
         // Verify that response document exists and is valid.
         if (!e.valid || !responseDocument || !responseDocument.documentElement) {
@@ -542,36 +759,116 @@ Echo.RemoteClient = Core.extend(Echo.Client, {
         component.removeListener(eventType, this._processClientEventRef);
     },
     
+    /**
+     * Sends a rendered client message to the server.
+     * The message is resent if the server responds that it is temporarily unable to process it, i.e., with
+     * status 503 (Service Unavailable) and a <code>Retry-After</code> header (in seconds), as is the case when its 
+     * synchronization queue is full.
+     * 
+     * @param {String} messageXml the rendered client message
+     * @param {Function} responseListener the listener to notify of the response
+     */
+    _sendClientMessage: function(messageXml, responseListener) {
+        var conn = new Core.Web.HttpConnection(this.getServiceUrl("Echo.Sync"), "POST", messageXml, "text/xml");
+        conn.addResponseListener(Core.method(this, function(e) {
+            var retryAfter = !e.valid && e.source.getStatus() == 503 ? 
+                    parseInt(e.source.getResponseHeader("Retry-After"), 10) : NaN;
+            if (isNaN(retryAfter)) {
+                responseListener(e);
+            } else {
+                Core.Web.Scheduler.run(Core.method(this, function() {
+                    if (this.domainElement) {
+                        this._sendClientMessage(messageXml, responseListener);
+                    }
+                }), retryAfter * 1000);
+            }
+        }));
+        conn.connect();
+    },
+    
+    /**
+     * Stores the server-provided digests of a rendered component state and of the states of its descendants.
+     * 
+     * @param {Element} cElement the component ("c") element
+     */
+    _storeDigests: function(cElement) {
+        var digest = cElement.getAttribute("dg");
+        if (digest) {
+            this._digests[cElement.getAttribute("i")] = digest;
+        }
+        var element = cElement.firstChild;
+        while (element) {
+            if (element.nodeType == 1 && element.nodeName == "c") {
+                this._storeDigests(element);
+            }
+            element = element.nextSibling;
+        }
+    },
+    
     /**
      * Initiates a client-server synchronization.
      */
     sync: function() {
-        if (this._transactionInProgress) {
+        if (!this._isSyncAvailable()) {
             throw new Error("Attempt to invoke client/server synchronization while another transaction is in progress; " + 
                     "event data: componentId=" + this._clientMessage._eventComponentId + " eventType=" + 
                     this._clientMessage._eventType + " eventData=" + this._clientMessage._eventData);  
         }
-    
-        this._clientFocusedComponent = this.application ? this.application.getFocusedComponent() : null;
-        this._serverFocusedComponent = null;
         
-        this._transactionInProgress = true;
+        var sequence = null;
         this._syncRequested = false;
-        if (!this._inputRestrictionId) {
-            this._inputRestrictionId = this.createInputRestriction();
+        if (this._pipelineDepth > 1) {
+            // Pipelined synchronization: do not restrict input (other than to components whose events are pending).
+            sequence = ++this._sequence;
+            ++this._pipelineCount;
+            this._clientMessage._sequence = sequence;
+            if (this._clientMessage._eventComponentId) {
+                this._pipelineEventComponentIds[sequence] = this._clientMessage._eventComponentId;
+            }
+        } else {
+            this._clientFocusedComponent = this.application ? this.application.getFocusedComponent() : null;
+            this._serverFocusedComponent = null;
+            
+            this._transactionInProgress = true;
+            if (!this._inputRestrictionId) {
+                this._inputRestrictionId = this.createInputRestriction();
+            }
         }
 
         this._asyncManager._stop();
         this._syncInitTime = new Date().getTime();
 
-        var conn = new Core.Web.HttpConnection(this.getServiceUrl("Echo.Sync"), "POST", 
-                this._clientMessage._renderXml(), "text/xml");
+        var messageXml = this._clientMessage._renderXml();
         
         // Create new client message.
         this._clientMessage = new Echo.RemoteClient.ClientMessage(this, null);
 
-        conn.addResponseListener(Core.method(this, this._processSyncResponse));
-        conn.connect();
+        if (sequence == null) {
+            this._sendClientMessage(messageXml, Core.method(this, this._processSyncResponse));
+        } else {
+            this._sendClientMessage(messageXml, Core.method(this, function(e) {
+                this._pipelineResponses[sequence] = e;
+                this._processPipelinedResponses();
+            }));
+        }
+        
+        if (sequence != null && this._pending_events.length > 0 && this._isSyncAvailable()) {
+            // Send next pending event without waiting for response.
+            this._processPrendingClientEvent(this._pending_events.shift());
+        }
+    },
+    
+    /**
+     * Determines whether input is allowed to a component.
+     * When synchronization is pipelined, input is additionally restricted to components which have fired events 
+     * that have not yet been processed by the server.
+     * @see Echo.Client#verifyInput
+     */
+    verifyInput: function(component) {
+        if (component && this._pendingEventCounts[component.renderId]) {
+            return false;
+        }
+        return Echo.Client.prototype.verifyInput.call(this, component);
     }
 });
 
@@ -674,7 +971,7 @@ Echo.RemoteClient.AsyncManager = Core.extend({
         if (e.valid && responseDocument && responseDocument.documentElement) {
             this._failedConnectAttempts = 0;
             if (responseDocument.documentElement.getAttribute("request-sync") == "true") {
-                if (!this._client._transactionInProgress && !this._client._syncRequested) {                    
+                if (this._client._isSyncAvailable() && !this._client._syncRequested) {                    
                     this._client.sync();
                 }
                 return;
@@ -813,6 +1110,24 @@ Echo.RemoteClient.ClientMessage = Core.extend({
      * @type Document
      */
     _document: null,
+    
+    /**
+     * Sequence number of a pipelined client message, null if the message is not pipelined.
+     * @type Number
+     */
+    _sequence: null,
+    
+    /**
+     * Mapping between component render ids and digests of their rendered states, to be reported to the server, 
+     * or null if they have not been requested.
+     */
+    _digests: null,
+    
+    /**
+     * Digest of the style sheet, to be reported to the server.
+     * @type String
+     */
+    _styleSheetDigest: null,
 
     /**
      * Creates a new client message.
@@ -910,6 +1225,8 @@ Echo.RemoteClient.ClientMessage = Core.extend({
             navigatorLanguage: window.navigator.language ? window.navigator.language : window.navigator.userLanguage,
             navigatorPlatform: window.navigator.platform,
             navigatorUserAgent: window.navigator.userAgent,
+            
+            wireFormats: this._client.compactWireFormat && Echo.Serial.CompactDom.isSupported() ? "json" : null,
 
             browserChrome: env.BROWSER_CHROME,
             browserOpera: env.BROWSER_OPERA,
@@ -931,6 +1248,29 @@ Echo.RemoteClient.ClientMessage = Core.extend({
         });
     },
     
+    /**
+     * Renders the digests of rendered component states to the client message DOM, if they have been set.
+     */
+    _renderResync: function() {
+        if (!this._digests) {
+            return;
+        }
+        var resyncElement = this._document.createElement("dir");
+        resyncElement.setAttribute("proc", "Resync");
+        if (this._styleSheetDigest) {
+            var ssElement = this._document.createElement("ss");
+            ssElement.setAttribute("d", this._styleSheetDigest);
+            resyncElement.appendChild(ssElement);
+        }
+        for (var renderId in this._digests) {
+            var cElement = this._document.createElement("c");
+            cElement.setAttribute("i", renderId);
+            cElement.setAttribute("d", this._digests[renderId]);
+            resyncElement.appendChild(cElement);
+        }
+        this._document.documentElement.appendChild(resyncElement);
+    },
+    
     /**
      * Renders all information to the XML DOM and returns it.
      * 
@@ -941,12 +1281,28 @@ Echo.RemoteClient.ClientMessage = Core.extend({
         if (!this._rendered) {
             this._renderCFocus();
             this._renderCSync();
+            this._renderResync();
             this._document.documentElement.setAttribute("i", this._client.transactionId);
+            if (this._sequence != null) {
+                this._document.documentElement.setAttribute("s", this._sequence);
+            }
             this._rendered = true;
         }
         return this._document;
     },
     
+    /**
+     * Sets the digests of rendered component states to report to the server, such that it may resynchronize the
+     * client incrementally.
+     * 
+     * @param digests a mapping between component render ids and digests
+     * @param {String} styleSheetDigest the digest of the style sheet
+     */
+    setDigests: function(digests, styleSheetDigest) {
+        this._digests = digests;
+        this._styleSheetDigest = styleSheetDigest;
+    },
+    
     /**
      * Sets the event that will cause the client-server interaction.
      *
@@ -1063,6 +1419,12 @@ Echo.RemoteClient.ServerMessage = Core.extend({
      * Flag indicating whether full-resynchronization is required.
      */
     resync: false,
+    
+    /**
+     * Flag indicating whether the server has requested the digests of rendered component states, in order to 
+     * resynchronize the client incrementally.
+     */
+    digestRequest: false,
 
     /**
      * Creates a new <code>ServerMessage</code>.
@@ -1079,6 +1441,9 @@ Echo.RemoteClient.ServerMessage = Core.extend({
         if (xmlDocument.documentElement.getAttribute("resync")) {
             this.resync = true;
         }
+        if (xmlDocument.documentElement.getAttribute("rd")) {
+            this.digestRequest = true;
+        }
     },
     
     /**
@@ -1302,6 +1667,7 @@ Echo.RemoteClient.ComponentSyncInitProcessor = Core.extend(Echo.RemoteClient.Dir
         while (element) {
             if (element.nodeType == 1 && element.nodeName == "cl") {
                 this.client.application.rootComponent.removeAll();
+                this.client._digests = {};
             }
             element = element.nextSibling;
         }
@@ -1352,6 +1718,14 @@ Echo.RemoteClient.ComponentSyncRemoveProcessor = Core.extend(Echo.RemoteClient.D
             var childElementIds = rmElement.getAttribute("rm").split(",");
             this._removeComponents(parentComponent, childElementIds);
             
+            // Discard digests of parent and removed children.
+            if (parentComponent) {
+                delete this.client._digests[parentComponent.renderId];
+            }
+            for (var i = 0; i < childElementIds.length; ++i) {
+                delete this.client._digests[childElementIds[i]];
+            }
+            
             rmElement = rmElement.nextSibling;
         }
     },
@@ -1495,6 +1869,7 @@ Echo.RemoteClient.ComponentSyncUpdateProcessor = Core.extend(Echo.RemoteClient.D
     _processStyleSheet: function(ssElement) {
         var styleSheet = Echo.Serial.loadStyleSheet(this.client, ssElement);
         this.client.application.setStyleSheet(styleSheet);
+        this.client._styleSheetDigest = ssElement.getAttribute("dg") || null;
     },
     
     /** 
@@ -1510,6 +1885,13 @@ Echo.RemoteClient.ComponentSyncUpdateProcessor = Core.extend(Echo.RemoteClient.D
         } else {
             var parentId = upElement.getAttribute("i");
             parentComponent = this.client.application.getComponentByRenderId(parentId);
+            
+            // Store the digest of the updated state of the component, if provided, otherwise discard its digest.
+            if (upElement.getAttribute("dg")) {
+                this.client._digests[parentId] = upElement.getAttribute("dg");
+            } else {
+                delete this.client._digests[parentId];
+            }
         }
     
         // Child insertion cursor index (if index is omitted, children are added at this position).
@@ -1521,6 +1903,7 @@ Echo.RemoteClient.ComponentSyncUpdateProcessor = Core.extend(Echo.RemoteClient.D
                 switch (element.nodeName) {
                 case "c": // Added child
                     var component = Echo.Serial.loadComponent(this.client, element, this._propertyMap, this._styleMap);
+                    this.client._storeDigests(element);
                     var index = element.getAttribute("x");
                     if (index == null) {
                         // No index specified, add children at current insertion cursor position.
@@ -1571,3 +1954,106 @@ Echo.RemoteClient.ComponentSyncUpdateProcessor = Core.extend(Echo.RemoteClient.D
         }
     }
 });
+
+/**
+ * Utilities for serializing list selection state between client and server.
+ * Selections are represented as comma-delimited lists of indices, where contiguous runs of selected indices are
+ * collapsed into inclusive ranges, e.g., "0-199999,200005" represents indices 0 through 199999 and index 200005.
+ * @namespace
+ */
+Echo.RemoteClient.ListSelection = {
+
+    /**
+     * Creates a selection string from an array of selected indices.
+     * 
+     * @param {Array} indices the selected indices, in any order (duplicates are permitted)
+     * @return the selection string, e.g., "1-4,7", "5", or ""
+     * @type String
+     */
+    format: function(indices) {
+        var selectionState = [];
+        for (var i = 0; i < indices.length; ++i) {
+            selectionState[parseInt(indices[i], 10)] = true;
+        }
+        return this.formatState(selectionState);
+    },
+    
+    /**
+     * Creates a selection string from a sparse array of boolean selection states, indexed by item index.
+     * 
+     * @param {Array} selectionState the selection states
+     * @return the selection string, e.g., "1-4,7", "5", or ""
+     * @type String
+     */
+    formatState: function(selectionState) {
+        var out = [],
+            i = 0;
+        while (i < selectionState.length) {
+            if (!selectionState[i]) {
+                ++i;
+                continue;
+            }
+            var rangeStart = i;
+            while (selectionState[i + 1]) {
+                ++i;
+            }
+            out.push(i > rangeStart ? rangeStart + "-" + i : rangeStart);
+            ++i;
+        }
+        return out.join(",");
+    },
+    
+    /**
+     * Parses a selection string into an array of selected indices.
+     * The number of returned indices is bounded by <code>size</code>, if specified; 
+     * <code>parseRanges()</code> should be used where the ranges themselves may be processed.
+     * 
+     * @param {String} value the selection string, e.g., "1-4,7", "5", "" or null
+     * @param {Number} size the number of items which may be selected (indices greater than or equal to the size
+     *        are ignored), or null if unknown
+     * @return the selected indices, in the order in which they are specified
+     * @type Array
+     */
+    parse: function(value, size) {
+        var indices = [],
+            ranges = this.parseRanges(value, size);
+        for (var i = 0; i < ranges.length; i += 2) {
+            for (var j = ranges[i]; j <= ranges[i + 1]; ++j) {
+                indices.push(j);
+            }
+        }
+        return indices;
+    },
+    
+    /**
+     * Parses a selection string into an array of inclusive index ranges, without expanding the ranges.
+     * 
+     * @param {String} value the selection string, e.g., "1-4,7", "5", "" or null
+     * @param {Number} size the number of items which may be selected (ranges are clamped such that indices 
+     *        greater than or equal to the size are excluded), or null if unknown
+     * @return an array of alternating range start and (inclusive) range end indices, e.g., [1, 4, 7, 7]
+     * @type Array
+     */
+    parseRanges: function(value, size) {
+        var ranges = [];
+        if (!value) {
+            return ranges;
+        }
+        var tokens = value.split(",");
+        for (var i = 0; i < tokens.length; ++i) {
+            if (tokens[i] === "") {
+                continue;
+            }
+            var dashIndex = tokens[i].indexOf("-", 1);
+            var rangeStart = parseInt(dashIndex == -1 ? tokens[i] : tokens[i].substring(0, dashIndex), 10);
+            var rangeEnd = dashIndex == -1 ? rangeStart : parseInt(tokens[i].substring(dashIndex + 1), 10);
+            if (size != null && rangeEnd > size - 1) {
+                rangeEnd = size - 1;
+            }
+            if (rangeStart <= rangeEnd) {
+                ranges.push(rangeStart, rangeEnd);
+            }
+        }
+        return ranges;
+    }
+};
@@ -5,9 +5,9 @@ Echo.Sync._ListComponentMixins = {
     
     /**
      * Retrieves the selection state of the list component and converts it into a comma-delimited string
-     * containing the selected indices.
+     * containing the selected indices, with contiguous runs of indices collapsed into ranges, e.g., "1-4,7".
      * 
-     * @return the selection state as a comma-delimited string of indices
+     * @return the selection state as a comma-delimited string of indices and index ranges
      * @type String
      */
     getSelectionString: function() {
@@ -16,7 +16,7 @@ Echo.Sync._ListComponentMixins = {
             return null;
         } else {
             if (selection instanceof Array) {
-                return selection.join(",");
+                return Echo.RemoteClient.ListSelection.format(selection);
             } else {
                 return selection.toString();
             }
@@ -24,21 +24,22 @@ Echo.Sync._ListComponentMixins = {
     },
     
     /**
-     * Sets the selection of the list component given a comma-delimited string of indices.
+     * Sets the selection of the list component given a comma-delimited string of indices and index ranges.
      * Invoked by server-side synchronization peer directly.
      * 
-     * @param {String} selectionString the selection new state as a comma-delimited string of indices
+     * @param {String} selectionString the selection new state as a comma-delimited string of indices and index ranges
      */
     setSelectionString: function(selectionString) {
         var selection;
         if (selectionString == null) {
             selection = null;
         } else {
-            selection = selectionString.split(",");
+            var items = this.get("items");
+            selection = Echo.RemoteClient.ListSelection.parse(selectionString, items ? items.length : null);
             if (selection.length === 0) {
                 selection = null;
             } else if (selection.length == 1) {
-                selection = selection[0] === "" ? null : selection[0];
+                selection = selection[0];
             }
         }
         this.set("selection", selection);
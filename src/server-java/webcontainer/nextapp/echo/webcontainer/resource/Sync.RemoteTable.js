@@ -529,12 +529,11 @@ Echo.Sync.RemoteTableSync = Core.extend(Echo.Render.ComponentSync, {
         if (clearPrevious) {
             this._clearSelected();
         }
-        var selectedIndices = value.split(",");
-        for (var i = 0; i < selectedIndices.length; i++) {
-            if (selectedIndices[i] === "") {
-                continue;
+        var ranges = Echo.RemoteClient.ListSelection.parseRanges(value, this._rowCount);
+        for (var i = 0; i < ranges.length; i += 2) {
+            for (var rowIndex = ranges[i]; rowIndex <= ranges[i + 1]; ++rowIndex) {
+                this._setSelected(rowIndex, true);
             }
-            this._setSelected(parseInt(selectedIndices[i], 10), true);
         }
     },
     
@@ -604,22 +603,14 @@ Echo.Sync.RemoteTable.ListSelectionModel = Core.extend({
     },
     
     /**
-     * Gets a comma-delimited list containing the selected indices.
+     * Gets a comma-delimited list containing the selected indices, with contiguous runs of indices
+     * collapsed into ranges, e.g., "1-4,7".
      * 
      * @return the list
      * @type String
      */
     getSelectionString: function() {
-        var selection = "";
-        for (var i = 0; i < this._selectionState.length; i++) {
-            if (this._selectionState[i]) {
-                if (selection.length > 0) {
-                    selection += ",";
-                }
-                selection += i;
-            }
-        }
-        return selection;
+        return Echo.RemoteClient.ListSelection.formatState(this._selectionState);
     },
     
     /**
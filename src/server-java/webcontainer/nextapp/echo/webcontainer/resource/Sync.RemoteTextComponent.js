@@ -19,6 +19,164 @@ Echo.Sync.RemoteTextComponent = Core.extend({
          */
         SYNC_ON_CHANGE: 1,
         
+        /**
+         * Encodes and applies text deltas, used to synchronize changes to large text values without transmitting
+         * the entire value.  Client-side equivalent of <code>nextapp.echo.webcontainer.util.TextDelta</code>.
+         * A delta is a string of the form <code>checksum:offset:deleteLength:insertText</code>; a 
+         * <code>deleteLength</code> of -1 indicates that the entire text is replaced.
+         */
+        TextDelta: {
+            
+            /**
+             * The minimum length of text values which will be synchronized using deltas.
+             * Must be equal to the value used by the server-side <code>TextComponentPeer</code>.
+             * @type Number
+             */
+            THRESHOLD: 1024,
+            
+            /**
+             * Computes the checksum of a text value (equivalent to Java's <code>String.hashCode()</code>).
+             * 
+             * @param {String} text the text
+             * @return the checksum
+             * @type Number
+             */
+            checksum: function(text) {
+                var hash = 0;
+                for (var i = 0; i < text.length; ++i) {
+                    hash = (hash * 31 + text.charCodeAt(i)) | 0;
+                }
+                return hash;
+            },
+            
+            /**
+             * Creates a delta which transforms <code>oldText</code> into <code>newText</code>.
+             * 
+             * @param {String} oldText the previous text, or null if unknown (in which case the delta will replace 
+             *        the entire text)
+             * @param {String} newText the new text
+             * @return the delta
+             * @type String
+             */
+            create: function(oldText, newText) {
+                var checksum = this.checksum(newText);
+                if (oldText == null) {
+                    return checksum + ":0:-1:" + newText;
+                }
+                
+                var maxCommon = Math.min(oldText.length, newText.length),
+                    prefix = 0,
+                    suffix = 0,
+                    ch;
+                while (prefix < maxCommon && oldText.charCodeAt(prefix) == newText.charCodeAt(prefix)) {
+                    ++prefix;
+                }
+                if (prefix > 0) {
+                    // Do not divide surrogate pair.
+                    ch = newText.charCodeAt(prefix - 1);
+                    if (ch >= 0xd800 && ch <= 0xdbff) {
+                        --prefix;
+                    }
+                }
+                while (suffix < maxCommon - prefix && 
+                        oldText.charCodeAt(oldText.length - 1 - suffix) == newText.charCodeAt(newText.length - 1 - suffix)) {
+                    ++suffix;
+                }
+                if (suffix > 0) {
+                    // Do not divide surrogate pair.
+                    ch = newText.charCodeAt(newText.length - suffix);
+                    if (ch >= 0xdc00 && ch <= 0xdfff) {
+                        --suffix;
+                    }
+                }
+                
+                return checksum + ":" + prefix + ":" + (oldText.length - prefix - suffix) + ":" + 
+                        newText.substring(prefix, newText.length - suffix);
+            },
+            
+            /**
+             * Applies a delta to a base text.
+             * 
+             * @param {String} baseText the base text to which the delta should be applied, or null if unknown
+             * @param {String} delta the delta
+             * @return the resulting text, or null if the delta cannot be applied to the base text or the result
+             *         does not match the checksum in the delta
+             * @type String
+             */
+            apply: function(baseText, delta) {
+                var checksumEnd = delta.indexOf(":"),
+                    offsetEnd = checksumEnd == -1 ? -1 : delta.indexOf(":", checksumEnd + 1),
+                    deleteLengthEnd = offsetEnd == -1 ? -1 : delta.indexOf(":", offsetEnd + 1);
+                if (deleteLengthEnd == -1) {
+                    return null;
+                }
+                var checksum = parseInt(delta.substring(0, checksumEnd), 10),
+                    offset = parseInt(delta.substring(checksumEnd + 1, offsetEnd), 10),
+                    deleteLength = parseInt(delta.substring(offsetEnd + 1, deleteLengthEnd), 10),
+                    insertText = delta.substring(deleteLengthEnd + 1),
+                    text;
+                
+                if (deleteLength == -1) {
+                    text = insertText;
+                } else {
+                    if (baseText == null || !(offset >= 0 && deleteLength >= 0 && offset + deleteLength <= baseText.length)) {
+                        return null;
+                    }
+                    text = baseText.substring(0, offset) + insertText + baseText.substring(offset + deleteLength);
+                }
+                
+                return this.checksum(text) === checksum ? text : null;
+            }
+        },
+        
+        /**
+         * Mixin properties used by all remote text component (<code>Echo.Component</code>) implementations.
+         */
+        _ComponentMixins: {
+            
+            /**
+             * The text value last exchanged with the server, against which text deltas are computed and applied.
+             * Null if unknown, in which case the complete text value will be exchanged.
+             * @type String
+             */
+            _serverText: null,
+            
+            /**
+             * Flag indicating whether <code>_serverText</code> has been initialized.
+             * @type Boolean
+             */
+            _serverTextInitialized: false,
+            
+            /**
+             * Applies a text delta received from the server.
+             * Requests that the server resend the complete text in the event that the delta cannot be applied.
+             * 
+             * @param {String} delta the delta
+             */
+            applyTextDelta: function(delta) {
+                var text = Echo.Sync.RemoteTextComponent.TextDelta.apply(this._serverText, delta);
+                if (text == null) {
+                    this._serverText = null;
+                    this.application.client.storeClientUpdate(this, "textResync", true);
+                } else {
+                    this._serverText = text;
+                    this.set("text", text);
+                }
+            },
+            
+            /**
+             * Sends the complete text to the server, in response to a server request (made when the server is 
+             * unable to apply a text delta).
+             * 
+             * @param {Boolean} value the request value (always true)
+             */
+            requestTextResync: function(value) {
+                this._serverText = null;
+                this.application.client.storeClientUpdate(this, "textDelta", 
+                        new Echo.Sync.RemoteTextDelta(this));
+            }
+        },
+        
         /**
          * Mixin properties used by all remote text components.
          */
@@ -99,10 +257,29 @@ Echo.Sync.RemoteTextComponent = Core.extend({
                 return properties;
             },
             
+            /**
+             * Custom serialization implementation for "text" property: the property is sent to the server as a 
+             * text delta.
+             * @see Echo.RemoteClient
+             */
+            storeProperty: function(clientMessage, propertyName) {
+                if (propertyName == "text" && this.component._serverTextInitialized) {
+                    clientMessage.storeProperty(this.component.renderId, "textDelta", 
+                            new Echo.Sync.RemoteTextDelta(this.component));
+                    return true;
+                } else {
+                    return false;
+                }
+            },
+            
             /**
              * Performs remote-client specific renderAdd() tasks.
              */
             _remoteAdd: function() {
+                if (!this.component._serverTextInitialized) {
+                    this.component._serverText = this.component.get("text") || "";
+                    this.component._serverTextInitialized = true;
+                }
                 this._syncMode = this.component.render("syncMode", Echo.Sync.RemoteTextComponent.SYNC_ON_ACTION);
                 if (this._syncMode !== Echo.Sync.RemoteTextComponent.SYNC_ON_ACTION) {
                     this.component.addListener("property", this._processChangeRef);
@@ -141,8 +318,15 @@ Echo.Sync.RemoteTextComponent = Core.extend({
             
             /**
              * Performs remote-client specific renderUpdate() tasks.
+             * 
+             * @param {Echo.Update.ComponentUpdate} update the update
              */
-            _remoteUpdate: function() {
+            _remoteUpdate: function(update) {
+                var textUpdate = update.getUpdatedProperty("text");
+                if (textUpdate) {
+                    // Text has been set by the server.
+                    this.component._serverText = textUpdate.newValue || "";
+                }
                 this._remoteDispose();
                 this._remoteAdd();
             }
@@ -155,6 +339,8 @@ Echo.Sync.RemoteTextComponent = Core.extend({
  */
 Echo.Sync.RemotePasswordField = Core.extend(Echo.PasswordField, {
 
+    $include: [ Echo.Sync.RemoteTextComponent._ComponentMixins ],
+
     /** @see Echo.Component#componentType */
     componentType: "RPF",
     
@@ -211,7 +397,7 @@ Echo.Sync.RemotePasswordField.Sync = Core.extend(Echo.Sync.PasswordField, {
 
     /** @see Echo.Render.ComponentSync#renderUpdate */
     renderUpdate: function(update) {
-        this._remoteUpdate();
+        this._remoteUpdate(update);
         Echo.Sync.PasswordField.prototype.renderUpdate.call(this, update);
     }
 });
@@ -221,6 +407,8 @@ Echo.Sync.RemotePasswordField.Sync = Core.extend(Echo.Sync.PasswordField, {
  */
 Echo.Sync.RemoteTextArea = Core.extend(Echo.TextArea, {
 
+    $include: [ Echo.Sync.RemoteTextComponent._ComponentMixins ],
+
     /** @see Echo.Component#componentType */
     componentType: "RTA",
     
@@ -277,7 +465,7 @@ Echo.Sync.RemoteTextArea.Sync = Core.extend(Echo.Sync.TextArea, {
     
     /** @see Echo.Render.ComponentSync#renderUpdate */
     renderUpdate: function(update) {
-        this._remoteUpdate();
+        this._remoteUpdate(update);
         Echo.Sync.TextArea.prototype.renderUpdate.call(this, update);
     }
 });
@@ -287,6 +475,8 @@ Echo.Sync.RemoteTextArea.Sync = Core.extend(Echo.Sync.TextArea, {
  */
 Echo.Sync.RemoteTextField = Core.extend(Echo.TextField, {
 
+    $include: [ Echo.Sync.RemoteTextComponent._ComponentMixins ],
+
     /** @see Echo.Component#componentType */
     componentType: "RTF",
     
@@ -343,8 +533,67 @@ Echo.Sync.RemoteTextField.Sync = Core.extend(Echo.Sync.TextField, {
     
     /** @see Echo.Render.ComponentSync#renderUpdate */
     renderUpdate: function(update) {
-        this._remoteUpdate();
+        this._remoteUpdate(update);
         Echo.Sync.TextField.prototype.renderUpdate.call(this, update);
     }
 });
 
+
+/**
+ * Property value object representing the text of a remote text component, serialized as a delta relative to the 
+ * text last exchanged with the server.
+ */
+Echo.Sync.RemoteTextDelta = Core.extend({
+
+    /** 
+     * Property class name.
+     * @type String 
+     */
+    className: "RemoteTextDelta",
+    
+    /**
+     * The text component.
+     * @type Echo.Component
+     */
+    component: null,
+    
+    /**
+     * Creates a new <code>RemoteTextDelta</code>.
+     * 
+     * @param {Echo.Component} component the text component
+     */
+    $construct: function(component) {
+        this.component = component;
+    }
+});
+
+/**
+ * Text delta property translator singleton.
+ */
+Echo.Sync.RemoteTextDeltaTranslator = Core.extend(Echo.Serial.PropertyTranslator, {
+    
+    $static: {
+        
+        /** @see Echo.Serial.PropertyTranslator#toXml */
+        toXml: function(client, propertyElement, propertyValue) {
+            var TextDelta = Echo.Sync.RemoteTextComponent.TextDelta,
+                component = propertyValue.component,
+                text = component.get("text") || "",
+                delta;
+            if (component._serverText != null && component._serverText.length >= TextDelta.THRESHOLD) {
+                delta = TextDelta.create(component._serverText, text);
+                if (delta.length >= text.length) {
+                    delta = TextDelta.create(null, text);
+                }
+            } else {
+                delta = TextDelta.create(null, text);
+            }
+            component._serverText = text;
+            propertyElement.appendChild(propertyElement.ownerDocument.createTextNode(delta));
+        }
+    },
+    
+    $load: function() {
+        Echo.Serial.addPropertyTranslator("RemoteTextDelta", this);
+    }
+});
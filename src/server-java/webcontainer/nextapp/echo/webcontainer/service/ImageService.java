@@ -99,6 +99,7 @@ implements Service {
      */
     public void renderImage(Connection conn, ImageReference imageReference) 
     throws IOException {
+        conn.enableResponseBuffering();
         if (imageReference instanceof StreamImageReference) {
             renderStreamImage(conn, imageReference);
         } else if (imageReference instanceof AwtImageReference) {
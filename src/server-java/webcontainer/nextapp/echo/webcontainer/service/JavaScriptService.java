@@ -30,10 +30,10 @@
 package nextapp.echo.webcontainer.service;
 
 import java.io.IOException;
-import java.security.AccessControlException;
 
 import nextapp.echo.webcontainer.Connection;
 import nextapp.echo.webcontainer.Service;
+import nextapp.echo.webcontainer.util.CompressingOutputStream;
 import nextapp.echo.webcontainer.util.GZipCompressor;
 import nextapp.echo.webcontainer.util.JavaScriptCompressor;
 import nextapp.echo.webcontainer.util.Resource;
@@ -44,16 +44,6 @@ import nextapp.echo.webcontainer.util.Resource;
 public class JavaScriptService 
 implements Service {
     
-    private static boolean allowIEcompression = false;
-    static {
-        try {
-            if ("true".equals(System.getProperty("echo.allowiecompression"))) {
-                allowIEcompression = true;
-            }
-        }
-        catch (AccessControlException ignored) {} // if running under a security manager
-    }
-    
     /**
      * Creates a new <code>JavaScript</code> service from the specified
      * resource in the <code>CLASSPATH</code>.
@@ -127,21 +117,12 @@ implements Service {
      */
     public void service(Connection conn) 
     throws IOException {
-        String userAgent = conn.getRequest().getHeader("user-agent");
-        if (!allowIEcompression && (userAgent == null || userAgent.indexOf("MSIE") != -1)) {
-            // Due to behavior detailed Microsoft Knowledge Base Article Id 312496, 
-            // all HTTP compression support is disabled for this browser.
-            // Due to the fact that ClientProperties information is not necessarily 
-            // available at this stage, browsers which provide deceitful user-agent 
-            // headers will also be affected.
-            servicePlain(conn);
+        String contentEncoding = CompressingOutputStream.getContentEncoding(
+                conn.getRequest().getHeader("accept-encoding"), conn.getRequest().getHeader("user-agent"));
+        if (CompressingOutputStream.ENCODING_GZIP.equals(contentEncoding)) {
+            serviceGZipCompressed(conn);
         } else {
-            String acceptEncoding = conn.getRequest().getHeader("accept-encoding");
-            if (acceptEncoding != null && acceptEncoding.indexOf("gzip") != -1) {
-                serviceGZipCompressed(conn);
-            } else {
-                servicePlain(conn);
-            }
+            servicePlain(conn);
         }
     }
     
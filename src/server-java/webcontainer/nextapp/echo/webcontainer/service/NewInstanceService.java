@@ -31,13 +31,17 @@ package nextapp.echo.webcontainer.service;
 
 import java.io.IOException;
 
+import javax.servlet.http.HttpServletResponse;
+
 import nextapp.echo.webcontainer.Connection;
+import nextapp.echo.webcontainer.MemoryManager;
 import nextapp.echo.webcontainer.Service;
 import nextapp.echo.webcontainer.UserInstanceContainer;
 import nextapp.echo.webcontainer.WebContainerServlet;
 
 /**
  * <code>Service</code> which launches a new instance of an Echo application.
+ * If memory limits are enabled and exceeded, the request is rejected with status 503 (Service Unavailable).
  */
 public class NewInstanceService 
 implements Service {
@@ -73,6 +77,11 @@ implements Service {
      */
     public void service(Connection conn) 
     throws IOException {
+        MemoryManager memoryManager = conn.getServlet().getMemoryManager();
+        if (memoryManager != null && !memoryManager.admit()) {
+            conn.getResponse().sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            return;
+        }
         UserInstanceContainer.newInstance(conn);
         WindowHtmlService.INSTANCE.service(conn);
     }
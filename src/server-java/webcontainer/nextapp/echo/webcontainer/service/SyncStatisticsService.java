@@ -0,0 +1,130 @@
+/* 
+ * This file is part of the Echo Web Application Framework (hereinafter "Echo").
+ * Copyright (C) 2002-2009 NextApp, Inc.
+ *
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ */
+
+package nextapp.echo.webcontainer.service;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+
+import javax.servlet.http.HttpServletResponse;
+
+import nextapp.echo.webcontainer.Connection;
+import nextapp.echo.webcontainer.ContentType;
+import nextapp.echo.webcontainer.MemoryManager;
+import nextapp.echo.webcontainer.PassivationManager;
+import nextapp.echo.webcontainer.ResponseBufferPool;
+import nextapp.echo.webcontainer.Service;
+import nextapp.echo.webcontainer.SyncStatistics;
+import nextapp.echo.webcontainer.UserInstance;
+
+/**
+ * A <code>Service</code> which writes the synchronization statistics of the servlet and of the 
+ * requesting <code>UserInstance</code> in plain text form, followed by passivation statistics, memory usage, and
+ * response buffering statistics if passivation, memory limits, and response buffering are enabled.
+ * <p>
+ * This service is not registered by default, see 
+ * <code>WebContainerServlet.enableSyncStatisticsService()</code>.
+ */
+public class SyncStatisticsService 
+implements Service {
+
+    /**
+     * Singleton instance.
+     */
+    public static final Service INSTANCE = new SyncStatisticsService();
+    
+    /**
+     * Synchronization statistics service identifier.
+     */
+    public static final String SERVICE_ID = "Echo.SyncStatistics";
+    
+    /**
+     * Private constructor: use singleton <code>INSTANCE</code>.
+     */
+    private SyncStatisticsService() { }
+    
+    /**
+     * @see Service#getId()
+     */
+    public String getId() {
+        return SERVICE_ID;
+    }
+
+    /**
+     * @see Service#getVersion()
+     */
+    public int getVersion() {
+        return DO_NOT_CACHE;
+    }
+    
+    /**
+     * @see Service#service(nextapp.echo.webcontainer.Connection)
+     */
+    public void service(Connection conn) 
+    throws IOException {
+        SyncStatistics globalStatistics = conn.getServlet().getSyncStatistics();
+        if (globalStatistics == null) {
+            conn.getResponse().sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        
+        conn.setContentType(ContentType.TEXT_PLAIN);
+        PrintWriter out = conn.getWriter();
+        out.println("==== Servlet: " + conn.getServlet().getServletName() + " ====");
+        globalStatistics.write(out);
+        
+        UserInstance userInstance = conn.getUserInstance();
+        if (userInstance != null && userInstance.getSyncStatistics() != null) {
+            out.println();
+            out.println("==== User Instance: " + userInstance.getId() + " ====");
+            userInstance.getSyncStatistics().write(out);
+        }
+        
+        PassivationManager passivationManager = conn.getServlet().getPassivationManager();
+        if (passivationManager != null) {
+            out.println();
+            out.println("==== Passivation ====");
+            passivationManager.write(out);
+        }
+        
+        MemoryManager memoryManager = conn.getServlet().getMemoryManager();
+        if (memoryManager != null) {
+            out.println();
+            out.println("==== Memory ====");
+            memoryManager.write(out);
+        }
+        
+        ResponseBufferPool responseBufferPool = conn.getServlet().getResponseBufferPool();
+        if (responseBufferPool != null) {
+            out.println();
+            out.println("==== Response Buffering ====");
+            responseBufferPool.write(out);
+        }
+    }
+}
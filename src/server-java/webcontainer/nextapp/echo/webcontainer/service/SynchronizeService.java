@@ -74,6 +74,8 @@ implements Service {
      * @see nextapp.echo.webcontainer.Service#service(nextapp.echo.webcontainer.Connection)
      */
     public void service(final Connection conn) throws IOException {
+        conn.enableCompression();
+        conn.enableResponseBuffering();
         Synchronization sync = new Synchronization(conn);
         sync.process();
     }
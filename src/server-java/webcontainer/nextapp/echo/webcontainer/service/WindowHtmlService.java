@@ -30,7 +30,12 @@
 package nextapp.echo.webcontainer.service;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.Map;
 import java.util.Properties;
 import java.util.regex.Pattern;
 
@@ -83,19 +88,108 @@ implements Service {
     
     private static final Pattern USER_AGENT_MSIE8 = Pattern.compile("MSIE 8\\.");
 
+    /**
+     * Placeholder rendered in place of the initialization id when creating a page template.
+     * The placeholder contains no characters which would be escaped by the XML serializer.
+     */
+    private static final String INIT_ID_PLACEHOLDER = "__echo_init_id__";
+    
+    /**
+     * Maximum number of page templates which will be retained.  Templates are keyed by servlet URI, which may
+     * (rarely) vary between sessions, e.g., when session identifiers are encoded in the path.  The cache is
+     * cleared when this limit is reached such that it cannot grow without bound.
+     */
+    private static final int MAX_TEMPLATES = 32;
+    
     /** Singleton instance. */
     public static final WindowHtmlService INSTANCE = new WindowHtmlService();
+    
+    /**
+     * Key identifying a page template.
+     * The rendered page varies only by the servlet, its URI, the user agent class, the debug flag, and the
+     * response character encoding (other than the initialization id, which is substituted for each request).
+     */
+    private static final class TemplateKey {
+        
+        private final WebContainerServlet servlet;
+        private final String servletUri;
+        private final String characterEncoding;
+        private final boolean msie8;
+        private final boolean debug;
+        
+        /**
+         * Creates a new <code>TemplateKey</code>.
+         */
+        private TemplateKey(WebContainerServlet servlet, String servletUri, String characterEncoding, boolean msie8, 
+                boolean debug) {
+            super();
+            this.servlet = servlet;
+            this.servletUri = servletUri;
+            this.characterEncoding = characterEncoding;
+            this.msie8 = msie8;
+            this.debug = debug;
+        }
+        
+        /**
+         * @see java.lang.Object#equals(java.lang.Object)
+         */
+        public boolean equals(Object o) {
+            if (!(o instanceof TemplateKey)) {
+                return false;
+            }
+            TemplateKey that = (TemplateKey) o;
+            return this.servlet == that.servlet && this.msie8 == that.msie8 && this.debug == that.debug
+                    && (this.servletUri == null ? that.servletUri == null : this.servletUri.equals(that.servletUri))
+                    && (this.characterEncoding == null ? that.characterEncoding == null 
+                            : this.characterEncoding.equals(that.characterEncoding));
+        }
+        
+        /**
+         * @see java.lang.Object#hashCode()
+         */
+        public int hashCode() {
+            int hash = System.identityHashCode(servlet);
+            hash = hash * 31 + (servletUri == null ? 0 : servletUri.hashCode());
+            hash = hash * 31 + (characterEncoding == null ? 0 : characterEncoding.hashCode());
+            return hash * 4 + (msie8 ? 2 : 0) + (debug ? 1 : 0);
+        }
+    }
+    
+    /**
+     * A pre-rendered, pre-encoded page, split at the location of the initialization id.
+     */
+    private static final class Template {
+        
+        /** Encoded page content preceding the initialization id. */
+        private final byte[] prefix;
+        
+        /** Encoded page content following the initialization id. */
+        private final byte[] suffix;
+        
+        /**
+         * Creates a new <code>Template</code>.
+         */
+        private Template(byte[] prefix, byte[] suffix) {
+            super();
+            this.prefix = prefix;
+            this.suffix = suffix;
+        }
+    }
+    
+    /** Mapping from <code>TemplateKey</code>s to <code>Template</code>s. */
+    private final Map templateMap = new HashMap();
 
     /**
      * Create a new root window HTML document.
      * 
      * @param conn the <code>Connection</code>
      * @param debug flag indicating whether debug capabilities should be enabled
+     * @param msie8 flag indicating whether the user agent is Internet Explorer 8
+     * @param initId the initialization id to render
      * @return the created document
      */
-    private Document createHtmlDocument(Connection conn, boolean debug) {
+    private Document createHtmlDocument(Connection conn, boolean debug, boolean msie8, String initId) {
         UserInstanceContainer userInstanceContainer = conn.getUserInstanceContainer();
-        String userAgent = conn.getRequest().getHeader("User-Agent");
         Document document = DomUtil.createDocument("html", XHTML_1_0_TRANSITIONAL_PUBLIC_ID, 
                 XHTML_1_0_TRANSITIONAL_SYSTEM_ID, XHTML_1_0_NAMESPACE_URI);
         
@@ -109,7 +203,7 @@ implements Service {
         metaGeneratorElement.setAttribute("content", ApplicationInstance.ID_STRING);
         headElement.appendChild(metaGeneratorElement);
 
-        if (userAgent != null && USER_AGENT_MSIE8.matcher(userAgent).find()) {
+        if (msie8) {
             // Force Internet Explorer 8 standards-compliant mode.
             Element metaCompElement = document.createElement("meta");
             metaCompElement.setAttribute("http-equiv", "X-UA-Compatible");
@@ -165,7 +259,7 @@ implements Service {
         Element bodyElement = document.createElement("body");
         bodyElement.setAttribute("id", "body");
         bodyElement.setAttribute("onload", "Echo.Boot.boot('" + userInstanceContainer.getServletUri() + "', '" + 
-                userInstanceContainer.createInitId(conn) + "', " + debug + ");");
+                initId + "', " + debug + ", " + conn.getServlet().isCompactWireFormatEnabled() + ");");
         bodyElement.setAttribute("style",
                 "height:100%;width:100%;margin:0px;padding:0px;" +
                 "font-family:verdana, arial, helvetica, sans-serif;font-size:10pt");
@@ -179,6 +273,60 @@ implements Service {
         return document;
     }
     
+    /**
+     * Renders a page <code>Template</code>.
+     * 
+     * @param conn the <code>Connection</code>
+     * @param debug flag indicating whether debug capabilities should be enabled
+     * @param msie8 flag indicating whether the user agent is Internet Explorer 8
+     * @param characterEncoding the character encoding with which the template should be encoded
+     * @return the created template
+     */
+    private Template createTemplate(Connection conn, boolean debug, boolean msie8, String characterEncoding) 
+    throws IOException, SAXException {
+        Document document = createHtmlDocument(conn, debug, msie8, INIT_ID_PLACEHOLDER);
+        StringWriter sw = new StringWriter();
+        DomUtil.save(document, new PrintWriter(sw), OUTPUT_PROPERTIES);
+        String html = sw.toString();
+        int placeholderIndex = html.indexOf(INIT_ID_PLACEHOLDER);
+        if (placeholderIndex == -1) {
+            throw new SAXException("Initialization id placeholder not found in rendered HTML document.");
+        }
+        return new Template(html.substring(0, placeholderIndex).getBytes(characterEncoding),
+                html.substring(placeholderIndex + INIT_ID_PLACEHOLDER.length()).getBytes(characterEncoding));
+    }
+    
+    /**
+     * Retrieves the page <code>Template</code> appropriate for a connection, rendering it if necessary.
+     * 
+     * @param conn the <code>Connection</code>
+     * @param debug flag indicating whether debug capabilities should be enabled
+     * @param characterEncoding the character encoding of the response
+     * @return the template
+     */
+    private Template getTemplate(Connection conn, boolean debug, String characterEncoding) 
+    throws IOException, SAXException {
+        String userAgent = conn.getRequest().getHeader("User-Agent");
+        boolean msie8 = userAgent != null && USER_AGENT_MSIE8.matcher(userAgent).find();
+        TemplateKey key = new TemplateKey(conn.getServlet(), conn.getUserInstanceContainer().getServletUri(), 
+                characterEncoding, msie8, debug);
+        Template template;
+        synchronized (templateMap) {
+            template = (Template) templateMap.get(key);
+        }
+        if (template == null) {
+            // Rendered outside of lock: concurrent first requests may each render an (identical) template.
+            template = createTemplate(conn, debug, msie8, characterEncoding);
+            synchronized (templateMap) {
+                if (templateMap.size() >= MAX_TEMPLATES) {
+                    templateMap.clear();
+                }
+                templateMap.put(key, template);
+            }
+        }
+        return template;
+    }
+    
     /**
      * @see Service#getId()
      */
@@ -199,9 +347,18 @@ implements Service {
     public void service(Connection conn) throws IOException {
         try {
             boolean debug = !("false".equals(conn.getServlet().getInitParameter("echo.debug")));
-            Document document = createHtmlDocument(conn, debug);
             conn.setContentType(ContentType.TEXT_HTML);
-            DomUtil.save(document, conn.getWriter(), OUTPUT_PROPERTIES);
+            String characterEncoding = conn.getResponse().getCharacterEncoding();
+            Template template = getTemplate(conn, debug, characterEncoding);
+            
+            // Assemble the page from the template and write it in a single operation.
+            byte[] initId = conn.getUserInstanceContainer().createInitId(conn).getBytes(characterEncoding);
+            byte[] page = new byte[template.prefix.length + initId.length + template.suffix.length];
+            System.arraycopy(template.prefix, 0, page, 0, template.prefix.length);
+            System.arraycopy(initId, 0, page, template.prefix.length, initId.length);
+            System.arraycopy(template.suffix, 0, page, template.prefix.length + initId.length, template.suffix.length);
+            OutputStream out = conn.getOutputStream();
+            out.write(page);
         } catch (SAXException ex) {
             throw new SynchronizationException("Failed to write HTML document.", ex);
         }
@@ -305,7 +305,8 @@ public class AbstractListComponentPeer extends AbstractComponentSynchronizePeer
      */
     public void storeInputProperty(Context context, Component component, String propertyName, int index, Object newValue) {
         if (PROPERTY_SELECTION.equals(propertyName)) {
-            int[] selection = ListSelectionUtil.toIntArray((String) newValue);
+            int[] selection = ListSelectionUtil.toIntArray((String) newValue,
+                    ((AbstractListComponent) component).getModel().size());
             ClientUpdateManager clientUpdateManager = (ClientUpdateManager) context.get(ClientUpdateManager.class);
             clientUpdateManager.setComponentProperty(component, AbstractListComponent.SELECTION_CHANGED_PROPERTY, selection);
         }
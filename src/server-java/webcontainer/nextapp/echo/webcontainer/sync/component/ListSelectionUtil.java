@@ -29,12 +29,18 @@
 
 package nextapp.echo.webcontainer.sync.component;
 
+import java.util.BitSet;
 import java.util.StringTokenizer;
 
 import nextapp.echo.app.list.ListSelectionModel;
 
 /**
  * Utilities for serializing <code>ListSelectionModel</code> state between client and server.
+ * <p>
+ * Selections are represented as comma-delimited lists of indices, where contiguous runs of selected indices are
+ * collapsed into inclusive ranges, e.g., "0-199999,200005" represents indices 0 through 199999 and index 200005.
+ * The length of the representation is thus proportional to the number of selected ranges rather than the number
+ * of selected indices.
  */
 class ListSelectionUtil {
     
@@ -43,7 +49,7 @@ class ListSelectionUtil {
      * 
      * @param selectionModel the <code>ListSelectionModel</code>
      * @param size the size of the <strong>data</strong> model of which items are selected
-     * @return a selection string, e.g., "1,2,3,4", "5", or ""
+     * @return a selection string, e.g., "1-4,7", "5", or ""
      */
     static String toString(ListSelectionModel selectionModel, int size) {
         int minimumIndex = selectionModel.getMinSelectedIndex();
@@ -63,44 +69,75 @@ class ListSelectionUtil {
             maximumIndex = size - 1;
         }
         StringBuffer out = new StringBuffer();
-        boolean commaRequired = false;
-        for (int i = minimumIndex; i <= maximumIndex; ++i) {
-            if (selectionModel.isSelectedIndex(i)) {
-                if (commaRequired) {
-                    out.append(",");
-                } else {
-                    commaRequired = true;
-                }
+        int i = minimumIndex;
+        while (i <= maximumIndex) {
+            if (!selectionModel.isSelectedIndex(i)) {
+                ++i;
+                continue;
+            }
+            int rangeStart = i;
+            while (i < maximumIndex && selectionModel.isSelectedIndex(i + 1)) {
+                ++i;
+            }
+            if (out.length() > 0) {
+                out.append(",");
+            }
+            out.append(rangeStart);
+            if (i > rangeStart) {
+                out.append("-");
                 out.append(i);
             }
+            ++i;
         }
         return out.toString();
     }
     
     /**
      * Converts a selection String to an int[] array.
+     * Indices greater than or equal to <code>size</code> are ignored, such that a malformed or stale selection string
+     * cannot result in an arbitrarily large allocation.
      * 
-     * @param selectionString the selection string, e.g., "1,2,3,4", "5", "" or <code>null</code>
-     * @return the integer array, never <code>null</code>
+     * @param selectionString the selection string, e.g., "1-4,7", "5", "" or <code>null</code>
+     * @param size the size of the <strong>data</strong> model of which items are selected
+     * @return the integer array of selected indices in ascending order, never <code>null</code>
      */
-    static int[] toIntArray(String selectionString) {
-        int[] selection;
-        int selectionStringLength = selectionString == null ? 0 : selectionString.length();
-        if (selectionStringLength == 0) {
+    static int[] toIntArray(String selectionString, int size) {
+        if (selectionString == null || selectionString.length() == 0 || size <= 0) {
             return new int[0];
-        } else {
-            int itemCount = 1;
-            for (int i = 1; i < selectionStringLength - 1; ++i) {
-                if (selectionString.charAt(i) == ',') {
-                    ++itemCount;
-                }
-            }
-            selection = new int[itemCount];
         }
+        
+        BitSet selectionBits = new BitSet();
         StringTokenizer st = new StringTokenizer(selectionString, ",");
+        while (st.hasMoreTokens()) {
+            String token = st.nextToken().trim();
+            if (token.length() == 0) {
+                continue;
+            }
+            int rangeStart, rangeEnd;
+            int dashIndex = token.indexOf('-', 1);
+            if (dashIndex == -1) {
+                rangeStart = rangeEnd = Integer.parseInt(token);
+            } else {
+                rangeStart = Integer.parseInt(token.substring(0, dashIndex));
+                rangeEnd = Integer.parseInt(token.substring(dashIndex + 1));
+            }
+            if (rangeStart < 0) {
+                rangeStart = 0;
+            }
+            if (rangeEnd > size - 1) {
+                rangeEnd = size - 1;
+            }
+            if (rangeStart <= rangeEnd) {
+                selectionBits.set(rangeStart, rangeEnd + 1);
+            }
+        }
+        
+        int[] selection = new int[selectionBits.cardinality()];
+        int index = selectionBits.nextSetBit(0);
         for (int i = 0; i < selection.length; ++i) {
-            selection[i] = Integer.parseInt(st.nextToken());
-        }        
+            selection[i] = index;
+            index = selectionBits.nextSetBit(index + 1);
+        }
         return selection;
     }
     
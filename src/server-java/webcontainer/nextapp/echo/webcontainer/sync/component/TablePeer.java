@@ -208,7 +208,8 @@ public class TablePeer extends AbstractComponentSynchronizePeer {
      */
     public void storeInputProperty(Context context, Component component, String propertyName, int index, Object newValue) {
         if (PROPERTY_SELECTION.equals(propertyName)) {
-            int[] selection = ListSelectionUtil.toIntArray((String) newValue);
+            int[] selection = ListSelectionUtil.toIntArray((String) newValue,
+                    ((Table) component).getModel().getRowCount());
             ClientUpdateManager clientUpdateManager = (ClientUpdateManager) context.get(ClientUpdateManager.class);
             clientUpdateManager.setComponentProperty(component, Table.SELECTION_CHANGED_PROPERTY, selection);
         }
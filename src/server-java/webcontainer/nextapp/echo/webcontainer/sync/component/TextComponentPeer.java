@@ -32,18 +32,42 @@ package nextapp.echo.webcontainer.sync.component;
 import nextapp.echo.app.Component;
 import nextapp.echo.app.text.TextComponent;
 import nextapp.echo.app.update.ClientUpdateManager;
+import nextapp.echo.app.update.ServerUpdateManager;
 import nextapp.echo.app.util.Context;
 import nextapp.echo.webcontainer.AbstractComponentSynchronizePeer;
+import nextapp.echo.webcontainer.RenderState;
 import nextapp.echo.webcontainer.ServerMessage;
 import nextapp.echo.webcontainer.Service;
+import nextapp.echo.webcontainer.UserInstance;
 import nextapp.echo.webcontainer.WebContainerServlet;
 import nextapp.echo.webcontainer.service.JavaScriptService;
+import nextapp.echo.webcontainer.util.TextDelta;
 
 /**
  * Base synchronization peer for <code>TextComponent</code>s.
  */
 public class TextComponentPeer extends AbstractComponentSynchronizePeer {
 
+    /**
+     * <code>RenderState</code> recording the text value last exchanged with the client, against which text deltas
+     * are computed and applied.
+     */
+    private static class TextRenderState 
+    implements RenderState {
+        
+        /** Serial Version UID. */
+        private static final long serialVersionUID = 20070101L;
+        
+        /** The text value last sent to or received from the client, or null if unknown. */
+        private String text;
+        
+        /** Flag indicating whether the most recently rendered text property was rendered as a delta. */
+        private boolean deltaRendered;
+        
+        /** Flag indicating whether the client should be requested to resend its complete text value. */
+        private boolean resyncRequested;
+    }
+
     /**
      * Constant for <code>PROPERTY_SYNC_MODE</code> indicating that the server should be notified of text changes only
      * after an action event is fired.
@@ -96,6 +120,24 @@ public class TextComponentPeer extends AbstractComponentSynchronizePeer {
      */
     public static final String INPUT_CHANGE = "change";
     
+    /**
+     * Input property name for text deltas, i.e., changes to the text relative to the value last exchanged with the 
+     * server, in the format described by <code>TextDelta</code>.
+     */
+    public static final String INPUT_TEXT_DELTA = "textDelta";
+    
+    /**
+     * Property name used to request that the client or server resend its complete text value, in the event that a 
+     * received text delta could not be applied.
+     */
+    public static final String PROPERTY_TEXT_RESYNC = "textResync";
+    
+    /**
+     * The minimum length of text values which may be synchronized as deltas.  Shorter values are always sent in full.
+     * Must be equal to the client-side <code>Echo.Sync.RemoteTextComponent.TextDelta.THRESHOLD</code>.
+     */
+    private static final int TEXT_DELTA_THRESHOLD = 1024;
+    
     /** The associated client-side JavaScript module <code>Service</code>. */
     private static final Service TEXT_COMPONENT_SERVICE = JavaScriptService.forResources("Echo.TextComponent", 
             new String[] { "nextapp/echo/webcontainer/resource/Sync.TextComponent.js",
@@ -110,6 +152,7 @@ public class TextComponentPeer extends AbstractComponentSynchronizePeer {
         super();
         addOutputProperty(TextComponent.TEXT_CHANGED_PROPERTY);
         addOutputProperty(PROPERTY_SYNC_MODE);
+        addOutputProperty(PROPERTY_TEXT_RESYNC);
         addEvent(new EventPeer(TextComponent.INPUT_ACTION, TextComponent.ACTION_LISTENERS_CHANGED_PROPERTY) {
             public boolean hasListeners(Context context, Component c) {
                 return ((TextComponent) c).hasActionListeners();
@@ -151,8 +194,10 @@ public class TextComponentPeer extends AbstractComponentSynchronizePeer {
      * @see nextapp.echo.webcontainer.AbstractComponentSynchronizePeer#getInputPropertyClass(java.lang.String)
      */
     public Class getInputPropertyClass(String propertyName) {
-        if (TextComponent.TEXT_CHANGED_PROPERTY.equals(propertyName)) {
+        if (TextComponent.TEXT_CHANGED_PROPERTY.equals(propertyName) || INPUT_TEXT_DELTA.equals(propertyName)) {
             return String.class;
+        } else if (PROPERTY_TEXT_RESYNC.equals(propertyName)) {
+            return Boolean.class;
         }
         return null;
     }
@@ -164,11 +209,63 @@ public class TextComponentPeer extends AbstractComponentSynchronizePeer {
     public Object getOutputProperty(Context context, Component component, String propertyName, int propertyIndex) {
         if (propertyName.equals(TextComponent.TEXT_CHANGED_PROPERTY)) {
             TextComponent textComponent = (TextComponent) component;
-            return textComponent.getText();
+            String text = textComponent.getText();
+            TextRenderState renderState = getRenderState(context, component);
+            String baseText = renderState.text;
+            renderState.text = text;
+            renderState.deltaRendered = false;
+            if (text != null && baseText != null && baseText != text && baseText.length() >= TEXT_DELTA_THRESHOLD
+                    && isTextDeltaEnabled(context, component) && !baseText.equals(text)) {
+                String delta = TextDelta.create(baseText, text);
+                if (delta.length() < text.length()) {
+                    renderState.deltaRendered = true;
+                    return delta;
+                }
+            }
+            return text;
+        } else if (propertyName.equals(PROPERTY_TEXT_RESYNC)) {
+            TextRenderState renderState = getRenderState(context, component);
+            if (renderState.resyncRequested) {
+                renderState.resyncRequested = false;
+                return Boolean.TRUE;
+            }
+            return null;
         } else {
             return super.getOutputProperty(context, component, propertyName, propertyIndex);
         }
     }
+    
+    /**
+     * @see nextapp.echo.webcontainer.AbstractComponentSynchronizePeer#getOutputPropertyMethodName(
+     *      nextapp.echo.app.util.Context, nextapp.echo.app.Component, java.lang.String)
+     */
+    public String getOutputPropertyMethodName(Context context, Component component, String propertyName) {
+        if (TextComponent.TEXT_CHANGED_PROPERTY.equals(propertyName)) {
+            if (getRenderState(context, component).deltaRendered) {
+                return "applyTextDelta";
+            }
+        } else if (PROPERTY_TEXT_RESYNC.equals(propertyName)) {
+            return "requestTextResync";
+        }
+        return super.getOutputPropertyMethodName(context, component, propertyName);
+    }
+    
+    /**
+     * Retrieves the <code>TextRenderState</code> of a component, creating it if necessary.
+     * 
+     * @param context the relevant <code>Context</code>
+     * @param component the component
+     * @return the <code>TextRenderState</code>
+     */
+    private TextRenderState getRenderState(Context context, Component component) {
+        UserInstance userInstance = (UserInstance) context.get(UserInstance.class);
+        TextRenderState renderState = (TextRenderState) userInstance.getRenderState(component);
+        if (renderState == null) {
+            renderState = new TextRenderState();
+            userInstance.setRenderState(component, renderState);
+        }
+        return renderState;
+    }
 
     /**
      * @see nextapp.echo.webcontainer.ComponentSynchronizePeer#init(nextapp.echo.app.util.Context, Component)
@@ -177,6 +274,26 @@ public class TextComponentPeer extends AbstractComponentSynchronizePeer {
         super.init(context, component);
         ServerMessage serverMessage = (ServerMessage) context.get(ServerMessage.class);
         serverMessage.addLibrary(TEXT_COMPONENT_SERVICE.getId());
+        
+        // The component is being rendered in its entirety: its complete text will be available to the client.
+        TextRenderState renderState = getRenderState(context, component);
+        renderState.text = ((TextComponent) component).getText();
+        renderState.deltaRendered = false;
+        renderState.resyncRequested = false;
+    }
+    
+    /**
+     * Determines whether changes to the text of a component may be sent to the client as deltas.
+     * Deltas are only used for text values exceeding a minimum length, and only where they are shorter than the
+     * complete text.
+     * The default implementation returns true; subclasses may override to disable delta synchronization.
+     * 
+     * @param context the relevant <code>Context</code>
+     * @param component the component
+     * @return true if delta synchronization is enabled
+     */
+    protected boolean isTextDeltaEnabled(Context context, Component component) {
+        return true;
     }
     
     /**
@@ -189,10 +306,41 @@ public class TextComponentPeer extends AbstractComponentSynchronizePeer {
                 // when it is changed to an empty string by the document model.
                 newValue = "";
             }
+            getRenderState(context, component).text = (String) newValue;
             ClientUpdateManager clientUpdateManager = (ClientUpdateManager) context.get(ClientUpdateManager.class);
             //if (!Boolean.FALSE.equals(component.getRenderProperty(TextComponent.PROPERTY_EDITABLE))) {
                 clientUpdateManager.setComponentProperty(component, TextComponent.TEXT_CHANGED_PROPERTY, newValue);
             //}
+        } else if (propertyName.equals(INPUT_TEXT_DELTA)) {
+            TextRenderState renderState = getRenderState(context, component);
+            String text = TextDelta.apply(renderState.text, (String) newValue);
+            if (text == null) {
+                // Delta does not apply to the text last exchanged with the client: request the complete value.
+                renderState.text = null;
+                renderState.resyncRequested = true;
+                getServerUpdateManager(context).processComponentPropertyUpdate(component, PROPERTY_TEXT_RESYNC, 
+                        null, Boolean.TRUE);
+            } else {
+                renderState.text = text;
+                ClientUpdateManager clientUpdateManager = (ClientUpdateManager) context.get(ClientUpdateManager.class);
+                clientUpdateManager.setComponentProperty(component, TextComponent.TEXT_CHANGED_PROPERTY, text);
+            }
+        } else if (propertyName.equals(PROPERTY_TEXT_RESYNC)) {
+            // Client was unable to apply a delta: send the complete text.
+            getRenderState(context, component).text = null;
+            getServerUpdateManager(context).processComponentPropertyUpdate(component, 
+                    TextComponent.TEXT_CHANGED_PROPERTY, null, ((TextComponent) component).getText());
         }
     }
+    
+    /**
+     * Retrieves the <code>ServerUpdateManager</code> of the user instance.
+     * 
+     * @param context the relevant <code>Context</code>
+     * @return the <code>ServerUpdateManager</code>
+     */
+    private ServerUpdateManager getServerUpdateManager(Context context) {
+        UserInstance userInstance = (UserInstance) context.get(UserInstance.class);
+        return userInstance.getUpdateManager().getServerUpdateManager();
+    }
 }
@@ -0,0 +1,323 @@
+/* 
+ * This file is part of the Echo Web Application Framework (hereinafter "Echo").
+ * Copyright (C) 2002-2009 NextApp, Inc.
+ *
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ */
+
+package nextapp.echo.webcontainer.util;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+/**
+ * Renders an XML DOM to a compact JSON representation, decoded on the client by 
+ * <code>Echo.Serial.CompactDom</code>.
+ * <p>
+ * The rendered object has the following properties:
+ * <ul>
+ *  <li><code>f</code>: the format identifier (<code>FORMAT</code>)</li>
+ *  <li><code>ns</code>: the namespace URI of the document element (if any)</li>
+ *  <li><code>n</code>: the name table, an array of all element and attribute names</li>
+ *  <li><code>v</code>: the value table, an array of attribute values and text content 
+ *   which occur more than once in the document</li>
+ *  <li><code>d</code>: the document element</li>
+ * </ul>
+ * An element is rendered as an array whose first item is the index of its name in the name table,
+ * whose second item is either 0 (no attributes) or an array of alternating attribute name indices and
+ * values, and whose remaining items are its child nodes.  A text node is rendered as a string.  
+ * Attribute values and text content are rendered either as literal strings or, if present in the 
+ * value table, as numeric indices into the value table.
+ * <p>
+ * Only element and text (including CDATA) nodes are rendered.
+ */
+public class CompactDomWriter {
+
+    /** Format identifier. */
+    public static final String FORMAT = "echo-dom-1";
+    
+    /** Name table: mapping between names and <code>Integer</code> indices. */
+    private Map nameToIndexMap = new HashMap();
+    
+    /** Name table, in index order. */
+    private List names = new ArrayList();
+    
+    /** Mapping between attribute values / text content and <code>Integer</code> occurrence counts. */
+    private Map valueToCountMap = new HashMap();
+    
+    /** Value table: mapping between values and <code>Integer</code> indices. */
+    private Map valueToIndexMap = new HashMap();
+    
+    /** Value table, in index order. */
+    private List values = new ArrayList();
+    
+    /** The target <code>Writer</code>. */
+    private Writer out;
+    
+    /**
+     * Renders a DOM to a <code>Writer</code> in compact JSON format.
+     * 
+     * @param document the DOM
+     * @param out the <code>Writer</code>
+     * @throws IOException
+     */
+    public static void write(Document document, Writer out) 
+    throws IOException {
+        new CompactDomWriter(out).render(document);
+    }
+    
+    /**
+     * Creates a new <code>CompactDomWriter</code>.
+     * 
+     * @param out the target <code>Writer</code>
+     */
+    private CompactDomWriter(Writer out) {
+        super();
+        this.out = out;
+    }
+    
+    /**
+     * Adds a name to the name table (if not present).
+     * 
+     * @param name the name
+     */
+    private void addName(String name) {
+        if (!nameToIndexMap.containsKey(name)) {
+            nameToIndexMap.put(name, new Integer(names.size()));
+            names.add(name);
+        }
+    }
+    
+    /**
+     * Records an occurrence of an attribute value or text content.
+     * A value which occurs a second time is added to the value table.
+     * 
+     * @param value the value
+     */
+    private void countValue(String value) {
+        Integer count = (Integer) valueToCountMap.get(value);
+        if (count == null) {
+            valueToCountMap.put(value, new Integer(1));
+        } else if (count.intValue() == 1) {
+            valueToCountMap.put(value, new Integer(2));
+            valueToIndexMap.put(value, new Integer(values.size()));
+            values.add(value);
+        }
+    }
+    
+    /**
+     * First pass: builds the name and value tables.
+     * 
+     * @param element the element to analyze (children will be analyzed recursively)
+     */
+    private void analyze(Element element) {
+        addName(element.getNodeName());
+        NamedNodeMap attributes = element.getAttributes();
+        int attributeCount = attributes.getLength();
+        for (int i = 0; i < attributeCount; ++i) {
+            Node attribute = attributes.item(i);
+            if (isNamespaceDeclaration(attribute)) {
+                continue;
+            }
+            addName(attribute.getNodeName());
+            countValue(attribute.getNodeValue());
+        }
+        for (Node node = element.getFirstChild(); node != null; node = node.getNextSibling()) {
+            switch (node.getNodeType()) {
+            case Node.ELEMENT_NODE:
+                analyze((Element) node);
+                break;
+            case Node.TEXT_NODE:
+            case Node.CDATA_SECTION_NODE:
+                countValue(node.getNodeValue());
+                break;
+            }
+        }
+    }
+    
+    /**
+     * Determines if an attribute node is a namespace declaration (rendered separately).
+     * 
+     * @param attribute the attribute node
+     * @return true if the attribute is a namespace declaration
+     */
+    private static boolean isNamespaceDeclaration(Node attribute) {
+        String name = attribute.getNodeName();
+        return "xmlns".equals(name) || name.startsWith("xmlns:");
+    }
+    
+    /**
+     * Renders the document.
+     * 
+     * @param document the document
+     * @throws IOException
+     */
+    private void render(Document document) 
+    throws IOException {
+        Element documentElement = document.getDocumentElement();
+        analyze(documentElement);
+        
+        out.write("{\"f\":");
+        writeString(FORMAT);
+        String namespaceUri = documentElement.getNamespaceURI();
+        if (namespaceUri != null) {
+            out.write(",\"ns\":");
+            writeString(namespaceUri);
+        }
+        out.write(",\"n\":");
+        writeStringArray(names);
+        out.write(",\"v\":");
+        writeStringArray(values);
+        out.write(",\"d\":");
+        renderElement(documentElement);
+        out.write("}");
+        out.flush();
+    }
+    
+    /**
+     * Second pass: renders an element.
+     * 
+     * @param element the element to render (children will be rendered recursively)
+     * @throws IOException
+     */
+    private void renderElement(Element element) 
+    throws IOException {
+        out.write('[');
+        out.write(nameToIndexMap.get(element.getNodeName()).toString());
+        out.write(',');
+        
+        NamedNodeMap attributes = element.getAttributes();
+        int attributeCount = attributes.getLength();
+        boolean attributesRendered = false;
+        for (int i = 0; i < attributeCount; ++i) {
+            Node attribute = attributes.item(i);
+            if (isNamespaceDeclaration(attribute)) {
+                continue;
+            }
+            out.write(attributesRendered ? ',' : '[');
+            attributesRendered = true;
+            out.write(nameToIndexMap.get(attribute.getNodeName()).toString());
+            out.write(',');
+            writeValue(attribute.getNodeValue());
+        }
+        out.write(attributesRendered ? "]" : "0");
+        
+        for (Node node = element.getFirstChild(); node != null; node = node.getNextSibling()) {
+            switch (node.getNodeType()) {
+            case Node.ELEMENT_NODE:
+                out.write(',');
+                renderElement((Element) node);
+                break;
+            case Node.TEXT_NODE:
+            case Node.CDATA_SECTION_NODE:
+                out.write(',');
+                writeValue(node.getNodeValue());
+                break;
+            }
+        }
+        out.write(']');
+    }
+    
+    /**
+     * Writes a JSON string literal.
+     * 
+     * @param value the string
+     * @throws IOException
+     */
+    private void writeString(String value) 
+    throws IOException {
+        out.write('"');
+        int length = value.length();
+        int start = 0;
+        for (int i = 0; i < length; ++i) {
+            char ch = value.charAt(i);
+            String escape;
+            switch (ch) {
+            case '"':  escape = "\\\""; break;
+            case '\\': escape = "\\\\"; break;
+            case '\n': escape = "\\n";  break;
+            case '\r': escape = "\\r";  break;
+            case '\t': escape = "\\t";  break;
+            default:
+                if (ch < 0x20 || ch == '\u2028' || ch == '\u2029') {
+                    String hex = Integer.toHexString(ch);
+                    escape = "\\u0000".substring(0, 6 - hex.length()) + hex;
+                } else {
+                    continue;
+                }
+            }
+            out.write(value, start, i - start);
+            out.write(escape);
+            start = i + 1;
+        }
+        out.write(value, start, length - start);
+        out.write('"');
+    }
+    
+    /**
+     * Writes a JSON array of string literals.
+     * 
+     * @param strings the strings
+     * @throws IOException
+     */
+    private void writeStringArray(List strings) 
+    throws IOException {
+        out.write('[');
+        int size = strings.size();
+        for (int i = 0; i < size; ++i) {
+            if (i > 0) {
+                out.write(',');
+            }
+            writeString((String) strings.get(i));
+        }
+        out.write(']');
+    }
+    
+    /**
+     * Writes an attribute value or text content, either as a reference to the value table, 
+     * or as a string literal.
+     * 
+     * @param value the value
+     * @throws IOException
+     */
+    private void writeValue(String value) 
+    throws IOException {
+        Integer index = (Integer) valueToIndexMap.get(value);
+        if (index == null) {
+            writeString(value);
+        } else {
+            out.write(index.toString());
+        }
+    }
+}
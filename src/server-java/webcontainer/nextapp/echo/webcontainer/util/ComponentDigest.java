@@ -0,0 +1,255 @@
+/* 
+ * This file is part of the Echo Web Application Framework (hereinafter "Echo").
+ * Copyright (C) 2002-2009 NextApp, Inc.
+ *
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ */
+
+package nextapp.echo.webcontainer.util;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+/**
+ * Computes digests of the rendered states of components in a server message, used to determine which components
+ * of a resynchronizing client's hierarchy are current.
+ * <p>
+ * The digest of a component (<code>c</code>) element covers the state of the component itself, i.e., its 
+ * attributes and all of its content other than its child component elements, of which only the identifiers 
+ * (in order) are included.  A component whose digest is unchanged thus has the same state and the same children, 
+ * while the states of its children must be compared individually.  The digest of any other element covers its 
+ * entire content.
+ * <p>
+ * Referenced properties (<code>p</code> elements with an <code>r</code> attribute) and referenced styles 
+ * (<code>sr</code> elements) are digested by value, i.e., by the content of the referenced <code>p</code> element
+ * of the <code>rp</code> directive or the referenced <code>s</code> element of the <code>rs</code> directive, 
+ * such that digests do not depend on the reference keys assigned by a particular server message.
+ */
+public class ComponentDigest {
+    
+    /** The name of the attribute in which digests are rendered. */
+    public static final String ATTRIBUTE_DIGEST = "dg";
+    
+    /** FNV-1a 64-bit offset basis. */
+    private static final long OFFSET_BASIS = 0xcbf29ce484222325L;
+    
+    /** FNV-1a 64-bit prime. */
+    private static final long PRIME = 0x100000001b3L;
+    
+    /**
+     * Creates a mapping between the <code>i</code> (key) attributes of the child elements of a reference 
+     * directive element and the child elements.
+     * 
+     * @param directiveElement the <code>rp</code> or <code>rs</code> element (may be null)
+     * @return the mapping
+     */
+    private static Map createReferenceMap(Element directiveElement) {
+        Map referenceMap = new HashMap();
+        if (directiveElement == null) {
+            return referenceMap;
+        }
+        Node node = directiveElement.getFirstChild();
+        while (node != null) {
+            if (node.getNodeType() == Node.ELEMENT_NODE) {
+                referenceMap.put(((Element) node).getAttribute("i"), node);
+            }
+            node = node.getNextSibling();
+        }
+        return referenceMap;
+    }
+    
+    /** Mapping between referenced property keys and <code>p</code> elements. */
+    private Map propertyReferenceMap;
+    
+    /** Mapping between referenced style keys and <code>s</code> elements. */
+    private Map styleReferenceMap;
+    
+    /**
+     * Creates a new <code>ComponentDigest</code>.
+     * 
+     * @param rpElement the referenced property (<code>rp</code>) element of the server message, if any
+     * @param rsElement the referenced style (<code>rs</code>) element of the server message, if any
+     */
+    public ComponentDigest(Element rpElement, Element rsElement) {
+        super();
+        propertyReferenceMap = createReferenceMap(rpElement);
+        styleReferenceMap = createReferenceMap(rsElement);
+    }
+    
+    /**
+     * Sets the digest attribute of a component element and of all of its descendant component elements.
+     * 
+     * @param cElement the component element
+     */
+    public void annotate(Element cElement) {
+        cElement.setAttribute(ATTRIBUTE_DIGEST, getDigest(cElement));
+        Node node = cElement.getFirstChild();
+        while (node != null) {
+            if (isComponentElement(node)) {
+                annotate((Element) node);
+            }
+            node = node.getNextSibling();
+        }
+    }
+    
+    /**
+     * Returns the digest of an element.
+     * 
+     * @param element the element, e.g., a component (<code>c</code>) or style sheet (<code>ss</code>) element
+     * @return the digest
+     */
+    public String getDigest(Element element) {
+        return Long.toString(hashElement(OFFSET_BASIS, element, false), 36);
+    }
+    
+    /**
+     * Updates a hash with the attributes of an element.
+     * 
+     * @param hash the hash
+     * @param element the element
+     * @param component flag indicating whether the element is a component element, in which case its digest and
+     *        index attributes are omitted
+     * @param excludedName the name of an attribute to omit, or null
+     * @return the updated hash
+     */
+    private long hashAttributes(long hash, Element element, boolean component, String excludedName) {
+        NamedNodeMap attributes = element.getAttributes();
+        int length = attributes.getLength();
+        if (length == 0) {
+            return hash;
+        }
+        String[] names = new String[length];
+        for (int i = 0; i < length; ++i) {
+            names[i] = attributes.item(i).getNodeName();
+        }
+        if (length > 1) {
+            Arrays.sort(names);
+        }
+        for (int i = 0; i < length; ++i) {
+            if (names[i].equals(excludedName)) {
+                continue;
+            }
+            if (component && (ATTRIBUTE_DIGEST.equals(names[i]) || "x".equals(names[i]))) {
+                continue;
+            }
+            hash = hashString(hash, '@', names[i]);
+            if (!component && "r".equals(names[i]) && "p".equals(element.getNodeName())) {
+                // Referenced property: hash referenced value.
+                hash = hashReference(hash, propertyReferenceMap, element.getAttribute("r"));
+            } else {
+                hash = hashString(hash, '=', element.getAttribute(names[i]));
+            }
+        }
+        return hash;
+    }
+    
+    /**
+     * Updates a hash with an element and its content.
+     * 
+     * @param hash the hash
+     * @param element the element
+     * @param excludeKey flag indicating whether the <code>i</code> (key) attribute of the element should be omitted,
+     *        i.e., if it is a referenced element
+     * @return the updated hash
+     */
+    private long hashElement(long hash, Element element, boolean excludeKey) {
+        boolean component = isComponentElement(element);
+        hash = hashString(hash, '<', element.getNodeName());
+        hash = hashAttributes(hash, element, component, excludeKey ? "i" : null);
+        
+        if ("sr".equals(element.getNodeName()) && element.getFirstChild() != null) {
+            // Referenced style: hash referenced value.
+            return hashReference(hash, styleReferenceMap, element.getFirstChild().getNodeValue());
+        }
+        
+        Node node = element.getFirstChild();
+        while (node != null) {
+            switch (node.getNodeType()) {
+            case Node.ELEMENT_NODE:
+                if (component && isComponentElement(node)) {
+                    // Child component: hash identifier only.
+                    hash = hashString(hash, '#', ((Element) node).getAttribute("i"));
+                } else {
+                    hash = hashElement(hash, (Element) node, false);
+                }
+                break;
+            case Node.TEXT_NODE:
+            case Node.CDATA_SECTION_NODE:
+                hash = hashString(hash, '"', node.getNodeValue());
+                break;
+            }
+            node = node.getNextSibling();
+        }
+        return hashString(hash, '>', "");
+    }
+    
+    /**
+     * Updates a hash with a referenced element.
+     * 
+     * @param hash the hash
+     * @param referenceMap the mapping between keys and referenced elements
+     * @param key the reference key
+     * @return the updated hash
+     */
+    private long hashReference(long hash, Map referenceMap, String key) {
+        Element referencedElement = (Element) referenceMap.get(key);
+        if (referencedElement == null) {
+            return hashString(hash, '?', key);
+        }
+        return hashElement(hash, referencedElement, true);
+    }
+    
+    /**
+     * Updates a hash with a delimiter character and a string.
+     * 
+     * @param hash the hash
+     * @param delimiter the delimiter
+     * @param s the string
+     * @return the updated hash
+     */
+    private static long hashString(long hash, char delimiter, String s) {
+        hash = (hash ^ delimiter) * PRIME;
+        int length = s.length();
+        for (int i = 0; i < length; ++i) {
+            hash = (hash ^ s.charAt(i)) * PRIME;
+        }
+        return hash;
+    }
+    
+    /**
+     * Determines whether a node is a component (<code>c</code>) element.
+     * 
+     * @param node the node
+     * @return true if the node is a component element
+     */
+    private static boolean isComponentElement(Node node) {
+        return node.getNodeType() == Node.ELEMENT_NODE && "c".equals(node.getNodeName());
+    }
+}
@@ -0,0 +1,430 @@
+/* 
+ * This file is part of the Echo Web Application Framework (hereinafter "Echo").
+ * Copyright (C) 2002-2009 NextApp, Inc.
+ *
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ */
+
+package nextapp.echo.webcontainer.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.AccessControlException;
+import java.util.StringTokenizer;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * An <code>OutputStream</code> which compresses its content using GZip or deflate encoding, 
+ * provided that the total content size reaches a threshold.
+ * Content is buffered until the threshold is reached; content which never reaches it
+ * is written to the underlying stream uncompressed when the stream is finished.
+ * <code>Deflater</code>s are obtained from the <code>DeflaterPool</code>, and 
+ * results are recorded in <code>CompressionStatistics</code>, if provided.
+ * <p>
+ * <code>finish()</code> (or <code>close()</code>) must be invoked to complete the content, or 
+ * <code>release()</code> to abandon it.
+ */
+public class CompressingOutputStream extends OutputStream {
+    
+    /** GZip content encoding. */
+    public static final String ENCODING_GZIP = "gzip";
+    
+    /** Deflate (ZLIB) content encoding. */
+    public static final String ENCODING_DEFLATE = "deflate";
+    
+    /** GZip member header: magic, deflate method, no flags, no modification time, unknown OS. */
+    private static final byte[] GZIP_HEADER = { 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff };
+
+    /** Size of output buffer used to retrieve compressed data from the <code>Deflater</code>. */
+    private static final int DEFLATE_BUFFER_SIZE = 8192;
+    
+    /**
+     * Flag indicating whether compression should be used for versions of Internet Explorer 
+     * prior to 7.0, configured by the "echo.allowiecompression" system property.
+     */
+    private static boolean allowIEcompression = false;
+    static {
+        try {
+            if ("true".equals(System.getProperty("echo.allowiecompression"))) {
+                allowIEcompression = true;
+            }
+        }
+        catch (AccessControlException ignored) {} // if running under a security manager
+    }
+    
+    /**
+     * Determines the content encoding which should be used to compress a response.
+     * 
+     * @param acceptEncoding the value of the request's "Accept-Encoding" header
+     * @param userAgent the value of the request's "User-Agent" header
+     * @return the content encoding, either <code>ENCODING_GZIP</code> or 
+     *         <code>ENCODING_DEFLATE</code>, or null if the response should not be compressed
+     */
+    public static String getContentEncoding(String acceptEncoding, String userAgent) {
+        if (acceptEncoding == null || !isCompressionSupported(userAgent)) {
+            return null;
+        }
+        boolean deflate = false;
+        StringTokenizer st = new StringTokenizer(acceptEncoding, ",");
+        while (st.hasMoreTokens()) {
+            String token = st.nextToken().trim();
+            String coding = token;
+            int semicolonIndex = token.indexOf(';');
+            if (semicolonIndex != -1) {
+                coding = token.substring(0, semicolonIndex).trim();
+                String parameter = token.substring(semicolonIndex + 1).replaceAll("\\s", "");
+                if (parameter.matches("q=0(\\.0*)?")) {
+                    // Encoding explicitly refused.
+                    continue;
+                }
+            }
+            if (ENCODING_GZIP.equalsIgnoreCase(coding) || "x-gzip".equalsIgnoreCase(coding)) {
+                return ENCODING_GZIP;
+            } else if (ENCODING_DEFLATE.equalsIgnoreCase(coding)) {
+                deflate = true;
+            }
+        }
+        return deflate ? ENCODING_DEFLATE : null;
+    }
+    
+    /**
+     * Determines whether HTTP compression may be used with a user agent.
+     * Due to behavior detailed in Microsoft Knowledge Base Article Id 312496, 
+     * compression is disabled for Internet Explorer versions prior to 7.0 
+     * (unless the "echo.allowiecompression" system property is set).
+     * Due to the fact that <code>ClientProperties</code> information is not necessarily 
+     * available at this stage, browsers which provide deceitful user-agent 
+     * headers will also be affected.
+     * 
+     * @param userAgent the value of the request's "User-Agent" header
+     * @return true if compression may be used
+     */
+    public static boolean isCompressionSupported(String userAgent) {
+        if (allowIEcompression) {
+            return true;
+        }
+        if (userAgent == null) {
+            return false;
+        }
+        int msieIndex = userAgent.indexOf("MSIE ");
+        if (msieIndex == -1) {
+            return true;
+        }
+        int versionStart = msieIndex + 5;
+        int versionEnd = versionStart;
+        while (versionEnd < userAgent.length() && Character.isDigit(userAgent.charAt(versionEnd))) {
+            ++versionEnd;
+        }
+        if (versionEnd == versionStart) {
+            return false;
+        }
+        return Integer.parseInt(userAgent.substring(versionStart, versionEnd)) >= 7;
+    }
+    
+    /** The underlying <code>OutputStream</code>. */
+    private OutputStream out;
+    
+    /** Flag indicating whether GZip (true) or deflate (false) encoding is used. */
+    private boolean gzip;
+    
+    /** The minimum content size, in bytes, at which compression will be used. */
+    private int threshold;
+    
+    /** Buffer of content written before the threshold was reached, null after compression has started. */
+    private byte[] buffer;
+    
+    /** Number of bytes stored in <code>buffer</code>. */
+    private int bufferLength;
+    
+    /** The <code>Deflater</code>, non-null only while compressing. */
+    private Deflater deflater;
+    
+    /** Buffer used to retrieve compressed data from the <code>Deflater</code>. */
+    private byte[] deflateBuffer;
+    
+    /** Checksum of uncompressed content (GZip encoding only). */
+    private CRC32 crc;
+    
+    /** Number of uncompressed bytes written to the <code>Deflater</code>. */
+    private long bytesIn;
+    
+    /** Number of bytes written to the underlying <code>OutputStream</code>. */
+    private long bytesOut;
+    
+    /** Single-byte buffer used by <code>write(int)</code>. */
+    private byte[] singleByte;
+    
+    /** Flag indicating whether compression has started. */
+    private boolean compressing;
+    
+    /** Flag indicating whether the stream has been finished. */
+    private boolean finished;
+    
+    /** The statistics in which results are recorded, or null. */
+    private CompressionStatistics statistics;
+
+    /**
+     * Creates a new <code>CompressingOutputStream</code> which does not record statistics.
+     * 
+     * @param out the underlying <code>OutputStream</code>
+     * @param encoding the content encoding, <code>ENCODING_GZIP</code> or <code>ENCODING_DEFLATE</code>
+     * @param threshold the minimum content size, in bytes, at which compression will be used
+     */
+    public CompressingOutputStream(OutputStream out, String encoding, int threshold) {
+        this(out, encoding, threshold, null);
+    }
+
+    /**
+     * Creates a new <code>CompressingOutputStream</code>.
+     * 
+     * @param out the underlying <code>OutputStream</code>
+     * @param encoding the content encoding, <code>ENCODING_GZIP</code> or <code>ENCODING_DEFLATE</code>
+     * @param threshold the minimum content size, in bytes, at which compression will be used
+     * @param statistics the <code>CompressionStatistics</code> in which results should be recorded, or null
+     */
+    public CompressingOutputStream(OutputStream out, String encoding, int threshold, 
+            CompressionStatistics statistics) {
+        super();
+        this.statistics = statistics;
+        if (!ENCODING_GZIP.equals(encoding) && !ENCODING_DEFLATE.equals(encoding)) {
+            throw new IllegalArgumentException("Unsupported content encoding: " + encoding);
+        }
+        this.out = out;
+        this.gzip = ENCODING_GZIP.equals(encoding);
+        this.threshold = Math.max(threshold, 0);
+        buffer = new byte[this.threshold];
+    }
+    
+    /**
+     * Processor invoked when the content size first reaches the threshold, before any compressed data 
+     * is written to the underlying <code>OutputStream</code>.
+     * Subclasses may override this method, e.g., to set a "Content-Encoding" response header.
+     * The default implementation does nothing.
+     * 
+     * @throws IOException
+     */
+    protected void compressionStarted() 
+    throws IOException {
+    }
+    
+    /**
+     * Finishes the content and closes the underlying <code>OutputStream</code>.
+     * 
+     * @see java.io.OutputStream#close()
+     */
+    public void close() 
+    throws IOException {
+        finish();
+        out.close();
+    }
+    
+    /**
+     * Writes all available compressed data from the <code>Deflater</code> to the underlying 
+     * <code>OutputStream</code>.
+     * 
+     * @throws IOException
+     */
+    private void drain() 
+    throws IOException {
+        int length;
+        while ((length = deflater.deflate(deflateBuffer, 0, deflateBuffer.length)) > 0) {
+            out.write(deflateBuffer, 0, length);
+            bytesOut += length;
+        }
+    }
+    
+    /**
+     * Finishes writing content without closing the underlying <code>OutputStream</code>.
+     * If the threshold has not been reached, the buffered content will be written uncompressed.
+     * Subsequent invocations have no effect.
+     * 
+     * @throws IOException
+     */
+    public void finish() 
+    throws IOException {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        if (!compressing) {
+            out.write(buffer, 0, bufferLength);
+            if (statistics != null) {
+                statistics.recordUncompressed(bufferLength);
+            }
+            buffer = null;
+        } else {
+            try {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    int length = deflater.deflate(deflateBuffer, 0, deflateBuffer.length);
+                    out.write(deflateBuffer, 0, length);
+                    bytesOut += length;
+                }
+                if (gzip) {
+                    writeIntLE(crc.getValue());
+                    writeIntLE(bytesIn);
+                    bytesOut += 8;
+                }
+            } finally {
+                DeflaterPool.release(deflater, gzip);
+                deflater = null;
+            }
+            if (statistics != null) {
+                statistics.recordCompressed(bytesIn, bytesOut);
+            }
+        }
+        out.flush();
+    }
+    
+    /**
+     * Flushes the underlying <code>OutputStream</code> once compression has started.
+     * Content buffered before the threshold is reached is not flushed.
+     * 
+     * @see java.io.OutputStream#flush()
+     */
+    public void flush() 
+    throws IOException {
+        if (deflater != null) {
+            out.flush();
+        }
+    }
+    
+    /**
+     * Determines whether the content is being compressed, i.e., whether the threshold has been reached.
+     * 
+     * @return true if the content is being compressed
+     */
+    public boolean isCompressing() {
+        return compressing;
+    }
+    
+    /**
+     * Abandons the content without completing it, e.g., if an error occurs while it is being written,
+     * returning the <code>Deflater</code> to the pool if compression has started.
+     * Nothing further is written to the underlying <code>OutputStream</code>.
+     * Has no effect if the stream has been finished.
+     */
+    public void release() {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        buffer = null;
+        if (deflater != null) {
+            DeflaterPool.release(deflater, gzip);
+            deflater = null;
+        }
+    }
+    
+    /**
+     * Begins compression, writing any buffered content to the <code>Deflater</code>.
+     * 
+     * @throws IOException
+     */
+    private void startCompression() 
+    throws IOException {
+        compressionStarted();
+        compressing = true;
+        deflater = DeflaterPool.acquire(gzip);
+        deflateBuffer = new byte[DEFLATE_BUFFER_SIZE];
+        if (gzip) {
+            crc = new CRC32();
+            out.write(GZIP_HEADER);
+            bytesOut += GZIP_HEADER.length;
+        }
+        byte[] bufferedContent = buffer;
+        buffer = null;
+        writeCompressed(bufferedContent, 0, bufferLength);
+    }
+    
+    /**
+     * @see java.io.OutputStream#write(byte[], int, int)
+     */
+    public void write(byte[] b, int off, int len) 
+    throws IOException {
+        if (finished) {
+            throw new IOException("Stream finished.");
+        }
+        if (buffer != null) {
+            if (bufferLength + len < threshold) {
+                System.arraycopy(b, off, buffer, bufferLength, len);
+                bufferLength += len;
+                return;
+            }
+            startCompression();
+        }
+        writeCompressed(b, off, len);
+    }
+    
+    /**
+     * @see java.io.OutputStream#write(int)
+     */
+    public void write(int b) 
+    throws IOException {
+        if (singleByte == null) {
+            singleByte = new byte[1];
+        }
+        singleByte[0] = (byte) b;
+        write(singleByte, 0, 1);
+    }
+    
+    /**
+     * Writes content to the <code>Deflater</code>.
+     * 
+     * @param b the content
+     * @param off the offset of the content in <code>b</code>
+     * @param len the length of the content
+     * @throws IOException
+     */
+    private void writeCompressed(byte[] b, int off, int len) 
+    throws IOException {
+        if (len == 0) {
+            return;
+        }
+        if (gzip) {
+            crc.update(b, off, len);
+        }
+        bytesIn += len;
+        deflater.setInput(b, off, len);
+        while (!deflater.needsInput()) {
+            drain();
+        }
+    }
+    
+    /**
+     * Writes the low-order 32 bits of a value in little-endian byte order (as required by the GZip trailer).
+     * 
+     * @param value the value
+     * @throws IOException
+     */
+    private void writeIntLE(long value) 
+    throws IOException {
+        out.write((int) value & 0xff);
+        out.write((int) (value >> 8) & 0xff);
+        out.write((int) (value >> 16) & 0xff);
+        out.write((int) (value >> 24) & 0xff);
+    }
+}
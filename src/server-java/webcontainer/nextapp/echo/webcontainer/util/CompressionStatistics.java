@@ -0,0 +1,143 @@
+/* 
+ * This file is part of the Echo Web Application Framework (hereinafter "Echo").
+ * Copyright (C) 2002-2009 NextApp, Inc.
+ *
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ */
+
+package nextapp.echo.webcontainer.util;
+
+/**
+ * Accumulated statistics describing the effectiveness of response compression performed by 
+ * <code>CompressingOutputStream</code>s.
+ * Each <code>WebContainerServlet</code> maintains its own instance.
+ */
+public class CompressionStatistics {
+    
+    /** Number of compressed responses. */
+    private long compressedCount;
+    
+    /** Number of responses rendered uncompressed due to the compression threshold. */
+    private long uncompressedCount;
+    
+    /** Total size of compressed responses, before compression. */
+    private long compressedBytesIn;
+    
+    /** Total size of compressed responses, after compression. */
+    private long compressedBytesOut;
+    
+    /** Total size of responses rendered uncompressed due to the compression threshold. */
+    private long uncompressedBytes;
+    
+    /**
+     * Returns the number of responses which were compressed.
+     * 
+     * @return the number of compressed responses
+     */
+    public synchronized long getCompressedCount() {
+        return compressedCount;
+    }
+    
+    /**
+     * Returns the total size of compressed responses, before compression.
+     * 
+     * @return the size, in bytes
+     */
+    public synchronized long getCompressedBytesIn() {
+        return compressedBytesIn;
+    }
+    
+    /**
+     * Returns the total size of compressed responses, after compression.
+     * 
+     * @return the size, in bytes
+     */
+    public synchronized long getCompressedBytesOut() {
+        return compressedBytesOut;
+    }
+    
+    /**
+     * Returns the compression ratio of compressed responses, i.e., the total size after compression 
+     * divided by the total size before compression.
+     * 
+     * @return the compression ratio, or 1 if no responses have been compressed
+     */
+    public synchronized double getCompressionRatio() {
+        return compressedBytesIn == 0 ? 1 : (double) compressedBytesOut / compressedBytesIn;
+    }
+    
+    /**
+     * Returns the number of responses which were eligible for compression but were rendered 
+     * uncompressed due to being smaller than the compression threshold.
+     * 
+     * @return the number of uncompressed responses
+     */
+    public synchronized long getUncompressedCount() {
+        return uncompressedCount;
+    }
+    
+    /**
+     * Returns the total size of responses which were eligible for compression but were rendered 
+     * uncompressed due to being smaller than the compression threshold.
+     * 
+     * @return the size, in bytes
+     */
+    public synchronized long getUncompressedBytes() {
+        return uncompressedBytes;
+    }
+    
+    /**
+     * Records a compressed response.
+     * 
+     * @param bytesIn the size of the response before compression
+     * @param bytesOut the size of the response after compression
+     */
+    synchronized void recordCompressed(long bytesIn, long bytesOut) {
+        ++compressedCount;
+        compressedBytesIn += bytesIn;
+        compressedBytesOut += bytesOut;
+    }
+    
+    /**
+     * Records a response rendered uncompressed due to being smaller than the compression threshold.
+     * 
+     * @param bytes the size of the response
+     */
+    synchronized void recordUncompressed(long bytes) {
+        ++uncompressedCount;
+        uncompressedBytes += bytes;
+    }
+    
+    /**
+     * Resets all statistics.
+     */
+    public synchronized void reset() {
+        compressedCount = 0;
+        uncompressedCount = 0;
+        compressedBytesIn = 0;
+        compressedBytesOut = 0;
+        uncompressedBytes = 0;
+    }
+}
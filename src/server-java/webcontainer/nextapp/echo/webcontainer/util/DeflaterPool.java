@@ -0,0 +1,96 @@
+/* 
+ * This file is part of the Echo Web Application Framework (hereinafter "Echo").
+ * Copyright (C) 2002-2009 NextApp, Inc.
+ *
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ */
+
+package nextapp.echo.webcontainer.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.Deflater;
+
+/**
+ * A pool of <code>Deflater</code>s, used to avoid allocating (and finalizing) native compression 
+ * state for every compressed response.
+ * Separate pools are maintained for <code>Deflater</code>s which produce raw (GZip-wrapped) and 
+ * ZLIB-wrapped output.  All pooled <code>Deflater</code>s use the same compression level.
+ */
+public class DeflaterPool {
+
+    /** The compression level used by pooled <code>Deflater</code>s. */
+    public static final int LEVEL = Deflater.DEFAULT_COMPRESSION;
+    
+    /** Maximum number of idle <code>Deflater</code>s retained by each pool. */
+    private static final int MAXIMUM_IDLE = 16;
+    
+    /** Idle <code>Deflater</code>s producing raw output. */
+    private static final List rawPool = new ArrayList();
+    
+    /** Idle <code>Deflater</code>s producing ZLIB-wrapped output. */
+    private static final List zlibPool = new ArrayList();
+    
+    /**
+     * Retrieves a <code>Deflater</code> from the pool, creating a new one if none is available.
+     * 
+     * @param nowrap true to retrieve a <code>Deflater</code> producing raw output (as used by GZip),
+     *        false to retrieve one producing ZLIB-wrapped output
+     * @return the <code>Deflater</code>
+     */
+    public static Deflater acquire(boolean nowrap) {
+        List pool = nowrap ? rawPool : zlibPool;
+        synchronized (pool) {
+            int size = pool.size();
+            if (size > 0) {
+                return (Deflater) pool.remove(size - 1);
+            }
+        }
+        return new Deflater(LEVEL, nowrap);
+    }
+    
+    /**
+     * Returns a <code>Deflater</code> to the pool.
+     * The <code>Deflater</code> will be reset, or disposed if the pool is full.
+     * The <code>Deflater</code> may not be used by the caller after it has been released.
+     * 
+     * @param deflater the <code>Deflater</code>, which must have been retrieved by <code>acquire()</code>
+     * @param nowrap the value of <code>nowrap</code> with which the <code>Deflater</code> was acquired
+     */
+    public static void release(Deflater deflater, boolean nowrap) {
+        deflater.reset();
+        List pool = nowrap ? rawPool : zlibPool;
+        synchronized (pool) {
+            if (pool.size() < MAXIMUM_IDLE) {
+                pool.add(deflater);
+                return;
+            }
+        }
+        deflater.end();
+    }
+    
+    /** Non-instantiable class. */
+    private DeflaterPool() { }
+}
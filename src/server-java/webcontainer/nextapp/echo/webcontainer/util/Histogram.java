@@ -0,0 +1,207 @@
+/* 
+ * This file is part of the Echo Web Application Framework (hereinafter "Echo").
+ * Copyright (C) 2002-2009 NextApp, Inc.
+ *
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ */
+
+package nextapp.echo.webcontainer.util;
+
+import java.io.Serializable;
+
+/**
+ * A thread-safe histogram of non-negative <code>long</code> values, e.g., durations or sizes.
+ * <p>
+ * Values are counted in logarithmic buckets (four per power of two), such that memory usage is constant 
+ * and percentiles are reported with a relative error of at most 25%.  The minimum, maximum, and mean
+ * are exact.
+ */
+public class Histogram 
+implements Serializable {
+
+    /** Serial Version UID. */
+    private static final long serialVersionUID = 20070101L;
+
+    /** Number of buckets per power of two (must itself be a power of two). */
+    private static final int SUB_BUCKETS = 4;
+    
+    /** log2(<code>SUB_BUCKETS</code>). */
+    private static final int SUB_BUCKET_BITS = 2;
+    
+    /** Total number of buckets, sufficient for all non-negative <code>long</code> values. */
+    private static final int BUCKET_COUNT = SUB_BUCKETS + (63 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+    
+    /**
+     * Returns the index of the bucket containing a value.
+     * 
+     * @param value the value
+     * @return the bucket index
+     */
+    private static int getBucketIndex(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int magnitude = 63;
+        while ((value & (1L << magnitude)) == 0) {
+            --magnitude;
+        }
+        int shift = magnitude - SUB_BUCKET_BITS;
+        return SUB_BUCKETS + shift * SUB_BUCKETS + (int) ((value >> shift) & (SUB_BUCKETS - 1));
+    }
+    
+    /**
+     * Returns the largest value contained in a bucket.
+     * 
+     * @param index the bucket index
+     * @return the largest value
+     */
+    private static long getBucketUpperBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKETS) / SUB_BUCKETS;
+        long lowerBound = ((long) (SUB_BUCKETS + (index - SUB_BUCKETS) % SUB_BUCKETS)) << shift;
+        return lowerBound + (1L << shift) - 1;
+    }
+    
+    /** Bucket counts. */
+    private long[] buckets = new long[BUCKET_COUNT];
+    
+    /** Number of recorded values. */
+    private long count;
+    
+    /** Sum of recorded values. */
+    private long sum;
+    
+    /** Minimum recorded value. */
+    private long min = Long.MAX_VALUE;
+    
+    /** Maximum recorded value. */
+    private long max;
+
+    /**
+     * Returns the number of recorded values.
+     * 
+     * @return the count
+     */
+    public synchronized long getCount() {
+        return count;
+    }
+    
+    /**
+     * Returns the largest recorded value.
+     * 
+     * @return the maximum, or 0 if no values have been recorded
+     */
+    public synchronized long getMax() {
+        return max;
+    }
+    
+    /**
+     * Returns the mean of the recorded values.
+     * 
+     * @return the mean, or 0 if no values have been recorded
+     */
+    public synchronized long getMean() {
+        return count == 0 ? 0 : sum / count;
+    }
+    
+    /**
+     * Returns the smallest recorded value.
+     * 
+     * @return the minimum, or 0 if no values have been recorded
+     */
+    public synchronized long getMin() {
+        return count == 0 ? 0 : min;
+    }
+    
+    /**
+     * Returns an approximation of a percentile of the recorded values.
+     * The returned value is the upper bound of the bucket containing the percentile, limited to the
+     * recorded maximum.
+     * 
+     * @param percentile the percentile, between 0 and 100
+     * @return the approximate value, or 0 if no values have been recorded
+     */
+    public synchronized long getPercentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(percentile / 100 * count);
+        if (rank < 1) {
+            rank = 1;
+        }
+        long accumulated = 0;
+        for (int i = 0; i < BUCKET_COUNT; ++i) {
+            accumulated += buckets[i];
+            if (accumulated >= rank) {
+                return Math.min(getBucketUpperBound(i), max);
+            }
+        }
+        return max;
+    }
+    
+    /**
+     * Returns the sum of the recorded values.
+     * 
+     * @return the sum
+     */
+    public synchronized long getSum() {
+        return sum;
+    }
+    
+    /**
+     * Records a value.
+     * 
+     * @param value the value (negative values are recorded as 0)
+     */
+    public synchronized void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        ++buckets[getBucketIndex(value)];
+        ++count;
+        sum += value;
+        if (value < min) {
+            min = value;
+        }
+        if (value > max) {
+            max = value;
+        }
+    }
+    
+    /**
+     * Discards all recorded values.
+     */
+    public synchronized void reset() {
+        for (int i = 0; i < BUCKET_COUNT; ++i) {
+            buckets[i] = 0;
+        }
+        count = 0;
+        sum = 0;
+        min = Long.MAX_VALUE;
+        max = 0;
+    }
+}
@@ -151,6 +151,18 @@ implements Serializable {
         }
     }
 
+    /**
+     * Returns the number of registered identifiers, including those of objects which have been garbage collected
+     * but not yet purged.
+     * 
+     * @return the number of registered identifiers
+     */
+    public int size() {
+        synchronized(idToReferenceMap) {
+            return idToReferenceMap.size();
+        }
+    }
+
     /**
      * @see java.io.Serializable
      * 
@@ -0,0 +1,140 @@
+/* 
+ * This file is part of the Echo Web Application Framework (hereinafter "Echo").
+ * Copyright (C) 2002-2009 NextApp, Inc.
+ *
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ */
+
+package nextapp.echo.webcontainer.util;
+
+import java.util.Iterator;
+
+import nextapp.echo.app.Component;
+import nextapp.echo.app.Style;
+import nextapp.echo.app.update.ServerComponentUpdate;
+
+/**
+ * Estimates the heap memory retained by component hierarchies.
+ * <p>
+ * Estimates are approximate: each component and each locally set style property is charged a fixed size 
+ * (plus the length of <code>String</code> property values).  Shared style sheets, models and application-specific 
+ * state referenced by components are not included.
+ */
+public class MemoryEstimator {
+
+    /** Estimated size of a <code>Component</code>, excluding its properties, in bytes. */
+    public static final int COMPONENT_SIZE = 128;
+    
+    /** Estimated size of the cached rendered state of a component, in bytes. */
+    public static final int FRAGMENT_COMPONENT_SIZE = 512;
+    
+    /** Estimated size of an <code>IdTable</code> entry, in bytes. */
+    public static final int ID_TABLE_ENTRY_SIZE = 64;
+    
+    /** Estimated size of a style property, excluding the value, in bytes. */
+    public static final int PROPERTY_SIZE = 24;
+    
+    /** Estimated size of a non-<code>String</code> style property value, in bytes. */
+    public static final int PROPERTY_VALUE_SIZE = 32;
+    
+    /** Estimated size of a render state, in bytes. */
+    public static final int RENDER_STATE_SIZE = 64;
+    
+    /** Estimated size of a <code>String</code>, excluding its characters, in bytes. */
+    public static final int STRING_SIZE = 40;
+    
+    /** Estimated size of a task queue, excluding its tasks, in bytes. */
+    public static final int TASK_QUEUE_SIZE = 64;
+    
+    /** Estimated size of a user instance and its application instance, excluding components, in bytes. */
+    public static final int USER_INSTANCE_SIZE = 2048;
+    
+    /**
+     * Estimates the size of a component hierarchy.
+     * 
+     * @param component the root component of the hierarchy (may be null)
+     * @return the estimated size, in bytes
+     */
+    public static long estimateComponent(Component component) {
+        if (component == null) {
+            return 0;
+        }
+        long size = COMPONENT_SIZE + estimateStyle(component.getLocalStyle());
+        int childCount = component.getComponentCount();
+        for (int i = 0; i < childCount; ++i) {
+            size += estimateComponent(component.getComponent(i));
+        }
+        return size;
+    }
+    
+    /**
+     * Estimates the size of a style.
+     * 
+     * @param style the style (may be null)
+     * @return the estimated size, in bytes
+     */
+    public static long estimateStyle(Style style) {
+        if (style == null) {
+            return 0;
+        }
+        long size = 0;
+        Iterator it = style.getPropertyNames();
+        while (it.hasNext()) {
+            Object value = style.get((String) it.next());
+            size += PROPERTY_SIZE;
+            if (value instanceof String) {
+                size += STRING_SIZE + 2 * ((String) value).length();
+            } else if (value != null) {
+                size += PROPERTY_VALUE_SIZE;
+            }
+        }
+        return size;
+    }
+    
+    /**
+     * Estimates the change in size of the component hierarchy described by a set of component updates, i.e., 
+     * the size of added components less the size of removed components.  Property updates are not considered.
+     * 
+     * @param updates the updates
+     * @return the estimated change in size, in bytes
+     */
+    public static long estimateUpdates(ServerComponentUpdate[] updates) {
+        long size = 0;
+        for (int i = 0; i < updates.length; ++i) {
+            Component[] components = updates[i].getAddedChildren();
+            for (int j = 0; j < components.length; ++j) {
+                size += estimateComponent(components[j]);
+            }
+            components = updates[i].getRemovedChildren();
+            for (int j = 0; j < components.length; ++j) {
+                size -= estimateComponent(components[j]);
+            }
+        }
+        return size;
+    }
+    
+    /** Non-instantiable class. */
+    private MemoryEstimator() { }
+}
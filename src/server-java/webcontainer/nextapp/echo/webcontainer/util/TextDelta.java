@@ -0,0 +1,174 @@
+/* 
+ * This file is part of the Echo Web Application Framework (hereinafter "Echo").
+ * Copyright (C) 2002-2009 NextApp, Inc.
+ *
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ */
+
+package nextapp.echo.webcontainer.util;
+
+/**
+ * Encodes and applies text deltas, used to synchronize changes to large text values between client and server
+ * without transmitting the entire value.
+ * <p>
+ * A delta is a <code>String</code> of the form <code>checksum:offset:deleteLength:insertText</code>, describing the
+ * replacement of <code>deleteLength</code> characters at <code>offset</code> with <code>insertText</code>.
+ * A <code>deleteLength</code> of -1 indicates that the entire text is replaced, i.e., that the delta may be applied
+ * without knowledge of the previous text.  The checksum is that of the resulting text, as computed by 
+ * <code>checksum()</code>, such that a delta applied to the wrong base text is detected.
+ * <p>
+ * Offsets and lengths are measured in UTF-16 code units.  Deltas never divide surrogate pairs.
+ * The client-side implementation is <code>Echo.Sync.RemoteTextComponent.TextDelta</code>.
+ */
+public class TextDelta {
+    
+    /**
+     * Computes the checksum of a text value.
+     * The checksum is the value of <code>String.hashCode()</code>, which is inexpensive to compute in JavaScript 
+     * and is cached by the <code>String</code> instance.
+     * 
+     * @param text the text
+     * @return the checksum
+     */
+    public static int checksum(String text) {
+        return text.hashCode();
+    }
+
+    /**
+     * Creates a delta which transforms <code>oldText</code> into <code>newText</code>.
+     * The delta replaces the range between the longest common prefix and the longest common suffix of the two values.
+     * 
+     * @param oldText the previous text, or null if unknown (in which case the delta will replace the entire text)
+     * @param newText the new text
+     * @return the delta
+     */
+    public static String create(String oldText, String newText) {
+        StringBuffer out = new StringBuffer();
+        out.append(checksum(newText));
+        out.append(':');
+        if (oldText == null) {
+            out.append("0:-1:");
+            out.append(newText);
+            return out.toString();
+        }
+        
+        int oldLength = oldText.length();
+        int newLength = newText.length();
+        int maxCommon = Math.min(oldLength, newLength);
+        
+        int prefix = 0;
+        while (prefix < maxCommon && oldText.charAt(prefix) == newText.charAt(prefix)) {
+            ++prefix;
+        }
+        if (prefix > 0 && isHighSurrogate(newText.charAt(prefix - 1))) {
+            --prefix;
+        }
+        
+        int suffix = 0;
+        while (suffix < maxCommon - prefix 
+                && oldText.charAt(oldLength - 1 - suffix) == newText.charAt(newLength - 1 - suffix)) {
+            ++suffix;
+        }
+        if (suffix > 0 && isLowSurrogate(newText.charAt(newLength - suffix))) {
+            --suffix;
+        }
+        
+        out.append(prefix);
+        out.append(':');
+        out.append(oldLength - prefix - suffix);
+        out.append(':');
+        out.append(newText.substring(prefix, newLength - suffix));
+        return out.toString();
+    }
+    
+    /**
+     * Applies a delta to a base text.
+     * 
+     * @param baseText the base text to which the delta should be applied, or null if unknown
+     * @param delta the delta
+     * @return the resulting text, or null if the delta is malformed, cannot be applied to the base text, or the 
+     *         result does not match the checksum in the delta
+     */
+    public static String apply(String baseText, String delta) {
+        if (delta == null) {
+            return null;
+        }
+        int checksumEnd = delta.indexOf(':');
+        int offsetEnd = checksumEnd == -1 ? -1 : delta.indexOf(':', checksumEnd + 1);
+        int deleteLengthEnd = offsetEnd == -1 ? -1 : delta.indexOf(':', offsetEnd + 1);
+        if (deleteLengthEnd == -1) {
+            return null;
+        }
+        
+        int checksum, offset, deleteLength;
+        try {
+            checksum = Integer.parseInt(delta.substring(0, checksumEnd));
+            offset = Integer.parseInt(delta.substring(checksumEnd + 1, offsetEnd));
+            deleteLength = Integer.parseInt(delta.substring(offsetEnd + 1, deleteLengthEnd));
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+        String insertText = delta.substring(deleteLengthEnd + 1);
+        
+        String text;
+        if (deleteLength == -1) {
+            text = insertText;
+        } else {
+            if (baseText == null || offset < 0 || deleteLength < 0 || offset > baseText.length() - deleteLength) {
+                return null;
+            }
+            StringBuffer out = new StringBuffer(baseText.length() - deleteLength + insertText.length());
+            out.append(baseText.substring(0, offset));
+            out.append(insertText);
+            out.append(baseText.substring(offset + deleteLength));
+            text = out.toString();
+        }
+        
+        return checksum(text) == checksum ? text : null;
+    }
+    
+    /**
+     * Determines if a character is the high (leading) half of a UTF-16 surrogate pair.
+     * 
+     * @param ch the character
+     * @return true if the character is a high surrogate
+     */
+    private static boolean isHighSurrogate(char ch) {
+        return ch >= '\uD800' && ch <= '\uDBFF';
+    }
+    
+    /**
+     * Determines if a character is the low (trailing) half of a UTF-16 surrogate pair.
+     * 
+     * @param ch the character
+     * @return true if the character is a low surrogate
+     */
+    private static boolean isLowSurrogate(char ch) {
+        return ch >= '\uDC00' && ch <= '\uDFFF';
+    }
+    
+    /** Non-instantiable class. */
+    private TextDelta() { }
+}